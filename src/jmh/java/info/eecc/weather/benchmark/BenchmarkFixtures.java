@@ -0,0 +1,27 @@
+package info.eecc.weather.benchmark;
+
+/**
+ * Recorded Open-Meteo payloads used by the benchmarks, so results do not depend on the network.
+ */
+public final class BenchmarkFixtures {
+
+	public static final String WEATHER_JSON = """
+			{"latitude":52.52,"longitude":13.419998,"generationtime_ms":0.0565052032470703,"utc_offset_seconds":0,\
+			"timezone":"GMT","timezone_abbreviation":"GMT","elevation":38.0,\
+			"current_units":{"time":"iso8601","interval":"seconds","temperature_2m":"°C","relative_humidity_2m":"%",\
+			"apparent_temperature":"°C","is_day":"","weather_code":"wmo code","wind_speed_10m":"km/h",\
+			"wind_direction_10m":"°","surface_pressure":"hPa","cloud_cover":"%"},\
+			"current":{"time":"2024-01-15T14:30","interval":900,"temperature_2m":22.5,"relative_humidity_2m":65,\
+			"apparent_temperature":24.2,"is_day":1,"weather_code":2,"wind_speed_10m":12.5,"wind_direction_10m":245,\
+			"surface_pressure":1013.2,"cloud_cover":75}}""";
+
+	public static final String GEOCODING_JSON = """
+			{"results":[{"id":2950159,"name":"Berlin","latitude":52.52437,"longitude":13.41053,"elevation":74.0,\
+			"feature_code":"PPLC","country_code":"DE","admin1_id":2950157,"admin3_id":6547383,"admin4_id":6547539,\
+			"timezone":"Europe/Berlin","population":3426354,"postcodes":["10967","13347"],"country_id":2921044,\
+			"country":"Germany","admin1":"Land Berlin","admin3":"Berlin, Stadt","admin4":"Berlin"}],\
+			"generationtime_ms":0.6209612}""";
+
+	private BenchmarkFixtures() {
+	}
+}
@@ -0,0 +1,117 @@
+package info.eecc.weather.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import info.eecc.weather.WeatherApplication;
+
+/**
+ * Full request path: HTTP request to the running application, controller, service, cache and upstream client
+ * against a local stub of the Open-Meteo APIs. With {@code cache=false} every request reaches the stub.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+	@Param({ "true", "false" })
+	public boolean cache;
+
+	private HttpServer upstream;
+	private ConfigurableApplicationContext application;
+	private HttpClient client;
+	private HttpRequest byCoordinates;
+	private HttpRequest byCity;
+
+	@Setup
+	public void setUp() throws Exception {
+		// Without TCP_NODELAY the separately written headers and body wait for the client's delayed ACK
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		upstream.createContext("/v1/forecast", exchange -> respond(exchange, BenchmarkFixtures.WEATHER_JSON));
+		upstream.createContext("/v1/search", exchange -> respond(exchange, BenchmarkFixtures.GEOCODING_JSON));
+		upstream.start();
+		String upstreamUrl = "http://127.0.0.1:" + upstream.getAddress().getPort();
+
+		// Command line arguments, default properties would be overridden by application.yaml
+		application = new SpringApplicationBuilder(WeatherApplication.class).run(
+				"--server.port=0",
+				"--spring.main.banner-mode=off",
+				"--logging.level.info.eecc.weather=WARN",
+				"--weather.upstream.forecast-url=" + upstreamUrl + "/v1/forecast",
+				"--weather.upstream.geocoding-url=" + upstreamUrl + "/v1/search",
+				"--weather.upstream.http-version=HTTP_1_1",
+				"--weather.cache.enabled=" + cache,
+				"--weather.geocoding.store.enabled=false",
+				"--weather.cache.snapshot.enabled=false");
+		int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		byCoordinates = HttpRequest.newBuilder(
+				URI.create("http://127.0.0.1:" + port + "/api/weather/current?latitude=52.52&longitude=13.405")).build();
+		byCity = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/weather/current?city=Berlin"))
+				.build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+		application.close();
+		upstream.stop(0);
+	}
+
+	@Benchmark
+	public String currentWeatherByCoordinates() throws Exception {
+		return send(byCoordinates);
+	}
+
+	@Benchmark
+	public String currentWeatherByCity() throws Exception {
+		return send(byCity);
+	}
+
+	private String send(HttpRequest request) throws Exception {
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Unexpected status " + response.statusCode() + ": " + response.body());
+		}
+		return response.body();
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (var out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
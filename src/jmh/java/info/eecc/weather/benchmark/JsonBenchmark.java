@@ -0,0 +1,81 @@
+package info.eecc.weather.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.service.WeatherMapper;
+import info.eecc.weather.upstream.CurrentWeatherDecoder;
+
+/**
+ * Jackson cost of the upstream responses and of the API response, with an object mapper configured like the
+ * one Spring Boot uses for the message converters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+	private ObjectMapper objectMapper;
+	private byte[] weatherJson;
+	private byte[] geocodingJson;
+	private CurrentWeatherDto weather;
+
+	@Setup
+	public void setUp() throws Exception {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		weatherJson = BenchmarkFixtures.WEATHER_JSON.getBytes();
+		geocodingJson = BenchmarkFixtures.GEOCODING_JSON.getBytes();
+		weather = WeatherMapper.toCurrentWeatherDto(objectMapper.readValue(weatherJson, WeatherResponse.class),
+				"52.5200, 13.4200");
+	}
+
+	@Benchmark
+	public WeatherResponse readWeatherResponse() throws Exception {
+		return objectMapper.readValue(weatherJson, WeatherResponse.class);
+	}
+
+	/**
+	 * Data binding plus mapping, the work {@link #decodeCurrentObservation()} replaces.
+	 */
+	@Benchmark
+	public CurrentWeatherDto readAndMapWeatherResponse() throws Exception {
+		return WeatherMapper.toCurrentWeatherDto(objectMapper.readValue(weatherJson, WeatherResponse.class),
+				"52.5200, 13.4200");
+	}
+
+	@Benchmark
+	public CurrentObservation decodeCurrentObservation() throws Exception {
+		return CurrentWeatherDecoder.decode(new ByteArrayInputStream(weatherJson), "52.5200, 13.4200");
+	}
+
+	@Benchmark
+	public GeocodingResponse readGeocodingResponse() throws Exception {
+		return objectMapper.readValue(geocodingJson, GeocodingResponse.class);
+	}
+
+	@Benchmark
+	public byte[] writeCurrentWeatherDto() throws Exception {
+		return objectMapper.writeValueAsBytes(weather);
+	}
+}
@@ -0,0 +1,50 @@
+package info.eecc.weather.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.service.WeatherMapper;
+
+/**
+ * Mapping of the upstream response to the API DTO, including the location label formatting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+	private WeatherResponse response;
+
+	@Setup
+	public void setUp() throws Exception {
+		response = Jackson2ObjectMapperBuilder.json().build()
+				.readValue(BenchmarkFixtures.WEATHER_JSON, WeatherResponse.class);
+	}
+
+	@Benchmark
+	public String formatLocation() {
+		return WeatherMapper.formatLocation(response.getLatitude(), response.getLongitude());
+	}
+
+	@Benchmark
+	public CurrentWeatherDto toCurrentWeatherDto() {
+		return WeatherMapper.toCurrentWeatherDto(response,
+				WeatherMapper.formatLocation(response.getLatitude(), response.getLongitude()));
+	}
+}
@@ -0,0 +1,67 @@
+package info.eecc.weather.geocoding;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Offline geocoding and autocomplete lookups on a {@link PlaceIndex} of 200,000 synthetic places, about the
+ * size of the GeoNames {@code cities500} dump. Lives in the {@code geocoding} package since the index builder
+ * is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlaceIndexBenchmark {
+
+	private static final int PLACES = 200_000;
+
+	private PlaceIndex index;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		PlaceIndexBuilder builder = new PlaceIndexBuilder();
+		for (int i = 0; i < PLACES; i++) {
+			StringBuilder name = new StringBuilder();
+			int length = 4 + random.nextInt(8);
+			for (int c = 0; c < length; c++) {
+				name.append((char) ('a' + random.nextInt(26)));
+			}
+			int place = builder.addPlace(name.toString(), "Germany", null, random.nextDouble(-90, 90),
+					random.nextDouble(-180, 180), random.nextInt(5_000_000));
+			builder.addName(name.toString(), place);
+		}
+		builder.addName("frankfurt am main", builder.addPlace("Frankfurt am Main", "Germany", null, 50.11, 8.68,
+				763380));
+		index = builder.build();
+	}
+
+	@Benchmark
+	public int findExact() {
+		return index.find("frankfurt am main");
+	}
+
+	@Benchmark
+	public int[] suggestTwoLetterPrefix() {
+		return index.findByPrefix("fr", 10, 2000);
+	}
+
+	@Benchmark
+	public int[] suggestLongPrefix() {
+		return index.findByPrefix("frankf", 10, 2000);
+	}
+}
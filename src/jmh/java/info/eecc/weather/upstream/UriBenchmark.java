@@ -0,0 +1,52 @@
+package info.eecc.weather.upstream;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.eecc.weather.config.UpstreamHttpProperties;
+import info.eecc.weather.dto.CoordinatesDto;
+
+/**
+ * Upstream URL building ({@link OpenMeteoUris}, based on {@code UriComponentsBuilder}), done once per
+ * upstream call. Lives in the {@code upstream} package since the builder is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriBenchmark {
+
+	private final UpstreamHttpProperties properties = new UpstreamHttpProperties();
+
+	private final List<CoordinatesDto> batch = IntStream.range(0, 50)
+			.mapToObj(i -> new CoordinatesDto(52.52 + i * 0.01, 13.41 + i * 0.01))
+			.toList();
+
+	@Benchmark
+	public String currentWeather() {
+		return OpenMeteoUris.currentWeather(properties, 52.52, 13.405);
+	}
+
+	@Benchmark
+	public String currentWeatherBatchOf50() {
+		return OpenMeteoUris.currentWeather(properties, batch);
+	}
+
+	@Benchmark
+	public String search() {
+		return OpenMeteoUris.search(properties, "Frankfurt am Main");
+	}
+}
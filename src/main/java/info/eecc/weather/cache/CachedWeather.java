@@ -0,0 +1,111 @@
+package info.eecc.weather.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.WireFormat;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A cached current weather observation together with the instant it stops being valid. Between
+ * {@code expiresAt} and {@code staleUntil} it may still be served while a background refresh replaces it.
+ * The encoded response bodies are kept with the entry, so cache hits are answered without serializing again.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedWeather {
+
+	private final CurrentWeatherDto weather;
+	private final Instant fetchedAt;
+	private final Instant expiresAt;
+	private final Instant staleUntil;
+
+	/** Lookups served from this entry, used to decide whether it is worth refreshing. */
+	@Getter(AccessLevel.NONE)
+	private final AtomicInteger hits = new AtomicInteger();
+
+	/** Set once the entry has been served after it expired. */
+	@Getter(AccessLevel.NONE)
+	private final AtomicBoolean servedStale = new AtomicBoolean();
+
+	/**
+	 * Response bodies per {@link WireFormat}, encoded on first use. Racing requests may both encode, either
+	 * result is kept.
+	 */
+	@Getter(AccessLevel.NONE)
+	private final AtomicReferenceArray<byte[]> encoded = new AtomicReferenceArray<>(WireFormat.values().length);
+
+	public boolean isFresh(Instant now) {
+		return now.isBefore(expiresAt);
+	}
+
+	public boolean isUsable(Instant now) {
+		return now.isBefore(staleUntil);
+	}
+
+	/**
+	 * How long a client or shared cache may reuse the response: until the upstream publishes the next
+	 * observation, zero for expired entries.
+	 */
+	public Duration getMaxAge(Instant now) {
+		return now.isBefore(expiresAt) ? Duration.between(now, expiresAt).withNanos(0) : Duration.ZERO;
+	}
+
+	/**
+	 * Strong entity tag of the JSON response, derived from the location and the upstream observation time. Both
+	 * change whenever any other field of the observation can change.
+	 */
+	public String getETag() {
+		return getETag(WireFormat.JSON);
+	}
+
+	/**
+	 * Strong entity tag of the response in the given format; representations differ in their bytes, so each
+	 * format gets its own tag.
+	 */
+	public String getETag(WireFormat format) {
+		// 64-bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		String source = weather.getLocation() + '|' + weather.getTimestamp();
+		for (int i = 0; i < source.length(); i++) {
+			hash = (hash ^ source.charAt(i)) * 0x100000001b3L;
+		}
+		String suffix = format == WireFormat.JSON ? "" : "-" + format.name().toLowerCase(Locale.ROOT);
+		return "\"" + Long.toHexString(hash) + suffix + "\"";
+	}
+
+	/**
+	 * Returns the response body in the given format, encoding the weather with {@code encoder} on first use.
+	 */
+	public byte[] encode(WireFormat format, Function<CurrentWeatherDto, byte[]> encoder) {
+		byte[] body = encoded.get(format.ordinal());
+		if (body == null) {
+			body = encoder.apply(weather);
+			encoded.set(format.ordinal(), body);
+		}
+		return body;
+	}
+
+	public int getHits() {
+		return hits.get();
+	}
+
+	public boolean isServedStale() {
+		return servedStale.get();
+	}
+
+	void recordHit(Instant now) {
+		hits.incrementAndGet();
+		if (!isFresh(now)) {
+			servedStale.set(true);
+		}
+	}
+}
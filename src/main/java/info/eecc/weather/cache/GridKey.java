@@ -0,0 +1,28 @@
+package info.eecc.weather.cache;
+
+/**
+ * Cache key of a grid cell. Coordinates are snapped to the nearest multiple of the grid size, so all
+ * requests within the same cell share one key.
+ */
+public record GridKey(long latitudeIndex, long longitudeIndex) {
+
+	/** Grid used to key exact coordinates, e.g. when the cache is disabled (~0.1 m). */
+	public static final double EXACT_GRID_SIZE = 0.000001;
+
+	public static GridKey of(double latitude, double longitude, double gridSize) {
+		return new GridKey(Math.round(latitude / gridSize), Math.round(longitude / gridSize));
+	}
+
+	public double latitude(double gridSize) {
+		return snap(latitudeIndex, gridSize);
+	}
+
+	public double longitude(double gridSize) {
+		return snap(longitudeIndex, gridSize);
+	}
+
+	private static double snap(long index, double gridSize) {
+		// Round to 6 decimals to avoid values like 52.519999999999996 in upstream URLs
+		return Math.round(index * gridSize * 1_000_000d) / 1_000_000d;
+	}
+}
@@ -0,0 +1,506 @@
+package info.eecc.weather.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.SharedCacheProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Second-level weather cache shared by all instances through a Redis server ({@code spring.data.redis.*}),
+ * behind the local {@link WeatherCache}.
+ * <ul>
+ * <li>Entries are stored in {@link WeatherCodec} form with the local expiry, so every instance serves them
+ * for the same time.</li>
+ * <li>Storing an entry publishes its cell; other instances drop their local copy and pick up the new one
+ * on the next request (near-cache invalidation). Each instance also publishes heartbeats and re-subscribes
+ * once no message arrives any more.</li>
+ * <li>{@link #load} extends {@link SingleFlight} across instances: a lock key with a TTL elects one loader
+ * per cell, the others wait for its entry. {@link #loadAll} does the same for the cells of a batch chunk, with
+ * one round trip per step instead of one per cell.</li>
+ * </ul>
+ * Server errors never fail a request: lookups count as misses and loads fall back to calling the upstream.
+ */
+@Component
+@Slf4j
+public class SharedWeatherCache implements MeterBinder {
+
+	/** Deletes the lock only if it still holds this instance's value, in one atomic step. */
+	private static final RedisScript<Long> UNLOCK = RedisScript.of(
+			"if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+			Long.class);
+
+	private static final String HEARTBEAT = "heartbeat";
+
+	/** Heartbeats that may be missed before the subscription is considered dead. */
+	private static final int MISSED_HEARTBEATS = 3;
+
+	private final SharedCacheProperties properties;
+	private final WeatherCache weatherCache;
+	private final Clock clock;
+	private final RedisConnectionFactory connectionFactory;
+
+	/** Identifies this instance in lock values and invalidation messages. */
+	private final String instanceId = UUID.randomUUID().toString();
+	private final AtomicLong lockCounter = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+	private final LongAdder resubscriptions = new LongAdder();
+
+	private volatile RedisTemplate<String, byte[]> redis;
+	private RedisMessageListenerContainer listenerContainer;
+	private volatile Instant lastMessageAt;
+
+	public SharedWeatherCache(SharedCacheProperties properties, WeatherCache weatherCache, Clock clock,
+			RedisConnectionFactory connectionFactory) {
+		this.properties = properties;
+		this.weatherCache = weatherCache;
+		this.clock = clock;
+		this.connectionFactory = connectionFactory;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+		template.setConnectionFactory(connectionFactory);
+		template.setKeySerializer(RedisSerializer.string());
+		template.setValueSerializer(RedisSerializer.byteArray());
+		template.afterPropertiesSet();
+
+		listenerContainer = new RedisMessageListenerContainer();
+		listenerContainer.setConnectionFactory(connectionFactory);
+		listenerContainer.setRecoveryInterval(properties.getHeartbeat().toMillis());
+		listenerContainer.addMessageListener((message, pattern) -> onMessage(message.getBody()),
+				new ChannelTopic(invalidationChannel()));
+		listenerContainer.afterPropertiesSet();
+		lastMessageAt = clock.instant();
+		subscribe();
+		redis = template;
+		log.info("Sharing weather cache entries via Redis, key prefix '{}'", properties.getKeyPrefix());
+	}
+
+	@PreDestroy
+	public void stop() throws Exception {
+		redis = null;
+		if (listenerContainer != null) {
+			listenerContainer.destroy();
+		}
+	}
+
+	public boolean isEnabled() {
+		return redis != null;
+	}
+
+	/**
+	 * Publishes a heartbeat on the invalidation channel and re-subscribes if no message, not even this instance's
+	 * own heartbeat, arrived for {@value #MISSED_HEARTBEATS} intervals. A half-open connection never reports an error, the
+	 * missing heartbeats are the only sign of it.
+	 */
+	@Scheduled(fixedDelayString = "${weather.cache.shared.heartbeat:10s}")
+	public void heartbeat() {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null) {
+			return;
+		}
+		Instant now = clock.instant();
+		if (lastMessageAt.plus(properties.getHeartbeat().multipliedBy(MISSED_HEARTBEATS)).isBefore(now)) {
+			log.warn("No heartbeat received on {} since {}, subscribing again", invalidationChannel(), lastMessageAt);
+			resubscriptions.increment();
+			lastMessageAt = now;
+			listenerContainer.stop();
+			subscribe();
+		}
+		try {
+			template.convertAndSend(invalidationChannel(), bytes(instanceId + '|' + HEARTBEAT));
+		} catch (DataAccessException e) {
+			errors.increment();
+			log.debug("Publishing the shared cache heartbeat failed: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the shared entry of the cell if it may still be served, and keeps it in the local cache.
+	 */
+	public CachedWeather get(GridKey key) {
+		if (redis == null) {
+			return null;
+		}
+		try {
+			CachedWeather cached = read(key);
+			if (cached == null || !cached.isUsable(clock.instant())) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			weatherCache.store(key, cached);
+			return cached;
+		} catch (DataAccessException | IOException e) {
+			failed("read", key, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Looks up several cells in one round trip ({@code MGET}) and keeps the usable entries in the local cache.
+	 *
+	 * @return the usable shared entries by cell, empty if the server is unavailable
+	 */
+	public Map<GridKey, CachedWeather> getAll(Collection<GridKey> keys) {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null || keys.isEmpty()) {
+			return Map.of();
+		}
+		try {
+			return readAll(template, List.copyOf(keys), false);
+		} catch (DataAccessException e) {
+			errors.increment();
+			log.warn("Shared cache read of {} cells failed: {}", keys.size(), e.getMessage());
+			return Map.of();
+		}
+	}
+
+	/**
+	 * Shares an entry the local cache has just stored and tells the other instances to drop their copy.
+	 */
+	public void put(GridKey key, CachedWeather cached) {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null) {
+			return;
+		}
+		Duration ttl = Duration.between(clock.instant(), cached.getStaleUntil());
+		if (!ttl.isPositive()) {
+			return;
+		}
+		try {
+			template.opsForValue().set(entryKey(key), WeatherCodec.encode(cached), ttl);
+			template.convertAndSend(invalidationChannel(), bytes(instanceId + '|' + key.latitudeIndex() + '|'
+					+ key.longitudeIndex() + '|' + cached.getFetchedAt().toEpochMilli()));
+		} catch (DataAccessException e) {
+			failed("write", key, e);
+		}
+	}
+
+	/**
+	 * Returns a fresh shared entry of the cell, or runs {@code loader} in exactly one instance at a time and
+	 * shares its result. Instances that do not get the lock wait up to {@code lock-wait} for the entry, then
+	 * load it themselves. {@code loader} is expected to store its result in the local cache.
+	 */
+	public CachedWeather load(GridKey key, Supplier<CachedWeather> loader) {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null) {
+			return loader.get();
+		}
+		String lockKey = lockKey(key);
+		String lockValue = instanceId + ':' + lockCounter.incrementAndGet();
+		Instant deadline = clock.instant().plus(properties.getLockWait());
+		try {
+			while (true) {
+				CachedWeather shared = read(key);
+				if (shared != null && shared.isFresh(clock.instant())) {
+					hits.increment();
+					weatherCache.store(key, shared);
+					return shared;
+				}
+				if (Boolean.TRUE.equals(template.opsForValue().setIfAbsent(lockKey, bytes(lockValue),
+						properties.getLockTtl()))) {
+					misses.increment();
+					return loadLocked(key, loader, lockKey, lockValue);
+				}
+				if (!clock.instant().isBefore(deadline)) {
+					log.warn("Gave up waiting for another instance to load {}", key);
+					break;
+				}
+				Thread.sleep(properties.getPollInterval());
+			}
+		} catch (DataAccessException | IOException e) {
+			failed("load", key, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return loader.get();
+	}
+
+	/**
+	 * Batch variant of {@link #load(GridKey, Supplier)}: returns the fresh shared entries of {@code keys} and
+	 * passes the cells whose lock this instance got to a single {@code loader} call. Cells locked by another
+	 * instance are awaited up to {@code lock-wait}, then loaded here as well. Each step is one round trip for all
+	 * cells: an {@code MGET}, then one pipeline of lock commands. {@code loader} is expected to store its results
+	 * in the local cache and may leave out cells without data.
+	 */
+	public Map<GridKey, CachedWeather> loadAll(Collection<GridKey> keys,
+			Function<List<GridKey>, Map<GridKey, CachedWeather>> loader) {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null || keys.isEmpty()) {
+			return loader.apply(List.copyOf(keys));
+		}
+		String lockValue = instanceId + ':' + lockCounter.incrementAndGet();
+		Instant deadline = clock.instant().plus(properties.getLockWait());
+		Map<GridKey, CachedWeather> result = new HashMap<>();
+		List<GridKey> pending = new ArrayList<>(keys);
+		try {
+			while (true) {
+				Map<GridKey, CachedWeather> shared = readAll(template, pending, true);
+				result.putAll(shared);
+				pending.removeAll(shared.keySet());
+				List<GridKey> locked = pending.isEmpty() ? List.of() : tryLockAll(template, pending, lockValue);
+				if (!locked.isEmpty()) {
+					misses.add(locked.size());
+					pending.removeAll(locked);
+					result.putAll(loadAllLocked(locked, loader, lockValue));
+				}
+				if (pending.isEmpty()) {
+					return result;
+				}
+				if (!clock.instant().isBefore(deadline)) {
+					log.warn("Gave up waiting for other instances to load {} cells", pending.size());
+					break;
+				}
+				Thread.sleep(properties.getPollInterval());
+			}
+		} catch (DataAccessException e) {
+			errors.increment();
+			log.warn("Shared cache load of {} cells failed: {}", pending.size(), e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		result.putAll(loader.apply(List.copyOf(pending)));
+		return result;
+	}
+
+	private CachedWeather loadLocked(GridKey key, Supplier<CachedWeather> loader, String lockKey,
+			String lockValue) {
+		try {
+			CachedWeather loaded = loader.get();
+			put(key, loaded);
+			return loaded;
+		} finally {
+			unlock(key, lockKey, lockValue);
+		}
+	}
+
+	private Map<GridKey, CachedWeather> loadAllLocked(List<GridKey> keys,
+			Function<List<GridKey>, Map<GridKey, CachedWeather>> loader, String lockValue) {
+		try {
+			Map<GridKey, CachedWeather> loaded = loader.apply(keys);
+			loaded.forEach(this::put);
+			return loaded;
+		} finally {
+			unlockAll(keys, lockValue);
+		}
+	}
+
+	/**
+	 * Tries to take the lock of every cell in one pipeline.
+	 *
+	 * @return the cells locked by this call
+	 */
+	private List<GridKey> tryLockAll(RedisTemplate<String, byte[]> template, List<GridKey> keys, String lockValue) {
+		byte[] value = bytes(lockValue);
+		Expiration ttl = Expiration.from(properties.getLockTtl());
+		List<Object> acquired = template.executePipelined((RedisCallback<Object>) connection -> {
+			for (GridKey key : keys) {
+				connection.stringCommands().set(bytes(lockKey(key)), value, ttl, SetOption.ifAbsent());
+			}
+			return null;
+		});
+		List<GridKey> locked = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++) {
+			if (Boolean.TRUE.equals(acquired.get(i))) {
+				locked.add(keys.get(i));
+			}
+		}
+		return locked;
+	}
+
+	/**
+	 * Pipelined variant of {@link #unlock(GridKey, String, String)}.
+	 */
+	private void unlockAll(List<GridKey> keys, String lockValue) {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null) {
+			return;
+		}
+		byte[] script = bytes(UNLOCK.getScriptAsString());
+		byte[] value = bytes(lockValue);
+		try {
+			template.executePipelined((RedisCallback<Object>) connection -> {
+				for (GridKey key : keys) {
+					connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1, bytes(lockKey(key)), value);
+				}
+				return null;
+			});
+		} catch (DataAccessException e) {
+			errors.increment();
+			log.warn("Shared cache unlock of {} cells failed: {}", keys.size(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Deletes the lock if this instance still holds it. A lock that expired and was taken by another instance
+	 * is left alone.
+	 */
+	private void unlock(GridKey key, String lockKey, String lockValue) {
+		RedisTemplate<String, byte[]> template = redis;
+		if (template == null) {
+			return;
+		}
+		try {
+			template.execute(UNLOCK, List.of(lockKey), (Object) bytes(lockValue));
+		} catch (DataAccessException e) {
+			failed("unlock", key, e);
+		}
+	}
+
+	private CachedWeather decode(byte[] value, GridKey key) {
+		try {
+			return value != null ? WeatherCodec.decode(value) : null;
+		} catch (IOException e) {
+			failed("decode", key, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads several cells with one {@code MGET} and keeps the found entries in the local cache.
+	 *
+	 * @param fresh whether only fresh entries count, otherwise stale but usable ones do too
+	 */
+	private Map<GridKey, CachedWeather> readAll(RedisTemplate<String, byte[]> template, List<GridKey> keys,
+			boolean fresh) {
+		List<byte[]> values = template.opsForValue().multiGet(keys.stream().map(this::entryKey).toList());
+		Instant now = clock.instant();
+		Map<GridKey, CachedWeather> found = new HashMap<>();
+		for (int i = 0; i < keys.size(); i++) {
+			CachedWeather cached = decode(values != null ? values.get(i) : null, keys.get(i));
+			if (cached == null || !(fresh ? cached.isFresh(now) : cached.isUsable(now))) {
+				if (!fresh) {
+					misses.increment();
+				}
+				continue;
+			}
+			hits.increment();
+			weatherCache.store(keys.get(i), cached);
+			found.put(keys.get(i), cached);
+		}
+		return found;
+	}
+
+	private CachedWeather read(GridKey key) throws IOException {
+		RedisTemplate<String, byte[]> template = redis;
+		byte[] value = template != null ? template.opsForValue().get(entryKey(key)) : null;
+		return value != null ? WeatherCodec.decode(value) : null;
+	}
+
+	/**
+	 * Starts the listener container; an unreachable server is retried by the container every heartbeat.
+	 */
+	private void subscribe() {
+		try {
+			listenerContainer.start();
+		} catch (RuntimeException e) {
+			errors.increment();
+			log.warn("Subscribing to {} failed: {}", invalidationChannel(), e.getMessage());
+		}
+	}
+
+	private void onMessage(byte[] message) {
+		lastMessageAt = clock.instant();
+		String[] parts = new String(message, StandardCharsets.UTF_8).split("\\|");
+		if (parts.length != 4 || parts[0].equals(instanceId)) {
+			return;
+		}
+		try {
+			// Entries fetched before the shared one, but not the shared one itself if it was already picked up
+			if (weatherCache.invalidate(new GridKey(Long.parseLong(parts[1]), Long.parseLong(parts[2])),
+					Instant.ofEpochMilli(Long.parseLong(parts[3])))) {
+				invalidations.increment();
+			}
+		} catch (NumberFormatException e) {
+			log.debug("Ignoring malformed invalidation message");
+		}
+	}
+
+	private void failed(String operation, GridKey key, Exception e) {
+		errors.increment();
+		log.warn("Shared cache {} for {} failed: {}", operation, key, e.getMessage());
+	}
+
+	/**
+	 * The grid size is part of the key, so instances configured differently do not mix up their cells.
+	 */
+	private String entryKey(GridKey key) {
+		return properties.getKeyPrefix() + "current:" + weatherCache.getGridSize() + ':' + key.latitudeIndex() + ':'
+				+ key.longitudeIndex();
+	}
+
+	private String lockKey(GridKey key) {
+		return entryKey(key) + ":lock";
+	}
+
+	private String invalidationChannel() {
+		return properties.getKeyPrefix() + "invalidate:" + weatherCache.getGridSize();
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("weather.cache.shared.gets", hits, LongAdder::sum)
+				.description("Shared cache lookups answered with an entry of any instance")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.shared.gets", misses, LongAdder::sum)
+				.description("Shared cache lookups without entry")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.shared.errors", errors, LongAdder::sum)
+				.description("Shared cache commands that failed and were skipped")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.shared.invalidations", invalidations, LongAdder::sum)
+				.description("Local entries dropped because another instance stored a newer one")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.shared.resubscriptions", resubscriptions, LongAdder::sum)
+				.description("Invalidation subscriptions re-established after missed heartbeats")
+				.register(registry);
+	}
+}
@@ -0,0 +1,89 @@
+package info.eecc.weather.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Deduplicates concurrent loads of the same key: the first caller runs the loader, every caller arriving
+ * while it is in flight waits for and shares its result (or exception). Nothing is cached once the load
+ * has completed.
+ *
+ * @param <K> key type, must implement {@code equals}/{@code hashCode}
+ * @param <V> value type
+ */
+@Slf4j
+public class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	public V execute(K key, Supplier<V> loader) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			log.debug("Joining in-flight load for {}", key);
+			return await(existing);
+		}
+
+		try {
+			V value = loader.get();
+			future.complete(value);
+			return value;
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * Non-blocking variant of {@link #execute(Object, Supplier)}: the leader starts the asynchronous load,
+	 * followers get the leader's future instead of waiting for it.
+	 */
+	public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			log.debug("Joining in-flight load for {}", key);
+			return existing;
+		}
+
+		CompletableFuture<V> loading;
+		try {
+			loading = loader.get();
+		} catch (Throwable e) {
+			loading = CompletableFuture.failedFuture(e);
+		}
+		loading.whenComplete((value, error) -> {
+			inFlight.remove(key, future);
+			if (error != null) {
+				future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+			} else {
+				future.complete(value);
+			}
+		});
+		return future;
+	}
+
+	public int inFlightCount() {
+		return inFlight.size();
+	}
+
+	private V await(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,387 @@
+package info.eecc.weather.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.WeatherCacheProperties;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded in-memory cache of current weather keyed by {@link GridKey}. Entries expire when the upstream
+ * {@code current} block is due to change ({@code time + interval}) and the least recently used cell is
+ * evicted once {@code weather.cache.max-entries} is exceeded. Expired entries remain servable for
+ * {@code weather.cache.max-stale} so a background refresh can replace them before anyone has to wait.
+ * <p>
+ * The grid doubles as a spatial hash: a request for an empty cell can be served from a neighbouring cell
+ * whose observation lies within {@code weather.cache.nearby-distance-km}, found by probing the surrounding
+ * cells instead of calling the upstream.
+ */
+@Component
+@Slf4j
+public class WeatherCache implements MeterBinder {
+
+	/** Mean length of a degree of latitude. */
+	private static final double KM_PER_DEGREE = 111.195;
+
+	/** Upper bound of cells probed in each direction, keeps lookups cheap close to the poles. */
+	private static final int MAX_NEARBY_CELLS = 8;
+
+	private final WeatherCacheProperties properties;
+	private final Clock clock;
+	private final Map<GridKey, CachedWeather> entries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder staleHits = new LongAdder();
+	private final LongAdder nearbyHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public WeatherCache(WeatherCacheProperties properties, Clock clock) {
+		this.properties = properties;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<GridKey, CachedWeather> eldest) {
+				if (size() > properties.getMaxEntries()) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled();
+	}
+
+	public double getGridSize() {
+		return properties.getGridSize();
+	}
+
+	public GridKey keyFor(double latitude, double longitude) {
+		return GridKey.of(latitude, longitude, properties.getGridSize());
+	}
+
+	/**
+	 * Returns the cached entry for the given cell if it has not expired yet, otherwise {@code null}.
+	 */
+	public CachedWeather getIfFresh(GridKey key) {
+		CachedWeather cached;
+		synchronized (entries) {
+			cached = entries.get(key);
+		}
+		if (cached == null || !cached.isFresh(clock.instant())) {
+			log.trace("Cache miss for {}", key);
+			return null;
+		}
+		log.trace("Cache hit for {}", key);
+		return cached;
+	}
+
+	/**
+	 * Returns the cached entry for the given cell if it may still be served, fresh or stale, otherwise
+	 * {@code null}. Counts as a hit for the refresh decision.
+	 */
+	public CachedWeather getIfUsable(GridKey key) {
+		return getIfUsable(key, Double.NaN, Double.NaN);
+	}
+
+	/**
+	 * Like {@link #getIfUsable(GridKey)}, but if the cell has no usable entry the nearest usable entry of the
+	 * surrounding cells is returned, provided its observation point is within
+	 * {@code weather.cache.nearby-distance-km} of the requested coordinates. The entry reports the
+	 * coordinates it was observed at.
+	 */
+	public CachedWeather getIfUsable(GridKey key, double latitude, double longitude) {
+		Instant now = clock.instant();
+		CachedWeather cached;
+		boolean nearby = false;
+		synchronized (entries) {
+			cached = entries.get(key);
+			if ((cached == null || !cached.isUsable(now)) && !Double.isNaN(latitude)
+					&& properties.getNearbyDistanceKm() > 0) {
+				CachedWeather neighbour = findNearby(key, latitude, longitude, now);
+				if (neighbour != null) {
+					cached = neighbour;
+					nearby = true;
+				}
+			}
+		}
+		if (cached == null || !cached.isUsable(now)) {
+			misses.increment();
+			log.trace("Cache miss for {}", key);
+			return null;
+		}
+		cached.recordHit(now);
+		if (nearby) {
+			nearbyHits.increment();
+			log.trace("Serving {} from nearby observation at {}, {}", key, cached.getWeather().getLatitude(),
+					cached.getWeather().getLongitude());
+			return cached;
+		}
+		boolean fresh = cached.isFresh(now);
+		(fresh ? hits : staleHits).increment();
+		log.trace("Cache hit for {} (fresh={})", key, fresh);
+		return cached;
+	}
+
+	/**
+	 * Returns the cached entry for the given cell however old it is, or {@code null}. Only meant as a fallback
+	 * while the upstream is unavailable; not counted as a lookup.
+	 */
+	public CachedWeather getLastKnown(GridKey key) {
+		synchronized (entries) {
+			return entries.get(key);
+		}
+	}
+
+	public boolean isStaleServingEnabled() {
+		return properties.isEnabled() && properties.getMaxStale().isPositive();
+	}
+
+	/**
+	 * Keys of expired but still servable entries that should be refreshed now: entries that were served
+	 * stale, or that had at least {@code minHits} lookups. Each cell is delayed by a stable offset within {@code spread} after its
+	 * expiry, so cells expiring at the same upstream interval boundary are refreshed evenly over the window.
+	 */
+	public List<GridKey> dueForRefresh(int minHits, Duration spread) {
+		Instant now = clock.instant();
+		List<GridKey> due = new ArrayList<>();
+		synchronized (entries) {
+			for (Map.Entry<GridKey, CachedWeather> entry : entries.entrySet()) {
+				CachedWeather cached = entry.getValue();
+				if (cached.isFresh(now) || !cached.isUsable(now)
+						|| (!cached.isServedStale() && cached.getHits() < minHits)) {
+					continue;
+				}
+				if (!now.isBefore(cached.getExpiresAt().plus(spreadOffset(entry.getKey(), spread)))) {
+					due.add(entry.getKey());
+				}
+			}
+		}
+		return due;
+	}
+
+	/**
+	 * Stores an observation. The expiry is derived from the upstream observation time and update interval
+	 * (in seconds) and falls back to {@code weather.cache.fallback-ttl} if these are missing or outdated.
+	 */
+	public CachedWeather put(GridKey key, CurrentWeatherDto weather, String upstreamTime, int intervalSeconds) {
+		CachedWeather cached = entry(weather, upstreamTime, intervalSeconds);
+		synchronized (entries) {
+			entries.put(key, cached);
+		}
+		log.debug("Cached weather for {} until {}", key, cached.getExpiresAt());
+		return cached;
+	}
+
+	/**
+	 * Creates an entry with the same expiry {@link #put} would use, without storing it. Used to answer
+	 * requests with correct HTTP caching headers while the cache is disabled.
+	 */
+	public CachedWeather entry(CurrentWeatherDto weather, String upstreamTime, int intervalSeconds) {
+		Instant now = clock.instant();
+		Instant expiresAt = computeExpiry(now, upstreamTime, intervalSeconds);
+		return new CachedWeather(weather, now, expiresAt, expiresAt.plus(properties.getMaxStale()));
+	}
+
+	/**
+	 * Stores an entry created elsewhere, e.g. by another instance via the {@link SharedWeatherCache}.
+	 */
+	public void store(GridKey key, CachedWeather cached) {
+		synchronized (entries) {
+			entries.put(key, cached);
+		}
+	}
+
+	/**
+	 * Drops the entry of a cell, so the next lookup misses.
+	 */
+	public void invalidate(GridKey key) {
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Drops the entry of a cell if it was fetched before {@code fetchedAt} (millisecond precision, like the
+	 * shared entries), so an entry that is already as new is kept.
+	 *
+	 * @return whether an entry was dropped
+	 */
+	public boolean invalidate(GridKey key, Instant fetchedAt) {
+		synchronized (entries) {
+			CachedWeather cached = entries.get(key);
+			if (cached == null || !cached.getFetchedAt().truncatedTo(ChronoUnit.MILLIS).isBefore(fetchedAt)) {
+				return false;
+			}
+			entries.remove(key);
+			return true;
+		}
+	}
+
+	/**
+	 * Copy of all entries from least to most recently used, so storing them in this order restores the
+	 * eviction order.
+	 */
+	public List<Map.Entry<GridKey, CachedWeather>> entries() {
+		synchronized (entries) {
+			return entries.entrySet().stream()
+					.map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+					.toList();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Publishes lookups served by {@link #getIfUsable(GridKey)} as {@code weather.cache.gets} (tagged
+	 * {@code result=hit|stale|nearby|miss}), LRU evictions and the current size.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("weather.cache.gets", hits, LongAdder::sum)
+				.description("Cache lookups served with a fresh entry")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.gets", staleHits, LongAdder::sum)
+				.description("Cache lookups served with an expired entry while it is refreshed")
+				.tag("result", "stale")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.gets", nearbyHits, LongAdder::sum)
+				.description("Cache lookups served with the observation of a neighbouring cell")
+				.tag("result", "nearby")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.gets", misses, LongAdder::sum)
+				.description("Cache lookups that had to call the upstream")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.evictions", evictions, LongAdder::sum)
+				.description("Entries evicted because the cache was full")
+				.register(registry);
+		Gauge.builder("weather.cache.size", this, WeatherCache::size)
+				.description("Number of cached grid cells")
+				.register(registry);
+	}
+
+	/**
+	 * Probes the cells around {@code key} that can hold an observation within the nearby distance and returns
+	 * the closest usable one. Must hold the lock on {@code entries}.
+	 */
+	private CachedWeather findNearby(GridKey key, double latitude, double longitude, Instant now) {
+		double maxDistance = properties.getNearbyDistanceKm();
+		double cellKm = KM_PER_DEGREE * properties.getGridSize();
+		double cosLatitude = Math.cos(Math.toRadians(latitude));
+		int latitudeCells = (int) Math.min(MAX_NEARBY_CELLS, Math.ceil(maxDistance / cellKm));
+		int longitudeCells = (int) Math.min(MAX_NEARBY_CELLS,
+				Math.ceil(maxDistance / (cellKm * Math.max(cosLatitude, 0.01))));
+
+		CachedWeather nearest = null;
+		double nearestDistance = maxDistance;
+		for (int dLatitude = -latitudeCells; dLatitude <= latitudeCells; dLatitude++) {
+			for (int dLongitude = -longitudeCells; dLongitude <= longitudeCells; dLongitude++) {
+				if (dLatitude == 0 && dLongitude == 0) {
+					continue;
+				}
+				CachedWeather candidate = entries.get(new GridKey(key.latitudeIndex() + dLatitude,
+						key.longitudeIndex() + dLongitude));
+				if (candidate == null || !candidate.isUsable(now)) {
+					continue;
+				}
+				double distance = distanceKm(latitude, longitude, candidate.getWeather().getLatitude(),
+						candidate.getWeather().getLongitude(), cosLatitude);
+				if (distance <= nearestDistance) {
+					nearest = candidate;
+					nearestDistance = distance;
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Equirectangular approximation, accurate to well below a percent at the few kilometres compared here.
+	 */
+	static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2,
+			double cosLatitude) {
+		double dx = (longitude2 - longitude1) * cosLatitude;
+		double dy = latitude2 - latitude1;
+		return Math.sqrt(dx * dx + dy * dy) * KM_PER_DEGREE;
+	}
+
+	Instant computeExpiry(Instant now, String upstreamTime, int intervalSeconds) {
+		Instant maxExpiry = now.plus(properties.getMaxTtl());
+		Instant observedAt = parseUpstreamTime(upstreamTime);
+		if (observedAt == null || intervalSeconds <= 0) {
+			return now.plus(properties.getFallbackTtl());
+		}
+		Instant nextUpdate = observedAt.plus(Duration.ofSeconds(intervalSeconds));
+		if (!nextUpdate.isAfter(now)) {
+			// Upstream has not published the next interval yet, check again soon
+			return now.plus(properties.getFallbackTtl());
+		}
+		return nextUpdate.isAfter(maxExpiry) ? maxExpiry : nextUpdate;
+	}
+
+	static Duration spreadOffset(GridKey key, Duration spread) {
+		long spreadMillis = spread.toMillis();
+		if (spreadMillis <= 0) {
+			return Duration.ZERO;
+		}
+		// SplitMix64 finalizer, so neighbouring cells get unrelated offsets
+		long mixed = key.latitudeIndex() * 0x9E3779B97F4A7C15L + key.longitudeIndex();
+		mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+		mixed ^= mixed >>> 31;
+		return Duration.ofMillis(Math.floorMod(mixed, spreadMillis));
+	}
+
+	/**
+	 * Open-Meteo returns ISO-8601 local date-times in GMT unless a timezone is requested, e.g.
+	 * {@code 2024-01-15T14:30}. Offsets are accepted as well.
+	 */
+	public static Instant parseUpstreamTime(String time) {
+		if (time == null || time.isBlank()) {
+			return null;
+		}
+		try {
+			return OffsetDateTime.parse(time).toInstant();
+		} catch (DateTimeParseException e) {
+			// fall through to local date-time
+		}
+		try {
+			return LocalDateTime.parse(time).toInstant(ZoneOffset.UTC);
+		} catch (DateTimeParseException e) {
+			log.debug("Could not parse upstream time '{}'", time);
+			return null;
+		}
+	}
+}
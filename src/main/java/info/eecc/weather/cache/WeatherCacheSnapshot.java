@@ -0,0 +1,166 @@
+package info.eecc.weather.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.CacheSnapshotProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the {@link WeatherCache} to a file periodically and on shutdown, and restores it on startup, so a
+ * restarted instance answers from the entries of its predecessor instead of calling the upstream for every
+ * cell again.
+ * <p>
+ * The file holds a header (magic, grid size, entry count) followed by one record per cell: the grid indices
+ * and the {@link WeatherCodec} bytes of the entry, from least to most recently used. It is memory-mapped and
+ * decoded in {@code @PostConstruct}, i.e. before the web server starts and the application reports readiness.
+ * Entries that are no longer usable, a different grid size and an unknown file format are skipped.
+ */
+@Component
+@Slf4j
+public class WeatherCacheSnapshot implements MeterBinder {
+
+	private static final int MAGIC = 0x57435331; // "WCS1"
+
+	private final CacheSnapshotProperties properties;
+	private final WeatherCache weatherCache;
+	private final Clock clock;
+	private final LongAdder writes = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private volatile int restored;
+
+	public WeatherCacheSnapshot(CacheSnapshotProperties properties, WeatherCache weatherCache, Clock clock) {
+		this.properties = properties;
+		this.weatherCache = weatherCache;
+		this.clock = clock;
+	}
+
+	@PostConstruct
+	public void restore() {
+		Path path = properties.getPath();
+		if (!isEnabled() || !Files.exists(path)) {
+			return;
+		}
+		Instant now = clock.instant();
+		int count = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+				log.warn("Ignoring weather cache snapshot {}: unknown file format", path);
+				return;
+			}
+			if (buffer.getDouble() != weatherCache.getGridSize()) {
+				log.info("Ignoring weather cache snapshot {}: written for another grid size", path);
+				return;
+			}
+			int entries = buffer.getInt();
+			for (int i = 0; i < entries; i++) {
+				GridKey key = new GridKey(buffer.getLong(), buffer.getLong());
+				int length = buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					throw new BufferUnderflowException();
+				}
+				byte[] value = new byte[length];
+				buffer.get(value);
+				CachedWeather cached = WeatherCodec.decode(value);
+				if (cached != null && cached.isUsable(now)) {
+					weatherCache.store(key, cached);
+					count++;
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			// Keeps what was restored before the truncated record
+			errors.increment();
+			log.warn("Weather cache snapshot {} ends with an incomplete record", path);
+		} catch (IOException | RuntimeException e) {
+			errors.increment();
+			log.warn("Could not restore weather cache snapshot {}: {}", path, e.getMessage());
+		}
+		restored = count;
+		log.info("Restored {} weather cache entries from {}", count, path);
+	}
+
+	/**
+	 * Replaces the snapshot file with the current entries. An empty cache leaves the previous file in place.
+	 */
+	@Scheduled(fixedDelayString = "${weather.cache.snapshot.interval:1m}",
+			initialDelayString = "${weather.cache.snapshot.interval:1m}")
+	@PreDestroy
+	public synchronized void write() {
+		if (!isEnabled()) {
+			return;
+		}
+		List<Map.Entry<GridKey, CachedWeather>> entries = weatherCache.entries();
+		if (entries.isEmpty()) {
+			return;
+		}
+		Path path = properties.getPath();
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeDouble(weatherCache.getGridSize());
+				out.writeInt(entries.size());
+				for (Map.Entry<GridKey, CachedWeather> entry : entries) {
+					byte[] value = WeatherCodec.encode(entry.getValue());
+					out.writeLong(entry.getKey().latitudeIndex());
+					out.writeLong(entry.getKey().longitudeIndex());
+					out.writeInt(value.length);
+					out.write(value);
+				}
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			writes.increment();
+			log.debug("Wrote {} weather cache entries to {}", entries.size(), path);
+		} catch (IOException e) {
+			errors.increment();
+			log.warn("Could not write weather cache snapshot {}: {}", path, e.getMessage());
+		}
+	}
+
+	public int getRestored() {
+		return restored;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("weather.cache.snapshot.restored", this, WeatherCacheSnapshot::getRestored)
+				.description("Cache entries restored from the snapshot on startup")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.snapshot.writes", writes, LongAdder::sum)
+				.description("Snapshots written")
+				.register(registry);
+		FunctionCounter.builder("weather.cache.snapshot.errors", errors, LongAdder::sum)
+				.description("Snapshots that could not be written or restored")
+				.register(registry);
+	}
+
+	private boolean isEnabled() {
+		return properties.isEnabled() && weatherCache.isEnabled() && properties.getPath() != null;
+	}
+}
@@ -0,0 +1,108 @@
+package info.eecc.weather.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import info.eecc.weather.dto.CurrentWeatherDto;
+
+/**
+ * Compact binary form of a {@link CachedWeather} for the shared cache, about a third of the JSON size.
+ * Measurements are written as doubles so they survive unchanged, small integers as single bytes or shorts,
+ * and the weather description is not stored at all since it follows from the weather code. The leading
+ * version byte lets instances of different releases ignore each other's entries.
+ */
+final class WeatherCodec {
+
+	private static final int VERSION = 1;
+
+	private WeatherCodec() {
+	}
+
+	static byte[] encode(CachedWeather cached) {
+		CurrentWeatherDto weather = cached.getWeather();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			out.writeLong(cached.getFetchedAt().toEpochMilli());
+			out.writeLong(cached.getExpiresAt().toEpochMilli());
+			out.writeLong(cached.getStaleUntil().toEpochMilli());
+			out.writeDouble(weather.getLatitude());
+			out.writeDouble(weather.getLongitude());
+			writeString(out, weather.getLocation());
+			out.writeDouble(weather.getTemperature());
+			writeString(out, weather.getTemperatureUnit());
+			out.writeByte(weather.getHumidity());
+			out.writeDouble(weather.getApparentTemperature());
+			out.writeByte(weather.getWeatherCode());
+			out.writeDouble(weather.getWindSpeed());
+			writeString(out, weather.getWindSpeedUnit());
+			out.writeShort(weather.getWindDirection());
+			out.writeDouble(weather.getPressure());
+			writeString(out, weather.getPressureUnit());
+			out.writeByte(weather.getCloudCover());
+			out.writeBoolean(weather.isDay());
+			writeString(out, weather.getTimestamp());
+		} catch (IOException e) {
+			// Not thrown by in-memory streams
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @return the entry, or {@code null} if it was written by an incompatible version
+	 */
+	static CachedWeather decode(byte[] value) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+			if (in.readUnsignedByte() != VERSION) {
+				return null;
+			}
+			Instant fetchedAt = Instant.ofEpochMilli(in.readLong());
+			Instant expiresAt = Instant.ofEpochMilli(in.readLong());
+			Instant staleUntil = Instant.ofEpochMilli(in.readLong());
+			CurrentWeatherDto.CurrentWeatherDtoBuilder weather = CurrentWeatherDto.builder()
+					.latitude(in.readDouble())
+					.longitude(in.readDouble())
+					.location(readString(in))
+					.temperature(in.readDouble())
+					.temperatureUnit(readUnit(in))
+					.humidity(in.readUnsignedByte())
+					.apparentTemperature(in.readDouble());
+			int weatherCode = in.readUnsignedByte();
+			weather.weatherCode(weatherCode)
+					.weatherDescription(CurrentWeatherDto.getWeatherDescription(weatherCode))
+					.windSpeed(in.readDouble())
+					.windSpeedUnit(readUnit(in))
+					.windDirection(in.readShort())
+					.pressure(in.readDouble())
+					.pressureUnit(readUnit(in))
+					.cloudCover(in.readUnsignedByte())
+					.isDay(in.readBoolean())
+					.timestamp(readString(in));
+			return new CachedWeather(weather.build(), fetchedAt, expiresAt, staleUntil);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * Units repeat in every entry, share one instance each.
+	 */
+	private static String readUnit(DataInputStream in) throws IOException {
+		String unit = readString(in);
+		return unit != null ? unit.intern() : null;
+	}
+}
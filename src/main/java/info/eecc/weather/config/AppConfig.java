@@ -1,14 +1,119 @@
 package info.eecc.weather.config;
 
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.upstream.GzipRequestInterceptor;
+import lombok.extern.slf4j.Slf4j;
+
 @Configuration
+@EnableScheduling
+// Bound by the upstream clients and the cached response writers, not by controller signatures, so AOT would not
+// register them for a native image on its own
+@RegisterReflectionForBinding({ WeatherResponse.class, GeocodingResponse.class, CurrentWeatherDto.class })
+@Slf4j
 public class AppConfig {
 
+    /**
+     * Shared JDK HTTP client for all upstream calls. It pools connections per host, multiplexes requests over
+     * HTTP/2 where the server supports it and keeps TLS sessions alive between requests. Pool size and keep-alive
+     * are the JVM options {@code jdk.httpclient.*}, see {@code upstream.jvm.args} in the pom.
+     */
+    @Bean
+    public HttpClient upstreamHttpClient(UpstreamHttpProperties properties, Environment environment) {
+        log.info("Creating upstream HTTP client: version={}, connectTimeout={}, readTimeout={}, gzip={}",
+                properties.getHttpVersion(), properties.getConnectTimeout(), properties.getReadTimeout(),
+                properties.isGzip());
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(properties.getHttpVersion())
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Response handling and async callbacks run on virtual threads instead of a cached platform pool
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, HttpClient upstreamHttpClient,
+            UpstreamHttpProperties properties) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(upstreamHttpClient);
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+
+        RestTemplateBuilder configured = builder.requestFactory(() -> requestFactory);
+        if (properties.isGzip()) {
+            configured = configured.additionalInterceptors(new GzipRequestInterceptor());
+        }
+        return configured.build();
+    }
+
+    /**
+     * Executes the upstream chunk calls of batch requests. With virtual threads every chunk gets its own
+     * thread, otherwise a fixed pool of {@code weather.batch.parallelism} platform threads is used.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService batchExecutor(BatchProperties properties, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("weather-batch-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(properties.getParallelism(),
+                Thread.ofPlatform().name("weather-batch-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Runs background cache refreshes, at most {@code weather.cache.refresh.max-concurrent} at a time.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService refreshExecutor(CacheRefreshProperties properties, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("weather-refresh-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(properties.getMaxConcurrent(),
+                Thread.ofPlatform().name("weather-refresh-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Runs the attempts of hedged upstream calls. Concurrency is bounded by the upstream limiter, so the
+     * platform fallback may create threads on demand.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService hedgeExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("weather-hedge-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("weather-hedge-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Writes live weather streams and refreshes their grid cells. Writers block on slow clients, so the platform
+     * fallback creates threads on demand; tens of thousands of streams need virtual threads.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService subscriptionExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("weather-stream-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("weather-stream-", 0).daemon(true).factory());
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public Clock clock() {
+        return Clock.systemUTC();
     }
 }
@@ -0,0 +1,27 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the multi-location endpoint ({@code weather.batch.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.batch")
+public class BatchProperties {
+
+	/** Maximum number of locations accepted in one batch request. */
+	private int maxLocations = 1000;
+
+	/** Number of locations sent to Open-Meteo in one multi-location call. */
+	private int chunkSize = 50;
+
+	/** Number of upstream chunk calls executed in parallel. */
+	private int parallelism = 4;
+
+	/** Maximum time to wait for all chunks of one batch request. */
+	private Duration timeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,31 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Background refresh of expired cache entries ({@code weather.cache.refresh.*}). Only active while
+ * {@code weather.cache.max-stale} is positive.
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.cache.refresh")
+public class CacheRefreshProperties {
+
+	/** How often the cache is scanned for entries that are due for a refresh. */
+	private Duration pollInterval = Duration.ofSeconds(1);
+
+	/** Lookups an entry needs within its lifetime to be refreshed without being requested after expiry. */
+	private int minHits = 2;
+
+	/**
+	 * Window after expiry over which refreshes are spread per grid cell, so cells sharing an upstream
+	 * interval do not all hit Open-Meteo at once. Must be shorter than {@code max-stale}.
+	 */
+	private Duration spread = Duration.ofSeconds(20);
+
+	/** Maximum number of background refreshes running at the same time. */
+	private int maxConcurrent = 4;
+}
@@ -0,0 +1,25 @@
+package info.eecc.weather.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Snapshots of the current weather cache for warm restarts ({@code weather.cache.snapshot.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.cache.snapshot")
+public class CacheSnapshotProperties {
+
+	/** Whether the cache is written to {@code path} periodically and on shutdown, and restored on startup. */
+	private boolean enabled = true;
+
+	/** Snapshot file, replaced atomically on every write. */
+	private Path path = Path.of("data", "weather-cache.dat");
+
+	/** How often the cache is written while running. */
+	private Duration interval = Duration.ofMinutes(1);
+}
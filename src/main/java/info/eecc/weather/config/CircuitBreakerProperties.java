@@ -0,0 +1,34 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Circuit breakers in front of the Open-Meteo forecast and geocoding APIs
+ * ({@code weather.upstream.circuit-breaker.*}). Each API has its own breaker with these settings.
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.upstream.circuit-breaker")
+public class CircuitBreakerProperties {
+
+	/** Disable to always call the upstream, regardless of recent failures. */
+	private boolean enabled = true;
+
+	/** Number of most recent calls the failure rate is computed over. */
+	private int windowSize = 20;
+
+	/** Calls that must have been recorded before the breaker may open. */
+	private int minimumCalls = 10;
+
+	/** Failure rate in percent at which the breaker opens. */
+	private int failureRateThreshold = 50;
+
+	/** How long an open breaker rejects calls before letting trial calls through. */
+	private Duration openDuration = Duration.ofSeconds(30);
+
+	/** Trial calls in the half-open state, all of them must succeed to close the breaker again. */
+	private int halfOpenCalls = 3;
+}
@@ -0,0 +1,37 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the hourly and daily forecast endpoint and its cache ({@code weather.forecast.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.forecast")
+public class ForecastProperties {
+
+	/** Number of forecast days requested from the upstream (1-16). */
+	private int days = 7;
+
+	/** Hourly variables fetched and cached for every location, Open-Meteo names. */
+	private List<String> hourly = List.of("temperature_2m", "relative_humidity_2m", "apparent_temperature",
+			"precipitation_probability", "precipitation", "weather_code", "wind_speed_10m", "wind_direction_10m",
+			"surface_pressure", "cloud_cover");
+
+	/** Daily variables fetched and cached for every location, Open-Meteo names. */
+	private List<String> daily = List.of("weather_code", "temperature_2m_max", "temperature_2m_min",
+			"precipitation_sum", "precipitation_probability_max", "wind_speed_10m_max");
+
+	/** Size of a grid cell in degrees; forecasts are fetched for the cell center. */
+	private double gridSize = 0.05;
+
+	/** Maximum number of cached forecasts before the least recently used one is evicted. */
+	private int maxEntries = 20_000;
+
+	/** How long a cached forecast is served before it is fetched again. */
+	private Duration ttl = Duration.ofHours(1);
+}
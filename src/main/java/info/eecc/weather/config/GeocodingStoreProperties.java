@@ -0,0 +1,27 @@
+package info.eecc.weather.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the persistent city → coordinates store ({@code weather.geocoding.store.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.geocoding.store")
+public class GeocodingStoreProperties {
+
+	/** Whether resolved cities are remembered and looked up before calling the geocoding API. */
+	private boolean enabled = true;
+
+	/** Journal file the store is loaded from on startup and appended to on every new entry. */
+	private Path path = Path.of("data", "geocoding.dat");
+
+	/**
+	 * Maximum number of stored city names before the least recently used one is evicted. The journal is compacted
+	 * once it holds twice as many records.
+	 */
+	private int maxEntries = 100_000;
+}
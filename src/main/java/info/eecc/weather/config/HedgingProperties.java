@@ -0,0 +1,35 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Hedged requests to the Open-Meteo forecast and geocoding APIs ({@code weather.upstream.hedging.*}): a call
+ * that has not answered within the {@code percentile} of recently observed latency gets one duplicate, the
+ * first answer wins.
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.upstream.hedging")
+public class HedgingProperties {
+
+	/** Send duplicate requests for slow calls. */
+	private boolean enabled = false;
+
+	/** Latency percentile after which a duplicate is sent, e.g. {@code 0.95}. */
+	private double percentile = 0.95;
+
+	/** Lower bound of the hedge delay, protects the upstream while latencies are tiny. */
+	private Duration minDelay = Duration.ofMillis(50);
+
+	/** Duplicates allowed in percent of the calls, i.e. the extra upstream load. */
+	private double budgetPercent = 5;
+
+	/** Successful calls within the window required before hedging starts. */
+	private int minSamples = 50;
+
+	/** Period latencies are observed over. */
+	private Duration window = Duration.ofMinutes(1);
+}
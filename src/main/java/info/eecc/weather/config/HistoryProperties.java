@@ -0,0 +1,34 @@
+package info.eecc.weather.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the archive of fetched observations ({@code weather.history.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.history")
+public class HistoryProperties {
+
+	/** Whether fetched observations are archived and {@code /api/weather/history} is served. */
+	private boolean enabled = false;
+
+	/** Directory of the partition files, one subdirectory per grid size and day. */
+	private Path path = Path.of("data", "history");
+
+	/** Cell size in degrees observations are grouped by; changing it starts a new archive. */
+	private double gridSize = 0.01;
+
+	/** Partitions kept mapped for appending, least recently written ones are closed first. */
+	private int maxOpenPartitions = 1024;
+
+	/** Days older than this are deleted. */
+	private Duration retention = Duration.ofDays(400);
+
+	/** Longest time range a single query may cover. */
+	private Duration maxRange = Duration.ofDays(92);
+}
@@ -0,0 +1,25 @@
+package info.eecc.weather.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the location autocomplete endpoint ({@code weather.geocoding.suggest.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.geocoding.suggest")
+public class LocationSuggestProperties {
+
+	/** Suggestions returned when the request does not ask for a number. */
+	private int defaultResults = 10;
+
+	/** Upper bound for the number of suggestions a request may ask for. */
+	private int maxResults = 50;
+
+	/** Shorter (normalized) queries are answered with an empty list. */
+	private int minQueryLength = 2;
+
+	/** Names of the offline dataset looked at per query before ranking by population. */
+	private int scanLimit = 2000;
+}
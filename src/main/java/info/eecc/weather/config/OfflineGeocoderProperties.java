@@ -0,0 +1,33 @@
+package info.eecc.weather.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the embedded geocoder over a local GeoNames dataset ({@code weather.geocoding.offline.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.geocoding.offline")
+public class OfflineGeocoderProperties {
+
+	/** Whether city names are resolved from the local dataset before calling the geocoding API. */
+	private boolean enabled = false;
+
+	/**
+	 * GeoNames dump in the tab separated {@code geoname} format, e.g. {@code cities15000.txt}; may be gzip
+	 * compressed ({@code .gz}).
+	 */
+	private Path path = Path.of("data", "cities15000.txt");
+
+	/** Optional GeoNames {@code admin1CodesASCII.txt} used to fill in the region name. */
+	private Path admin1CodesPath;
+
+	/** Whether alternate names (other languages, historic names) are indexed as well. */
+	private boolean alternateNames = true;
+
+	/** Places with a smaller population are not loaded. */
+	private int minPopulation = 0;
+}
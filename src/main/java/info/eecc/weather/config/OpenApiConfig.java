@@ -2,13 +2,17 @@ package info.eecc.weather.config;
 
 import java.util.List;
 
+import org.springdoc.core.customizers.OpenApiCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import info.eecc.weather.dto.WireFormat;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.MediaType;
 import io.swagger.v3.oas.models.servers.Server;
 
 @Configuration
@@ -54,4 +58,39 @@ public class OpenApiConfig {
 				.info(info)
 				.servers(List.of(localServer));
 	}
+
+	/**
+	 * Documents the binary {@link WireFormat}s next to JSON: every successful response and request body declared
+	 * as {@code application/json} is also offered as Smile and CBOR, with the same schema. Error bodies stay JSON.
+	 */
+	@Bean
+	public OpenApiCustomizer binaryWireFormats() {
+		return openApi -> {
+			if (openApi.getPaths() == null) {
+				return;
+			}
+			openApi.getPaths().values().forEach(path -> path.readOperations().forEach(operation -> {
+				if (operation.getRequestBody() != null) {
+					addBinaryFormats(operation.getRequestBody().getContent());
+				}
+				if (operation.getResponses() != null) {
+					operation.getResponses().forEach((status, response) -> {
+						if (status.startsWith("2")) {
+							addBinaryFormats(response.getContent());
+						}
+					});
+				}
+			}));
+		};
+	}
+
+	private static void addBinaryFormats(Content content) {
+		MediaType json = content != null ? content.get(WireFormat.JSON.getMediaType().toString()) : null;
+		if (json == null) {
+			return;
+		}
+		for (WireFormat format : WireFormat.values()) {
+			content.putIfAbsent(format.getMediaType().toString(), new MediaType().schema(json.getSchema()));
+		}
+	}
 }
@@ -0,0 +1,76 @@
+package info.eecc.weather.config;
+
+import java.net.http.HttpClient;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Beans of the reactive API, active with {@code spring.main.web-application-type=reactive}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveConfig {
+
+    /**
+     * Serves the reactive API from Netty's event loop. Boot would pick Tomcat since it is on the classpath for
+     * the blocking API.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        log.info("Serving the reactive weather API with Netty");
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Non-blocking upstream client, sharing the connection pool of the blocking client. Responses are not
+     * requested gzip compressed since the JDK connector does not decode them.
+     */
+    @Bean
+    public WebClient upstreamWebClient(WebClient.Builder builder, HttpClient upstreamHttpClient,
+            UpstreamHttpProperties properties) {
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(upstreamHttpClient);
+        connector.setReadTimeout(properties.getReadTimeout());
+        return builder.clientConnector(connector).build();
+    }
+
+    /**
+     * WebFlux registers Smile by default but not CBOR, whose encoder cannot write streams. Every reactive
+     * endpoint except the event stream returns single values, so both are registered here, on a copy of the
+     * application {@link ObjectMapper} ({@link SingleValueCborEncoder}). Custom codecs take precedence over the defaults, JSON is registered
+     * in front of CBOR again so it stays the format for {@code Accept: *}{@code /*}.
+     */
+    @Bean
+    public CodecCustomizer cborCodecCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+        };
+    }
+
+    /**
+     * Boot only auto-configures a {@link RestTemplateBuilder} for servlet applications, the batch endpoint
+     * still uses the blocking client.
+     */
+    @Bean
+    public RestTemplateBuilder restTemplateBuilder() {
+        return new RestTemplateBuilder();
+    }
+}
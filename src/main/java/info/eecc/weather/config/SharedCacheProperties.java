@@ -0,0 +1,37 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the shared second-level weather cache on a Redis server ({@code weather.cache.shared.*}). The
+ * connection itself is configured with {@code spring.data.redis.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.cache.shared")
+public class SharedCacheProperties {
+
+	/** Whether cache entries are shared between instances at all. */
+	private boolean enabled = false;
+
+	/** Prefix of all keys and channels, lets several deployments share one server. */
+	private String keyPrefix = "weather:";
+
+	/** How long a load lock is held at most, should the instance holding it die. */
+	private Duration lockTtl = Duration.ofSeconds(10);
+
+	/** How long an instance waits for another instance loading the same cell before calling the upstream itself. */
+	private Duration lockWait = Duration.ofSeconds(3);
+
+	/** How often a waiting instance checks whether the loading instance has stored the entry. */
+	private Duration pollInterval = Duration.ofMillis(25);
+
+	/**
+	 * How often an instance publishes a heartbeat on the invalidation channel. If no message, not even its own
+	 * heartbeat, arrives for three intervals, e.g. on a half-open connection, the subscription is re-established.
+	 */
+	private Duration heartbeat = Duration.ofSeconds(10);
+}
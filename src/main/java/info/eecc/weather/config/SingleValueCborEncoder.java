@@ -0,0 +1,36 @@
+package info.eecc.weather.config;
+
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * CBOR encoder for response bodies. Spring's encoder rejects every publisher, although the message writer hands
+ * single values to it as {@link Mono}; these are encoded as one value here, streams are still rejected.
+ */
+class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+	SingleValueCborEncoder(ObjectMapper mapper) {
+		super(mapper, MediaType.APPLICATION_CBOR);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+			ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+		if (inputStream instanceof Mono<?> mono) {
+			return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+		}
+		return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+	}
+}
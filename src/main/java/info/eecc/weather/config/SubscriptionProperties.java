@@ -0,0 +1,45 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for live weather streams ({@code weather.subscriptions.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.subscriptions")
+public class SubscriptionProperties {
+
+	/** Whether {@code /api/weather/subscribe} is served. */
+	private boolean enabled = true;
+
+	/** Locations a single stream may subscribe to. */
+	private int maxLocations = 50;
+
+	/**
+	 * Open streams per instance, further subscriptions are rejected with 503. Each holds a connection, so on the
+	 * servlet stack it must stay below {@code server.tomcat.max-connections} to leave room for other requests.
+	 */
+	private int maxSubscribers = 5_000;
+
+	/** How often subscribed cells are checked for a newer observation. */
+	private Duration pollInterval = Duration.ofSeconds(1);
+
+	/** Interval of keep-alive comments, also detects closed connections. */
+	private Duration heartbeat = Duration.ofSeconds(30);
+
+	/** Time after which a stream is completed; browsers reconnect on their own. */
+	private Duration timeout = Duration.ofHours(1);
+
+	/** Events queued for a slow client before its stream is closed. */
+	private int bufferSize = 32;
+
+	/** Cells refreshed from the upstream at the same time. */
+	private int maxConcurrentRefreshes = 16;
+
+	/** Time before a failed refresh of a cell is retried. */
+	private Duration retryDelay = Duration.ofSeconds(30);
+}
@@ -0,0 +1,41 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Request quota of the Open-Meteo APIs ({@code weather.upstream.budget.*}). The defaults are the limits of
+ * the free tier; a quota of {@code 0} is not enforced. Open-Meteo counts a multi-location call once per location,
+ * so do the quotas.
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.upstream.budget")
+public class UpstreamBudgetProperties {
+
+	/** Count upstream calls against the quota and hold back calls that would exceed it. */
+	private boolean enabled = false;
+
+	/** Upstream calls allowed per minute, refilled continuously. */
+	private int requestsPerMinute = 600;
+
+	/** Upstream calls allowed per UTC hour. */
+	private int requestsPerHour = 5000;
+
+	/** Upstream calls allowed per UTC day. */
+	private int requestsPerDay = 10000;
+
+	/** Share of every quota only interactive calls may use, batch calls stop when less is left. */
+	private double batchReserve = 0.2;
+
+	/**
+	 * Share of every quota background refreshes leave to interactive and batch calls; refreshes beyond it are
+	 * skipped and the stale entry is served longer.
+	 */
+	private double backgroundReserve = 0.4;
+
+	/** How long interactive and batch calls wait for the quota to refill before they are rejected with 503. */
+	private Duration maxWait = Duration.ofSeconds(1);
+}
@@ -0,0 +1,37 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Bounds the number of concurrent Open-Meteo calls ({@code weather.upstream.concurrency.*}). With virtual
+ * threads request handling no longer limits concurrency, so this is what protects the upstream.
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.upstream.concurrency")
+public class UpstreamConcurrencyProperties {
+
+	/** Maximum number of upstream requests in flight at the same time, the upper bound of the adaptive limit. */
+	private int maxConcurrentRequests = 200;
+
+	/** How long a request waits for a free slot before it is rejected with 503. */
+	private Duration acquireTimeout = Duration.ofSeconds(1);
+
+	/** Adapt the limit to upstream latency and errors; disable for a fixed limit of max-concurrent-requests. */
+	private boolean adaptive = true;
+
+	/** Lower bound of the adaptive limit. */
+	private int minConcurrentRequests = 8;
+
+	/** Adaptive limit at startup. */
+	private int initialConcurrentRequests = 50;
+
+	/** Calls slower than this count as congestion and shrink the adaptive limit. */
+	private Duration latencyThreshold = Duration.ofSeconds(2);
+
+	/** Factor the adaptive limit is multiplied with after a slow or failed call. */
+	private double backoffRatio = 0.9;
+}
@@ -0,0 +1,13 @@
+package info.eecc.weather.config;
+
+/**
+ * How current weather responses of Open-Meteo are read ({@code weather.upstream.decoder}).
+ */
+public enum UpstreamDecoder {
+
+	/** Jackson token stream straight into the API DTO, unused fields are skipped. */
+	STREAMING,
+
+	/** Data binding to {@code WeatherResponse}, then mapping to the API DTO. */
+	DATABIND
+}
@@ -0,0 +1,37 @@
+package info.eecc.weather.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the HTTP client used to call Open-Meteo ({@code weather.upstream.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.upstream")
+public class UpstreamHttpProperties {
+
+	/** Open-Meteo forecast endpoint. */
+	private String forecastUrl = "https://api.open-meteo.com/v1/forecast";
+
+	/** Open-Meteo geocoding endpoint. */
+	private String geocodingUrl = "https://geocoding-api.open-meteo.com/v1/search";
+
+	/** Maximum time to establish a TCP/TLS connection. */
+	private Duration connectTimeout = Duration.ofSeconds(2);
+
+	/** Maximum time to wait for a response after the request was sent. */
+	private Duration readTimeout = Duration.ofSeconds(5);
+
+	/** Preferred HTTP version; HTTP/2 multiplexes concurrent requests over one connection per host. */
+	private HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+
+	/** Whether to request gzip compressed responses. */
+	private boolean gzip = true;
+
+	/** How current weather responses are decoded. */
+	private UpstreamDecoder decoder = UpstreamDecoder.STREAMING;
+}
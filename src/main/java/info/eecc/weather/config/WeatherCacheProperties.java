@@ -0,0 +1,43 @@
+package info.eecc.weather.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the in-memory current weather cache ({@code weather.cache.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "weather.cache")
+public class WeatherCacheProperties {
+
+	/** Whether current weather responses are cached at all. */
+	private boolean enabled = true;
+
+	/** Size of a grid cell in degrees; coordinates are snapped to the cell center. */
+	private double gridSize = 0.01;
+
+	/** Maximum number of cached grid cells before the least recently used one is evicted. */
+	private int maxEntries = 10_000;
+
+	/** Time to live used when the upstream time/interval cannot be used to derive an expiry. */
+	private Duration fallbackTtl = Duration.ofMinutes(1);
+
+	/** Upper bound for the time to live of a single entry. */
+	private Duration maxTtl = Duration.ofMinutes(15);
+
+	/**
+	 * A request whose own cell has no usable entry is answered from the nearest cached observation within this
+	 * distance in kilometres, if any. {@code 0}, the default, disables nearby serving: the response then carries
+	 * an observation for other coordinates than requested, which clients must accept.
+	 */
+	private double nearbyDistanceKm = 0;
+
+	/**
+	 * How long an expired entry may still be served while it is refreshed in the background. {@code 0}
+	 * disables stale serving and background refreshes.
+	 */
+	private Duration maxStale = Duration.ofMinutes(2);
+}
@@ -0,0 +1,63 @@
+package info.eecc.weather.controller;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.WireFormat;
+import info.eecc.weather.exception.WeatherException;
+
+/**
+ * Builds the {@code /api/weather/current} response from a cache entry, shared by the blocking and the reactive
+ * controller. The body is encoded once per entry and format and reused, {@code ETag} and
+ * {@code Cache-Control: max-age} let clients and CDNs revalidate or reuse it. Spring answers a matching
+ * {@code If-None-Match} with 304.
+ * <p>
+ * The format is negotiated from the {@code Accept} header ({@link WireFormat}), responses vary by it. The binary
+ * writers are copies of the application {@link ObjectMapper}, so all formats carry the same fields.
+ */
+@Component
+class CurrentWeatherResponses {
+
+	private final Map<WireFormat, ObjectWriter> writers = new EnumMap<>(WireFormat.class);
+	private final Clock clock;
+
+	CurrentWeatherResponses(ObjectMapper objectMapper, Clock clock) {
+		writers.put(WireFormat.JSON, objectMapper.writerFor(CurrentWeatherDto.class));
+		writers.put(WireFormat.SMILE, objectMapper.copyWith(new SmileFactory()).writerFor(CurrentWeatherDto.class));
+		writers.put(WireFormat.CBOR, objectMapper.copyWith(new CBORFactory()).writerFor(CurrentWeatherDto.class));
+		this.clock = clock;
+	}
+
+	ResponseEntity<byte[]> ok(CachedWeather cached, String accept) {
+		WireFormat format = WireFormat.negotiate(accept);
+		return ResponseEntity.ok()
+				.contentType(format.getMediaType())
+				.eTag(cached.getETag(format))
+				.cacheControl(CacheControl.maxAge(cached.getMaxAge(clock.instant())).cachePublic())
+				.varyBy(HttpHeaders.ACCEPT)
+				.body(cached.encode(format, weather -> encode(format, weather)));
+	}
+
+	private byte[] encode(WireFormat format, CurrentWeatherDto weather) {
+		try {
+			return writers.get(format).writeValueAsBytes(weather);
+		} catch (JsonProcessingException e) {
+			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to encode weather data", e);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package info.eecc.weather.controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.exception.WeatherException;
+
+/**
+ * Validation of the location parameters of {@code /api/weather/current}, {@code /api/weather/forecast} and
+ * {@code /api/weather/subscribe}, shared by the blocking and the reactive controller.
+ */
+final class LocationParameters {
+
+	private LocationParameters() {
+	}
+
+	/**
+	 * Checks that either coordinates or a city name were given, but not both.
+	 *
+	 * @return {@code true} if the request is by coordinates, {@code false} if it is by city name
+	 */
+	static boolean isByCoordinates(Double latitude, Double longitude, String city) {
+		boolean hasCoordinates = latitude != null && longitude != null;
+		boolean hasCity = city != null && !city.trim().isEmpty();
+
+		if (!hasCoordinates && !hasCity) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "Either latitude+longitude OR city must be provided");
+		}
+		if (hasCoordinates && hasCity) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "Provide either latitude+longitude OR city, not both");
+		}
+		return hasCoordinates;
+	}
+
+	/**
+	 * Splits a {@code ;} separated list as used by {@code /api/weather/subscribe}; commas separate latitude and
+	 * longitude and may be part of city names. Blank entries are skipped.
+	 */
+	static List<String> splitList(String value) {
+		if (value == null) {
+			return List.of();
+		}
+		return Arrays.stream(value.split(";")).map(String::trim).filter(entry -> !entry.isEmpty()).toList();
+	}
+
+	/**
+	 * Parses a {@code latitude,longitude} pair.
+	 */
+	static CoordinatesDto parseCoordinates(String value) {
+		int comma = value.indexOf(',');
+		double latitude;
+		double longitude;
+		try {
+			latitude = Double.parseDouble(value.substring(0, Math.max(comma, 0)).trim());
+			longitude = Double.parseDouble(value.substring(comma + 1).trim());
+		} catch (NumberFormatException e) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST,
+					"Invalid location '" + value + "', expected latitude,longitude");
+		}
+		if (!(latitude >= -90 && latitude <= 90)) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "Latitude must be between -90 and 90");
+		}
+		if (!(longitude >= -180 && longitude <= 180)) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "Longitude must be between -180 and 180");
+		}
+		return new CoordinatesDto(latitude, longitude);
+	}
+}
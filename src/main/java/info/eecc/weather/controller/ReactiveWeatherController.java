@@ -0,0 +1,143 @@
+package info.eecc.weather.controller;
+
+import info.eecc.weather.dto.BatchWeatherItemDto;
+import info.eecc.weather.dto.BatchWeatherRequest;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.dto.ForecastDto;
+import info.eecc.weather.dto.HistoryDto;
+import info.eecc.weather.dto.LocationSuggestionDto;
+import info.eecc.weather.geocoding.LocationSuggester;
+import info.eecc.weather.service.BatchWeatherService;
+import info.eecc.weather.service.ForecastService;
+import info.eecc.weather.service.HistoryService;
+import info.eecc.weather.service.ReactiveWeatherService;
+import info.eecc.weather.subscription.WeatherSubscriptionHub;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Reactive variant of {@link WeatherController}, active when the application runs with
+ * {@code spring.main.web-application-type=reactive}. Serves the same endpoints with the same validation and
+ * error responses, but never blocks the event loop while waiting for Open-Meteo.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/weather")
+@RequiredArgsConstructor
+@Slf4j
+@Validated
+public class ReactiveWeatherController {
+
+	private final ReactiveWeatherService weatherService;
+	private final BatchWeatherService batchWeatherService;
+	private final CurrentWeatherResponses responses;
+	private final LocationSuggester locationSuggester;
+	private final ForecastService forecastService;
+	private final HistoryService historyService;
+	private final WeatherSubscriptionHub subscriptionHub;
+
+	@GetMapping("/current")
+	public Mono<ResponseEntity<byte[]>> getCurrentWeather(
+			@RequestParam(required = false) @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90") @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90") Double latitude,
+			@RequestParam(required = false) @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180") @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180") Double longitude,
+			@RequestParam(required = false) String city,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+		if (LocationParameters.isByCoordinates(latitude, longitude, city)) {
+			log.info("Fetching current weather for coordinates: lat={}, lon={}", latitude, longitude);
+			return weatherService.getCachedWeather(latitude, longitude).map(cached -> responses.ok(cached, accept));
+		}
+		log.info("Fetching current weather for city: {}", city);
+		return weatherService.getCachedWeatherByCity(city).map(cached -> responses.ok(cached, accept));
+	}
+
+	@GetMapping("/forecast")
+	public Mono<ForecastDto> getForecast(
+			@RequestParam(required = false) @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90") @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90") Double latitude,
+			@RequestParam(required = false) @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180") @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180") Double longitude,
+			@RequestParam(required = false) String city,
+			@RequestParam(required = false) String hourly,
+			@RequestParam(required = false) String daily,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+
+		boolean byCoordinates = LocationParameters.isByCoordinates(latitude, longitude, city);
+		// Cache misses call the upstream with the blocking client, keep that off the event loop
+		return Mono.fromCallable(() -> byCoordinates
+				? forecastService.getForecast(latitude, longitude, hourly, daily, start, end)
+				: forecastService.getForecastByCity(city, hourly, daily, start, end))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@GetMapping("/history")
+	public Mono<HistoryDto> getHistory(
+			@RequestParam(required = false) @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90") @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90") Double latitude,
+			@RequestParam(required = false) @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180") @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180") Double longitude,
+			@RequestParam(required = false) String city,
+			@RequestParam(required = false) String fields,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+
+		boolean byCoordinates = LocationParameters.isByCoordinates(latitude, longitude, city);
+		// Scans mapped partition files and may resolve the city upstream, keep that off the event loop
+		return Mono.fromCallable(() -> byCoordinates
+				? historyService.getHistory(latitude, longitude, fields, start, end)
+				: historyService.getHistoryByCity(city, fields, start, end))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<String>> subscribe(@RequestParam(required = false) String locations,
+			@RequestParam(required = false) String cities) {
+
+		List<CoordinatesDto> coordinates = new ArrayList<>();
+		for (String location : LocationParameters.splitList(locations)) {
+			coordinates.add(LocationParameters.parseCoordinates(location));
+		}
+		// Cities are geocoded without blocking, the stream opens once all are resolved
+		return Flux.fromIterable(LocationParameters.splitList(cities))
+				.concatMap(weatherService::getCoordinatesForCity)
+				.map(result -> new CoordinatesDto(result.getLatitude(), result.getLongitude()))
+				.collectList()
+				.flatMapMany(resolved -> {
+					coordinates.addAll(resolved);
+					log.info("Opening weather stream for {} locations", coordinates.size());
+					return subscriptionHub.openFlux(coordinates);
+				});
+	}
+
+	@PostMapping("/current/batch")
+	public Mono<List<BatchWeatherItemDto>> getCurrentWeatherBatch(@Valid @RequestBody BatchWeatherRequest request) {
+		log.info("Fetching current weather for {} locations", request.getLocations().size());
+		// The batch service fans out on its own executor and waits for the chunks, keep that off the event loop
+		return Mono.fromCallable(() -> batchWeatherService.getCurrentWeather(request.getLocations()))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@GetMapping("/locations/suggest")
+	public List<LocationSuggestionDto> suggestLocations(@RequestParam(required = false) String q,
+			@RequestParam(required = false) @Min(value = 1, message = "Limit must be at least 1") Integer limit) {
+		// In-memory lookup, fast enough for the event loop
+		return locationSuggester.suggest(q, limit);
+	}
+}
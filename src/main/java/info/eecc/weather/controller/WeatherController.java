@@ -1,27 +1,51 @@
 package info.eecc.weather.controller;
 
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.dto.BatchWeatherItemDto;
+import info.eecc.weather.dto.BatchWeatherRequest;
+import info.eecc.weather.dto.CoordinatesDto;
 import info.eecc.weather.dto.CurrentWeatherDto;
-import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.dto.ForecastDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.HistoryDto;
+import info.eecc.weather.dto.LocationSuggestionDto;
+import info.eecc.weather.geocoding.LocationSuggester;
+import info.eecc.weather.service.BatchWeatherService;
+import info.eecc.weather.service.ForecastService;
+import info.eecc.weather.service.HistoryService;
 import info.eecc.weather.service.WeatherService;
+import info.eecc.weather.subscription.WeatherSubscriptionHub;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/weather")
 @RequiredArgsConstructor
 @Slf4j
@@ -30,6 +54,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class WeatherController {
 
 	private final WeatherService weatherService;
+	private final BatchWeatherService batchWeatherService;
+	private final CurrentWeatherResponses responses;
+	private final LocationSuggester locationSuggester;
+	private final ForecastService forecastService;
+	private final HistoryService historyService;
+	private final WeatherSubscriptionHub subscriptionHub;
 
 	@Operation(summary = "Get current weather information", description = """
 			Retrieve current weather data by providing either geographic coordinates (latitude/longitude) or a city name.
@@ -38,9 +68,16 @@ public class WeatherController {
 			Examples:
 			• By Coordinates: latitude=52.5200&longitude=13.4050
 			• By City Name:   city=Berlin
+
+			Responses carry an ETag and a Cache-Control max-age until the next upstream observation is due.
+			Send the ETag back in If-None-Match to get a 304 while the observation has not changed.
+
+			Send Accept: application/x-jackson-smile or application/cbor for a compact binary encoding of the same
+			fields, JSON is the default.
 			""")
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "200", description = "Weather data retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = CurrentWeatherDto.class))),
+			@ApiResponse(responseCode = "304", description = "Not modified - the If-None-Match ETag is still current", content = @Content),
 			@ApiResponse(responseCode = "400", description = "Bad request - invalid parameters or missing required data", content = @Content(mediaType = "application/json", examples = {
 					@ExampleObject(name = "Missing Parameters", value = "{\"error\": \"Either latitude+longitude OR city must be provided\"}"),
 					@ExampleObject(name = "Both Parameters", value = "{\"error\": \"Provide either latitude+longitude OR city, not both\"}"),
@@ -50,43 +87,173 @@ public class WeatherController {
 			@ApiResponse(responseCode = "500", description = "Internal server error - weather service unavailable", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Weather service temporarily unavailable\"}")))
 	})
 	@GetMapping("/current")
-	public ResponseEntity<CurrentWeatherDto> getCurrentWeather(
+	public ResponseEntity<byte[]> getCurrentWeather(
 			@Parameter(description = "Latitude coordinate (-90 to 90 degrees). Required if city is not provided.", example = "52.5200", schema = @Schema(minimum = "-90", maximum = "90")) @RequestParam(required = false) @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90") @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90") Double latitude,
 
 			@Parameter(description = "Longitude coordinate (-180 to 180 degrees). Required if city is not provided.", example = "13.4050", schema = @Schema(minimum = "-180", maximum = "180")) @RequestParam(required = false) @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180") @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180") Double longitude,
 
-			@Parameter(description = "Name of the city (e.g., 'Berlin', 'New York', 'Tokyo'). Required if coordinates are not provided.", example = "Berlin") @RequestParam(required = false) String city) {
+			@Parameter(description = "Name of the city (e.g., 'Berlin', 'New York', 'Tokyo'). Required if coordinates are not provided.", example = "Berlin") @RequestParam(required = false) String city,
 
-		// Validate: either coordinates OR city, but not both
-		boolean hasCoordinates = latitude != null && longitude != null;
-		boolean hasCity = city != null && !city.trim().isEmpty();
+			@Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
 
-		if (!hasCoordinates && !hasCity) {
-			throw new WeatherException(HttpStatus.BAD_REQUEST, "Either latitude+longitude OR city must be provided");
+		CachedWeather weather;
+		if (LocationParameters.isByCoordinates(latitude, longitude, city)) {
+			log.info("Fetching current weather for coordinates: lat={}, lon={}", latitude, longitude);
+			weather = weatherService.getCachedWeather(latitude, longitude);
+		} else {
+			log.info("Fetching current weather for city: {}", city);
+			weather = weatherService.getCachedWeatherByCity(city);
 		}
-		if (hasCoordinates && hasCity) {
-			throw new WeatherException(HttpStatus.BAD_REQUEST, "Provide either latitude+longitude OR city, not both");
+
+		return responses.ok(weather, accept);
+	}
+
+	@Operation(summary = "Get hourly and daily forecast", description = """
+			Retrieve the hourly and daily forecast by coordinates or city name, like the current weather.
+			Values are returned in columns: a time array and one array per variable, as Open-Meteo does.
+
+			Select variables with comma separated lists, e.g. hourly=temperature_2m,precipitation;
+			omit a list to get all available variables, pass it empty to leave the block out.
+			Narrow the time range with start and end (GMT, inclusive); a daily value is included if its day
+			overlaps the range.
+			""")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Forecast retrieved successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ForecastDto.class))),
+			@ApiResponse(responseCode = "400", description = "Bad request - invalid location, variable or time range", content = @Content(mediaType = "application/json", examples = {
+					@ExampleObject(name = "Unknown Variable", value = "{\"error\": \"Unknown hourly variable: snowfall\"}"),
+					@ExampleObject(name = "Invalid Range", value = "{\"error\": \"End must not be before start\"}")
+			})),
+			@ApiResponse(responseCode = "404", description = "City not found", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"City not found: InvalidCityName\"}"))),
+			@ApiResponse(responseCode = "500", description = "Internal server error - weather service unavailable", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Failed to fetch forecast data\"}")))
+	})
+	@GetMapping("/forecast")
+	public ResponseEntity<ForecastDto> getForecast(
+			@Parameter(description = "Latitude coordinate (-90 to 90 degrees). Required if city is not provided.", example = "52.5200", schema = @Schema(minimum = "-90", maximum = "90")) @RequestParam(required = false) @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90") @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90") Double latitude,
+
+			@Parameter(description = "Longitude coordinate (-180 to 180 degrees). Required if city is not provided.", example = "13.4050", schema = @Schema(minimum = "-180", maximum = "180")) @RequestParam(required = false) @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180") @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180") Double longitude,
+
+			@Parameter(description = "Name of the city. Required if coordinates are not provided.", example = "Berlin") @RequestParam(required = false) String city,
+
+			@Parameter(description = "Comma separated hourly variables, all if omitted", example = "temperature_2m,precipitation") @RequestParam(required = false) String hourly,
+
+			@Parameter(description = "Comma separated daily variables, all if omitted", example = "temperature_2m_max,temperature_2m_min") @RequestParam(required = false) String daily,
+
+			@Parameter(description = "First time to include, ISO-8601 in GMT", example = "2024-01-15T06:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+
+			@Parameter(description = "Last time to include, ISO-8601 in GMT", example = "2024-01-15T18:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+
+		if (LocationParameters.isByCoordinates(latitude, longitude, city)) {
+			return ResponseEntity.ok(forecastService.getForecast(latitude, longitude, hourly, daily, start, end));
 		}
-		if (hasCoordinates && (latitude == null || longitude == null)) {
-			throw new WeatherException(HttpStatus.BAD_REQUEST,
-					"Both latitude and longitude must be provided when using coordinates");
+		return ResponseEntity.ok(forecastService.getForecastByCity(city, hourly, daily, start, end));
+	}
+
+	@Operation(summary = "Get archived observations", description = """
+			Retrieve the observations this service fetched for the grid cell of a location in the past, by coordinates
+			or city name. Answered from the local archive only, the weather service is never called for them.
+			Values are returned in columns: a time array and one array per field.
+
+			Select fields with a comma separated list, e.g. fields=temperature,humidity; all if omitted.
+			Narrow the time range with start and end (GMT, inclusive); the default is the last 24 hours.
+			""")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Observations retrieved, possibly none", content = @Content(mediaType = "application/json", schema = @Schema(implementation = HistoryDto.class))),
+			@ApiResponse(responseCode = "400", description = "Bad request - invalid location, field or time range", content = @Content(mediaType = "application/json", examples = {
+					@ExampleObject(name = "Unknown Field", value = "{\"error\": \"Unknown history field: snowfall\"}"),
+					@ExampleObject(name = "Range Too Long", value = "{\"error\": \"Range must not exceed 92 days\"}")
+			})),
+			@ApiResponse(responseCode = "404", description = "City not found or history not enabled", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Weather history is not enabled\"}")))
+	})
+	@GetMapping("/history")
+	public ResponseEntity<HistoryDto> getHistory(
+			@Parameter(description = "Latitude coordinate (-90 to 90 degrees). Required if city is not provided.", example = "52.5200", schema = @Schema(minimum = "-90", maximum = "90")) @RequestParam(required = false) @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90") @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90") Double latitude,
+
+			@Parameter(description = "Longitude coordinate (-180 to 180 degrees). Required if city is not provided.", example = "13.4050", schema = @Schema(minimum = "-180", maximum = "180")) @RequestParam(required = false) @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180") @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180") Double longitude,
+
+			@Parameter(description = "Name of the city. Required if coordinates are not provided.", example = "Berlin") @RequestParam(required = false) String city,
+
+			@Parameter(description = "Comma separated fields, all if omitted", example = "temperature,humidity") @RequestParam(required = false) String fields,
+
+			@Parameter(description = "First time to include, ISO-8601 in GMT", example = "2024-01-01T00:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+
+			@Parameter(description = "Last time to include, ISO-8601 in GMT", example = "2024-01-31T00:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+
+		if (LocationParameters.isByCoordinates(latitude, longitude, city)) {
+			return ResponseEntity.ok(historyService.getHistory(latitude, longitude, fields, start, end));
 		}
+		return ResponseEntity.ok(historyService.getHistoryByCity(city, fields, start, end));
+	}
 
-		CurrentWeatherDto weather;
-		if (hasCoordinates) {
-			log.info("Fetching current weather for coordinates: lat={}, lon={}", latitude, longitude);
-			// Null checks to prevent auto-unboxing issues
-			if (latitude != null && longitude != null) {
-				weather = weatherService.getCurrentWeather(latitude, longitude);
-			} else {
-				throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
-						"Internal error: coordinates validation failed");
-			}
-		} else {
-			log.info("Fetching current weather for city: {}", city);
-			weather = weatherService.getCurrentWeatherByCity(city);
+	@Operation(summary = "Subscribe to live weather updates", description = """
+			Opens a Server-Sent Events stream for a set of locations, given as locations=lat,lon;lat,lon and/or
+			cities=Berlin;Paris. Replaces polling /current: each location is refreshed once per upstream update for
+			all subscribers.
+
+			The stream starts with a 'snapshot' event per location holding the full current weather. Whenever the
+			upstream publishes a newer observation an 'update' event follows with location, timestamp and the
+			fields that changed. Comments are sent as keep-alive; the stream ends after a while and
+			EventSource clients reconnect on their own.
+			""")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Stream opened", content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = CurrentWeatherDto.class))),
+			@ApiResponse(responseCode = "400", description = "Bad request - no, too many or invalid locations", content = @Content(mediaType = "application/json", examples = {
+					@ExampleObject(name = "Missing Locations", value = "{\"error\": \"At least one location must be provided\"}"),
+					@ExampleObject(name = "Invalid Location", value = "{\"error\": \"Invalid location '52.52', expected latitude,longitude\"}")
+			})),
+			@ApiResponse(responseCode = "404", description = "City not found or subscriptions not enabled", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"City not found: InvalidCityName\"}"))),
+			@ApiResponse(responseCode = "503", description = "Too many open streams on this instance", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Too many open subscriptions, retry later\"}")))
+	})
+	@GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter subscribe(
+			@Parameter(description = "Semicolon separated latitude,longitude pairs", example = "52.5200,13.4050;48.8566,2.3522") @RequestParam(required = false) String locations,
+
+			@Parameter(description = "Semicolon separated city names", example = "Berlin;Paris") @RequestParam(required = false) String cities) {
+
+		List<CoordinatesDto> coordinates = new ArrayList<>();
+		for (String location : LocationParameters.splitList(locations)) {
+			coordinates.add(LocationParameters.parseCoordinates(location));
+		}
+		for (String city : LocationParameters.splitList(cities)) {
+			GeocodingResponse.Result result = weatherService.getCoordinatesForCity(city);
+			coordinates.add(new CoordinatesDto(result.getLatitude(), result.getLongitude()));
 		}
+		log.info("Opening weather stream for {} locations", coordinates.size());
+		return subscriptionHub.openEmitter(coordinates);
+	}
 
-		return ResponseEntity.ok(weather);
+	@Operation(summary = "Get current weather information for multiple locations", description = """
+			Retrieve current weather data for up to 1000 locations in one request.
+			Locations are fetched from the weather service in chunks, so this is much cheaper than one request per location.
+			Results are returned in request order; a failing location is reported with an error instead of failing the whole batch.
+			""")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Batch processed, check each item for weather or error", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = BatchWeatherItemDto.class)))),
+			@ApiResponse(responseCode = "400", description = "Bad request - empty batch, too many locations or invalid coordinates", content = @Content(mediaType = "application/json", examples = {
+					@ExampleObject(name = "Empty Batch", value = "{\"error\": \"At least one location must be provided\"}"),
+					@ExampleObject(name = "Too Many Locations", value = "{\"error\": \"At most 1000 locations can be requested at once\"}")
+			}))
+	})
+	@PostMapping("/current/batch")
+	public ResponseEntity<List<BatchWeatherItemDto>> getCurrentWeatherBatch(
+			@io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Locations to retrieve the weather for") @Valid @RequestBody BatchWeatherRequest request) {
+		log.info("Fetching current weather for {} locations", request.getLocations().size());
+		return ResponseEntity.ok(batchWeatherService.getCurrentWeather(request.getLocations()));
+	}
+
+	@Operation(summary = "Suggest locations for a partially typed name", description = """
+			Autocomplete for the city parameter, answered from memory without calling the geocoding service.
+			Matches names by prefix, ignoring case and diacritics. Previously resolved locations come first,
+			then places of the offline dataset (if configured) by population.
+			Queries shorter than two characters return an empty list.
+			""")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Matching locations, possibly none", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = LocationSuggestionDto.class)))),
+			@ApiResponse(responseCode = "400", description = "Bad request - invalid limit", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Limit must be at least 1\"}")))
+	})
+	@GetMapping("/locations/suggest")
+	public ResponseEntity<List<LocationSuggestionDto>> suggestLocations(
+			@Parameter(description = "Beginning of the location name", example = "Ber") @RequestParam(required = false) String q,
+			@Parameter(description = "Maximum number of suggestions (default 10, at most 50)", example = "5") @RequestParam(required = false) @Min(value = 1, message = "Limit must be at least 1") Integer limit) {
+		return ResponseEntity.ok(locationSuggester.suggest(q, limit));
 	}
 }
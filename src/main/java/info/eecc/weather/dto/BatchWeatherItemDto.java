@@ -0,0 +1,26 @@
+package info.eecc.weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result for one location of a batch request, either the weather or an error")
+public class BatchWeatherItemDto {
+
+	@Schema(description = "Requested latitude", example = "52.5200")
+	private double latitude;
+
+	@Schema(description = "Requested longitude", example = "13.4050")
+	private double longitude;
+
+	@Schema(description = "Current weather, absent if the location failed")
+	private CurrentWeatherDto weather;
+
+	@Schema(description = "Error message, absent if the location succeeded", example = "Failed to fetch weather data: Read timed out")
+	private String error;
+}
@@ -0,0 +1,22 @@
+package info.eecc.weather.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Locations to retrieve the current weather for")
+public class BatchWeatherRequest {
+
+	@Schema(description = "List of locations, results are returned in the same order")
+	@NotEmpty(message = "At least one location must be provided")
+	private List<@Valid @NotNull CoordinatesDto> locations;
+}
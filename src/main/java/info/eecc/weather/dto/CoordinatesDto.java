@@ -0,0 +1,28 @@
+package info.eecc.weather.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Geographic coordinates of a location")
+public class CoordinatesDto {
+
+	@Schema(description = "Latitude coordinate of the location", example = "52.5200", minimum = "-90", maximum = "90")
+	@NotNull(message = "Latitude is required")
+	@DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90")
+	@DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90")
+	private Double latitude;
+
+	@Schema(description = "Longitude coordinate of the location", example = "13.4050", minimum = "-180", maximum = "180")
+	@NotNull(message = "Longitude is required")
+	@DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180")
+	@DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180")
+	private Double longitude;
+}
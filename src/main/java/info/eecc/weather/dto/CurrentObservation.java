@@ -0,0 +1,18 @@
+package info.eecc.weather.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A decoded current weather observation together with the upstream update interval, which the cache
+ * expiry is derived from.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CurrentObservation {
+
+	private final CurrentWeatherDto weather;
+
+	/** Seconds after {@code weather.timestamp} when Open-Meteo publishes the next value. */
+	private final int interval;
+}
@@ -0,0 +1,29 @@
+package info.eecc.weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Hourly and daily forecast for a specific location")
+public class ForecastDto {
+
+	@Schema(description = "Latitude coordinate of the forecast grid point", example = "52.5000")
+	private double latitude;
+
+	@Schema(description = "Longitude coordinate of the forecast grid point", example = "13.4000")
+	private double longitude;
+
+	@Schema(description = "Human-readable location name", example = "52.5000, 13.4000")
+	private String location;
+
+	@Schema(description = "Hourly forecast, absent if no hourly variable was requested")
+	private ForecastSeriesDto hourly;
+
+	@Schema(description = "Daily forecast, absent if no daily variable was requested")
+	private ForecastSeriesDto daily;
+}
@@ -0,0 +1,23 @@
+package info.eecc.weather.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@Schema(description = "Forecast values in columns: one array per variable, aligned with the time array")
+public class ForecastSeriesDto {
+
+	@Schema(description = "Times in GMT, ISO-8601 date-times for hourly and dates for daily values", example = "[\"2024-01-15T14:00\", \"2024-01-15T15:00\"]")
+	private List<String> time;
+
+	@Schema(description = "Unit of each variable", example = "{\"temperature_2m\": \"°C\"}")
+	private Map<String, String> units;
+
+	@Schema(description = "Values of each variable, null where the upstream has none", example = "{\"temperature_2m\": [3.1, 2.8]}")
+	private Map<String, Float[]> values;
+}
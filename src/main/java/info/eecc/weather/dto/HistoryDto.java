@@ -0,0 +1,32 @@
+package info.eecc.weather.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@Schema(description = "Archived observations of a grid cell in columns: one array per field, aligned with the time array")
+public class HistoryDto {
+
+	@Schema(description = "Latitude coordinate of the grid cell center", example = "52.5200")
+	private double latitude;
+
+	@Schema(description = "Longitude coordinate of the grid cell center", example = "13.4000")
+	private double longitude;
+
+	@Schema(description = "Human-readable location name", example = "52.5200, 13.4000")
+	private String location;
+
+	@Schema(description = "Upstream observation times in GMT", example = "[\"2024-01-15T14:15\", \"2024-01-15T14:30\"]")
+	private List<String> time;
+
+	@Schema(description = "Unit of each field", example = "{\"temperature\": \"°C\"}")
+	private Map<String, String> units;
+
+	@Schema(description = "Values of each field", example = "{\"temperature\": [22.1, 22.5]}")
+	private Map<String, double[]> values;
+}
@@ -0,0 +1,29 @@
+package info.eecc.weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "A location matching the typed prefix, to be passed on as city or coordinates")
+public class LocationSuggestionDto {
+
+	@Schema(description = "Location name", example = "Berlin")
+	private String name;
+
+	@Schema(description = "Country name", example = "Germany")
+	private String country;
+
+	@Schema(description = "First-level administrative region, absent if unknown", example = "Land Berlin")
+	private String admin1;
+
+	@Schema(description = "Latitude coordinate of the location", example = "52.5244")
+	private double latitude;
+
+	@Schema(description = "Longitude coordinate of the location", example = "13.4105")
+	private double longitude;
+}
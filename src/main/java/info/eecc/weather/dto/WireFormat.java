@@ -0,0 +1,62 @@
+package info.eecc.weather.dto;
+
+import java.util.List;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Representations the API encodes DTOs in. Smile and CBOR are binary encodings of the same data model as JSON:
+ * same field names and values, without quoting, with binary numbers and, for Smile, back references to repeated
+ * names and short strings. Any Jackson-based client decodes them into the same classes.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum WireFormat {
+
+	JSON(MediaType.APPLICATION_JSON),
+	SMILE(MediaType.parseMediaType(WireFormat.SMILE_VALUE)),
+	CBOR(MediaType.APPLICATION_CBOR);
+
+	public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+	private final MediaType mediaType;
+
+	/**
+	 * Picks the format with the highest quality value in an {@code Accept} header. Among equal quality values
+	 * the first concrete type wins over wildcards; JSON if nothing matches, the header is missing or malformed.
+	 */
+	public static WireFormat negotiate(String accept) {
+		if (accept == null || accept.isBlank()) {
+			return JSON;
+		}
+		List<MediaType> accepted;
+		try {
+			accepted = MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException e) {
+			return JSON;
+		}
+		WireFormat best = JSON;
+		double bestQuality = 0;
+		boolean bestIsWildcard = true;
+		for (MediaType type : accepted) {
+			double quality = type.getQualityValue();
+			boolean wildcard = type.isWildcardType() || type.isWildcardSubtype();
+			if (quality == 0 || quality < bestQuality || (quality == bestQuality && (wildcard || !bestIsWildcard))) {
+				continue;
+			}
+			for (WireFormat format : values()) {
+				if (type.includes(format.mediaType)) {
+					best = format;
+					bestQuality = quality;
+					bestIsWildcard = wildcard;
+					break;
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -2,10 +2,18 @@ package info.eecc.weather.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.ObjectError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
 
 import jakarta.validation.ConstraintViolationException;
 import java.util.HashMap;
@@ -25,7 +33,8 @@ public class GlobalExceptionHandler {
 		// Use the HttpStatus from the exception
 		HttpStatus status = ex.getHttpStatus() != null ? ex.getHttpStatus() : HttpStatus.INTERNAL_SERVER_ERROR;
 
-		return ResponseEntity.status(status).body(error);
+		// Set explicitly, so errors of event stream requests are not dropped as not acceptable
+		return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(error);
 	}
 
 	@ExceptionHandler(ConstraintViolationException.class)
@@ -36,6 +45,41 @@ public class GlobalExceptionHandler {
 		return ResponseEntity.badRequest().body(error);
 	}
 
+	@ExceptionHandler(MethodArgumentNotValidException.class)
+	public ResponseEntity<Map<String, String>> handleInvalidRequestBody(MethodArgumentNotValidException ex) {
+		log.error("Validation error: {}", ex.getMessage());
+		return invalidRequestBody(ex.getBindingResult());
+	}
+
+	/**
+	 * Reactive counterpart of {@link #handleInvalidRequestBody(MethodArgumentNotValidException)}.
+	 */
+	@ExceptionHandler(WebExchangeBindException.class)
+	public ResponseEntity<Map<String, String>> handleInvalidReactiveRequestBody(WebExchangeBindException ex) {
+		log.error("Validation error: {}", ex.getMessage());
+		return invalidRequestBody(ex.getBindingResult());
+	}
+
+	/**
+	 * Reactive counterpart of {@link #handleUnreadableRequestBody(HttpMessageNotReadableException)}, also raised
+	 * for request parameters that cannot be converted.
+	 */
+	@ExceptionHandler(ServerWebInputException.class)
+	public ResponseEntity<Map<String, String>> handleInvalidReactiveInput(ServerWebInputException ex) {
+		log.error("Invalid request input: {}", ex.getMessage());
+		Map<String, String> error = new HashMap<>();
+		error.put("error", ex.getCause() instanceof DecodingException ? "Malformed request body" : "Invalid request");
+		return ResponseEntity.badRequest().body(error);
+	}
+
+	@ExceptionHandler(HttpMessageNotReadableException.class)
+	public ResponseEntity<Map<String, String>> handleUnreadableRequestBody(HttpMessageNotReadableException ex) {
+		log.error("Unreadable request body: {}", ex.getMessage());
+		Map<String, String> error = new HashMap<>();
+		error.put("error", "Malformed request body");
+		return ResponseEntity.badRequest().body(error);
+	}
+
 	@ExceptionHandler(RestClientException.class)
 	public ResponseEntity<Map<String, String>> handleRestClientException(RestClientException ex) {
 		log.error("External service error: {}", ex.getMessage());
@@ -51,4 +95,14 @@ public class GlobalExceptionHandler {
 		error.put("error", "Internal server error");
 		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
 	}
+
+	private static ResponseEntity<Map<String, String>> invalidRequestBody(BindingResult bindingResult) {
+		Map<String, String> error = new HashMap<>();
+		String message = bindingResult.getAllErrors().stream()
+				.map(ObjectError::getDefaultMessage)
+				.findFirst()
+				.orElse("Invalid request body");
+		error.put("error", message);
+		return ResponseEntity.badRequest().body(error);
+	}
 }
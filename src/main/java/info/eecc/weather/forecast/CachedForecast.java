@@ -0,0 +1,22 @@
+package info.eecc.weather.forecast;
+
+import java.time.Instant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A cached forecast together with the instant it has to be fetched again.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedForecast {
+
+	private final Forecast forecast;
+	private final Instant fetchedAt;
+	private final Instant expiresAt;
+
+	public boolean isFresh(Instant now) {
+		return now.isBefore(expiresAt);
+	}
+}
@@ -0,0 +1,21 @@
+package info.eecc.weather.forecast;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Hourly and daily forecast of one location as returned by the upstream, in columnar form.
+ */
+@Getter
+@RequiredArgsConstructor
+public class Forecast {
+
+	private final double latitude;
+	private final double longitude;
+	private final ForecastSeries hourly;
+	private final ForecastSeries daily;
+
+	public long estimatedBytes() {
+		return 32 + hourly.estimatedBytes() + daily.estimatedBytes();
+	}
+}
@@ -0,0 +1,132 @@
+package info.eecc.weather.forecast;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.config.ForecastProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded in-memory cache of forecasts keyed by {@link GridKey}. Entries are replaced after
+ * {@code weather.forecast.ttl} and the least recently used cell is evicted once
+ * {@code weather.forecast.max-entries} is exceeded. The estimated heap size of all entries is tracked, so
+ * the effect of the configured variables on memory can be watched.
+ */
+@Component
+@Slf4j
+public class ForecastCache implements MeterBinder {
+
+	private final ForecastProperties properties;
+	private final Clock clock;
+	private final Map<GridKey, CachedForecast> entries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/** Estimated heap size of all entries, guarded by {@code entries}. */
+	private long bytes;
+
+	public ForecastCache(ForecastProperties properties, Clock clock) {
+		this.properties = properties;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<GridKey, CachedForecast> eldest) {
+				if (size() > properties.getMaxEntries()) {
+					evictions.increment();
+					bytes -= eldest.getValue().getForecast().estimatedBytes();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public GridKey keyFor(double latitude, double longitude) {
+		return GridKey.of(latitude, longitude, properties.getGridSize());
+	}
+
+	public double getGridSize() {
+		return properties.getGridSize();
+	}
+
+	/**
+	 * Returns the cached forecast for the given cell if it has not expired yet, otherwise {@code null}.
+	 */
+	public CachedForecast getIfFresh(GridKey key) {
+		CachedForecast cached;
+		synchronized (entries) {
+			cached = entries.get(key);
+		}
+		if (cached == null || !cached.isFresh(clock.instant())) {
+			misses.increment();
+			log.trace("Forecast cache miss for {}", key);
+			return null;
+		}
+		hits.increment();
+		log.trace("Forecast cache hit for {}", key);
+		return cached;
+	}
+
+	public CachedForecast put(GridKey key, Forecast forecast) {
+		Instant now = clock.instant();
+		CachedForecast cached = new CachedForecast(forecast, now, now.plus(properties.getTtl()));
+		synchronized (entries) {
+			CachedForecast previous = entries.put(key, cached);
+			bytes += forecast.estimatedBytes() - (previous != null ? previous.getForecast().estimatedBytes() : 0);
+		}
+		log.debug("Cached forecast for {} until {}", key, cached.getExpiresAt());
+		return cached;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long estimatedBytes() {
+		synchronized (entries) {
+			return bytes;
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("weather.forecast.cache.gets", hits, LongAdder::sum)
+				.description("Forecast lookups served from the cache")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("weather.forecast.cache.gets", misses, LongAdder::sum)
+				.description("Forecast lookups that had to call the upstream")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("weather.forecast.cache.evictions", evictions, LongAdder::sum)
+				.description("Forecasts evicted because the cache was full")
+				.register(registry);
+		Gauge.builder("weather.forecast.cache.size", this, ForecastCache::size)
+				.description("Number of cached forecasts")
+				.register(registry);
+		Gauge.builder("weather.forecast.cache.bytes", this, ForecastCache::estimatedBytes)
+				.description("Estimated heap size of the cached forecasts")
+				.baseUnit("bytes")
+				.register(registry);
+	}
+}
@@ -0,0 +1,26 @@
+package info.eecc.weather.forecast;
+
+/**
+ * Time step of a forecast series, named like the Open-Meteo request parameter.
+ */
+public enum ForecastResolution {
+
+	HOURLY("hourly", 3_600),
+	DAILY("daily", 86_400);
+
+	private final String parameter;
+	private final int stepSeconds;
+
+	ForecastResolution(String parameter, int stepSeconds) {
+		this.parameter = parameter;
+		this.stepSeconds = stepSeconds;
+	}
+
+	public String getParameter() {
+		return parameter;
+	}
+
+	public int getStepSeconds() {
+		return stepSeconds;
+	}
+}
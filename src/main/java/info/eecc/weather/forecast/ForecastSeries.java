@@ -0,0 +1,105 @@
+package info.eecc.weather.forecast;
+
+import java.util.List;
+
+/**
+ * Immutable time series of several forecast variables at a fixed time step. The time axis is implicit
+ * ({@code start + i * step}) and all values live in one {@code short} array, one column per variable, so a
+ * week of hourly data for ten variables takes about 3.4 KB instead of one object per hour.
+ */
+public final class ForecastSeries {
+
+	/** Stored in place of values the upstream returned as {@code null}. */
+	public static final short MISSING = Short.MIN_VALUE;
+
+	private final ForecastResolution resolution;
+	private final long start;
+	private final int length;
+	private final List<ForecastVariable> variables;
+	private final short[] values;
+
+	/**
+	 * @param start epoch second of the first value
+	 * @param values {@code variables.size()} columns of {@code length} values each, already scaled with
+	 * {@link ForecastVariable#encode(double)}
+	 */
+	public ForecastSeries(ForecastResolution resolution, long start, int length, List<ForecastVariable> variables,
+			short[] values) {
+		if (values.length != length * variables.size()) {
+			throw new IllegalArgumentException(
+					"Expected " + length * variables.size() + " values, got " + values.length);
+		}
+		this.resolution = resolution;
+		this.start = start;
+		this.length = length;
+		this.variables = List.copyOf(variables);
+		this.values = values;
+	}
+
+	public static ForecastSeries empty(ForecastResolution resolution) {
+		return new ForecastSeries(resolution, 0, 0, List.of(), new short[0]);
+	}
+
+	public ForecastResolution getResolution() {
+		return resolution;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public List<ForecastVariable> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Epoch second of the value at {@code index}.
+	 */
+	public long getTime(int index) {
+		return start + (long) index * resolution.getStepSeconds();
+	}
+
+	/**
+	 * First index at or after {@code epochSecond}. A daily value covers its whole day, so for daily series
+	 * this is the day containing {@code epochSecond}.
+	 */
+	public int firstIndex(long epochSecond) {
+		long offset = epochSecond - start;
+		long step = resolution.getStepSeconds();
+		return clamp(resolution == ForecastResolution.DAILY ? Math.floorDiv(offset, step)
+				: -Math.floorDiv(-offset, step));
+	}
+
+	/**
+	 * Index after the last value at or before {@code epochSecond}.
+	 */
+	public int endIndex(long epochSecond) {
+		return clamp(Math.floorDiv(epochSecond - start, resolution.getStepSeconds()) + 1);
+	}
+
+	/**
+	 * Column of {@code variable}, or {@code -1} if the series does not contain it.
+	 */
+	public int indexOf(ForecastVariable variable) {
+		return variables.indexOf(variable);
+	}
+
+	/**
+	 * Value of the variable in {@code column} at {@code index}, {@code NaN} if the upstream had none.
+	 */
+	public float getValue(int column, int index) {
+		return variables.get(column).decode(values[column * length + index]);
+	}
+
+	/**
+	 * Approximate heap size in bytes, for the cache size metric.
+	 */
+	public long estimatedBytes() {
+		// Object header and fields, array header, the variable list is shared between entries of a cache
+		return 40 + 16 + 2L * values.length;
+	}
+
+	private int clamp(long index) {
+		return (int) Math.max(0, Math.min(length, index));
+	}
+}
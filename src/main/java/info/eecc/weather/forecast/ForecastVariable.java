@@ -0,0 +1,106 @@
+package info.eecc.weather.forecast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forecast variables the service can cache. Open-Meteo rounds values to at most one decimal, so each value
+ * is stored as a {@code short} multiplied by {@link #getScale()} without losing precision.
+ */
+public enum ForecastVariable {
+
+	TEMPERATURE_2M(ForecastResolution.HOURLY, "temperature_2m", 10, "°C"),
+	RELATIVE_HUMIDITY_2M(ForecastResolution.HOURLY, "relative_humidity_2m", 1, "%"),
+	APPARENT_TEMPERATURE(ForecastResolution.HOURLY, "apparent_temperature", 10, "°C"),
+	PRECIPITATION_PROBABILITY(ForecastResolution.HOURLY, "precipitation_probability", 1, "%"),
+	PRECIPITATION(ForecastResolution.HOURLY, "precipitation", 10, "mm"),
+	WEATHER_CODE(ForecastResolution.HOURLY, "weather_code", 1, "wmo code"),
+	WIND_SPEED_10M(ForecastResolution.HOURLY, "wind_speed_10m", 10, "km/h"),
+	WIND_DIRECTION_10M(ForecastResolution.HOURLY, "wind_direction_10m", 1, "°"),
+	SURFACE_PRESSURE(ForecastResolution.HOURLY, "surface_pressure", 10, "hPa"),
+	CLOUD_COVER(ForecastResolution.HOURLY, "cloud_cover", 1, "%"),
+
+	DAILY_WEATHER_CODE(ForecastResolution.DAILY, "weather_code", 1, "wmo code"),
+	TEMPERATURE_2M_MAX(ForecastResolution.DAILY, "temperature_2m_max", 10, "°C"),
+	TEMPERATURE_2M_MIN(ForecastResolution.DAILY, "temperature_2m_min", 10, "°C"),
+	PRECIPITATION_SUM(ForecastResolution.DAILY, "precipitation_sum", 10, "mm"),
+	PRECIPITATION_PROBABILITY_MAX(ForecastResolution.DAILY, "precipitation_probability_max", 1, "%"),
+	WIND_SPEED_10M_MAX(ForecastResolution.DAILY, "wind_speed_10m_max", 10, "km/h");
+
+	private final ForecastResolution resolution;
+	private final String apiName;
+	private final int scale;
+	private final String unit;
+
+	ForecastVariable(ForecastResolution resolution, String apiName, int scale, String unit) {
+		this.resolution = resolution;
+		this.apiName = apiName;
+		this.scale = scale;
+		this.unit = unit;
+	}
+
+	public ForecastResolution getResolution() {
+		return resolution;
+	}
+
+	public String getApiName() {
+		return apiName;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Scales a value to its stored form, {@link ForecastSeries#MISSING} for {@code NaN}. Values outside the
+	 * {@code short} range are clamped.
+	 */
+	public short encode(double value) {
+		if (Double.isNaN(value)) {
+			return ForecastSeries.MISSING;
+		}
+		long scaled = Math.round(value * scale);
+		return (short) Math.max(ForecastSeries.MISSING + 1, Math.min(Short.MAX_VALUE, scaled));
+	}
+
+	/**
+	 * Inverse of {@link #encode(double)}, {@code NaN} for missing values.
+	 */
+	public float decode(short stored) {
+		return stored == ForecastSeries.MISSING ? Float.NaN : (float) stored / scale;
+	}
+
+	/**
+	 * Returns the variable with the given Open-Meteo name, or {@code null} if it is not supported.
+	 */
+	public static ForecastVariable find(ForecastResolution resolution, String apiName) {
+		for (ForecastVariable variable : values()) {
+			if (variable.resolution == resolution && variable.apiName.equals(apiName)) {
+				return variable;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves configured variable names.
+	 *
+	 * @throws IllegalArgumentException for names that are not supported
+	 */
+	public static List<ForecastVariable> parse(ForecastResolution resolution, List<String> apiNames) {
+		List<ForecastVariable> variables = new ArrayList<>(apiNames.size());
+		for (String apiName : apiNames) {
+			ForecastVariable variable = find(resolution, apiName.trim());
+			if (variable == null) {
+				throw new IllegalArgumentException(
+						"Unsupported " + resolution.getParameter() + " forecast variable: " + apiName);
+			}
+			variables.add(variable);
+		}
+		return List.copyOf(variables);
+	}
+}
@@ -0,0 +1,285 @@
+package info.eecc.weather.geocoding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.GeocodingStoreProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent index of resolved cities, keyed by {@link LocationNameNormalizer#normalize(String)}.
+ * <p>
+ * Entries live in memory and are appended to a binary journal file, which is replayed on startup. A
+ * truncated last record (e.g. after a crash) is ignored. Later records for the same key win. Once
+ * {@code max-entries} is exceeded the least recently used city is evicted; the journal is compacted when it holds
+ * twice as many records, so overwritten and evicted records do not pile up either.
+ */
+@Component
+@Slf4j
+public class GeocodingStore implements MeterBinder {
+
+	private static final int MAGIC = 0x47454F31; // "GEO1"
+
+	private final GeocodingStoreProperties properties;
+	private final Map<String, GeocodingResponse.Result> entries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final List<Consumer<GeocodingResponse.Result>> listeners = new CopyOnWriteArrayList<>();
+
+	/** Records in the journal file, guarded by {@code this}. */
+	private int journalRecords;
+
+	public GeocodingStore(GeocodingStoreProperties properties) {
+		this.properties = properties;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, GeocodingResponse.Result> eldest) {
+				if (size() > properties.getMaxEntries()) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled();
+	}
+
+	@PostConstruct
+	public void load() {
+		Path path = properties.getPath();
+		if (!properties.isEnabled() || path == null || !Files.exists(path)) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC) {
+				log.warn("Ignoring geocoding store {}: unknown file format", path);
+				return;
+			}
+			boolean truncated = false;
+			int records = 0;
+			while (hasMore(in)) {
+				try {
+					String key = in.readUTF();
+					GeocodingResponse.Result result = readResult(in);
+					synchronized (entries) {
+						entries.put(key, result);
+					}
+					records++;
+				} catch (EOFException e) {
+					truncated = true;
+					break;
+				}
+			}
+			log.info("Loaded {} geocoding entries from {}", size(), path);
+			in.close();
+			synchronized (this) {
+				journalRecords = records;
+			}
+			if (truncated) {
+				log.warn("Geocoding store {} ends with an incomplete record, rewriting it", path);
+				compact();
+			} else if (records > size()) {
+				compact();
+			}
+		} catch (IOException e) {
+			log.warn("Could not load geocoding store {}: {}", path, e.getMessage());
+		}
+	}
+
+	/**
+	 * Rewrites the journal with exactly one record per key, least recently used first.
+	 */
+	public synchronized void compact() {
+		Path path = properties.getPath();
+		if (path == null) {
+			return;
+		}
+		List<Map.Entry<String, GeocodingResponse.Result>> records;
+		synchronized (entries) {
+			records = List.copyOf(entries.entrySet());
+		}
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				for (Map.Entry<String, GeocodingResponse.Result> entry : records) {
+					out.writeUTF(entry.getKey());
+					writeResult(out, entry.getValue());
+				}
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			journalRecords = records.size();
+			log.debug("Compacted geocoding store {} to {} entries", path, records.size());
+		} catch (IOException e) {
+			log.warn("Could not compact geocoding store {}: {}", path, e.getMessage());
+		}
+	}
+
+	private static boolean hasMore(DataInputStream in) throws IOException {
+		in.mark(1);
+		boolean more = in.read() >= 0;
+		in.reset();
+		return more;
+	}
+
+	/**
+	 * Returns the stored location for the given city name or {@code null} if it was never resolved.
+	 */
+	public GeocodingResponse.Result find(String city) {
+		if (!properties.isEnabled()) {
+			return null;
+		}
+		GeocodingResponse.Result result;
+		synchronized (entries) {
+			result = entries.get(LocationNameNormalizer.normalize(city));
+		}
+		(result != null ? hits : misses).increment();
+		return result;
+	}
+
+	public void put(String city, GeocodingResponse.Result result) {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		String key = LocationNameNormalizer.normalize(city);
+		GeocodingResponse.Result previous;
+		synchronized (entries) {
+			previous = entries.put(key, result);
+		}
+		if (!result.equals(previous)) {
+			append(key, result);
+			listeners.forEach(listener -> listener.accept(result));
+		}
+	}
+
+	/**
+	 * All stored locations; several city names may resolve to the same one.
+	 */
+	public Collection<GeocodingResponse.Result> results() {
+		synchronized (entries) {
+			return List.copyOf(entries.values());
+		}
+	}
+
+	/**
+	 * Registers a callback for locations stored after registration, called on the storing thread.
+	 */
+	void addListener(Consumer<GeocodingResponse.Result> listener) {
+		listeners.add(listener);
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("weather.geocoding.store.gets", hits, LongAdder::sum)
+				.description("City lookups answered by the geocoding store")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("weather.geocoding.store.gets", misses, LongAdder::sum)
+				.description("City lookups that had to call the geocoding API")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("weather.geocoding.store.evictions", evictions, LongAdder::sum)
+				.description("City names evicted because the store was full")
+				.register(registry);
+		Gauge.builder("weather.geocoding.store.size", this, GeocodingStore::size)
+				.description("Number of stored city names")
+				.register(registry);
+	}
+
+	private synchronized void append(String key, GeocodingResponse.Result result) {
+		Path path = properties.getPath();
+		if (path == null) {
+			return;
+		}
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			boolean newFile = !Files.exists(path) || Files.size(path) == 0;
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+				if (newFile) {
+					out.writeInt(MAGIC);
+				}
+				out.writeUTF(key);
+				writeResult(out, result);
+			}
+			journalRecords = newFile ? 1 : journalRecords + 1;
+			log.debug("Stored geocoding entry '{}' in {}", key, path);
+		} catch (IOException e) {
+			// The in-memory entry is still usable, it is just not persisted
+			log.warn("Could not persist geocoding entry '{}': {}", key, e.getMessage());
+			return;
+		}
+		if (journalRecords >= 2L * properties.getMaxEntries()) {
+			compact();
+		}
+	}
+
+	private static void writeResult(DataOutputStream out, GeocodingResponse.Result result) throws IOException {
+		out.writeDouble(result.getLatitude());
+		out.writeDouble(result.getLongitude());
+		writeNullable(out, result.getName());
+		writeNullable(out, result.getCountry());
+		writeNullable(out, result.getAdmin1());
+		writeNullable(out, result.getAdmin2());
+	}
+
+	private static GeocodingResponse.Result readResult(DataInputStream in) throws IOException {
+		GeocodingResponse.Result result = new GeocodingResponse.Result();
+		result.setLatitude(in.readDouble());
+		result.setLongitude(in.readDouble());
+		result.setName(readNullable(in));
+		result.setCountry(readNullable(in));
+		result.setAdmin1(readNullable(in));
+		result.setAdmin2(readNullable(in));
+		return result;
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
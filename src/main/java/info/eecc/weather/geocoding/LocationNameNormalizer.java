@@ -0,0 +1,27 @@
+package info.eecc.weather.geocoding;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes location names for lookups: case, diacritics and whitespace are ignored, so
+ * {@code "  MÜNCHEN "}, {@code "Munchen"} and {@code "münchen"} share one key.
+ */
+public final class LocationNameNormalizer {
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private LocationNameNormalizer() {
+	}
+
+	public static String normalize(String name) {
+		if (name == null) {
+			return "";
+		}
+		String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+		String withoutDiacritics = DIACRITICS.matcher(decomposed).replaceAll("");
+		return WHITESPACE.matcher(withoutDiacritics.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,101 @@
+package info.eecc.weather.geocoding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.LocationSuggestProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.LocationSuggestionDto;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Autocompletes location names from memory, without calling the geocoding API.
+ * <p>
+ * Locations resolved before (the {@link GeocodingStore}) are suggested first, then places of the
+ * {@link OfflineGeocoder} dataset by population. Names are matched by prefix after
+ * {@link LocationNameNormalizer normalization}, so case and diacritics do not matter. Newly resolved locations
+ * are added to a copy of the index that replaces the current one; lookups never wait for that.
+ */
+@Component
+@Slf4j
+public class LocationSuggester {
+
+	/** Suggestions closer than this (in degrees) are treated as the same place. */
+	private static final double SAME_PLACE_DEGREES = 0.05;
+
+	private final GeocodingStore geocodingStore;
+	private final OfflineGeocoder offlineGeocoder;
+	private final LocationSuggestProperties properties;
+
+	private volatile ResolvedLocationIndex resolved = ResolvedLocationIndex.EMPTY;
+
+	public LocationSuggester(GeocodingStore geocodingStore, OfflineGeocoder offlineGeocoder,
+			LocationSuggestProperties properties) {
+		this.geocodingStore = geocodingStore;
+		this.offlineGeocoder = offlineGeocoder;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	public void load() {
+		// Register first, so nothing stored while the initial index is built is missed
+		geocodingStore.addListener(this::add);
+		synchronized (this) {
+			resolved = ResolvedLocationIndex.of(geocodingStore.results());
+		}
+		log.info("Indexed {} resolved locations for suggestions", resolved.size());
+	}
+
+	/**
+	 * Returns up to {@code limit} locations whose name starts with {@code query}; {@code null} uses
+	 * {@code default-results}. Queries shorter than {@code min-query-length} return no suggestions.
+	 */
+	public List<LocationSuggestionDto> suggest(String query, Integer limit) {
+		String prefix = LocationNameNormalizer.normalize(query);
+		int maxResults = Math.min(limit != null ? limit : properties.getDefaultResults(), properties.getMaxResults());
+		if (prefix.length() < properties.getMinQueryLength() || maxResults <= 0) {
+			return List.of();
+		}
+
+		List<GeocodingResponse.Result> found = new ArrayList<>(maxResults);
+		addDistinct(found, resolved.findByPrefix(prefix, maxResults), maxResults);
+		if (found.size() < maxResults) {
+			addDistinct(found, offlineGeocoder.suggest(prefix, maxResults, properties.getScanLimit()), maxResults);
+		}
+		return found.stream().map(LocationSuggester::toSuggestion).toList();
+	}
+
+	synchronized void add(GeocodingResponse.Result result) {
+		resolved = resolved.with(result);
+	}
+
+	private static void addDistinct(List<GeocodingResponse.Result> found, List<GeocodingResponse.Result> candidates,
+			int maxResults) {
+		for (GeocodingResponse.Result candidate : candidates) {
+			if (found.size() >= maxResults) {
+				return;
+			}
+			if (found.stream().noneMatch(existing -> isSamePlace(existing, candidate))) {
+				found.add(candidate);
+			}
+		}
+	}
+
+	private static boolean isSamePlace(GeocodingResponse.Result a, GeocodingResponse.Result b) {
+		return Math.abs(a.getLatitude() - b.getLatitude()) < SAME_PLACE_DEGREES
+				&& Math.abs(a.getLongitude() - b.getLongitude()) < SAME_PLACE_DEGREES;
+	}
+
+	private static LocationSuggestionDto toSuggestion(GeocodingResponse.Result result) {
+		return LocationSuggestionDto.builder()
+				.name(result.getName())
+				.country(result.getCountry())
+				.admin1(result.getAdmin1())
+				.latitude(result.getLatitude())
+				.longitude(result.getLongitude())
+				.build();
+	}
+}
@@ -0,0 +1,222 @@
+package info.eecc.weather.geocoding;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.OfflineGeocoderProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves city names from a local GeoNames dump instead of calling the geocoding API.
+ * <p>
+ * The {@code geoname} table is read once on startup into a {@link PlaceIndex}; only populated places (feature
+ * class {@code P}) are kept. A name matching several places resolves to the most populated one.
+ */
+@Component
+@Slf4j
+public class OfflineGeocoder implements MeterBinder {
+
+	// Columns of the GeoNames "geoname" table
+	private static final int NAME = 1;
+	private static final int ASCII_NAME = 2;
+	private static final int ALTERNATE_NAMES = 3;
+	private static final int LATITUDE = 4;
+	private static final int LONGITUDE = 5;
+	private static final int FEATURE_CLASS = 6;
+	private static final int COUNTRY_CODE = 8;
+	private static final int ADMIN1_CODE = 10;
+	private static final int POPULATION = 14;
+	private static final int COLUMNS = POPULATION + 1;
+
+	private final OfflineGeocoderProperties properties;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private volatile PlaceIndex index = PlaceIndex.EMPTY;
+
+	public OfflineGeocoder(OfflineGeocoderProperties properties) {
+		this.properties = properties;
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled() && index.size() > 0;
+	}
+
+	@PostConstruct
+	public void load() {
+		Path path = properties.getPath();
+		if (!properties.isEnabled() || path == null) {
+			return;
+		}
+		if (!Files.exists(path)) {
+			log.warn("Offline geocoding dataset {} not found, cities are resolved with the geocoding API", path);
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			Map<String, String> admin1Names = loadAdmin1Names(properties.getAdmin1CodesPath());
+			PlaceIndexBuilder builder = new PlaceIndexBuilder();
+			try (BufferedReader reader = open(path)) {
+				String line;
+				String[] columns = new String[COLUMNS];
+				while ((line = reader.readLine()) != null) {
+					if (split(line, columns)) {
+						addPlace(builder, columns, admin1Names);
+					}
+				}
+			}
+			index = builder.build();
+			log.info("Loaded {} places from {} in {} ms", index.size(), path, (System.nanoTime() - start) / 1_000_000);
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not load offline geocoding dataset {}: {}", path, e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the most populated place with the given name or {@code null} if the dataset has none.
+	 */
+	public GeocodingResponse.Result find(String city) {
+		if (!properties.isEnabled()) {
+			return null;
+		}
+		PlaceIndex current = index;
+		int place = current.find(LocationNameNormalizer.normalize(city));
+		(place >= 0 ? hits : misses).increment();
+		return place >= 0 ? current.toResult(place) : null;
+	}
+
+	/**
+	 * Returns up to {@code limit} places whose name starts with the already normalized {@code prefix}, most
+	 * populated first.
+	 */
+	public List<GeocodingResponse.Result> suggest(String prefix, int limit, int scanLimit) {
+		if (!properties.isEnabled()) {
+			return List.of();
+		}
+		PlaceIndex current = index;
+		int[] places = current.findByPrefix(prefix, limit, scanLimit);
+		List<GeocodingResponse.Result> results = new ArrayList<>(places.length);
+		for (int place : places) {
+			results.add(current.toResult(place));
+		}
+		return results;
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("weather.geocoding.offline.gets", hits, LongAdder::sum)
+				.description("City lookups answered by the offline geocoder")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("weather.geocoding.offline.gets", misses, LongAdder::sum)
+				.description("City lookups not found in the offline dataset")
+				.tag("result", "miss")
+				.register(registry);
+		Gauge.builder("weather.geocoding.offline.size", this, OfflineGeocoder::size)
+				.description("Number of places in the offline dataset")
+				.register(registry);
+	}
+
+	private void addPlace(PlaceIndexBuilder builder, String[] columns, Map<String, String> admin1Names) {
+		if (!"P".equals(columns[FEATURE_CLASS])) {
+			return;
+		}
+		int population = columns[POPULATION].isEmpty() ? 0 : (int) Math.min(Long.parseLong(columns[POPULATION]),
+				Integer.MAX_VALUE);
+		if (population < properties.getMinPopulation()) {
+			return;
+		}
+		String countryCode = columns[COUNTRY_CODE];
+		int place = builder.addPlace(columns[NAME], countryName(countryCode),
+				admin1Names.get(countryCode + "." + columns[ADMIN1_CODE]), Double.parseDouble(columns[LATITUDE]),
+				Double.parseDouble(columns[LONGITUDE]), population);
+		builder.addName(columns[NAME], place);
+		builder.addName(columns[ASCII_NAME], place);
+		if (properties.isAlternateNames() && !columns[ALTERNATE_NAMES].isEmpty()) {
+			for (String alternateName : columns[ALTERNATE_NAMES].split(",")) {
+				builder.addName(alternateName, place);
+			}
+		}
+	}
+
+	/**
+	 * Splits the leading columns of a tab separated line, ignoring the rest.
+	 *
+	 * @return {@code false} for lines with fewer columns
+	 */
+	private static boolean split(String line, String[] columns) {
+		int from = 0;
+		for (int i = 0; i < columns.length; i++) {
+			int to = line.indexOf('\t', from);
+			if (to < 0) {
+				if (i < columns.length - 1) {
+					return false;
+				}
+				to = line.length();
+			}
+			columns[i] = line.substring(from, to);
+			from = to + 1;
+		}
+		return true;
+	}
+
+	private static String countryName(String countryCode) {
+		if (countryCode.isEmpty()) {
+			return null;
+		}
+		String name = Locale.of("", countryCode).getDisplayCountry(Locale.ENGLISH);
+		return name.isEmpty() ? countryCode : name;
+	}
+
+	/**
+	 * Reads {@code admin1CodesASCII.txt}: {@code <country>.<admin1>}, name, ASCII name, geoname id.
+	 */
+	private static Map<String, String> loadAdmin1Names(Path path) throws IOException {
+		Map<String, String> names = new HashMap<>();
+		if (path == null || !Files.exists(path)) {
+			return names;
+		}
+		try (BufferedReader reader = open(path)) {
+			String line;
+			String[] columns = new String[2];
+			while ((line = reader.readLine()) != null) {
+				if (split(line, columns)) {
+					names.put(columns[0], columns[1]);
+				}
+			}
+		}
+		return names;
+	}
+
+	private static BufferedReader open(Path path) throws IOException {
+		InputStream in = Files.newInputStream(path);
+		if (path.getFileName().toString().endsWith(".gz")) {
+			in = new GZIPInputStream(in);
+		}
+		return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,123 @@
+package info.eecc.weather.geocoding;
+
+import java.util.Arrays;
+
+import info.eecc.weather.dto.GeocodingResponse;
+
+/**
+ * Immutable in-memory place index used by {@link OfflineGeocoder}. Places are stored column-wise in
+ * primitive arrays; the normalized names pointing at them are kept in one sorted array, so exact and prefix
+ * lookups are binary searches. Names shared by several places are ordered by population, the largest place
+ * first, which is how the geocoding API ranks them.
+ */
+public final class PlaceIndex {
+
+	static final PlaceIndex EMPTY = new PlaceIndexBuilder().build();
+
+	private final String[] names;
+	private final String[] countries;
+	private final String[] admin1;
+	private final float[] latitudes;
+	private final float[] longitudes;
+	private final int[] populations;
+
+	/** Normalized names in ascending order, ties ordered by descending population. */
+	private final String[] keys;
+	/** Place of each key. */
+	private final int[] keyPlaces;
+
+	PlaceIndex(String[] names, String[] countries, String[] admin1, float[] latitudes, float[] longitudes,
+			int[] populations, String[] keys, int[] keyPlaces) {
+		this.names = names;
+		this.countries = countries;
+		this.admin1 = admin1;
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+		this.populations = populations;
+		this.keys = keys;
+		this.keyPlaces = keyPlaces;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the most populated place with the given normalized name, or {@code -1}.
+	 */
+	public int find(String key) {
+		int position = lowerBound(key);
+		return position < keys.length && keys[position].equals(key) ? keyPlaces[position] : -1;
+	}
+
+	/**
+	 * Returns up to {@code limit} distinct places with a name starting with {@code prefix}, most populated first.
+	 * At most {@code scanLimit} names are looked at, so very short prefixes stay cheap at the cost of missing
+	 * some larger places further down the alphabet.
+	 */
+	public int[] findByPrefix(String prefix, int limit, int scanLimit) {
+		int[] top = new int[limit];
+		int count = 0;
+		int start = lowerBound(prefix);
+		int end = (int) Math.min(keys.length, (long) start + scanLimit);
+		for (int position = start; position < end && keys[position].startsWith(prefix); position++) {
+			int place = keyPlaces[position];
+			if (contains(top, count, place)) {
+				continue;
+			}
+			// Insertion into the small array of the best places found so far
+			int insertAt = count;
+			while (insertAt > 0 && populations[top[insertAt - 1]] < populations[place]) {
+				insertAt--;
+			}
+			if (insertAt >= limit) {
+				continue;
+			}
+			int moved = Math.min(count, limit - 1) - insertAt;
+			System.arraycopy(top, insertAt, top, insertAt + 1, moved);
+			top[insertAt] = place;
+			count = Math.min(count + 1, limit);
+		}
+		return Arrays.copyOf(top, count);
+	}
+
+	public int getPopulation(int place) {
+		return populations[place];
+	}
+
+	public GeocodingResponse.Result toResult(int place) {
+		GeocodingResponse.Result result = new GeocodingResponse.Result();
+		result.setLatitude(latitudes[place]);
+		result.setLongitude(longitudes[place]);
+		result.setName(names[place]);
+		result.setCountry(countries[place]);
+		result.setAdmin1(admin1[place]);
+		return result;
+	}
+
+	private static boolean contains(int[] places, int count, int place) {
+		for (int i = 0; i < count; i++) {
+			if (places[i] == place) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * First position whose key is not less than {@code key}.
+	 */
+	int lowerBound(String key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (keys[middle].compareTo(key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
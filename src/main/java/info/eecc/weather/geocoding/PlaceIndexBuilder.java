@@ -0,0 +1,100 @@
+package info.eecc.weather.geocoding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects places and their names while a dataset is read and sorts them into a {@link PlaceIndex}. Country
+ * and region names repeat for most places and are stored as one shared instance each.
+ */
+final class PlaceIndexBuilder {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private String[] names = new String[INITIAL_CAPACITY];
+	private String[] countries = new String[INITIAL_CAPACITY];
+	private String[] admin1 = new String[INITIAL_CAPACITY];
+	private float[] latitudes = new float[INITIAL_CAPACITY];
+	private float[] longitudes = new float[INITIAL_CAPACITY];
+	private int[] populations = new int[INITIAL_CAPACITY];
+	private int size;
+
+	private final List<String> keys = new ArrayList<>();
+	private int[] keyPlaces = new int[INITIAL_CAPACITY];
+
+	private final Map<String, String> sharedStrings = new HashMap<>();
+
+	/**
+	 * Adds a place and returns its id for {@link #addName(String, int)}.
+	 */
+	int addPlace(String name, String country, String admin1Name, double latitude, double longitude, int population) {
+		if (size == names.length) {
+			int capacity = size * 2;
+			names = Arrays.copyOf(names, capacity);
+			countries = Arrays.copyOf(countries, capacity);
+			admin1 = Arrays.copyOf(admin1, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			populations = Arrays.copyOf(populations, capacity);
+		}
+		names[size] = name;
+		countries[size] = share(country);
+		admin1[size] = share(admin1Name);
+		latitudes[size] = (float) latitude;
+		longitudes[size] = (float) longitude;
+		populations[size] = population;
+		return size++;
+	}
+
+	/**
+	 * Makes the place findable under {@code name}, normalized with {@link LocationNameNormalizer}.
+	 */
+	void addName(String name, int place) {
+		String key = LocationNameNormalizer.normalize(name);
+		if (key.isEmpty()) {
+			return;
+		}
+		if (keys.size() == keyPlaces.length) {
+			keyPlaces = Arrays.copyOf(keyPlaces, keyPlaces.length * 2);
+		}
+		keyPlaces[keys.size()] = place;
+		keys.add(key);
+	}
+
+	PlaceIndex build() {
+		Integer[] order = new Integer[keys.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.<Integer, String>comparing(keys::get)
+				.thenComparing(i -> populations[keyPlaces[i]], Comparator.reverseOrder())
+				.thenComparingInt(i -> keyPlaces[i]));
+
+		String[] sortedKeys = new String[order.length];
+		int[] sortedPlaces = new int[order.length];
+		int count = 0;
+		for (int i : order) {
+			String key = keys.get(i);
+			int place = keyPlaces[i];
+			// A place listed with the same name twice (e.g. name and ASCII name) is kept once
+			if (count > 0 && sortedPlaces[count - 1] == place && sortedKeys[count - 1].equals(key)) {
+				continue;
+			}
+			sortedKeys[count] = key;
+			sortedPlaces[count] = place;
+			count++;
+		}
+
+		return new PlaceIndex(Arrays.copyOf(names, size), Arrays.copyOf(countries, size),
+				Arrays.copyOf(admin1, size), Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size),
+				Arrays.copyOf(populations, size), Arrays.copyOf(sortedKeys, count), Arrays.copyOf(sortedPlaces, count));
+	}
+
+	private String share(String value) {
+		return value == null ? null : sharedStrings.computeIfAbsent(value, v -> v);
+	}
+}
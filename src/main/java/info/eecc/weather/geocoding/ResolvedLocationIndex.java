@@ -0,0 +1,115 @@
+package info.eecc.weather.geocoding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import info.eecc.weather.dto.GeocodingResponse;
+
+/**
+ * Immutable sorted index of locations resolved by the geocoding API, searched by name prefix. Additions
+ * return a new index (copy-on-write), so readers keep using the previous one without locking.
+ */
+final class ResolvedLocationIndex {
+
+	static final ResolvedLocationIndex EMPTY = new ResolvedLocationIndex(new String[0],
+			new GeocodingResponse.Result[0]);
+
+	/** Normalized location names in ascending order. */
+	private final String[] keys;
+	private final GeocodingResponse.Result[] results;
+
+	private ResolvedLocationIndex(String[] keys, GeocodingResponse.Result[] results) {
+		this.keys = keys;
+		this.results = results;
+	}
+
+	static ResolvedLocationIndex of(Collection<GeocodingResponse.Result> locations) {
+		List<GeocodingResponse.Result> sorted = locations.stream()
+				.sorted(Comparator.comparing(result -> LocationNameNormalizer.normalize(result.getName())))
+				.toList();
+		String[] keys = new String[sorted.size()];
+		GeocodingResponse.Result[] results = new GeocodingResponse.Result[sorted.size()];
+		int count = 0;
+		for (GeocodingResponse.Result result : sorted) {
+			String key = LocationNameNormalizer.normalize(result.getName());
+			if (key.isEmpty() || isDuplicate(keys, results, count, key, result)) {
+				continue;
+			}
+			keys[count] = key;
+			results[count] = result;
+			count++;
+		}
+		return new ResolvedLocationIndex(Arrays.copyOf(keys, count), Arrays.copyOf(results, count));
+	}
+
+	/**
+	 * Several city names resolve to the same location, e.g. {@code "munchen"} and {@code "munich"}.
+	 */
+	private static boolean isDuplicate(String[] keys, GeocodingResponse.Result[] results, int count, String key,
+			GeocodingResponse.Result result) {
+		for (int i = count - 1; i >= 0 && keys[i].equals(key); i--) {
+			if (results[i].equals(result)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns an index that also contains {@code result}, or this index if it already does.
+	 */
+	ResolvedLocationIndex with(GeocodingResponse.Result result) {
+		String key = LocationNameNormalizer.normalize(result.getName());
+		if (key.isEmpty()) {
+			return this;
+		}
+		// Behind the locations already known under the same name
+		int position = lowerBound(key);
+		for (; position < keys.length && keys[position].equals(key); position++) {
+			if (results[position].equals(result)) {
+				return this;
+			}
+		}
+		String[] newKeys = new String[keys.length + 1];
+		GeocodingResponse.Result[] newResults = new GeocodingResponse.Result[keys.length + 1];
+		System.arraycopy(keys, 0, newKeys, 0, position);
+		System.arraycopy(results, 0, newResults, 0, position);
+		newKeys[position] = key;
+		newResults[position] = result;
+		System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+		System.arraycopy(results, position, newResults, position + 1, keys.length - position);
+		return new ResolvedLocationIndex(newKeys, newResults);
+	}
+
+	/**
+	 * Returns up to {@code limit} locations with a name starting with {@code prefix}, in name order.
+	 */
+	List<GeocodingResponse.Result> findByPrefix(String prefix, int limit) {
+		List<GeocodingResponse.Result> found = new ArrayList<>();
+		for (int i = lowerBound(prefix); i < keys.length && found.size() < limit && keys[i].startsWith(prefix); i++) {
+			found.add(results[i]);
+		}
+		return found;
+	}
+
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (keys[middle].compareTo(key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,51 @@
+package info.eecc.weather.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads bit strings written by {@link BitWriter}.
+ */
+final class BitReader {
+
+	private final ByteBuffer buffer;
+	private final int offset;
+	private long position;
+
+	BitReader(ByteBuffer buffer, int offset, long position) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.position = position;
+	}
+
+	long getPosition() {
+		return position;
+	}
+
+	boolean readBit() {
+		return read(1) != 0;
+	}
+
+	/**
+	 * Reads {@code bits} bits as an unsigned value.
+	 */
+	long read(int bits) {
+		long value = 0;
+		while (bits > 0) {
+			int index = offset + (int) (position >>> 3);
+			int used = (int) (position & 7);
+			int count = Math.min(8 - used, bits);
+			int chunk = (buffer.get(index) >>> (8 - used - count)) & ((1 << count) - 1);
+			value = value << count | chunk;
+			position += count;
+			bits -= count;
+		}
+		return value;
+	}
+
+	/**
+	 * Reads {@code bits} bits as a two's complement value.
+	 */
+	long readSigned(int bits) {
+		return read(bits) << (64 - bits) >> (64 - bits);
+	}
+}
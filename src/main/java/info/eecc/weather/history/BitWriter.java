@@ -0,0 +1,44 @@
+package info.eecc.weather.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Appends bit strings to a buffer, most significant bit first. Bits after the position are overwritten, so
+ * whatever an interrupted append left behind does not matter.
+ */
+final class BitWriter {
+
+	private final ByteBuffer buffer;
+	private final int offset;
+	private long position;
+
+	/**
+	 * @param offset byte index of bit 0 in {@code buffer}
+	 * @param position bit to continue writing at
+	 */
+	BitWriter(ByteBuffer buffer, int offset, long position) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.position = position;
+	}
+
+	long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Writes the lowest {@code bits} bits of {@code value}.
+	 */
+	void write(long value, int bits) {
+		while (bits > 0) {
+			int index = offset + (int) (position >>> 3);
+			int used = (int) (position & 7);
+			int count = Math.min(8 - used, bits);
+			int chunk = (int) (value >>> (bits - count)) & ((1 << count) - 1);
+			int kept = used == 0 ? 0 : buffer.get(index) & (0xFF << (8 - used)) & 0xFF;
+			buffer.put(index, (byte) (kept | chunk << (8 - used - count)));
+			position += count;
+			bits -= count;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package info.eecc.weather.history;
+
+import java.util.Arrays;
+
+/**
+ * Compression of a block of records (timestamp plus one double per field) after Facebook's Gorilla: the
+ * first record of a block is stored raw, later timestamps as delta-of-delta and later values as XOR with the
+ * previous value of their field.
+ * <ul>
+ * <li>Timestamps at the regular upstream interval cost one bit, jitter up to a minute nine bits.</li>
+ * <li>An unchanged value costs one bit; otherwise the XOR's meaningful bits are written, reusing the
+ * leading/trailing zero window of the previous XOR when they fit into it.</li>
+ * </ul>
+ * The same state drives encoding and decoding, so a writer resumes after decoding the last block.
+ */
+final class GorillaCodec {
+
+	/** Upper bound of the bits one record takes. */
+	static int maxRecordBits(int fieldCount) {
+		return 4 + 32 + fieldCount * (2 + 5 + 6 + 64);
+	}
+
+	private final long[] previousBits;
+	private final int[] leading;
+	private final int[] trailing;
+	private long previousTime;
+	private long previousDelta;
+
+	GorillaCodec(int fieldCount) {
+		previousBits = new long[fieldCount];
+		leading = new int[fieldCount];
+		trailing = new int[fieldCount];
+	}
+
+	long getPreviousTime() {
+		return previousTime;
+	}
+
+	/**
+	 * @param time seconds since the start of the partition
+	 * @param first whether the record starts a block
+	 */
+	void encode(BitWriter out, long time, double[] values, boolean first) {
+		if (first) {
+			out.write(time, 32);
+			for (int i = 0; i < previousBits.length; i++) {
+				previousBits[i] = Double.doubleToRawLongBits(values[i]);
+				out.write(previousBits[i], 64);
+			}
+			startBlock(time);
+			return;
+		}
+		encodeTime(out, time);
+		for (int i = 0; i < previousBits.length; i++) {
+			encodeValue(out, i, Double.doubleToRawLongBits(values[i]));
+		}
+	}
+
+	/**
+	 * Reads the next record into {@code values}.
+	 *
+	 * @return its time in seconds since the start of the partition
+	 */
+	long decode(BitReader in, double[] values, boolean first) {
+		if (first) {
+			long time = in.read(32);
+			for (int i = 0; i < previousBits.length; i++) {
+				previousBits[i] = in.read(64);
+				values[i] = Double.longBitsToDouble(previousBits[i]);
+			}
+			startBlock(time);
+			return time;
+		}
+		long time = decodeTime(in);
+		for (int i = 0; i < previousBits.length; i++) {
+			values[i] = Double.longBitsToDouble(decodeValue(in, i));
+		}
+		return time;
+	}
+
+	private void startBlock(long time) {
+		previousTime = time;
+		previousDelta = 0;
+		// No window yet, the first XOR of each field writes its own
+		Arrays.fill(leading, -1);
+		Arrays.fill(trailing, 0);
+	}
+
+	private void encodeTime(BitWriter out, long time) {
+		long delta = time - previousTime;
+		long deltaOfDelta = delta - previousDelta;
+		if (deltaOfDelta == 0) {
+			out.write(0, 1);
+		} else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+			out.write(0b10, 2);
+			out.write(deltaOfDelta, 7);
+		} else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+			out.write(0b110, 3);
+			out.write(deltaOfDelta, 9);
+		} else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+			out.write(0b1110, 4);
+			out.write(deltaOfDelta, 12);
+		} else {
+			out.write(0b1111, 4);
+			out.write(deltaOfDelta, 32);
+		}
+		previousDelta = delta;
+		previousTime = time;
+	}
+
+	private long decodeTime(BitReader in) {
+		long deltaOfDelta;
+		if (!in.readBit()) {
+			deltaOfDelta = 0;
+		} else if (!in.readBit()) {
+			deltaOfDelta = in.readSigned(7);
+		} else if (!in.readBit()) {
+			deltaOfDelta = in.readSigned(9);
+		} else if (!in.readBit()) {
+			deltaOfDelta = in.readSigned(12);
+		} else {
+			deltaOfDelta = in.readSigned(32);
+		}
+		previousDelta += deltaOfDelta;
+		previousTime += previousDelta;
+		return previousTime;
+	}
+
+	private void encodeValue(BitWriter out, int field, long bits) {
+		long xor = bits ^ previousBits[field];
+		previousBits[field] = bits;
+		if (xor == 0) {
+			out.write(0, 1);
+			return;
+		}
+		int leadingZeros = Math.min(31, Long.numberOfLeadingZeros(xor));
+		int trailingZeros = Long.numberOfTrailingZeros(xor);
+		if (leading[field] >= 0 && leadingZeros >= leading[field] && trailingZeros >= trailing[field]) {
+			out.write(0b10, 2);
+			out.write(xor >>> trailing[field], 64 - leading[field] - trailing[field]);
+			return;
+		}
+		int length = 64 - leadingZeros - trailingZeros;
+		out.write(0b11, 2);
+		out.write(leadingZeros, 5);
+		out.write(length - 1, 6);
+		out.write(xor >>> trailingZeros, length);
+		leading[field] = leadingZeros;
+		trailing[field] = trailingZeros;
+	}
+
+	private long decodeValue(BitReader in, int field) {
+		if (!in.readBit()) {
+			return previousBits[field];
+		}
+		if (in.readBit()) {
+			leading[field] = (int) in.read(5);
+			int length = (int) in.read(6) + 1;
+			trailing[field] = 64 - leading[field] - length;
+		}
+		long xor = in.read(64 - leading[field] - trailing[field]) << trailing[field];
+		previousBits[field] ^= xor;
+		return previousBits[field];
+	}
+}
@@ -0,0 +1,281 @@
+package info.eecc.weather.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.SingleFlight;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.HistoryProperties;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Archive of every observation fetched from the upstream, for queries over past days without upstream calls
+ * or a database.
+ * <p>
+ * Observations are partitioned by grid cell and day (GMT) into {@link HistoryPartition} files under
+ * {@code <path>/grid-<grid-size>/<day>/<lat-index>_<lon-index>.wts}. The same observation fetched again is
+ * only stored once. Partitions are kept mapped in an LRU of {@code max-open-partitions}; queries scan them
+ * directly from the mapping. A partition is opened and mapped outside the LRU lock, concurrent callers for the
+ * same file share one open, so a slow disk only delays callers of that partition.
+ */
+@Component
+@Slf4j
+public class HistoryArchive implements MeterBinder {
+
+	private static final long SECONDS_PER_DAY = 86_400;
+
+	private final HistoryProperties properties;
+	private final Clock clock;
+	private final Path root;
+	private final int fieldCount = HistoryField.values().length;
+
+	/** Open partitions by file, in access order; guarded by itself. */
+	private final Map<Path, HistoryPartition> partitions;
+
+	/** Partitions being opened, so every file is mapped only once. */
+	private final SingleFlight<Path, HistoryPartition> opening = new SingleFlight<>();
+
+	private final LongAdder records = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	public HistoryArchive(HistoryProperties properties, Clock clock) {
+		this.properties = properties;
+		this.clock = clock;
+		this.root = properties.getPath()
+				.resolve("grid-" + BigDecimal.valueOf(properties.getGridSize()).stripTrailingZeros().toPlainString());
+		this.partitions = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled();
+	}
+
+	public GridKey keyFor(double latitude, double longitude) {
+		return GridKey.of(latitude, longitude, properties.getGridSize());
+	}
+
+	public double getGridSize() {
+		return properties.getGridSize();
+	}
+
+	/**
+	 * Archives an observation under the cell of its coordinates and its upstream time. Failures are logged,
+	 * never passed to the caller.
+	 */
+	public void record(CurrentWeatherDto weather) {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		Instant observedAt = WeatherCache.parseUpstreamTime(weather.getTimestamp());
+		if (observedAt == null) {
+			return;
+		}
+		GridKey key = keyFor(weather.getLatitude(), weather.getLongitude());
+		long epochSecond = observedAt.getEpochSecond();
+		long dayStart = Math.floorDiv(epochSecond, SECONDS_PER_DAY) * SECONDS_PER_DAY;
+		double[] values = new double[fieldCount];
+		for (HistoryField field : HistoryField.values()) {
+			values[field.ordinal()] = field.valueOf(weather);
+		}
+		Path path = partitionPath(key, dayStart);
+		try {
+			boolean appended;
+			try {
+				appended = partition(path, dayStart).append(epochSecond, values);
+			} catch (ClosedChannelException e) {
+				// Evicted by another thread in the meantime
+				appended = partition(path, dayStart).append(epochSecond, values);
+			}
+			(appended ? records : duplicates).increment();
+		} catch (IOException e) {
+			errors.increment();
+			log.warn("Could not archive observation for {}: {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the archived observations of the cell between {@code from} and {@code to} (inclusive).
+	 */
+	public HistorySeries query(GridKey key, Instant from, Instant to) {
+		HistorySeries series = new HistorySeries(fieldCount);
+		long fromSecond = from.getEpochSecond();
+		long toSecond = to.getEpochSecond();
+		long lastDay = Math.floorDiv(toSecond, SECONDS_PER_DAY);
+		for (long day = Math.floorDiv(fromSecond, SECONDS_PER_DAY); day <= lastDay; day++) {
+			long dayStart = day * SECONDS_PER_DAY;
+			Path path = partitionPath(key, dayStart);
+			if (!Files.exists(path)) {
+				continue;
+			}
+			try {
+				partition(path, dayStart).scan(fromSecond, toSecond, series);
+			} catch (IOException e) {
+				errors.increment();
+				throw new UncheckedIOException("Could not read history partition " + path, e);
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Deletes the days that are older than {@code retention}.
+	 */
+	@Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1M")
+	public void deleteExpired() {
+		if (!properties.isEnabled() || !Files.isDirectory(root)) {
+			return;
+		}
+		LocalDate oldest = LocalDate.ofInstant(clock.instant().minus(properties.getRetention()), ZoneOffset.UTC);
+		List<Path> expired = new ArrayList<>();
+		try (Stream<Path> days = Files.list(root)) {
+			days.filter(day -> isBefore(day, oldest)).forEach(expired::add);
+		} catch (IOException e) {
+			log.warn("Could not list history directory {}: {}", root, e.getMessage());
+			return;
+		}
+		for (Path day : expired) {
+			closePartitions(day);
+			try (Stream<Path> files = Files.walk(day)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(file);
+				}
+				log.info("Deleted expired weather history of {}", day.getFileName());
+			} catch (IOException e) {
+				log.warn("Could not delete weather history {}: {}", day, e.getMessage());
+			}
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		closePartitions(root);
+	}
+
+	private static boolean isBefore(Path day, LocalDate oldest) {
+		try {
+			return LocalDate.parse(day.getFileName().toString()).isBefore(oldest);
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+	}
+
+	private Path partitionPath(GridKey key, long dayStart) {
+		LocalDate day = LocalDate.ofEpochDay(dayStart / SECONDS_PER_DAY);
+		return root.resolve(day.toString()).resolve(key.latitudeIndex() + "_" + key.longitudeIndex() + ".wts");
+	}
+
+	private HistoryPartition partition(Path path, long dayStart) throws IOException {
+		HistoryPartition partition = openPartition(path);
+		if (partition != null) {
+			return partition;
+		}
+		try {
+			return opening.execute(path, () -> open(path, dayStart));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private HistoryPartition open(Path path, long dayStart) {
+		// Checked again, another caller may have opened it since the lookup above
+		HistoryPartition partition = openPartition(path);
+		if (partition != null) {
+			return partition;
+		}
+		try {
+			partition = HistoryPartition.open(path, dayStart, fieldCount);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		synchronized (partitions) {
+			partitions.put(path, partition);
+			evictPartitions();
+		}
+		return partition;
+	}
+
+	private HistoryPartition openPartition(Path path) {
+		synchronized (partitions) {
+			return partitions.get(path);
+		}
+	}
+
+	private void evictPartitions() {
+		Iterator<Map.Entry<Path, HistoryPartition>> iterator = partitions.entrySet().iterator();
+		while (partitions.size() > properties.getMaxOpenPartitions() && iterator.hasNext()) {
+			closeQuietly(iterator.next().getValue());
+			iterator.remove();
+		}
+	}
+
+	private void closePartitions(Path directory) {
+		synchronized (partitions) {
+			Iterator<Map.Entry<Path, HistoryPartition>> iterator = partitions.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<Path, HistoryPartition> entry = iterator.next();
+				if (entry.getKey().startsWith(directory)) {
+					closeQuietly(entry.getValue());
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private static void closeQuietly(HistoryPartition partition) {
+		try {
+			partition.close();
+		} catch (IOException e) {
+			log.debug("Could not close history partition: {}", e.getMessage());
+		}
+	}
+
+	private int openPartitions() {
+		synchronized (partitions) {
+			return partitions.size();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("weather.history.records", records, LongAdder::sum)
+				.description("Observations appended to the history archive")
+				.register(registry);
+		FunctionCounter.builder("weather.history.duplicates", duplicates, LongAdder::sum)
+				.description("Observations not appended because they were archived already")
+				.register(registry);
+		FunctionCounter.builder("weather.history.errors", errors, LongAdder::sum)
+				.description("History partitions that could not be written or read")
+				.register(registry);
+		Gauge.builder("weather.history.partitions.open", this, HistoryArchive::openPartitions)
+				.description("History partitions currently mapped")
+				.register(registry);
+	}
+}
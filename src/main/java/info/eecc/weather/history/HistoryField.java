@@ -0,0 +1,73 @@
+package info.eecc.weather.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import info.eecc.weather.dto.CurrentWeatherDto;
+import lombok.Getter;
+
+/**
+ * Numeric fields of {@link CurrentWeatherDto} kept in the archive, named like the JSON properties. The order
+ * is the column order in the partition files: new fields may only be appended.
+ */
+@Getter
+public enum HistoryField {
+
+	TEMPERATURE("temperature", "°C", CurrentWeatherDto::getTemperature),
+	HUMIDITY("humidity", "%", CurrentWeatherDto::getHumidity),
+	APPARENT_TEMPERATURE("apparentTemperature", "°C", CurrentWeatherDto::getApparentTemperature),
+	WEATHER_CODE("weatherCode", "wmo code", CurrentWeatherDto::getWeatherCode),
+	WIND_SPEED("windSpeed", "km/h", CurrentWeatherDto::getWindSpeed),
+	WIND_DIRECTION("windDirection", "°", CurrentWeatherDto::getWindDirection),
+	PRESSURE("pressure", "hPa", CurrentWeatherDto::getPressure),
+	CLOUD_COVER("cloudCover", "%", CurrentWeatherDto::getCloudCover);
+
+	private final String apiName;
+	private final String unit;
+	private final ToDoubleFunction<CurrentWeatherDto> extractor;
+
+	HistoryField(String apiName, String unit, ToDoubleFunction<CurrentWeatherDto> extractor) {
+		this.apiName = apiName;
+		this.unit = unit;
+		this.extractor = extractor;
+	}
+
+	public double valueOf(CurrentWeatherDto weather) {
+		return extractor.applyAsDouble(weather);
+	}
+
+	public static HistoryField find(String apiName) {
+		for (HistoryField field : values()) {
+			if (field.apiName.equals(apiName)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses a comma separated list of field names, {@code null} for all fields.
+	 *
+	 * @throws IllegalArgumentException for unknown names
+	 */
+	public static List<HistoryField> parse(String names) {
+		if (names == null) {
+			return List.of(values());
+		}
+		List<HistoryField> fields = new ArrayList<>();
+		for (String name : names.split(",")) {
+			if (name.isBlank()) {
+				continue;
+			}
+			HistoryField field = find(name.trim());
+			if (field == null) {
+				throw new IllegalArgumentException("Unknown history field: " + name.trim());
+			}
+			if (!fields.contains(field)) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,217 @@
+package info.eecc.weather.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of the observations of one grid cell on one day (GMT), memory-mapped.
+ *
+ * <pre>
+ * header   magic, field count, block count, record count, data bits
+ * index    per block: first time (seconds of the day), bit offset of the block
+ * data     blocks of BLOCK_SIZE records, {@link GorillaCodec} encoded
+ * </pre>
+ *
+ * The index is the sparse time index: a scan starts at the last block beginning at or before its start time
+ * and decodes straight from the mapping, so nothing but the matching records reaches the heap. The header
+ * counts are updated after the record's bits, a record that was not completely written is ignored and
+ * overwritten. The file grows by remapping it with twice the size.
+ */
+final class HistoryPartition {
+
+	static final int MAGIC = 0x57485331; // "WHS1"
+
+	static final int BLOCK_SIZE = 32;
+	static final int INDEX_CAPACITY = 64;
+
+	private static final int FIELD_COUNT_OFFSET = 4;
+	private static final int BLOCK_COUNT_OFFSET = 8;
+	private static final int RECORD_COUNT_OFFSET = 12;
+	private static final int DATA_BITS_OFFSET = 16;
+	private static final int INDEX_OFFSET = 24;
+	private static final int DATA_OFFSET = INDEX_OFFSET + INDEX_CAPACITY * 8;
+	private static final int INITIAL_SIZE = DATA_OFFSET + 2048;
+
+	private final Path path;
+	private final long dayStart;
+	private final int fieldCount;
+	private final GorillaCodec codec;
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int blockCount;
+	private int recordCount;
+	private long dataBits;
+
+	private HistoryPartition(Path path, long dayStart, int fieldCount, FileChannel channel) {
+		this.path = path;
+		this.dayStart = dayStart;
+		this.fieldCount = fieldCount;
+		this.codec = new GorillaCodec(fieldCount);
+		this.channel = channel;
+	}
+
+	/**
+	 * Opens the partition for appending, creating the file if needed.
+	 *
+	 * @param dayStart epoch second of the day's start
+	 */
+	static HistoryPartition open(Path path, long dayStart, int fieldCount) throws IOException {
+		Files.createDirectories(path.getParent());
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		HistoryPartition partition = new HistoryPartition(path, dayStart, fieldCount, channel);
+		try {
+			partition.map(Math.max(INITIAL_SIZE, channel.size()));
+			partition.readHeader();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return partition;
+	}
+
+	private void readHeader() throws IOException {
+		if (buffer.getInt(0) == 0) {
+			buffer.putInt(FIELD_COUNT_OFFSET, fieldCount);
+			buffer.putInt(0, MAGIC);
+			return;
+		}
+		checkFormat(buffer, path, fieldCount);
+		blockCount = buffer.getInt(BLOCK_COUNT_OFFSET);
+		recordCount = buffer.getInt(RECORD_COUNT_OFFSET);
+		dataBits = buffer.getLong(DATA_BITS_OFFSET);
+		if (recordCount > 0) {
+			// Restore the codec state by decoding the last block
+			int block = blockCount - 1;
+			BitReader in = new BitReader(buffer, DATA_OFFSET, indexOffset(buffer, block));
+			double[] values = new double[fieldCount];
+			for (int i = block * BLOCK_SIZE; i < recordCount; i++) {
+				codec.decode(in, values, i == block * BLOCK_SIZE);
+			}
+		}
+	}
+
+	private static void checkFormat(ByteBuffer buffer, Path path, int fieldCount) throws IOException {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(FIELD_COUNT_OFFSET) != fieldCount) {
+			throw new IOException("Unknown history partition format: " + path);
+		}
+	}
+
+	/**
+	 * Appends a record unless it is not newer than the last one, e.g. the same observation fetched again.
+	 *
+	 * @return whether the record was appended
+	 */
+	synchronized boolean append(long epochSecond, double[] values) throws IOException {
+		if (!channel.isOpen()) {
+			throw new ClosedChannelException();
+		}
+		long time = epochSecond - dayStart;
+		boolean first = recordCount % BLOCK_SIZE == 0;
+		if (recordCount > 0 && time <= codec.getPreviousTime()) {
+			return false;
+		}
+		if (first && blockCount == INDEX_CAPACITY) {
+			throw new IOException("History partition full: " + path);
+		}
+		long requiredBytes = DATA_OFFSET + (dataBits + GorillaCodec.maxRecordBits(fieldCount) + 7) / 8;
+		if (requiredBytes > buffer.capacity()) {
+			map(Math.max(requiredBytes, 2L * buffer.capacity()));
+		}
+
+		BitWriter out = new BitWriter(buffer, DATA_OFFSET, dataBits);
+		codec.encode(out, time, values, first);
+		if (first) {
+			buffer.putInt(INDEX_OFFSET + blockCount * 8, (int) time);
+			buffer.putInt(INDEX_OFFSET + blockCount * 8 + 4, (int) dataBits);
+			blockCount++;
+			buffer.putInt(BLOCK_COUNT_OFFSET, blockCount);
+		}
+		dataBits = out.getPosition();
+		buffer.putLong(DATA_BITS_OFFSET, dataBits);
+		recordCount++;
+		buffer.putInt(RECORD_COUNT_OFFSET, recordCount);
+		return true;
+	}
+
+	/**
+	 * Adds the records between {@code from} and {@code to} (epoch seconds, inclusive) to {@code series}.
+	 */
+	void scan(long from, long to, HistorySeries series) {
+		ByteBuffer snapshot;
+		int records;
+		synchronized (this) {
+			// Bits up to the current counts are never changed again, decoding them needs no lock
+			snapshot = buffer.duplicate();
+			records = recordCount;
+		}
+		scan(snapshot, records, dayStart, fieldCount, from, to, series);
+	}
+
+	private static void scan(ByteBuffer buffer, int records, long dayStart, int fieldCount, long from, long to,
+			HistorySeries series) {
+		if (records == 0) {
+			return;
+		}
+		int blocks = (records + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int block = findBlock(buffer, blocks, from - dayStart);
+		GorillaCodec codec = new GorillaCodec(fieldCount);
+		BitReader in = new BitReader(buffer, DATA_OFFSET, indexOffset(buffer, block));
+		double[] values = new double[fieldCount];
+		for (int i = block * BLOCK_SIZE; i < records; i++) {
+			long epochSecond = dayStart + codec.decode(in, values, i % BLOCK_SIZE == 0);
+			if (epochSecond > to) {
+				return;
+			}
+			if (epochSecond >= from) {
+				series.add(epochSecond, values);
+			}
+		}
+	}
+
+	/**
+	 * Binary search for the last block starting at or before {@code time}, the first block if none does.
+	 */
+	private static int findBlock(ByteBuffer buffer, int blocks, long time) {
+		int low = 0;
+		int high = blocks - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (buffer.getInt(INDEX_OFFSET + middle * 8) <= time) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	private static long indexOffset(ByteBuffer buffer, int block) {
+		return Integer.toUnsignedLong(buffer.getInt(INDEX_OFFSET + block * 8 + 4));
+	}
+
+	/**
+	 * Bytes of the file in use, the rest of the mapping is not written yet.
+	 */
+	synchronized long usedBytes() {
+		return DATA_OFFSET + (dataBits + 7) / 8;
+	}
+
+	/**
+	 * Unmaps nothing: scans that already took a snapshot keep reading the mapping until it is collected.
+	 */
+	synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private void map(long size) throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+}
@@ -0,0 +1,44 @@
+package info.eecc.weather.history;
+
+import java.util.Arrays;
+
+/**
+ * Observations of one grid cell in time order, collected by {@link HistoryArchive#query}: one epoch second
+ * per record and one column of values per {@link HistoryField}.
+ */
+public final class HistorySeries {
+
+	private long[] times = new long[16];
+	private final double[][] values;
+	private int size;
+
+	HistorySeries(int fieldCount) {
+		values = new double[fieldCount][16];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTime(int index) {
+		return times[index];
+	}
+
+	public double getValue(HistoryField field, int index) {
+		return values[field.ordinal()][index];
+	}
+
+	void add(long epochSecond, double[] record) {
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			for (int i = 0; i < values.length; i++) {
+				values[i] = Arrays.copyOf(values[i], size * 2);
+			}
+		}
+		times[size] = epochSecond;
+		for (int i = 0; i < values.length; i++) {
+			values[i][size] = record[i];
+		}
+		size++;
+	}
+}
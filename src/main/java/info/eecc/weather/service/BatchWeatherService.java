@@ -0,0 +1,211 @@
+package info.eecc.weather.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.SharedWeatherCache;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.BatchProperties;
+import info.eecc.weather.dto.BatchWeatherItemDto;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.upstream.OpenMeteoClient;
+import info.eecc.weather.upstream.UpstreamPriority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves the current weather for many locations at once. Cached cells are answered directly, the
+ * remaining distinct cells are split into chunks of {@code weather.batch.chunk-size} and fetched with
+ * parallel multi-location upstream calls. Failures are reported per location instead of failing the batch; while
+ * the upstream is unavailable, cells with a cached observation are served from it however old it is.
+ * With the shared cache, each chunk only fetches the cells no other caller is loading, on any instance
+ * ({@link SharedWeatherCache#loadAll}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchWeatherService {
+
+	private final OpenMeteoClient openMeteoClient;
+	private final WeatherCache weatherCache;
+	private final SharedWeatherCache sharedCache;
+	private final HistoryArchive historyArchive;
+	private final BatchProperties properties;
+	private final ExecutorService batchExecutor;
+
+	public List<BatchWeatherItemDto> getCurrentWeather(List<CoordinatesDto> locations) {
+		if (locations.size() > properties.getMaxLocations()) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST,
+					"At most " + properties.getMaxLocations() + " locations can be requested at once");
+		}
+		log.info("Fetching weather data for {} locations", locations.size());
+
+		double gridSize = weatherCache.isEnabled() ? weatherCache.getGridSize() : GridKey.EXACT_GRID_SIZE;
+		Map<GridKey, CurrentWeatherDto> weatherByKey = new HashMap<>();
+		Map<GridKey, String> errorByKey = new HashMap<>();
+		List<GridKey> keys = new ArrayList<>(locations.size());
+		Set<GridKey> misses = new LinkedHashSet<>();
+
+		for (CoordinatesDto location : locations) {
+			GridKey key = GridKey.of(location.getLatitude(), location.getLongitude(), gridSize);
+			keys.add(key);
+			CachedWeather cached = weatherCache.isEnabled()
+					? weatherCache.getIfUsable(key, location.getLatitude(), location.getLongitude())
+					: null;
+			if (cached != null) {
+				weatherByKey.put(key, cached.getWeather());
+			} else {
+				misses.add(key);
+			}
+		}
+		if (weatherCache.isEnabled()) {
+			// One round trip for all local misses
+			sharedCache.getAll(misses).forEach((key, cached) -> {
+				weatherByKey.put(key, cached.getWeather());
+				misses.remove(key);
+			});
+		}
+		log.debug("Batch of {} locations: {} cached, {} distinct cells to fetch", locations.size(),
+				weatherByKey.size(), misses.size());
+
+		List<GridKey> missingKeys = new ArrayList<>(misses);
+		// Bounds the chunks of this request in flight, the executor may be unbounded (virtual threads)
+		Semaphore parallelism = new Semaphore(properties.getParallelism());
+		List<List<GridKey>> chunks = new ArrayList<>();
+		List<CompletableFuture<Map<GridKey, CurrentWeatherDto>>> futures = new ArrayList<>();
+		for (int from = 0; from < missingKeys.size(); from += properties.getChunkSize()) {
+			List<GridKey> chunk = missingKeys.subList(from,
+					Math.min(from + properties.getChunkSize(), missingKeys.size()));
+			chunks.add(chunk);
+			futures.add(CompletableFuture.supplyAsync(() -> fetchChunk(chunk, gridSize, parallelism), batchExecutor));
+		}
+
+		long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+		for (int i = 0; i < chunks.size(); i++) {
+			try {
+				long remaining = Math.max(0, deadline - System.nanoTime());
+				weatherByKey.putAll(futures.get(i).get(remaining, TimeUnit.NANOSECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				markFailed(chunks.get(i), "Interrupted while fetching weather data", errorByKey);
+			} catch (TimeoutException e) {
+				futures.get(i).cancel(true);
+				markFailed(chunks.get(i), "Failed to fetch weather data: timed out", errorByKey);
+			} catch (ExecutionException e) {
+				log.error("Error fetching weather data for {} locations: {}", chunks.get(i).size(),
+						e.getCause().getMessage());
+				if (WeatherService.isUnavailable(e.getCause())) {
+					serveLastKnown(chunks.get(i), weatherByKey);
+				}
+				markFailed(chunks.get(i), "Failed to fetch weather data: " + e.getCause().getMessage(), errorByKey);
+			}
+		}
+
+		List<BatchWeatherItemDto> items = new ArrayList<>(locations.size());
+		for (int i = 0; i < locations.size(); i++) {
+			GridKey key = keys.get(i);
+			CurrentWeatherDto weather = weatherByKey.get(key);
+			items.add(BatchWeatherItemDto.builder()
+					.latitude(locations.get(i).getLatitude())
+					.longitude(locations.get(i).getLongitude())
+					.weather(weather)
+					.error(weather != null ? null
+							: errorByKey.getOrDefault(key, "No weather data available for the specified coordinates"))
+					.build());
+		}
+		return items;
+	}
+
+	private Map<GridKey, CurrentWeatherDto> fetchChunk(List<GridKey> chunk, double gridSize, Semaphore parallelism) {
+		Map<GridKey, CachedWeather> loaded = weatherCache.isEnabled()
+				? sharedCache.loadAll(chunk, cells -> fetchCells(cells, gridSize, parallelism))
+				: fetchCells(chunk, gridSize, parallelism);
+		Map<GridKey, CurrentWeatherDto> result = new HashMap<>();
+		loaded.forEach((key, cached) -> result.put(key, cached.getWeather()));
+		return result;
+	}
+
+	private Map<GridKey, CachedWeather> fetchCells(List<GridKey> chunk, double gridSize, Semaphore parallelism) {
+		List<CoordinatesDto> coordinates = chunk.stream()
+				.map(key -> new CoordinatesDto(key.latitude(gridSize), key.longitude(gridSize)))
+				.toList();
+		List<String> labels = coordinates.stream()
+				.map(location -> WeatherMapper.formatLocation(location.getLatitude(), location.getLongitude()))
+				.toList();
+		List<CurrentObservation> observations;
+		parallelism.acquireUninterruptibly();
+		try {
+			observations = UpstreamPriority.BATCH.call(() -> fetchObservations(coordinates, labels));
+		} finally {
+			parallelism.release();
+		}
+		if (observations.size() != chunk.size()) {
+			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
+					"Expected " + chunk.size() + " results but got " + observations.size());
+		}
+
+		Map<GridKey, CachedWeather> result = new HashMap<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			CurrentObservation observation = observations.get(i);
+			if (observation == null) {
+				continue;
+			}
+			CurrentWeatherDto weather = observation.getWeather();
+			historyArchive.record(weather);
+			result.put(chunk.get(i), weatherCache.isEnabled()
+					? weatherCache.put(chunk.get(i), weather, weather.getTimestamp(), observation.getInterval())
+					: weatherCache.entry(weather, weather.getTimestamp(), observation.getInterval()));
+		}
+		return result;
+	}
+
+	private List<CurrentObservation> fetchObservations(List<CoordinatesDto> coordinates, List<String> labels) {
+		if (openMeteoClient.isStreamingDecoder()) {
+			return openMeteoClient.fetchCurrentObservations(coordinates, labels);
+		}
+		List<WeatherResponse> responses = openMeteoClient.fetchCurrentWeather(coordinates);
+		List<CurrentObservation> observations = new ArrayList<>(responses.size());
+		for (int i = 0; i < responses.size(); i++) {
+			observations.add(WeatherMapper.toCurrentObservation(responses.get(i),
+					i < labels.size() ? labels.get(i) : null));
+		}
+		return observations;
+	}
+
+	private void serveLastKnown(List<GridKey> chunk, Map<GridKey, CurrentWeatherDto> weatherByKey) {
+		if (!weatherCache.isEnabled()) {
+			return;
+		}
+		for (GridKey key : chunk) {
+			CachedWeather lastKnown = weatherCache.getLastKnown(key);
+			if (lastKnown != null) {
+				log.warn("Upstream unavailable, serving weather for {} fetched at {}", key, lastKnown.getFetchedAt());
+				weatherByKey.put(key, lastKnown.getWeather());
+			}
+		}
+	}
+
+	private static void markFailed(List<GridKey> chunk, String message, Map<GridKey, String> errorByKey) {
+		chunk.forEach(key -> errorByKey.put(key, message));
+	}
+}
@@ -0,0 +1,157 @@
+package info.eecc.weather.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.SingleFlight;
+import info.eecc.weather.config.ForecastProperties;
+import info.eecc.weather.dto.ForecastDto;
+import info.eecc.weather.dto.ForecastSeriesDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.forecast.CachedForecast;
+import info.eecc.weather.forecast.Forecast;
+import info.eecc.weather.forecast.ForecastCache;
+import info.eecc.weather.forecast.ForecastResolution;
+import info.eecc.weather.forecast.ForecastSeries;
+import info.eecc.weather.forecast.ForecastVariable;
+import info.eecc.weather.upstream.OpenMeteoClient;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves hourly and daily forecasts. The configured variables are fetched once per grid cell and cached in
+ * columnar form; each request only copies out the variables and time range it asks for.
+ */
+@Service
+@Slf4j
+public class ForecastService {
+
+	private final OpenMeteoClient openMeteoClient;
+	private final ForecastCache forecastCache;
+	private final WeatherService weatherService;
+	private final ForecastProperties properties;
+	private final List<ForecastVariable> hourlyVariables;
+	private final List<ForecastVariable> dailyVariables;
+
+	private final SingleFlight<GridKey, CachedForecast> flights = new SingleFlight<>();
+
+	public ForecastService(OpenMeteoClient openMeteoClient, ForecastCache forecastCache,
+			WeatherService weatherService, ForecastProperties properties) {
+		this.openMeteoClient = openMeteoClient;
+		this.forecastCache = forecastCache;
+		this.weatherService = weatherService;
+		this.properties = properties;
+		this.hourlyVariables = ForecastVariable.parse(ForecastResolution.HOURLY, properties.getHourly());
+		this.dailyVariables = ForecastVariable.parse(ForecastResolution.DAILY, properties.getDaily());
+	}
+
+	/**
+	 * Returns the forecast for the given coordinates.
+	 *
+	 * @param hourly comma separated hourly variables, {@code null} for all cached ones, blank for none
+	 * @param daily comma separated daily variables, {@code null} for all cached ones, blank for none
+	 * @param start first time to include (GMT), {@code null} for the beginning of the forecast
+	 * @param end last time to include (GMT), {@code null} for the end of the forecast
+	 */
+	public ForecastDto getForecast(double latitude, double longitude, String hourly, String daily,
+			LocalDateTime start, LocalDateTime end) {
+		log.info("Fetching forecast for coordinates: lat={}, lon={}", latitude, longitude);
+
+		List<ForecastVariable> hourlySelection = select(ForecastResolution.HOURLY, hourlyVariables, hourly);
+		List<ForecastVariable> dailySelection = select(ForecastResolution.DAILY, dailyVariables, daily);
+		if (start != null && end != null && end.isBefore(start)) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "End must not be before start");
+		}
+
+		GridKey key = forecastCache.keyFor(latitude, longitude);
+		CachedForecast cached = forecastCache.getIfFresh(key);
+		if (cached == null) {
+			cached = flights.execute(key, () -> loadCell(key));
+		}
+
+		Forecast forecast = cached.getForecast();
+		return ForecastDto.builder()
+				.latitude(forecast.getLatitude())
+				.longitude(forecast.getLongitude())
+				.location(WeatherMapper.formatLocation(forecast.getLatitude(), forecast.getLongitude()))
+				.hourly(slice(forecast.getHourly(), hourlySelection, start, end))
+				.daily(slice(forecast.getDaily(), dailySelection, start, end))
+				.build();
+	}
+
+	/**
+	 * Like {@link #getForecast}, for a city resolved the same way as for the current weather.
+	 */
+	public ForecastDto getForecastByCity(String city, String hourly, String daily, LocalDateTime start,
+			LocalDateTime end) {
+		log.info("Fetching forecast for city: {}", city);
+		GeocodingResponse.Result location = weatherService.getCoordinatesForCity(city);
+		return getForecast(location.getLatitude(), location.getLongitude(), hourly, daily, start, end);
+	}
+
+	private CachedForecast loadCell(GridKey key) {
+		// Another flight may have filled the cache between our lookup and becoming the leader
+		CachedForecast loaded = forecastCache.getIfFresh(key);
+		if (loaded != null) {
+			return loaded;
+		}
+		double gridSize = forecastCache.getGridSize();
+		double latitude = key.latitude(gridSize);
+		double longitude = key.longitude(gridSize);
+		Forecast forecast;
+		try {
+			forecast = openMeteoClient.fetchForecast(latitude, longitude, hourlyVariables, dailyVariables,
+					properties.getDays());
+		} catch (Exception e) {
+			if (WeatherService.isUnavailable(e)) {
+				throw (WeatherException) e;
+			}
+			log.error("Error fetching forecast for coordinates lat={}, lon={}: {}", latitude, longitude,
+					e.getMessage());
+			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
+					"Failed to fetch forecast data: " + e.getMessage(), e);
+		}
+		if (forecast == null) {
+			throw new WeatherException(HttpStatus.NOT_FOUND, "No forecast data available for the specified coordinates");
+		}
+		return forecastCache.put(key, forecast);
+	}
+
+	private static List<ForecastVariable> select(ForecastResolution resolution, List<ForecastVariable> cached,
+			String requested) {
+		if (requested == null) {
+			return cached;
+		}
+		List<ForecastVariable> selection = new ArrayList<>();
+		for (String name : requested.split(",")) {
+			if (name.isBlank()) {
+				continue;
+			}
+			ForecastVariable variable = ForecastVariable.find(resolution, name.trim());
+			if (variable == null || !cached.contains(variable)) {
+				throw new WeatherException(HttpStatus.BAD_REQUEST,
+						"Unknown " + resolution.getParameter() + " variable: " + name.trim());
+			}
+			if (!selection.contains(variable)) {
+				selection.add(variable);
+			}
+		}
+		return selection;
+	}
+
+	private static ForecastSeriesDto slice(ForecastSeries series, List<ForecastVariable> variables,
+			LocalDateTime start, LocalDateTime end) {
+		if (variables.isEmpty()) {
+			return null;
+		}
+		int from = start != null ? series.firstIndex(start.toEpochSecond(ZoneOffset.UTC)) : 0;
+		int to = end != null ? series.endIndex(end.toEpochSecond(ZoneOffset.UTC)) : series.getLength();
+		return WeatherMapper.toForecastSeriesDto(series, variables, from, to);
+	}
+}
@@ -0,0 +1,90 @@
+package info.eecc.weather.service;
+
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.config.HistoryProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.HistoryDto;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.history.HistoryField;
+import info.eecc.weather.history.HistorySeries;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves archived observations from the {@link HistoryArchive}, never calling the upstream for them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistoryService {
+
+	/** Range of a query without start. */
+	private static final Duration DEFAULT_RANGE = Duration.ofDays(1);
+
+	private final HistoryArchive historyArchive;
+	private final WeatherService weatherService;
+	private final HistoryProperties properties;
+	private final Clock clock;
+
+	/**
+	 * Returns the archived observations of the grid cell of the given coordinates.
+	 *
+	 * @param fields comma separated field names, {@code null} for all
+	 * @param start first time to include (GMT), {@code null} for one day before {@code end}
+	 * @param end last time to include (GMT), {@code null} for now
+	 */
+	public HistoryDto getHistory(double latitude, double longitude, String fields, LocalDateTime start,
+			LocalDateTime end) {
+		log.info("Fetching weather history for coordinates: lat={}, lon={}", latitude, longitude);
+		if (!historyArchive.isEnabled()) {
+			throw new WeatherException(HttpStatus.NOT_FOUND, "Weather history is not enabled");
+		}
+		List<HistoryField> selection;
+		try {
+			selection = HistoryField.parse(fields);
+		} catch (IllegalArgumentException e) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+		Instant to = end != null ? end.toInstant(ZoneOffset.UTC) : clock.instant();
+		Instant from = start != null ? start.toInstant(ZoneOffset.UTC) : to.minus(DEFAULT_RANGE);
+		if (to.isBefore(from)) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "End must not be before start");
+		}
+		if (Duration.between(from, to).compareTo(properties.getMaxRange()) > 0) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST,
+					"Range must not exceed " + properties.getMaxRange().toDays() + " days");
+		}
+
+		GridKey key = historyArchive.keyFor(latitude, longitude);
+		HistorySeries series;
+		try {
+			series = historyArchive.query(key, from, to);
+		} catch (UncheckedIOException e) {
+			log.error("Error reading weather history for {}: {}", key, e.getMessage());
+			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read weather history", e);
+		}
+		double gridSize = historyArchive.getGridSize();
+		return WeatherMapper.toHistoryDto(series, selection, key.latitude(gridSize), key.longitude(gridSize));
+	}
+
+	/**
+	 * Like {@link #getHistory}, for a city resolved the same way as for the current weather.
+	 */
+	public HistoryDto getHistoryByCity(String city, String fields, LocalDateTime start, LocalDateTime end) {
+		log.info("Fetching weather history for city: {}", city);
+		GeocodingResponse.Result location = weatherService.getCoordinatesForCity(city);
+		return getHistory(location.getLatitude(), location.getLongitude(), fields, start, end);
+	}
+}
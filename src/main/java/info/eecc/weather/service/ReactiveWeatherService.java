@@ -0,0 +1,185 @@
+package info.eecc.weather.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.SharedWeatherCache;
+import info.eecc.weather.cache.SingleFlight;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.geocoding.GeocodingStore;
+import info.eecc.weather.geocoding.LocationNameNormalizer;
+import info.eecc.weather.geocoding.OfflineGeocoder;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.upstream.ReactiveOpenMeteoClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of {@link WeatherService} with the same caching, request coalescing and error
+ * semantics. Shares the weather cache and geocoding store with the blocking service. Shared cache reads and
+ * writes block on the Redis connection and run on {@code boundedElastic}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveWeatherService {
+
+	private final ReactiveOpenMeteoClient openMeteoClient;
+	private final WeatherCache weatherCache;
+	private final SharedWeatherCache sharedCache;
+	private final GeocodingStore geocodingStore;
+	private final OfflineGeocoder offlineGeocoder;
+	private final HistoryArchive historyArchive;
+
+	private final SingleFlight<GridKey, CachedWeather> forecastFlights = new SingleFlight<>();
+	private final SingleFlight<String, GeocodingResponse.Result> geocodingFlights = new SingleFlight<>();
+
+	public Mono<CurrentWeatherDto> getCurrentWeather(double latitude, double longitude) {
+		return getCachedWeather(latitude, longitude).map(CachedWeather::getWeather);
+	}
+
+	/**
+	 * Like {@link #getCurrentWeather(double, double)}, but emits the entry the weather is served from.
+	 */
+	public Mono<CachedWeather> getCachedWeather(double latitude, double longitude) {
+		return Mono.defer(() -> {
+			log.info("Fetching weather data for coordinates: lat={}, lon={}", latitude, longitude);
+
+			if (!weatherCache.isEnabled()) {
+				return coalesce(forecastFlights, GridKey.of(latitude, longitude, GridKey.EXACT_GRID_SIZE),
+						() -> fetchCurrentWeather(latitude, longitude, null));
+			}
+
+			GridKey key = weatherCache.keyFor(latitude, longitude);
+			CachedWeather cached = weatherCache.getIfUsable(key, latitude, longitude);
+			if (cached != null) {
+				// Expired entries are served until the background refresh has replaced them
+				log.debug("Serving cached weather for {}", key);
+				return Mono.just(cached);
+			}
+
+			return coalesce(forecastFlights, key, () -> {
+				// Another flight may have filled the cache between our lookup and becoming the leader
+				CachedWeather loaded = weatherCache.getIfFresh(key);
+				if (loaded != null) {
+					return Mono.just(loaded);
+				}
+				// Fetch for the cell center so the cached entry is valid for every coordinate in the cell
+				double gridSize = weatherCache.getGridSize();
+				Mono<CachedWeather> fetched = Mono.defer(
+						() -> fetchCurrentWeather(key.latitude(gridSize), key.longitude(gridSize), key));
+				if (!sharedCache.isEnabled()) {
+					return fetched;
+				}
+				return Mono.fromCallable(() -> sharedCache.get(key))
+						.subscribeOn(Schedulers.boundedElastic())
+						.switchIfEmpty(fetched.flatMap(weather -> Mono.fromRunnable(() -> sharedCache.put(key, weather))
+								.subscribeOn(Schedulers.boundedElastic())
+								.thenReturn(weather)));
+			}).onErrorResume(WeatherService::isUnavailable, e -> {
+				CachedWeather lastKnown = weatherCache.getLastKnown(key);
+				if (lastKnown == null) {
+					return Mono.error(e);
+				}
+				log.warn("Upstream unavailable, serving weather for {} fetched at {}", key, lastKnown.getFetchedAt());
+				return Mono.just(lastKnown);
+			});
+		});
+	}
+
+	private Mono<CachedWeather> fetchCurrentWeather(double latitude, double longitude, GridKey cacheKey) {
+		String location = WeatherMapper.formatLocation(latitude, longitude);
+		Mono<CurrentObservation> observation = openMeteoClient.isStreamingDecoder()
+				? openMeteoClient.fetchCurrentObservation(latitude, longitude, location)
+				: openMeteoClient.fetchCurrentWeather(latitude, longitude)
+						.mapNotNull(response -> WeatherMapper.toCurrentObservation(response, location));
+		return observation
+				.switchIfEmpty(Mono.error(() -> new WeatherException(HttpStatus.NOT_FOUND,
+						"No weather data available for the specified coordinates")))
+				.map(loaded -> {
+					CurrentWeatherDto weather = loaded.getWeather();
+					if (historyArchive.isEnabled()) {
+						// May create a partition file, keep that off the event loop without delaying the response
+						Schedulers.boundedElastic().schedule(() -> historyArchive.record(weather));
+					}
+					return cacheKey != null
+							? weatherCache.put(cacheKey, weather, weather.getTimestamp(), loaded.getInterval())
+							: weatherCache.entry(weather, weather.getTimestamp(), loaded.getInterval());
+				})
+				.onErrorMap(e -> !WeatherService.isUnavailable(e), e -> {
+					log.error("Error fetching weather data for coordinates lat={}, lon={}: {}", latitude, longitude,
+							e.getMessage());
+					return new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
+							"Failed to fetch weather data: " + e.getMessage(), e);
+				});
+	}
+
+	public Mono<CurrentWeatherDto> getCurrentWeatherByCity(String city) {
+		return getCachedWeatherByCity(city).map(CachedWeather::getWeather);
+	}
+
+	/**
+	 * Like {@link #getCurrentWeatherByCity(String)}, but emits the entry the weather is served from.
+	 */
+	public Mono<CachedWeather> getCachedWeatherByCity(String city) {
+		return Mono.defer(() -> {
+			log.info("Fetching weather data for city: {}", city);
+
+			// Geocode first, then fetch the weather, without blocking in between
+			return getCoordinatesForCity(city)
+					.flatMap(location -> getCachedWeather(location.getLatitude(), location.getLongitude()));
+		}).onErrorMap(e -> !WeatherService.isUnavailable(e), e -> {
+			log.error("Error fetching weather data for city {}: {}", city, e.getMessage());
+			return new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
+					"Failed to fetch weather data for city: " + city, e);
+		});
+	}
+
+	/**
+	 * Resolves a city name to coordinates: from the geocoding store, the offline dataset or the geocoding API.
+	 */
+	public Mono<GeocodingResponse.Result> getCoordinatesForCity(String city) {
+		GeocodingResponse.Result stored = geocodingStore.find(city);
+		if (stored != null) {
+			log.debug("Resolved city '{}' from geocoding store", city);
+			return Mono.just(stored);
+		}
+		GeocodingResponse.Result offline = offlineGeocoder.find(city);
+		if (offline != null) {
+			log.debug("Resolved city '{}' from offline geocoder", city);
+			return Mono.just(offline);
+		}
+
+		return coalesce(geocodingFlights, LocationNameNormalizer.normalize(city), () -> fetchCoordinatesForCity(city));
+	}
+
+	private Mono<GeocodingResponse.Result> fetchCoordinatesForCity(String city) {
+		return openMeteoClient.searchLocation(city)
+				.filter(response -> response.getResults() != null && !response.getResults().isEmpty())
+				.switchIfEmpty(Mono.error(() -> new WeatherException(HttpStatus.NOT_FOUND, "City not found: " + city)))
+				.map(response -> response.getResults().get(0))
+				// The store appends to its journal file, keep that off the event loop
+				.flatMap(result -> Mono.fromRunnable(() -> geocodingStore.put(city, result))
+						.subscribeOn(Schedulers.boundedElastic())
+						.thenReturn(result));
+	}
+
+	/**
+	 * Shares one in-flight load per key. Cancelling a single subscriber does not cancel the shared load.
+	 */
+	private static <K, V> Mono<V> coalesce(SingleFlight<K, V> flights, K key, Supplier<Mono<V>> loader) {
+		return Mono.fromFuture(() -> flights.executeAsync(key, () -> loader.get().toFuture()), true);
+	}
+}
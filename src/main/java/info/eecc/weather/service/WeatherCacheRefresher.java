@@ -0,0 +1,95 @@
+package info.eecc.weather.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.CacheRefreshProperties;
+import info.eecc.weather.upstream.UpstreamPriority;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refreshes expired hot or stale-served cache entries in the background, so callers keep getting the cached
+ * (stale) value instead of waiting for Open-Meteo. At most one refresh runs per grid cell, failed cells are
+ * retried after {@code weather.cache.refresh.spread}.
+ */
+@Component
+@Slf4j
+public class WeatherCacheRefresher {
+
+	private final WeatherCache weatherCache;
+	private final WeatherService weatherService;
+	private final CacheRefreshProperties properties;
+	private final ExecutorService refreshExecutor;
+	private final Clock clock;
+	private final Semaphore permits;
+	private final Set<GridKey> refreshing = ConcurrentHashMap.newKeySet();
+	private final Map<GridKey, Instant> retryAfter = new ConcurrentHashMap<>();
+
+	public WeatherCacheRefresher(WeatherCache weatherCache, WeatherService weatherService,
+			CacheRefreshProperties properties, @Qualifier("refreshExecutor") ExecutorService refreshExecutor,
+			Clock clock) {
+		this.weatherCache = weatherCache;
+		this.weatherService = weatherService;
+		this.properties = properties;
+		this.refreshExecutor = refreshExecutor;
+		this.clock = clock;
+		this.permits = new Semaphore(properties.getMaxConcurrent());
+	}
+
+	@Scheduled(fixedDelayString = "${weather.cache.refresh.poll-interval:1s}")
+	public void refreshDueEntries() {
+		if (!weatherCache.isStaleServingEnabled()) {
+			return;
+		}
+		Instant now = clock.instant();
+		retryAfter.values().removeIf(instant -> !now.isBefore(instant));
+
+		for (GridKey key : weatherCache.dueForRefresh(properties.getMinHits(), properties.getSpread())) {
+			if (retryAfter.containsKey(key) || !refreshing.add(key)) {
+				continue;
+			}
+			if (!permits.tryAcquire()) {
+				// The remaining cells are picked up by the next run
+				refreshing.remove(key);
+				log.debug("Refresh capacity exhausted, deferring remaining cells");
+				return;
+			}
+			try {
+				refreshExecutor.execute(() -> refresh(key));
+			} catch (RejectedExecutionException e) {
+				refreshing.remove(key);
+				permits.release();
+				return;
+			}
+		}
+	}
+
+	int refreshingCount() {
+		return refreshing.size();
+	}
+
+	private void refresh(GridKey key) {
+		try {
+			log.debug("Refreshing cached weather for {}", key);
+			UpstreamPriority.BACKGROUND.call(() -> weatherService.refresh(key));
+		} catch (RuntimeException e) {
+			log.warn("Background refresh for {} failed, serving stale data: {}", key, e.getMessage());
+			retryAfter.put(key, clock.instant().plus(properties.getSpread()));
+		} finally {
+			refreshing.remove(key);
+			permits.release();
+		}
+	}
+}
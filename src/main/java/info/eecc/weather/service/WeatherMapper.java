@@ -0,0 +1,129 @@
+package info.eecc.weather.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.ForecastSeriesDto;
+import info.eecc.weather.dto.HistoryDto;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.forecast.ForecastResolution;
+import info.eecc.weather.forecast.ForecastSeries;
+import info.eecc.weather.forecast.ForecastVariable;
+import info.eecc.weather.history.HistoryField;
+import info.eecc.weather.history.HistorySeries;
+
+/**
+ * Maps raw Open-Meteo responses to the API representation.
+ */
+public final class WeatherMapper {
+
+	private WeatherMapper() {
+	}
+
+	public static String formatLocation(double latitude, double longitude) {
+		return String.format("%.4f, %.4f", latitude, longitude);
+	}
+
+	/**
+	 * Data-binding counterpart of the streaming decoder, {@code null} if the response contains no current
+	 * weather.
+	 */
+	public static CurrentObservation toCurrentObservation(WeatherResponse response, String location) {
+		if (response == null || response.getCurrentWeather() == null) {
+			return null;
+		}
+		return new CurrentObservation(toCurrentWeatherDto(response, location),
+				response.getCurrentWeather().getInterval());
+	}
+
+	public static CurrentWeatherDto toCurrentWeatherDto(WeatherResponse response, String location) {
+		WeatherResponse.CurrentWeather current = response.getCurrentWeather();
+		WeatherResponse.CurrentWeatherUnits units = response.getCurrentWeatherUnits();
+
+		return CurrentWeatherDto.builder()
+				.latitude(response.getLatitude())
+				.longitude(response.getLongitude())
+				.location(location)
+				.temperature(current.getTemperature_2m())
+				.temperatureUnit(units != null ? units.getTemperature_2m() : "°C")
+				.humidity(current.getRelative_humidity_2m())
+				.apparentTemperature(current.getApparent_temperature())
+				.weatherDescription(CurrentWeatherDto.getWeatherDescription(current.getWeather_code()))
+				.weatherCode(current.getWeather_code())
+				.windSpeed(current.getWind_speed_10m())
+				.windSpeedUnit(units != null ? units.getWind_speed_10m() : "km/h")
+				.windDirection(current.getWind_direction_10m())
+				.pressure(current.getSurface_pressure())
+				.pressureUnit(units != null ? units.getSurface_pressure() : "hPa")
+				.cloudCover(current.getCloud_cover())
+				.isDay(current.getIs_day() == 1)
+				.timestamp(current.getTime())
+				.build();
+	}
+
+	/**
+	 * Copies the values at {@code [from, to)} of the given variables out of the columnar series.
+	 */
+	public static ForecastSeriesDto toForecastSeriesDto(ForecastSeries series, List<ForecastVariable> variables,
+			int from, int to) {
+		int length = Math.max(0, to - from);
+		List<String> time = new ArrayList<>(length);
+		for (int i = from; i < to; i++) {
+			time.add(formatForecastTime(series.getResolution(), series.getTime(i)));
+		}
+		Map<String, String> units = new LinkedHashMap<>();
+		Map<String, Float[]> values = new LinkedHashMap<>();
+		for (ForecastVariable variable : variables) {
+			int column = series.indexOf(variable);
+			Float[] columnValues = new Float[length];
+			for (int i = 0; i < length && column >= 0; i++) {
+				float value = series.getValue(column, from + i);
+				columnValues[i] = Float.isNaN(value) ? null : value;
+			}
+			units.put(variable.getApiName(), variable.getUnit());
+			values.put(variable.getApiName(), columnValues);
+		}
+		return ForecastSeriesDto.builder().time(time).units(units).values(values).build();
+	}
+
+	public static HistoryDto toHistoryDto(HistorySeries series, List<HistoryField> fields, double latitude,
+			double longitude) {
+		List<String> time = new ArrayList<>(series.size());
+		for (int i = 0; i < series.size(); i++) {
+			time.add(LocalDateTime.ofEpochSecond(series.getTime(i), 0, ZoneOffset.UTC).toString());
+		}
+		Map<String, String> units = new LinkedHashMap<>();
+		Map<String, double[]> values = new LinkedHashMap<>();
+		for (HistoryField field : fields) {
+			double[] column = new double[series.size()];
+			for (int i = 0; i < column.length; i++) {
+				column[i] = series.getValue(field, i);
+			}
+			units.put(field.getApiName(), field.getUnit());
+			values.put(field.getApiName(), column);
+		}
+		return HistoryDto.builder()
+				.latitude(latitude)
+				.longitude(longitude)
+				.location(formatLocation(latitude, longitude))
+				.time(time)
+				.units(units)
+				.values(values)
+				.build();
+	}
+
+	/**
+	 * Formats like Open-Meteo does in GMT: {@code 2024-01-15T14:00} for hourly, {@code 2024-01-15} for daily
+	 * values.
+	 */
+	static String formatForecastTime(ForecastResolution resolution, long epochSecond) {
+		LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+		return resolution == ForecastResolution.DAILY ? time.toLocalDate().toString() : time.toString();
+	}
+}
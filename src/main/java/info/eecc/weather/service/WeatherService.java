@@ -1,47 +1,117 @@
 package info.eecc.weather.service;
 
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.SharedWeatherCache;
+import info.eecc.weather.cache.SingleFlight;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.dto.CurrentObservation;
 import info.eecc.weather.dto.CurrentWeatherDto;
 import info.eecc.weather.dto.GeocodingResponse;
-import info.eecc.weather.dto.WeatherResponse;
 import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.geocoding.GeocodingStore;
+import info.eecc.weather.geocoding.LocationNameNormalizer;
+import info.eecc.weather.geocoding.OfflineGeocoder;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.upstream.OpenMeteoClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WeatherService {
 
-	private final RestTemplate restTemplate;
+	private final OpenMeteoClient openMeteoClient;
+	private final WeatherCache weatherCache;
+	private final GeocodingStore geocodingStore;
+	private final OfflineGeocoder offlineGeocoder;
+	private final SharedWeatherCache sharedCache;
+	private final HistoryArchive historyArchive;
 
-	private static final String GEOCODING_API_URL = "https://geocoding-api.open-meteo.com/v1/search";
-	private static final String WEATHER_API_URL = "https://api.open-meteo.com/v1/forecast";
+	private final SingleFlight<GridKey, CachedWeather> forecastFlights = new SingleFlight<>();
+	private final SingleFlight<String, GeocodingResponse.Result> geocodingFlights = new SingleFlight<>();
 
 	public CurrentWeatherDto getCurrentWeather(double latitude, double longitude) {
+		return getCachedWeather(latitude, longitude).getWeather();
+	}
+
+	/**
+	 * Like {@link #getCurrentWeather(double, double)}, but returns the entry the weather is served from, with
+	 * its expiry and encoded response body. While the cache is disabled the entry is not stored.
+	 */
+	public CachedWeather getCachedWeather(double latitude, double longitude) {
 		log.info("Fetching weather data for coordinates: lat={}, lon={}", latitude, longitude);
 
+		if (!weatherCache.isEnabled()) {
+			return forecastFlights.execute(GridKey.of(latitude, longitude, GridKey.EXACT_GRID_SIZE),
+					() -> fetchCurrentWeather(latitude, longitude, null));
+		}
+
+		GridKey key = weatherCache.keyFor(latitude, longitude);
+		CachedWeather cached = weatherCache.getIfUsable(key, latitude, longitude);
+		if (cached != null) {
+			// Expired entries are served until the background refresh has replaced them
+			log.debug("Serving cached weather for {}", key);
+			return cached;
+		}
+
 		try {
-			String url = UriComponentsBuilder.fromHttpUrl(WEATHER_API_URL)
-					.queryParam("latitude", latitude)
-					.queryParam("longitude", longitude)
-					.queryParam("current",
-							"temperature_2m,relative_humidity_2m,apparent_temperature,is_day,weather_code,wind_speed_10m,wind_direction_10m,surface_pressure,cloud_cover")
-					.toUriString();
+			return forecastFlights.execute(key, () -> loadCell(key));
+		} catch (WeatherException e) {
+			CachedWeather lastKnown = isUnavailable(e) ? weatherCache.getLastKnown(key) : null;
+			if (lastKnown == null) {
+				throw e;
+			}
+			log.warn("Upstream unavailable, serving weather for {} fetched at {}", key, lastKnown.getFetchedAt());
+			return lastKnown;
+		}
+	}
 
-			WeatherResponse response = restTemplate.getForObject(url, WeatherResponse.class);
+	/**
+	 * Re-fetches a cached grid cell, used by the background refresh. Shares the in-flight request if a caller
+	 * is loading the same cell.
+	 */
+	public CurrentWeatherDto refresh(GridKey key) {
+		return forecastFlights.execute(key, () -> loadCell(key)).getWeather();
+	}
 
-			if (response == null || response.getCurrentWeather() == null) {
+	private CachedWeather loadCell(GridKey key) {
+		// Another flight may have filled the cache between our lookup and becoming the leader
+		CachedWeather loaded = weatherCache.getIfFresh(key);
+		if (loaded != null) {
+			return loaded;
+		}
+		// Fetch for the cell center so the cached entry is valid for every coordinate in the cell
+		double gridSize = weatherCache.getGridSize();
+		return sharedCache.load(key, () -> fetchCurrentWeather(key.latitude(gridSize), key.longitude(gridSize), key));
+	}
+
+	private CachedWeather fetchCurrentWeather(double latitude, double longitude, GridKey cacheKey) {
+		try {
+			String location = WeatherMapper.formatLocation(latitude, longitude);
+			CurrentObservation observation = openMeteoClient.isStreamingDecoder()
+					? openMeteoClient.fetchCurrentObservation(latitude, longitude, location)
+					: WeatherMapper.toCurrentObservation(openMeteoClient.fetchCurrentWeather(latitude, longitude),
+							location);
+
+			if (observation == null) {
 				throw new WeatherException(HttpStatus.NOT_FOUND,
 						"No weather data available for the specified coordinates");
 			}
 
-			return mapToCurrentWeatherDto(response, String.format("%.4f, %.4f", latitude, longitude));
+			CurrentWeatherDto weather = observation.getWeather();
+			historyArchive.record(weather);
+			return cacheKey != null
+					? weatherCache.put(cacheKey, weather, weather.getTimestamp(), observation.getInterval())
+					: weatherCache.entry(weather, weather.getTimestamp(), observation.getInterval());
 
 		} catch (Exception e) {
+			if (isUnavailable(e)) {
+				throw (WeatherException) e;
+			}
 			log.error("Error fetching weather data for coordinates lat={}, lon={}: {}", latitude, longitude,
 					e.getMessage());
 			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
@@ -50,6 +120,13 @@ public class WeatherService {
 	}
 
 	public CurrentWeatherDto getCurrentWeatherByCity(String city) {
+		return getCachedWeatherByCity(city).getWeather();
+	}
+
+	/**
+	 * Like {@link #getCurrentWeatherByCity(String)}, but returns the entry the weather is served from.
+	 */
+	public CachedWeather getCachedWeatherByCity(String city) {
 		log.info("Fetching weather data for city: {}", city);
 
 		try {
@@ -57,54 +134,54 @@ public class WeatherService {
 			GeocodingResponse.Result location = getCoordinatesForCity(city);
 
 			// Then get weather data
-			return getCurrentWeather(location.getLatitude(), location.getLongitude());
+			return getCachedWeather(location.getLatitude(), location.getLongitude());
 
 		} catch (Exception e) {
+			if (isUnavailable(e)) {
+				throw (WeatherException) e;
+			}
 			log.error("Error fetching weather data for city {}: {}", city, e.getMessage());
 			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
 					"Failed to fetch weather data for city: " + city, e);
 		}
 	}
 
-	private GeocodingResponse.Result getCoordinatesForCity(String city) {
-		String url = UriComponentsBuilder.fromHttpUrl(GEOCODING_API_URL)
-				.queryParam("name", city)
-				.queryParam("count", 1)
-				.queryParam("language", "en")
-				.queryParam("format", "json")
-				.toUriString();
+	/**
+	 * Resolves a city name to coordinates: from the geocoding store, the offline dataset or the geocoding API.
+	 */
+	public GeocodingResponse.Result getCoordinatesForCity(String city) {
+		GeocodingResponse.Result stored = geocodingStore.find(city);
+		if (stored != null) {
+			log.debug("Resolved city '{}' from geocoding store", city);
+			return stored;
+		}
+		GeocodingResponse.Result offline = offlineGeocoder.find(city);
+		if (offline != null) {
+			log.debug("Resolved city '{}' from offline geocoder", city);
+			return offline;
+		}
+
+		return geocodingFlights.execute(LocationNameNormalizer.normalize(city), () -> fetchCoordinatesForCity(city));
+	}
 
-		GeocodingResponse response = restTemplate.getForObject(url, GeocodingResponse.class);
+	private GeocodingResponse.Result fetchCoordinatesForCity(String city) {
+		GeocodingResponse response = openMeteoClient.searchLocation(city);
 
 		if (response == null || response.getResults() == null || response.getResults().isEmpty()) {
 			throw new WeatherException(HttpStatus.NOT_FOUND, "City not found: " + city);
 		}
 
-		return response.getResults().get(0);
+		GeocodingResponse.Result result = response.getResults().get(0);
+		geocodingStore.put(city, result);
+		return result;
 	}
 
-	private CurrentWeatherDto mapToCurrentWeatherDto(WeatherResponse response, String location) {
-		WeatherResponse.CurrentWeather current = response.getCurrentWeather();
-		WeatherResponse.CurrentWeatherUnits units = response.getCurrentWeatherUnits();
-
-		return CurrentWeatherDto.builder()
-				.latitude(response.getLatitude())
-				.longitude(response.getLongitude())
-				.location(location)
-				.temperature(current.getTemperature_2m())
-				.temperatureUnit(units != null ? units.getTemperature_2m() : "°C")
-				.humidity(current.getRelative_humidity_2m())
-				.apparentTemperature(current.getApparent_temperature())
-				.weatherDescription(CurrentWeatherDto.getWeatherDescription(current.getWeather_code()))
-				.weatherCode(current.getWeather_code())
-				.windSpeed(current.getWind_speed_10m())
-				.windSpeedUnit(units != null ? units.getWind_speed_10m() : "km/h")
-				.windDirection(current.getWind_direction_10m())
-				.pressure(current.getSurface_pressure())
-				.pressureUnit(units != null ? units.getSurface_pressure() : "hPa")
-				.cloudCover(current.getCloud_cover())
-				.isDay(current.getIs_day() == 1)
-				.timestamp(current.getTime())
-				.build();
+	/**
+	 * Open circuit breaker or no free concurrency slot: passed on as 503 so clients back off and retry,
+	 * instead of being reported as an internal error.
+	 */
+	static boolean isUnavailable(Throwable error) {
+		return error instanceof WeatherException weatherException
+				&& weatherException.getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE;
 	}
 }
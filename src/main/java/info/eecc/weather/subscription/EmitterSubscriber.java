@@ -0,0 +1,110 @@
+package info.eecc.weather.subscription;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servlet stream backed by an async {@link SseEmitter}: no thread is held while the stream is idle. Events are
+ * queued and written by one task at a time on {@code executor}, so a client that reads slowly only blocks its
+ * own writer and is closed once {@code bufferSize} events are pending.
+ */
+@Slf4j
+class EmitterSubscriber implements WeatherSubscriber {
+
+	private final SseEmitter emitter;
+	private final Executor executor;
+	private final int bufferSize;
+	private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final AtomicBoolean writing = new AtomicBoolean();
+	private volatile boolean closed;
+
+	EmitterSubscriber(SseEmitter emitter, Executor executor, int bufferSize) {
+		this.emitter = emitter;
+		this.executor = executor;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public boolean send(String event, String data) {
+		return enqueue(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+	}
+
+	@Override
+	public boolean ping() {
+		return enqueue(SseEmitter.event().comment("ping"));
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			emitter.complete();
+		}
+	}
+
+	/**
+	 * Marks the stream closed after the container completed it, without completing the emitter again.
+	 */
+	void closed() {
+		closed = true;
+	}
+
+	private boolean enqueue(SseEmitter.SseEventBuilder event) {
+		if (closed) {
+			return false;
+		}
+		if (pendingCount.incrementAndGet() > bufferSize) {
+			log.debug("Closing stream of a slow client, {} events pending", bufferSize);
+			close();
+			return false;
+		}
+		pending.add(event);
+		scheduleWrite();
+		return true;
+	}
+
+	private void scheduleWrite() {
+		if (!writing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::write);
+		} catch (RejectedExecutionException e) {
+			writing.set(false);
+			close();
+		}
+	}
+
+	private void write() {
+		try {
+			SseEmitter.SseEventBuilder event;
+			while ((event = pending.poll()) != null) {
+				pendingCount.decrementAndGet();
+				if (!closed) {
+					emitter.send(event);
+				}
+			}
+		} catch (IOException | IllegalStateException e) {
+			// The client went away; the emitter reports the error to the container, which completes it
+			log.debug("Writing to stream failed: {}", e.getMessage());
+			closed = true;
+		} finally {
+			writing.set(false);
+		}
+		// An event queued after the last poll but before the flag was cleared would wait for the next one
+		if (!closed && !pending.isEmpty()) {
+			scheduleWrite();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package info.eecc.weather.subscription;
+
+import org.springframework.http.codec.ServerSentEvent;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Reactive stream backed by a unicast sink with a buffer of {@code bufferSize} events. The server drains it as
+ * the connection accepts data; a full buffer means the client stopped reading and the stream is closed.
+ */
+class SinkSubscriber implements WeatherSubscriber {
+
+	private final Sinks.Many<ServerSentEvent<String>> sink;
+
+	SinkSubscriber(int bufferSize) {
+		this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<ServerSentEvent<String>>get(bufferSize).get());
+	}
+
+	Flux<ServerSentEvent<String>> asFlux() {
+		return sink.asFlux();
+	}
+
+	@Override
+	public boolean send(String event, String data) {
+		return emit(ServerSentEvent.builder(data).event(event).build());
+	}
+
+	@Override
+	public boolean ping() {
+		return emit(ServerSentEvent.<String>builder().comment("ping").build());
+	}
+
+	@Override
+	public synchronized void close() {
+		sink.tryEmitComplete();
+	}
+
+	/**
+	 * The hub and the heartbeat emit from different threads, sinks require serialized calls.
+	 */
+	private synchronized boolean emit(ServerSentEvent<String> event) {
+		if (sink.tryEmitNext(event).isSuccess()) {
+			return true;
+		}
+		sink.tryEmitComplete();
+		return false;
+	}
+}
@@ -0,0 +1,53 @@
+package info.eecc.weather.subscription;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import info.eecc.weather.cache.GridKey;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The subscribers of one grid cell and the last observation they were sent. Subscribers and observation are
+ * guarded by the topic itself, so a new subscriber always gets the current snapshot before any later event.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+class SubscriptionTopic {
+
+	private final GridKey key;
+
+	/** Guarded by {@code this}. */
+	private final Set<WeatherSubscriber> subscribers = new LinkedHashSet<>();
+
+	/** Last published observation as JSON tree, {@code null} until the first one. Guarded by {@code this}. */
+	private ObjectNode weather;
+
+	/** Encoded {@link #weather}, sent as snapshot to new subscribers. Guarded by {@code this}. */
+	private String snapshot;
+
+	/** Upstream time of {@link #weather}, {@code null} if it has none. Guarded by {@code this}. */
+	private Instant observedAt;
+
+	/** No refresh is started before this instant, set after a failed one. */
+	private volatile Instant retryAt = Instant.EPOCH;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	boolean startRefresh() {
+		return refreshing.compareAndSet(false, true);
+	}
+
+	void endRefresh() {
+		refreshing.set(false);
+	}
+}
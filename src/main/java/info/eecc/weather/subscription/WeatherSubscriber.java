@@ -0,0 +1,27 @@
+package info.eecc.weather.subscription;
+
+/**
+ * One open stream of a client, fed by the {@link WeatherSubscriptionHub}. Implementations must not block:
+ * events are queued and written to the connection elsewhere, so one slow client never delays the others.
+ */
+public interface WeatherSubscriber {
+
+	/**
+	 * Queues an event with an encoded JSON payload.
+	 *
+	 * @return {@code false} if the stream is closed or its buffer is full, the hub then drops the subscriber
+	 */
+	boolean send(String event, String data);
+
+	/**
+	 * Queues a keep-alive comment.
+	 *
+	 * @return {@code false} if the stream is closed or its buffer is full
+	 */
+	boolean ping();
+
+	/**
+	 * Completes the stream.
+	 */
+	void close();
+}
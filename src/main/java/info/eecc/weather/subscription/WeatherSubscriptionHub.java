@@ -0,0 +1,369 @@
+package info.eecc.weather.subscription;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.SubscriptionProperties;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.service.WeatherService;
+import info.eecc.weather.upstream.UpstreamPriority;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * Fan-out publisher of live current weather. Subscribed locations are grouped by weather cache cell into
+ * {@link SubscriptionTopic}s; every {@code poll-interval} each topic is checked against the cache and an
+ * expired cell is refreshed once, however many streams subscribed to it. Only when the upstream observation
+ * time advances an event is encoded, once, and queued on every stream of the cell.
+ * <p>
+ * A stream first gets a {@code snapshot} event with the full {@link CurrentWeatherDto} of each location, then
+ * {@code update} events holding {@code location}, {@code timestamp} and the fields that changed.
+ */
+@Component
+@Slf4j
+public class WeatherSubscriptionHub implements MeterBinder {
+
+	public static final String SNAPSHOT = "snapshot";
+	public static final String UPDATE = "update";
+
+	/** Fields sent with every update, so clients can tell which location and observation it belongs to. */
+	private static final Set<String> KEY_FIELDS = Set.of("location", "timestamp");
+
+	private final WeatherCache weatherCache;
+	private final WeatherService weatherService;
+	private final SubscriptionProperties properties;
+	private final ExecutorService executor;
+	private final ObjectMapper objectMapper;
+	private final Clock clock;
+	private final Semaphore refreshPermits;
+	private final Semaphore subscriberSlots;
+
+	private final Map<GridKey, SubscriptionTopic> topics = new ConcurrentHashMap<>();
+	private final Map<WeatherSubscriber, List<GridKey>> subscribers = new ConcurrentHashMap<>();
+
+	private final LongAdder snapshots = new LongAdder();
+	private final LongAdder updates = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	public WeatherSubscriptionHub(WeatherCache weatherCache, WeatherService weatherService,
+			SubscriptionProperties properties, @Qualifier("subscriptionExecutor") ExecutorService executor,
+			ObjectMapper objectMapper, Clock clock) {
+		this.weatherCache = weatherCache;
+		this.weatherService = weatherService;
+		this.properties = properties;
+		this.executor = executor;
+		this.objectMapper = objectMapper;
+		this.clock = clock;
+		this.refreshPermits = new Semaphore(properties.getMaxConcurrentRefreshes());
+		this.subscriberSlots = new Semaphore(properties.getMaxSubscribers());
+	}
+
+	/**
+	 * Opens a servlet stream for the given locations. The emitter is completed after {@code timeout}, when the
+	 * client disconnects or falls behind.
+	 */
+	public SseEmitter openEmitter(List<CoordinatesDto> locations) {
+		List<GridKey> keys = keysFor(locations);
+		SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+		EmitterSubscriber subscriber = new EmitterSubscriber(emitter, executor, properties.getBufferSize());
+		Runnable release = () -> {
+			subscriber.closed();
+			unsubscribe(subscriber);
+		};
+		emitter.onCompletion(release);
+		emitter.onTimeout(release);
+		emitter.onError(e -> release.run());
+		subscribe(subscriber, keys);
+		return emitter;
+	}
+
+	/**
+	 * Opens a reactive stream for the given locations, completed after {@code timeout}, when the client
+	 * disconnects or falls behind.
+	 */
+	public Flux<ServerSentEvent<String>> openFlux(List<CoordinatesDto> locations) {
+		List<GridKey> keys = keysFor(locations);
+		SinkSubscriber subscriber = new SinkSubscriber(properties.getBufferSize());
+		subscribe(subscriber, keys);
+		Flux<ServerSentEvent<String>> events = subscriber.asFlux();
+		if (properties.getTimeout().isPositive()) {
+			events = events.take(properties.getTimeout());
+		}
+		return events.doFinally(signal -> unsubscribe(subscriber));
+	}
+
+	/**
+	 * Adds a subscriber to the topics of the given cells. Topics that already have an observation send it as
+	 * snapshot right away, the others are loaded without waiting for the next poll. A slot of
+	 * {@code max-subscribers} is reserved first and given back by {@link #unsubscribe(WeatherSubscriber)}.
+	 */
+	void subscribe(WeatherSubscriber subscriber, List<GridKey> keys) {
+		if (!subscriberSlots.tryAcquire()) {
+			throw new WeatherException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open subscriptions, retry later");
+		}
+		if (subscribers.putIfAbsent(subscriber, keys) != null) {
+			subscriberSlots.release();
+			return;
+		}
+		List<SubscriptionTopic> added = new ArrayList<>(keys.size());
+		for (GridKey key : keys) {
+			added.add(topics.compute(key, (k, topic) -> {
+				SubscriptionTopic target = topic != null ? topic : new SubscriptionTopic(k);
+				synchronized (target) {
+					target.getSubscribers().add(subscriber);
+					if (target.getSnapshot() != null && subscriber.send(SNAPSHOT, target.getSnapshot())) {
+						snapshots.increment();
+					}
+				}
+				return target;
+			}));
+		}
+		log.debug("Subscribed to {} cells, {} open streams", keys.size(), subscribers.size());
+		Instant now = clock.instant();
+		for (SubscriptionTopic topic : added) {
+			check(topic, now);
+		}
+	}
+
+	/**
+	 * Removes a subscriber from all its topics; topics without subscribers are dropped.
+	 */
+	void unsubscribe(WeatherSubscriber subscriber) {
+		List<GridKey> keys = subscribers.remove(subscriber);
+		if (keys == null) {
+			return;
+		}
+		subscriberSlots.release();
+		for (GridKey key : keys) {
+			topics.computeIfPresent(key, (k, topic) -> {
+				synchronized (topic) {
+					topic.getSubscribers().remove(subscriber);
+					return topic.getSubscribers().isEmpty() ? null : topic;
+				}
+			});
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${weather.subscriptions.poll-interval:1s}")
+	public void poll() {
+		Instant now = clock.instant();
+		for (SubscriptionTopic topic : topics.values()) {
+			check(topic, now);
+		}
+	}
+
+	/**
+	 * Sends a keep-alive comment on every stream. Writing is also how closed connections are noticed.
+	 */
+	@Scheduled(fixedDelayString = "${weather.subscriptions.heartbeat:30s}")
+	public void heartbeat() {
+		for (WeatherSubscriber subscriber : subscribers.keySet()) {
+			if (!subscriber.ping()) {
+				drop(subscriber);
+			}
+		}
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	public int getTopicCount() {
+		return topics.size();
+	}
+
+	@PreDestroy
+	public void close() {
+		// Open streams would otherwise hold up a graceful shutdown until they time out
+		for (WeatherSubscriber subscriber : subscribers.keySet()) {
+			subscriber.close();
+			unsubscribe(subscriber);
+		}
+	}
+
+	/**
+	 * Publishes {@code weather.subscriptions.active} (open streams), {@code weather.subscriptions.locations}
+	 * (subscribed cells), events queued per type and streams dropped because they fell behind.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("weather.subscriptions.active", this, WeatherSubscriptionHub::getSubscriberCount)
+				.description("Open weather streams")
+				.register(registry);
+		Gauge.builder("weather.subscriptions.locations", this, WeatherSubscriptionHub::getTopicCount)
+				.description("Grid cells with at least one subscriber")
+				.register(registry);
+		FunctionCounter.builder("weather.subscriptions.events", snapshots, LongAdder::sum)
+				.description("Full observations queued on streams")
+				.tag("type", SNAPSHOT)
+				.register(registry);
+		FunctionCounter.builder("weather.subscriptions.events", updates, LongAdder::sum)
+				.description("Changed fields queued on streams")
+				.tag("type", UPDATE)
+				.register(registry);
+		FunctionCounter.builder("weather.subscriptions.dropped", dropped, LongAdder::sum)
+				.description("Streams closed because the client was gone or fell behind")
+				.register(registry);
+	}
+
+	private List<GridKey> keysFor(List<CoordinatesDto> locations) {
+		if (!properties.isEnabled()) {
+			throw new WeatherException(HttpStatus.NOT_FOUND, "Weather subscriptions are not enabled");
+		}
+		if (locations.isEmpty()) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST, "At least one location must be provided");
+		}
+		if (locations.size() > properties.getMaxLocations()) {
+			throw new WeatherException(HttpStatus.BAD_REQUEST,
+					"At most " + properties.getMaxLocations() + " locations can be subscribed to per stream");
+		}
+		Set<GridKey> keys = new LinkedHashSet<>();
+		for (CoordinatesDto location : locations) {
+			keys.add(weatherCache.keyFor(location.getLatitude(), location.getLongitude()));
+		}
+		return List.copyOf(keys);
+	}
+
+	/**
+	 * Publishes a fresh cached observation of the cell, or starts a refresh if there is none.
+	 */
+	private void check(SubscriptionTopic topic, Instant now) {
+		CachedWeather cached = weatherCache.getIfFresh(topic.getKey());
+		if (cached != null) {
+			publish(topic, cached.getWeather());
+			return;
+		}
+		if (now.isBefore(topic.getRetryAt()) || !topic.startRefresh()) {
+			return;
+		}
+		if (!refreshPermits.tryAcquire()) {
+			// Picked up by the next poll
+			topic.endRefresh();
+			return;
+		}
+		try {
+			executor.execute(() -> refresh(topic));
+		} catch (RejectedExecutionException e) {
+			topic.endRefresh();
+			refreshPermits.release();
+		}
+	}
+
+	private void refresh(SubscriptionTopic topic) {
+		try {
+			// Shares the in-flight load with requests for the same cell, like the cache refresher
+			publish(topic, UpstreamPriority.BACKGROUND.call(() -> weatherService.refresh(topic.getKey())));
+		} catch (RuntimeException e) {
+			log.debug("Refreshing subscribed cell {} failed: {}", topic.getKey(), e.getMessage());
+			topic.setRetryAt(clock.instant().plus(properties.getRetryDelay()));
+		} finally {
+			topic.endRefresh();
+			refreshPermits.release();
+		}
+	}
+
+	/**
+	 * Queues the observation on all subscribers of the topic if it is newer than the last one sent: in full
+	 * for the first observation, otherwise only the changed fields. Encoded once for all subscribers.
+	 */
+	void publish(SubscriptionTopic topic, CurrentWeatherDto weather) {
+		Instant observedAt = WeatherCache.parseUpstreamTime(weather.getTimestamp());
+		List<WeatherSubscriber> failed = new ArrayList<>();
+		int sent = 0;
+		synchronized (topic) {
+			ObjectNode previous = topic.getWeather();
+			if (previous != null && !isNewer(observedAt, weather.getTimestamp(), topic.getObservedAt(),
+					previous.path("timestamp").asText(null))) {
+				return;
+			}
+			ObjectNode current = objectMapper.valueToTree(weather);
+			String snapshot = encode(current);
+			boolean first = previous == null;
+			String event = first ? SNAPSHOT : UPDATE;
+			String data = first ? snapshot : encode(delta(previous, current));
+			topic.setWeather(current);
+			topic.setSnapshot(snapshot);
+			topic.setObservedAt(observedAt);
+
+			for (WeatherSubscriber subscriber : topic.getSubscribers()) {
+				if (subscriber.send(event, data)) {
+					sent++;
+				} else {
+					failed.add(subscriber);
+				}
+			}
+			(first ? snapshots : updates).add(sent);
+		}
+		log.debug("Published {} for {} to {} streams", weather.getTimestamp(), topic.getKey(), sent);
+		// Outside the topic lock, unsubscribing locks the topic map first
+		failed.forEach(this::drop);
+	}
+
+	private void drop(WeatherSubscriber subscriber) {
+		dropped.increment();
+		subscriber.close();
+		unsubscribe(subscriber);
+	}
+
+	/**
+	 * The fields of {@code current} that differ from {@code previous}, plus the key fields.
+	 */
+	private ObjectNode delta(ObjectNode previous, ObjectNode current) {
+		ObjectNode delta = objectMapper.createObjectNode();
+		current.properties().forEach(field -> {
+			JsonNode value = field.getValue();
+			if (KEY_FIELDS.contains(field.getKey()) || !value.equals(previous.get(field.getKey()))) {
+				delta.set(field.getKey(), value);
+			}
+		});
+		return delta;
+	}
+
+	private String encode(JsonNode node) {
+		try {
+			return objectMapper.writeValueAsString(node);
+		} catch (JsonProcessingException e) {
+			throw new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to encode weather data", e);
+		}
+	}
+
+	private static boolean isNewer(Instant observedAt, String timestamp, Instant previousAt, String previous) {
+		if (observedAt != null && previousAt != null) {
+			return observedAt.isAfter(previousAt);
+		}
+		return !Objects.equals(timestamp, previous);
+	}
+}
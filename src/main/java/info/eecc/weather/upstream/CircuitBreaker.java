@@ -0,0 +1,215 @@
+package info.eecc.weather.upstream;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.exception.WeatherException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Count-based circuit breaker for one upstream API. It records the outcome of the last {@code window-size}
+ * calls; once {@code minimum-calls} are recorded and the failure rate reaches {@code failure-rate-threshold}
+ * it opens and rejects calls with 503 without contacting the upstream. After {@code open-duration} it lets
+ * {@code half-open-calls} trial calls through: if all succeed it closes, any failure opens it again.
+ * <p>
+ * Only upstream failures count (see {@link UpstreamErrors#isUpstreamFailure(Throwable)}), a 4xx response
+ * counts as a success.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+	private final String name;
+	private final CircuitBreakerProperties properties;
+	private final Clock clock;
+	private final Counter rejected;
+
+	/** Ring buffer of the last outcomes, {@code true} for a failure. */
+	private final boolean[] outcomes;
+	private int recorded;
+	private int next;
+	private int failures;
+
+	private CircuitState state = CircuitState.CLOSED;
+	private Instant openUntil = Instant.MIN;
+	private int trialCallsStarted;
+	private int trialCallsSucceeded;
+
+	public CircuitBreaker(String name, CircuitBreakerProperties properties, Clock clock,
+			MeterRegistry meterRegistry) {
+		this.name = name;
+		this.properties = properties;
+		this.clock = clock;
+		this.outcomes = new boolean[properties.getWindowSize()];
+		this.rejected = Counter.builder("weather.upstream.circuit.rejected")
+				.description("Upstream calls rejected by an open circuit breaker")
+				.tag("endpoint", name)
+				.register(meterRegistry);
+		for (CircuitState candidate : CircuitState.values()) {
+			Gauge.builder("weather.upstream.circuit.state", this, breaker -> breaker.getState() == candidate ? 1 : 0)
+					.description("1 for the current state of the circuit breaker, 0 otherwise")
+					.tag("endpoint", name)
+					.tag("state", candidate.name())
+					.register(meterRegistry);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized CircuitState getState() {
+		return state;
+	}
+
+	/**
+	 * Failure rate in percent over the current window, {@code -1} while fewer than {@code minimum-calls} calls
+	 * have been recorded.
+	 */
+	public synchronized int getFailureRate() {
+		return recorded < properties.getMinimumCalls() ? -1 : failures * 100 / recorded;
+	}
+
+	public <T> T execute(Supplier<T> call) {
+		if (!properties.isEnabled()) {
+			return call.get();
+		}
+		acquirePermission();
+		try {
+			T result = call.get();
+			onSuccess();
+			return result;
+		} catch (RuntimeException e) {
+			onError(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reactive variant of {@link #execute(Supplier)}. A rejected call fails the returned {@link Mono}, a
+	 * cancelled call is not recorded.
+	 */
+	public <T> Mono<T> executeAsync(Supplier<Mono<T>> call) {
+		if (!properties.isEnabled()) {
+			return Mono.defer(call);
+		}
+		return Mono.defer(() -> {
+			acquirePermission();
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			return Mono.defer(call)
+					.doOnError(error::set)
+					.doFinally(signal -> {
+						if (signal == SignalType.CANCEL) {
+							onIgnored();
+						} else if (error.get() != null) {
+							onError(error.get());
+						} else {
+							onSuccess();
+						}
+					});
+		});
+	}
+
+	private synchronized void acquirePermission() {
+		if (state == CircuitState.OPEN && !clock.instant().isBefore(openUntil)) {
+			transitionTo(CircuitState.HALF_OPEN);
+		}
+		if (state == CircuitState.CLOSED) {
+			return;
+		}
+		if (state == CircuitState.HALF_OPEN && trialCallsStarted < properties.getHalfOpenCalls()) {
+			trialCallsStarted++;
+			return;
+		}
+		rejected.increment();
+		throw new WeatherException(HttpStatus.SERVICE_UNAVAILABLE, "Weather service temporarily unavailable");
+	}
+
+	private void onError(Throwable error) {
+		if (error instanceof WeatherException) {
+			// Rejected before reaching the upstream, e.g. by the concurrency limiter
+			onIgnored();
+		} else if (UpstreamErrors.isUpstreamFailure(error)) {
+			onFailure();
+		} else {
+			onSuccess();
+		}
+	}
+
+	private synchronized void onSuccess() {
+		if (state == CircuitState.HALF_OPEN) {
+			if (++trialCallsSucceeded >= properties.getHalfOpenCalls()) {
+				transitionTo(CircuitState.CLOSED);
+			}
+		} else if (state == CircuitState.CLOSED) {
+			record(false);
+		}
+	}
+
+	private synchronized void onFailure() {
+		if (state == CircuitState.HALF_OPEN) {
+			transitionTo(CircuitState.OPEN);
+		} else if (state == CircuitState.CLOSED) {
+			record(true);
+			if (recorded >= properties.getMinimumCalls()
+					&& failures * 100 >= properties.getFailureRateThreshold() * recorded) {
+				transitionTo(CircuitState.OPEN);
+			}
+		}
+	}
+
+	private synchronized void onIgnored() {
+		if (state == CircuitState.HALF_OPEN && trialCallsStarted > 0) {
+			trialCallsStarted--;
+		}
+	}
+
+	private void record(boolean failure) {
+		if (recorded == outcomes.length) {
+			if (outcomes[next]) {
+				failures--;
+			}
+		} else {
+			recorded++;
+		}
+		outcomes[next] = failure;
+		if (failure) {
+			failures++;
+		}
+		next = (next + 1) % outcomes.length;
+	}
+
+	private void transitionTo(CircuitState target) {
+		if (target == CircuitState.OPEN) {
+			openUntil = clock.instant().plus(properties.getOpenDuration());
+			if (state == CircuitState.HALF_OPEN) {
+				// The window was reset when the breaker opened before, its counts are meaningless here
+				log.warn("Circuit breaker '{}' reopened after a failed trial call ({} of {} succeeded), rejecting "
+						+ "calls until {}", name, trialCallsSucceeded, properties.getHalfOpenCalls(), openUntil);
+			} else {
+				log.warn("Circuit breaker '{}' opened after {} failures in {} calls, rejecting calls until {}", name,
+						failures, recorded, openUntil);
+			}
+		} else {
+			log.info("Circuit breaker '{}' changed from {} to {}", name, state, target);
+		}
+		state = target;
+		trialCallsStarted = 0;
+		trialCallsSucceeded = 0;
+		if (target != CircuitState.HALF_OPEN) {
+			// Start over with an empty window, old outcomes say nothing about the recovered upstream
+			recorded = 0;
+			next = 0;
+			failures = 0;
+		}
+	}
+}
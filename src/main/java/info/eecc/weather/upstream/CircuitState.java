@@ -0,0 +1,16 @@
+package info.eecc.weather.upstream;
+
+/**
+ * States of a {@link CircuitBreaker}.
+ */
+public enum CircuitState {
+
+	/** Calls pass, outcomes are recorded. */
+	CLOSED,
+
+	/** Calls are rejected without contacting the upstream. */
+	OPEN,
+
+	/** A limited number of trial calls pass to probe whether the upstream has recovered. */
+	HALF_OPEN
+}
@@ -0,0 +1,170 @@
+package info.eecc.weather.upstream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.CurrentWeatherDto;
+
+/**
+ * Reads Open-Meteo current weather responses from the Jackson token stream straight into
+ * {@link CurrentWeatherDto}, without binding {@code WeatherResponse} first. Only the requested variables and
+ * the three units the API returns are read, everything else is skipped. Unit strings are shared instances
+ * instead of one copy per response.
+ */
+public final class CurrentWeatherDecoder {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** Units Open-Meteo answers with, matched without creating a string. */
+	private static final String[] KNOWN_UNITS = { "°C", "°F", "km/h", "m/s", "mph", "kn", "hPa", "%", "°",
+			"iso8601", "seconds", "wmo code", "" };
+
+	private CurrentWeatherDecoder() {
+	}
+
+	/**
+	 * Decodes a single-location response.
+	 *
+	 * @return the observation, or {@code null} if the response contains no current weather
+	 */
+	public static CurrentObservation decode(InputStream body, String location) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			parser.nextToken();
+			return readObservation(parser, location);
+		}
+	}
+
+	/**
+	 * Decodes a multi-location response, an array in request order. Elements without current weather are
+	 * {@code null}.
+	 */
+	public static List<CurrentObservation> decodeAll(InputStream body, List<String> locations) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new JsonParseException(parser, "Expected an array of forecasts");
+			}
+			List<CurrentObservation> observations = new ArrayList<>(locations.size());
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				String location = observations.size() < locations.size() ? locations.get(observations.size()) : null;
+				observations.add(readObservation(parser, location));
+			}
+			return observations;
+		}
+	}
+
+	private static CurrentObservation readObservation(JsonParser parser, String location) throws IOException {
+		if (parser.currentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			throw new JsonParseException(parser, "Expected a forecast object");
+		}
+		CurrentWeatherDto.CurrentWeatherDtoBuilder weather = CurrentWeatherDto.builder()
+				.location(location)
+				.temperatureUnit("°C")
+				.windSpeedUnit("km/h")
+				.pressureUnit("hPa");
+		boolean hasCurrent = false;
+		int interval = 0;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			JsonToken value = parser.nextToken();
+			switch (field) {
+				case "latitude" -> weather.latitude(parser.getValueAsDouble());
+				case "longitude" -> weather.longitude(parser.getValueAsDouble());
+				case "current" -> {
+					if (value == JsonToken.START_OBJECT) {
+						interval = readCurrent(parser, weather);
+						hasCurrent = true;
+					}
+				}
+				case "current_units" -> {
+					if (value == JsonToken.START_OBJECT) {
+						readUnits(parser, weather);
+					}
+				}
+				default -> parser.skipChildren();
+			}
+		}
+		return hasCurrent ? new CurrentObservation(weather.build(), interval) : null;
+	}
+
+	private static int readCurrent(JsonParser parser, CurrentWeatherDto.CurrentWeatherDtoBuilder weather)
+			throws IOException {
+		int interval = 0;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			parser.nextToken();
+			switch (field) {
+				case "time" -> weather.timestamp(parser.getValueAsString());
+				case "interval" -> interval = parser.getValueAsInt();
+				case "temperature_2m" -> weather.temperature(parser.getValueAsDouble());
+				case "relative_humidity_2m" -> weather.humidity(parser.getValueAsInt());
+				case "apparent_temperature" -> weather.apparentTemperature(parser.getValueAsDouble());
+				case "is_day" -> weather.isDay(parser.getValueAsInt() == 1);
+				case "weather_code" -> {
+					int code = parser.getValueAsInt();
+					weather.weatherCode(code).weatherDescription(CurrentWeatherDto.getWeatherDescription(code));
+				}
+				case "wind_speed_10m" -> weather.windSpeed(parser.getValueAsDouble());
+				case "wind_direction_10m" -> weather.windDirection(parser.getValueAsInt());
+				case "surface_pressure" -> weather.pressure(parser.getValueAsDouble());
+				case "cloud_cover" -> weather.cloudCover(parser.getValueAsInt());
+				default -> parser.skipChildren();
+			}
+		}
+		return interval;
+	}
+
+	private static void readUnits(JsonParser parser, CurrentWeatherDto.CurrentWeatherDtoBuilder weather)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			JsonToken value = parser.nextToken();
+			if (value != JsonToken.VALUE_STRING) {
+				parser.skipChildren();
+				continue;
+			}
+			switch (field) {
+				case "temperature_2m" -> weather.temperatureUnit(unit(parser));
+				case "wind_speed_10m" -> weather.windSpeedUnit(unit(parser));
+				case "surface_pressure" -> weather.pressureUnit(unit(parser));
+				default -> {
+					// Other units are not part of the API response
+				}
+			}
+		}
+	}
+
+	private static String unit(JsonParser parser) throws IOException {
+		char[] text = parser.getTextCharacters();
+		int offset = parser.getTextOffset();
+		int length = parser.getTextLength();
+		for (String known : KNOWN_UNITS) {
+			if (matches(known, text, offset, length)) {
+				return known;
+			}
+		}
+		return parser.getText().intern();
+	}
+
+	private static boolean matches(String known, char[] text, int offset, int length) {
+		if (known.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (known.charAt(i) != text[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,141 @@
+package info.eecc.weather.upstream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import info.eecc.weather.forecast.Forecast;
+import info.eecc.weather.forecast.ForecastResolution;
+import info.eecc.weather.forecast.ForecastSeries;
+import info.eecc.weather.forecast.ForecastVariable;
+
+/**
+ * Reads Open-Meteo {@code hourly} and {@code daily} blocks from the Jackson token stream straight into
+ * {@link ForecastSeries} columns, without creating an object per value. Expects {@code timeformat=unixtime};
+ * requested variables missing from the response are stored as missing values, others are skipped.
+ */
+public final class ForecastDecoder {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final int INITIAL_CAPACITY = 192;
+
+	private ForecastDecoder() {
+	}
+
+	public static Forecast decode(InputStream body, List<ForecastVariable> hourly, List<ForecastVariable> daily)
+			throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected a forecast object");
+			}
+			double latitude = 0;
+			double longitude = 0;
+			ForecastSeries hourlySeries = ForecastSeries.empty(ForecastResolution.HOURLY);
+			ForecastSeries dailySeries = ForecastSeries.empty(ForecastResolution.DAILY);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				JsonToken value = parser.nextToken();
+				switch (field) {
+					case "latitude" -> latitude = parser.getValueAsDouble();
+					case "longitude" -> longitude = parser.getValueAsDouble();
+					case "hourly" -> {
+						if (value == JsonToken.START_OBJECT) {
+							hourlySeries = readSeries(parser, ForecastResolution.HOURLY, hourly);
+						}
+					}
+					case "daily" -> {
+						if (value == JsonToken.START_OBJECT) {
+							dailySeries = readSeries(parser, ForecastResolution.DAILY, daily);
+						}
+					}
+					default -> parser.skipChildren();
+				}
+			}
+			return new Forecast(latitude, longitude, hourlySeries, dailySeries);
+		}
+	}
+
+	private static ForecastSeries readSeries(JsonParser parser, ForecastResolution resolution,
+			List<ForecastVariable> variables) throws IOException {
+		long[] times = null;
+		int length = 0;
+		short[][] columns = new short[variables.size()][];
+		int[] columnLengths = new int[variables.size()];
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				continue;
+			}
+			if ("time".equals(field)) {
+				times = new long[INITIAL_CAPACITY];
+				length = 0;
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					if (length == times.length) {
+						times = Arrays.copyOf(times, length * 2);
+					}
+					times[length++] = parser.getValueAsLong();
+				}
+				continue;
+			}
+			ForecastVariable variable = ForecastVariable.find(resolution, field);
+			int column = variable != null ? variables.indexOf(variable) : -1;
+			if (column < 0) {
+				parser.skipChildren();
+				continue;
+			}
+			short[] values = new short[INITIAL_CAPACITY];
+			int count = 0;
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (count == values.length) {
+					values = Arrays.copyOf(values, count * 2);
+				}
+				values[count++] = token == JsonToken.VALUE_NULL ? ForecastSeries.MISSING
+						: variable.encode(parser.getValueAsDouble());
+			}
+			columns[column] = values;
+			columnLengths[column] = count;
+		}
+		if (times == null || length == 0) {
+			return ForecastSeries.empty(resolution);
+		}
+		checkTimeAxis(parser, times, length, resolution);
+
+		short[] values = new short[variables.size() * length];
+		Arrays.fill(values, ForecastSeries.MISSING);
+		for (int column = 0; column < columns.length; column++) {
+			if (columns[column] == null) {
+				continue;
+			}
+			if (columnLengths[column] != length) {
+				throw new JsonParseException(parser, "Expected " + length + " values for "
+						+ resolution.getParameter() + " " + variables.get(column).getApiName() + ", got "
+						+ columnLengths[column]);
+			}
+			System.arraycopy(columns[column], 0, values, column * length, length);
+		}
+		return new ForecastSeries(resolution, times[0], length, variables, values);
+	}
+
+	/**
+	 * The series stores only the first time, the upstream has to use the resolution's fixed step (always the
+	 * case in GMT).
+	 */
+	private static void checkTimeAxis(JsonParser parser, long[] times, int length, ForecastResolution resolution)
+			throws JsonParseException {
+		for (int i = 1; i < length; i++) {
+			if (times[i] - times[i - 1] != resolution.getStepSeconds()) {
+				throw new JsonParseException(parser, "Irregular " + resolution.getParameter() + " time step at "
+						+ times[i]);
+			}
+		}
+	}
+}
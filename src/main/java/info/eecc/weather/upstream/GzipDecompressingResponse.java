@@ -0,0 +1,56 @@
+package info.eecc.weather.upstream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Wraps a gzip encoded response and exposes the decompressed body.
+ */
+class GzipDecompressingResponse implements ClientHttpResponse {
+
+	private final ClientHttpResponse delegate;
+	private final HttpHeaders headers;
+	private InputStream body;
+
+	GzipDecompressingResponse(ClientHttpResponse delegate) {
+		this.delegate = delegate;
+		this.headers = new HttpHeaders();
+		this.headers.putAll(delegate.getHeaders());
+		// The decoded body has neither the original encoding nor the original length
+		this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+		this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+	}
+
+	@Override
+	public HttpStatusCode getStatusCode() throws IOException {
+		return delegate.getStatusCode();
+	}
+
+	@Override
+	public String getStatusText() throws IOException {
+		return delegate.getStatusText();
+	}
+
+	@Override
+	public HttpHeaders getHeaders() {
+		return headers;
+	}
+
+	@Override
+	public InputStream getBody() throws IOException {
+		if (body == null) {
+			body = new GZIPInputStream(delegate.getBody());
+		}
+		return body;
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+}
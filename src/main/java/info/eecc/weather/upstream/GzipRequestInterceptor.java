@@ -0,0 +1,32 @@
+package info.eecc.weather.upstream;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Requests gzip compressed responses and transparently decompresses them. The JDK {@code HttpClient}
+ * does neither on its own.
+ */
+@Slf4j
+public class GzipRequestInterceptor implements ClientHttpRequestInterceptor {
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		ClientHttpResponse response = execution.execute(request, body);
+		String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+		if (encoding != null && encoding.trim().equalsIgnoreCase("gzip")) {
+			log.trace("Decompressing gzip response from {}", request.getURI().getHost());
+			return new GzipDecompressingResponse(response);
+		}
+		return response;
+	}
+}
@@ -0,0 +1,30 @@
+package info.eecc.weather.upstream;
+
+/**
+ * Token bucket that limits hedged requests to a share of all calls: every call adds {@code percent / 100}
+ * tokens, every hedge takes one. At most {@link #MAX_TOKENS} are saved up, so a quiet period does not turn
+ * into a burst of duplicates.
+ */
+final class HedgeBudget {
+
+	private static final double MAX_TOKENS = 10;
+
+	private final double tokensPerCall;
+	private double tokens;
+
+	HedgeBudget(double percent) {
+		this.tokensPerCall = percent / 100;
+	}
+
+	synchronized void onCall() {
+		tokens = Math.min(MAX_TOKENS, tokens + tokensPerCall);
+	}
+
+	synchronized boolean tryAcquire() {
+		if (tokens < 1) {
+			return false;
+		}
+		tokens--;
+		return true;
+	}
+}
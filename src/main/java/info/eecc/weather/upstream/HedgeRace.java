@@ -0,0 +1,63 @@
+package info.eecc.weather.upstream;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Outcome of one hedged call: the first successful attempt completes it. A failed attempt only completes
+ * it once no other attempt is running, with the first error seen; after that no hedge can be started.
+ */
+final class HedgeRace<T> {
+
+	private final Consumer<T> onValue;
+	private final Consumer<Throwable> onError;
+	private int running = 1;
+	private boolean done;
+	private Throwable error;
+
+	HedgeRace(Consumer<T> onValue, Consumer<Throwable> onError) {
+		this.onValue = onValue;
+		this.onError = onError;
+	}
+
+	/**
+	 * Registers a hedge if the call is still undecided and {@code permit} grants it.
+	 */
+	synchronized boolean tryStartHedge(BooleanSupplier permit) {
+		if (done || !permit.getAsBoolean()) {
+			return false;
+		}
+		running++;
+		return true;
+	}
+
+	/**
+	 * @return whether this attempt decided the call
+	 */
+	boolean success(T value) {
+		synchronized (this) {
+			if (done) {
+				return false;
+			}
+			done = true;
+		}
+		onValue.accept(value);
+		return true;
+	}
+
+	void failure(Throwable e) {
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+			if (error == null) {
+				error = e;
+			}
+			if (--running > 0) {
+				return;
+			}
+			done = true;
+		}
+		onError.accept(error);
+	}
+}
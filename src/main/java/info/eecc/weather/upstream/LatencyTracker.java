@@ -0,0 +1,73 @@
+package info.eecc.weather.upstream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding-window latency histogram of one upstream API. Latencies go into log-scale buckets that are 5%
+ * wide, from 1 ms up to about a minute, so a percentile costs a scan over a few hundred counters instead of
+ * sorting samples. The window consists of two halves; the older half is dropped every {@code window / 2}.
+ */
+final class LatencyTracker {
+
+	private static final double BUCKET_GROWTH = 1.05;
+	private static final long FIRST_BUCKET_NANOS = Duration.ofMillis(1).toNanos();
+	private static final int BUCKETS = 230;
+
+	private final long halfWindowNanos;
+	private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+	private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+	private volatile long currentStartedAt = System.nanoTime();
+
+	LatencyTracker(Duration window) {
+		this.halfWindowNanos = window.toNanos() / 2;
+	}
+
+	void record(long nanos) {
+		rotateIfNeeded();
+		int bucket = nanos <= FIRST_BUCKET_NANOS ? 0
+				: (int) Math.min(BUCKETS - 1,
+						Math.ceil(Math.log((double) nanos / FIRST_BUCKET_NANOS) / Math.log(BUCKET_GROWTH)));
+		current.incrementAndGet(bucket);
+	}
+
+	/**
+	 * Upper bound of the bucket containing the given percentile, or {@code null} with fewer than
+	 * {@code minSamples} samples in the window.
+	 */
+	Duration percentile(double percentile, int minSamples) {
+		rotateIfNeeded();
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = current.get(i) + previous.get(i);
+			total += counts[i];
+		}
+		if (total == 0 || total < minSamples) {
+			return null;
+		}
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		int bucket = 0;
+		while (bucket < BUCKETS - 1 && (seen += counts[bucket]) < rank) {
+			bucket++;
+		}
+		return Duration.ofNanos((long) (FIRST_BUCKET_NANOS * Math.pow(BUCKET_GROWTH, bucket)));
+	}
+
+	private void rotateIfNeeded() {
+		if (System.nanoTime() - currentStartedAt < halfWindowNanos) {
+			return;
+		}
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (now - currentStartedAt < halfWindowNanos) {
+				return;
+			}
+			// After a full window without samples both halves are outdated
+			previous = now - currentStartedAt < 2 * halfWindowNanos ? current : new AtomicLongArray(BUCKETS);
+			current = new AtomicLongArray(BUCKETS);
+			currentStartedAt = now;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package info.eecc.weather.upstream;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestTemplate;
+
+import info.eecc.weather.config.UpstreamDecoder;
+import info.eecc.weather.config.UpstreamHttpProperties;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.forecast.Forecast;
+import info.eecc.weather.forecast.ForecastVariable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thin client for the Open-Meteo forecast and geocoding APIs. Builds the request URLs and returns the raw
+ * upstream responses; caching and error mapping are left to the callers.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OpenMeteoClient {
+
+	private static final RequestCallback ACCEPT_JSON = request -> request.getHeaders()
+			.setAccept(List.of(MediaType.APPLICATION_JSON));
+
+	private final RestTemplate restTemplate;
+	private final UpstreamHttpProperties properties;
+	private final UpstreamConcurrencyLimiter concurrencyLimiter;
+	private final UpstreamBudget budget;
+	private final UpstreamMetrics metrics;
+	private final UpstreamCircuitBreakers circuitBreakers;
+	private final UpstreamHedging hedging;
+
+	public WeatherResponse fetchCurrentWeather(double latitude, double longitude) {
+		String url = OpenMeteoUris.currentWeather(properties, latitude, longitude);
+
+		log.debug("Calling forecast API: {}", url);
+		UpstreamPriority priority = UpstreamPriority.current();
+		return hedging.execute(UpstreamMetrics.FORECAST, () -> call(circuitBreakers.getForecast(),
+				UpstreamMetrics.FORECAST, priority, 1, () -> restTemplate.getForObject(url, WeatherResponse.class)));
+	}
+
+	public boolean isStreamingDecoder() {
+		return properties.getDecoder() == UpstreamDecoder.STREAMING;
+	}
+
+	/**
+	 * Fetches the current weather and decodes it with {@link CurrentWeatherDecoder}, straight into the API
+	 * representation labelled with {@code location}.
+	 *
+	 * @return the observation, or {@code null} if the response contains no current weather
+	 */
+	public CurrentObservation fetchCurrentObservation(double latitude, double longitude, String location) {
+		String url = OpenMeteoUris.currentWeather(properties, latitude, longitude);
+
+		log.debug("Calling forecast API: {}", url);
+		UpstreamPriority priority = UpstreamPriority.current();
+		return hedging.execute(UpstreamMetrics.FORECAST, () -> call(circuitBreakers.getForecast(),
+				UpstreamMetrics.FORECAST, priority, 1, () -> restTemplate.execute(url, HttpMethod.GET, ACCEPT_JSON,
+						response -> CurrentWeatherDecoder.decode(response.getBody(), location))));
+	}
+
+	/**
+	 * Streaming variant of {@link #fetchCurrentWeather(List)}, {@code labels} holds the location label of
+	 * each coordinate.
+	 */
+	public List<CurrentObservation> fetchCurrentObservations(List<CoordinatesDto> locations, List<String> labels) {
+		if (locations.size() == 1) {
+			CoordinatesDto location = locations.get(0);
+			return Collections.singletonList(
+					fetchCurrentObservation(location.getLatitude(), location.getLongitude(), labels.get(0)));
+		}
+
+		String url = OpenMeteoUris.currentWeather(properties, locations);
+
+		log.debug("Calling forecast API for {} locations", locations.size());
+		List<CurrentObservation> observations = call(circuitBreakers.getForecast(), UpstreamMetrics.FORECAST_BATCH,
+				UpstreamPriority.current(), locations.size(), () -> restTemplate.execute(url, HttpMethod.GET, ACCEPT_JSON,
+						response -> CurrentWeatherDecoder.decodeAll(response.getBody(), labels)));
+		return observations == null ? List.of() : observations;
+	}
+
+	/**
+	 * Fetches the current weather for several locations in one call.
+	 */
+	public List<WeatherResponse> fetchCurrentWeather(List<CoordinatesDto> locations) {
+		if (locations.size() == 1) {
+			// A single location is answered with an object instead of an array
+			CoordinatesDto location = locations.get(0);
+			return Collections.singletonList(fetchCurrentWeather(location.getLatitude(), location.getLongitude()));
+		}
+
+		String url = OpenMeteoUris.currentWeather(properties, locations);
+
+		log.debug("Calling forecast API for {} locations", locations.size());
+		// Not hedged: a duplicate of a multi-location call costs as much upstream load as the whole chunk
+		WeatherResponse[] responses = call(circuitBreakers.getForecast(), UpstreamMetrics.FORECAST_BATCH,
+				UpstreamPriority.current(), locations.size(), () -> restTemplate.getForObject(url, WeatherResponse[].class));
+		return responses == null ? List.of() : Arrays.asList(responses);
+	}
+
+	/**
+	 * Fetches the hourly and daily forecast and decodes it with {@link ForecastDecoder} into columnar series.
+	 */
+	public Forecast fetchForecast(double latitude, double longitude, List<ForecastVariable> hourly,
+			List<ForecastVariable> daily, int days) {
+		String url = OpenMeteoUris.forecast(properties, latitude, longitude, hourly, daily, days);
+
+		log.debug("Calling forecast API: {}", url);
+		UpstreamPriority priority = UpstreamPriority.current();
+		return hedging.execute(UpstreamMetrics.FORECAST, () -> call(circuitBreakers.getForecast(),
+				UpstreamMetrics.FORECAST, priority, 1, () -> restTemplate.execute(url, HttpMethod.GET, ACCEPT_JSON,
+						response -> ForecastDecoder.decode(response.getBody(), hourly, daily))));
+	}
+
+	public GeocodingResponse searchLocation(String name) {
+		String url = OpenMeteoUris.search(properties, name);
+
+		log.debug("Calling geocoding API: {}", url);
+		UpstreamPriority priority = UpstreamPriority.current();
+		return hedging.execute(UpstreamMetrics.GEOCODING, () -> call(circuitBreakers.getGeocoding(),
+				UpstreamMetrics.GEOCODING, priority, 1, () -> restTemplate.getForObject(url, GeocodingResponse.class)));
+	}
+
+	/**
+	 * An open breaker rejects before the request budget is charged or a concurrency slot is taken, only the
+	 * HTTP exchange itself is timed. The priority is that of the calling thread, hedged attempts run on others;
+	 * {@code locations} is the number of locations the call queries, its cost in the budget.
+	 */
+	private <T> T call(CircuitBreaker circuitBreaker, String endpoint, UpstreamPriority priority, int locations,
+			Supplier<T> exchange) {
+		return circuitBreaker.execute(() -> budget.execute(endpoint, priority, locations,
+				() -> concurrencyLimiter.execute(() -> metrics.record(endpoint, exchange))));
+	}
+}
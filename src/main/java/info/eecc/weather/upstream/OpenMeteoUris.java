@@ -0,0 +1,78 @@
+package info.eecc.weather.upstream;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import info.eecc.weather.config.UpstreamHttpProperties;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.forecast.ForecastVariable;
+
+/**
+ * Request URLs of the Open-Meteo APIs, shared by the blocking and the reactive client.
+ */
+final class OpenMeteoUris {
+
+	static final String CURRENT_VARIABLES = "temperature_2m,relative_humidity_2m,apparent_temperature,is_day,weather_code,wind_speed_10m,wind_direction_10m,surface_pressure,cloud_cover";
+
+	private OpenMeteoUris() {
+	}
+
+	static String currentWeather(UpstreamHttpProperties properties, double latitude, double longitude) {
+		return UriComponentsBuilder.fromHttpUrl(properties.getForecastUrl())
+				.queryParam("latitude", latitude)
+				.queryParam("longitude", longitude)
+				.queryParam("current", CURRENT_VARIABLES)
+				.toUriString();
+	}
+
+	/**
+	 * Open-Meteo accepts comma separated coordinate lists and answers with an array in request order.
+	 */
+	static String currentWeather(UpstreamHttpProperties properties, List<CoordinatesDto> locations) {
+		return UriComponentsBuilder.fromHttpUrl(properties.getForecastUrl())
+				.queryParam("latitude", join(locations, CoordinatesDto::getLatitude))
+				.queryParam("longitude", join(locations, CoordinatesDto::getLongitude))
+				.queryParam("current", CURRENT_VARIABLES)
+				.toUriString();
+	}
+
+	/**
+	 * Times are requested as epoch seconds in GMT, so the hourly and daily steps are regular.
+	 */
+	static String forecast(UpstreamHttpProperties properties, double latitude, double longitude,
+			List<ForecastVariable> hourly, List<ForecastVariable> daily, int days) {
+		UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(properties.getForecastUrl())
+				.queryParam("latitude", latitude)
+				.queryParam("longitude", longitude);
+		if (!hourly.isEmpty()) {
+			builder.queryParam("hourly", names(hourly));
+		}
+		if (!daily.isEmpty()) {
+			builder.queryParam("daily", names(daily));
+		}
+		return builder.queryParam("forecast_days", days)
+				.queryParam("timeformat", "unixtime")
+				.queryParam("timezone", "GMT")
+				.toUriString();
+	}
+
+	static String search(UpstreamHttpProperties properties, String name) {
+		return UriComponentsBuilder.fromHttpUrl(properties.getGeocodingUrl())
+				.queryParam("name", name)
+				.queryParam("count", 1)
+				.queryParam("language", "en")
+				.queryParam("format", "json")
+				.toUriString();
+	}
+
+	private static String names(List<ForecastVariable> variables) {
+		return variables.stream().map(ForecastVariable::getApiName).collect(Collectors.joining(","));
+	}
+
+	private static String join(List<CoordinatesDto> locations, Function<CoordinatesDto, Double> coordinate) {
+		return locations.stream().map(coordinate).map(String::valueOf).collect(Collectors.joining(","));
+	}
+}
@@ -0,0 +1,98 @@
+package info.eecc.weather.upstream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.function.Supplier;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import info.eecc.weather.config.UpstreamDecoder;
+import info.eecc.weather.config.UpstreamHttpProperties;
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.WeatherResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link OpenMeteoClient} used by the reactive API. Only active when the
+ * application runs as a reactive web application.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveOpenMeteoClient {
+
+	private final WebClient upstreamWebClient;
+	private final UpstreamHttpProperties properties;
+	private final UpstreamConcurrencyLimiter concurrencyLimiter;
+	private final UpstreamBudget budget;
+	private final UpstreamMetrics metrics;
+	private final UpstreamCircuitBreakers circuitBreakers;
+	private final UpstreamHedging hedging;
+
+	public Mono<WeatherResponse> fetchCurrentWeather(double latitude, double longitude) {
+		String url = OpenMeteoUris.currentWeather(properties, latitude, longitude);
+
+		log.debug("Calling forecast API: {}", url);
+		return call(circuitBreakers.getForecast(), UpstreamMetrics.FORECAST, () -> upstreamWebClient.get()
+				.uri(URI.create(url))
+				.retrieve()
+				.bodyToMono(WeatherResponse.class));
+	}
+
+	public boolean isStreamingDecoder() {
+		return properties.getDecoder() == UpstreamDecoder.STREAMING;
+	}
+
+	/**
+	 * Fetches the current weather and decodes the aggregated body with {@link CurrentWeatherDecoder}. Completes
+	 * empty if the response contains no current weather.
+	 */
+	public Mono<CurrentObservation> fetchCurrentObservation(double latitude, double longitude, String location) {
+		String url = OpenMeteoUris.currentWeather(properties, latitude, longitude);
+
+		log.debug("Calling forecast API: {}", url);
+		return call(circuitBreakers.getForecast(), UpstreamMetrics.FORECAST, () -> upstreamWebClient.get()
+				.uri(URI.create(url))
+				.accept(MediaType.APPLICATION_JSON)
+				.retrieve()
+				.bodyToMono(DataBuffer.class)
+				.mapNotNull(body -> decode(body, location)));
+	}
+
+	public Mono<GeocodingResponse> searchLocation(String name) {
+		String url = OpenMeteoUris.search(properties, name);
+
+		log.debug("Calling geocoding API: {}", url);
+		return call(circuitBreakers.getGeocoding(), UpstreamMetrics.GEOCODING, () -> upstreamWebClient.get()
+				.uri(URI.create(url))
+				.retrieve()
+				.bodyToMono(GeocodingResponse.class));
+	}
+
+	private static CurrentObservation decode(DataBuffer body, String location) {
+		try (InputStream in = body.asInputStream(true)) {
+			return CurrentWeatherDecoder.decode(in, location);
+		} catch (IOException e) {
+			throw new DecodingException("Failed to decode forecast response", e);
+		}
+	}
+
+	/**
+	 * Reactive requests are always {@link UpstreamPriority#INTERACTIVE}, batches run on the blocking client.
+	 */
+	private <T> Mono<T> call(CircuitBreaker circuitBreaker, String endpoint, Supplier<Mono<T>> exchange) {
+		return hedging.executeAsync(endpoint, () -> circuitBreaker.executeAsync(
+				() -> budget.executeAsync(endpoint, UpstreamPriority.INTERACTIVE, 1,
+						() -> concurrencyLimiter.executeAsync(() -> metrics.recordAsync(endpoint, exchange)))));
+	}
+}
@@ -0,0 +1,91 @@
+package info.eecc.weather.upstream;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Quota of {@code capacity} calls per {@code period}. A continuous bucket refills proportionally to the time
+ * passed; a fixed-window bucket is refilled in full when the clock crosses a multiple of {@code period} since
+ * the epoch (the full UTC hour or day), matching quotas that reset at that boundary. Not thread-safe, guarded by
+ * the {@link UpstreamBudget} lock.
+ */
+final class TokenBucket {
+
+	private final String window;
+	private final int capacity;
+	private final long periodNanos;
+	private final boolean continuous;
+	private final double tokensPerNano;
+	private double tokens;
+	private Instant refilledAt;
+
+	TokenBucket(String window, int capacity, Duration period, boolean continuous, Instant now) {
+		this.window = window;
+		this.capacity = capacity;
+		this.periodNanos = period.toNanos();
+		this.continuous = continuous;
+		this.tokensPerNano = (double) capacity / periodNanos;
+		this.tokens = capacity;
+		this.refilledAt = now;
+	}
+
+	String getWindow() {
+		return window;
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	double getTokens(Instant now) {
+		refill(now);
+		return tokens;
+	}
+
+	/**
+	 * Whether a call costing {@code cost} tokens can be taken while keeping {@code reserve} (a share of the
+	 * capacity) for others.
+	 */
+	boolean hasTokens(Instant now, int cost, double reserve) {
+		return getTokens(now) >= cost + reserve * capacity;
+	}
+
+	void take(int cost) {
+		tokens -= cost;
+	}
+
+	/**
+	 * Time until {@link #hasTokens(Instant, int, double)} holds again.
+	 */
+	long nanosUntilTokens(Instant now, int cost, double reserve) {
+		double missing = cost + reserve * capacity - getTokens(now);
+		if (missing <= 0) {
+			return 0;
+		}
+		if (continuous) {
+			return (long) Math.ceil(missing / tokensPerNano);
+		}
+		return periodNanos - Math.floorMod(epochNanos(now), periodNanos);
+	}
+
+	void drain(Instant now) {
+		refill(now);
+		tokens = 0;
+	}
+
+	private void refill(Instant now) {
+		if (!now.isAfter(refilledAt)) {
+			return;
+		}
+		if (continuous) {
+			tokens = Math.min(capacity, tokens + Duration.between(refilledAt, now).toNanos() * tokensPerNano);
+		} else if (Math.floorDiv(epochNanos(now), periodNanos) != Math.floorDiv(epochNanos(refilledAt), periodNanos)) {
+			tokens = capacity;
+		}
+		refilledAt = now;
+	}
+
+	private static long epochNanos(Instant instant) {
+		return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+	}
+}
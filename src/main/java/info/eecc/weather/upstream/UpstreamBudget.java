@@ -0,0 +1,283 @@
+package info.eecc.weather.upstream;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.UpstreamBudgetProperties;
+import info.eecc.weather.exception.WeatherException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps upstream calls within the Open-Meteo request quota: one {@link TokenBucket} per minute, hour and day
+ * quota, every call takes as many tokens from each as it queries locations, since Open-Meteo counts a
+ * multi-location call once per location. The minute bucket refills continuously, the hour and day buckets reset
+ * at the full UTC hour and day. Blocking and reactive callers share the buckets.
+ * <ul>
+ * <li>{@link UpstreamPriority#INTERACTIVE} calls may use the whole quota, {@link UpstreamPriority#BATCH} calls
+ * leave {@code batch-reserve} of it and {@link UpstreamPriority#BACKGROUND} refreshes
+ * {@code background-reserve}, so refreshes stop first and their entries are served stale instead.</li>
+ * <li>Interactive and batch calls wait up to {@code max-wait} for a token; while an interactive call waits,
+ * batch calls do not get one. Calls whose token cannot refill within their wait are rejected with 503 at
+ * once, background calls never wait. A call costing more than a whole quota is always rejected.</li>
+ * <li>A 429 response empties the minute bucket, so the callers back off until it refills.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class UpstreamBudget {
+
+	private static final Duration ASYNC_ACQUIRE_RETRY_DELAY = Duration.ofMillis(5);
+
+	private final UpstreamBudgetProperties properties;
+	private final Clock clock;
+	private final MeterRegistry meterRegistry;
+	private final List<TokenBucket> buckets = new ArrayList<>();
+	private final Map<String, Counter> consumed = new ConcurrentHashMap<>();
+	private final Map<UpstreamPriority, Counter> rejected = new EnumMap<>(UpstreamPriority.class);
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition waiterLeft = lock.newCondition();
+	private final int[] waiting = new int[UpstreamPriority.values().length];
+
+	public UpstreamBudget(UpstreamBudgetProperties properties, Clock clock, MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.clock = clock;
+		this.meterRegistry = meterRegistry;
+		Instant now = clock.instant();
+		addBucket("minute", properties.getRequestsPerMinute(), Duration.ofMinutes(1), true, now);
+		addBucket("hour", properties.getRequestsPerHour(), Duration.ofHours(1), false, now);
+		addBucket("day", properties.getRequestsPerDay(), Duration.ofDays(1), false, now);
+		for (UpstreamPriority priority : UpstreamPriority.values()) {
+			rejected.put(priority, Counter.builder("weather.upstream.budget.rejected")
+					.description("Upstream calls rejected because the request quota was used up")
+					.tag("priority", priority.name().toLowerCase())
+					.register(meterRegistry));
+		}
+		Gauge.builder("weather.upstream.budget.waiting", this, UpstreamBudget::getWaiting)
+				.description("Blocking upstream calls waiting for the request quota to refill")
+				.register(meterRegistry);
+	}
+
+	private void addBucket(String window, int capacity, Duration period, boolean continuous, Instant now) {
+		if (capacity <= 0) {
+			return;
+		}
+		TokenBucket bucket = new TokenBucket(window, capacity, period, continuous, now);
+		buckets.add(bucket);
+		Gauge.builder("weather.upstream.budget.remaining", this, budget -> budget.getRemaining(bucket))
+				.description("Upstream calls left in the request quota")
+				.tag("window", window)
+				.register(meterRegistry);
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled() && !buckets.isEmpty();
+	}
+
+	/**
+	 * Runs {@code call} once {@code cost} tokens, the number of locations it queries, could be taken.
+	 */
+	public <T> T execute(String endpoint, UpstreamPriority priority, int cost, Supplier<T> call) {
+		if (!isEnabled()) {
+			return call.get();
+		}
+		acquire(endpoint, priority, cost);
+		try {
+			return call.get();
+		} catch (RuntimeException e) {
+			onError(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reactive variant of {@link #execute(String, UpstreamPriority, int, Supplier)}. Instead of parking a
+	 * thread the tokens are retried on a timer until the wait of the priority has passed.
+	 */
+	public <T> Mono<T> executeAsync(String endpoint, UpstreamPriority priority, int cost,
+			Supplier<Mono<T>> call) {
+		if (!isEnabled()) {
+			return Mono.defer(call);
+		}
+		return Mono.defer(() -> {
+			if (exceedsCapacity(cost)) {
+				return Mono.error(rejectOversized(priority, cost));
+			}
+			long deadline = System.nanoTime() + maxWait(priority).toNanos();
+			return Mono.fromSupplier(() -> tryAcquire(endpoint, priority, cost))
+					.filter(Boolean::booleanValue)
+					.repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> System.nanoTime() < deadline
+							? Mono.delay(ASYNC_ACQUIRE_RETRY_DELAY)
+							: Mono.error(reject(priority))))
+					.flatMap(acquired -> Mono.defer(call).doOnError(this::onError));
+		});
+	}
+
+	/**
+	 * Calls left in the quota of {@code window} ({@code minute}, {@code hour} or {@code day}), {@code -1} if
+	 * that quota is not enforced.
+	 */
+	public int getRemaining(String window) {
+		return buckets.stream()
+				.filter(bucket -> bucket.getWindow().equals(window))
+				.findFirst()
+				.map(this::getRemaining)
+				.orElse(-1);
+	}
+
+	public int getWaiting() {
+		lock.lock();
+		try {
+			int total = 0;
+			for (int count : waiting) {
+				total += count;
+			}
+			return total;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int getRemaining(TokenBucket bucket) {
+		lock.lock();
+		try {
+			return (int) bucket.getTokens(clock.instant());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void acquire(String endpoint, UpstreamPriority priority, int cost) {
+		if (exceedsCapacity(cost)) {
+			throw rejectOversized(priority, cost);
+		}
+		long remaining = maxWait(priority).toNanos();
+		lock.lock();
+		try {
+			waiting[priority.ordinal()]++;
+			try {
+				while (!tryTake(endpoint, priority, cost)) {
+					long untilToken = nanosUntilTokens(priority, cost);
+					if (untilToken > remaining || remaining <= 0) {
+						throw reject(priority);
+					}
+					// Zero while a more important call waits, it signals when it got its token or gave up
+					long timeout = untilToken > 0 ? untilToken : remaining;
+					remaining -= timeout - waiterLeft.awaitNanos(timeout);
+				}
+			} finally {
+				waiting[priority.ordinal()]--;
+				waiterLeft.signalAll();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw reject(priority);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean tryAcquire(String endpoint, UpstreamPriority priority, int cost) {
+		lock.lock();
+		try {
+			return tryTake(endpoint, priority, cost);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean tryTake(String endpoint, UpstreamPriority priority, int cost) {
+		for (int i = 0; i < priority.ordinal(); i++) {
+			if (waiting[i] > 0) {
+				return false;
+			}
+		}
+		Instant now = clock.instant();
+		double reserve = reserve(priority);
+		for (TokenBucket bucket : buckets) {
+			if (!bucket.hasTokens(now, cost, reserve)) {
+				return false;
+			}
+		}
+		buckets.forEach(bucket -> bucket.take(cost));
+		consumed.computeIfAbsent(endpoint, this::consumedCounter).increment(cost);
+		return true;
+	}
+
+	private long nanosUntilTokens(UpstreamPriority priority, int cost) {
+		Instant now = clock.instant();
+		double reserve = reserve(priority);
+		long nanos = 0;
+		for (TokenBucket bucket : buckets) {
+			nanos = Math.max(nanos, bucket.nanosUntilTokens(now, cost, reserve));
+		}
+		return nanos;
+	}
+
+	private boolean exceedsCapacity(int cost) {
+		return buckets.stream().anyMatch(bucket -> cost > bucket.getCapacity());
+	}
+
+	private void onError(Throwable error) {
+		HttpStatusCode status = UpstreamErrors.statusOf(error);
+		if (status != null && status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+			log.warn("Upstream quota exceeded, holding back calls until the {} quota refills",
+					buckets.get(0).getWindow());
+			lock.lock();
+			try {
+				buckets.get(0).drain(clock.instant());
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private double reserve(UpstreamPriority priority) {
+		return switch (priority) {
+			case INTERACTIVE -> 0;
+			case BATCH -> properties.getBatchReserve();
+			case BACKGROUND -> properties.getBackgroundReserve();
+		};
+	}
+
+	private Duration maxWait(UpstreamPriority priority) {
+		return priority == UpstreamPriority.BACKGROUND ? Duration.ZERO : properties.getMaxWait();
+	}
+
+	private Counter consumedCounter(String endpoint) {
+		return Counter.builder("weather.upstream.budget.consumed")
+				.description("Locations queried upstream, counted against the request quota")
+				.tag("endpoint", endpoint)
+				.register(meterRegistry);
+	}
+
+	private WeatherException reject(UpstreamPriority priority) {
+		rejected.get(priority).increment();
+		log.debug("Rejecting {} upstream call, request quota used up", priority);
+		return new WeatherException(HttpStatus.SERVICE_UNAVAILABLE, "Upstream request budget exhausted");
+	}
+
+	private WeatherException rejectOversized(UpstreamPriority priority, int cost) {
+		rejected.get(priority).increment();
+		log.warn("Rejecting {} upstream call for {} locations, more than a whole request quota", priority, cost);
+		return new WeatherException(HttpStatus.SERVICE_UNAVAILABLE,
+				"Upstream call exceeds the request budget, " + cost + " locations");
+	}
+}
@@ -0,0 +1,31 @@
+package info.eecc.weather.upstream;
+
+import java.time.Clock;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.CircuitBreakerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+
+/**
+ * One {@link CircuitBreaker} per Open-Meteo API. The forecast and geocoding APIs are separate hosts, an
+ * outage of one does not stop calls to the other. Blocking and reactive clients share the breakers.
+ */
+@Component
+@Getter
+public class UpstreamCircuitBreakers {
+
+	private final CircuitBreaker forecast;
+	private final CircuitBreaker geocoding;
+
+	public UpstreamCircuitBreakers(CircuitBreakerProperties properties, Clock clock, MeterRegistry meterRegistry) {
+		this.forecast = new CircuitBreaker(UpstreamMetrics.FORECAST, properties, clock, meterRegistry);
+		this.geocoding = new CircuitBreaker(UpstreamMetrics.GEOCODING, properties, clock, meterRegistry);
+	}
+
+	public List<CircuitBreaker> all() {
+		return List.of(forecast, geocoding);
+	}
+}
@@ -0,0 +1,185 @@
+package info.eecc.weather.upstream;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.UpstreamConcurrencyProperties;
+import info.eecc.weather.exception.WeatherException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bulkhead around all upstream calls: at most {@code limit} calls run at once, callers wait up to
+ * {@code acquire-timeout} for a slot and are rejected with 503 afterwards. Blocking and reactive callers
+ * share the same slots. The lock is fair, so waiting blocking callers get freed slots in arrival order instead
+ * of newcomers barging ahead; reactive callers retry on a timer and are not queued.
+ * <p>
+ * With {@code adaptive} enabled the limit follows the upstream (AIMD): every call that completes within
+ * {@code latency-threshold} while the limit is at least half used raises it by {@code 1/limit}, every slow
+ * or failed call multiplies it by {@code backoff-ratio}. The limit stays between
+ * {@code min-concurrent-requests} and {@code max-concurrent-requests}, so a degrading upstream sees fewer
+ * concurrent calls long before the read timeout piles up waiting callers.
+ */
+@Component
+@Slf4j
+public class UpstreamConcurrencyLimiter {
+
+	private static final Duration ASYNC_ACQUIRE_RETRY_DELAY = Duration.ofMillis(5);
+
+	private final UpstreamConcurrencyProperties properties;
+	private final Counter rejected;
+	private final int minLimit;
+	private final int maxLimit;
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final Condition slotReleased = lock.newCondition();
+	private double limit;
+	private int inFlight;
+
+	public UpstreamConcurrencyLimiter(UpstreamConcurrencyProperties properties, MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.maxLimit = properties.getMaxConcurrentRequests();
+		this.minLimit = Math.min(properties.getMinConcurrentRequests(), maxLimit);
+		this.limit = properties.isAdaptive()
+				? Math.clamp(properties.getInitialConcurrentRequests(), minLimit, maxLimit)
+				: maxLimit;
+		this.rejected = Counter.builder("weather.upstream.concurrency.rejected")
+				.description("Upstream calls rejected because no concurrency slot became free")
+				.register(meterRegistry);
+		Gauge.builder("weather.upstream.concurrency.limit", this, UpstreamConcurrencyLimiter::getLimit)
+				.description("Current maximum number of concurrent upstream calls")
+				.register(meterRegistry);
+		Gauge.builder("weather.upstream.concurrency.in_use", this, UpstreamConcurrencyLimiter::getInUse)
+				.description("Upstream calls currently in flight")
+				.register(meterRegistry);
+	}
+
+	public <T> T execute(Supplier<T> call) {
+		acquire();
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			return call.get();
+		} catch (RuntimeException e) {
+			failed = UpstreamErrors.isUpstreamFailure(e);
+			throw e;
+		} finally {
+			release(start, failed);
+		}
+	}
+
+	/**
+	 * Reactive variant of {@link #execute(Supplier)}. Instead of parking a thread the acquisition is retried
+	 * on a timer until {@code acquire-timeout} has passed; the slot is released when the call terminates or
+	 * is cancelled.
+	 */
+	public <T> Mono<T> executeAsync(Supplier<Mono<T>> call) {
+		return Mono.defer(() -> {
+			long deadline = System.nanoTime() + properties.getAcquireTimeout().toNanos();
+			return Mono.fromSupplier(this::tryAcquire)
+					.filter(Boolean::booleanValue)
+					.repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> System.nanoTime() < deadline
+							? Mono.delay(ASYNC_ACQUIRE_RETRY_DELAY)
+							: Mono.error(reject())))
+					.flatMap(acquired -> {
+						long start = System.nanoTime();
+						AtomicBoolean failed = new AtomicBoolean();
+						return Mono.defer(call)
+								.doOnError(e -> failed.set(UpstreamErrors.isUpstreamFailure(e)))
+								.doFinally(signal -> release(start, failed.get()));
+					});
+		});
+	}
+
+	public int getInUse() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean tryAcquire() {
+		lock.lock();
+		try {
+			if (inFlight < (int) limit) {
+				inFlight++;
+				return true;
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void acquire() {
+		long remaining = properties.getAcquireTimeout().toNanos();
+		lock.lock();
+		try {
+			while (inFlight >= (int) limit) {
+				if (remaining <= 0) {
+					throw reject();
+				}
+				remaining = slotReleased.awaitNanos(remaining);
+			}
+			inFlight++;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw reject();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(long start, boolean failed) {
+		long elapsed = System.nanoTime() - start;
+		lock.lock();
+		try {
+			int previousLimit = (int) limit;
+			if (properties.isAdaptive()) {
+				if (failed || elapsed > properties.getLatencyThreshold().toNanos()) {
+					limit = Math.max(minLimit, limit * properties.getBackoffRatio());
+				} else if (inFlight * 2 >= limit) {
+					limit = Math.min(maxLimit, limit + 1 / limit);
+				}
+				if ((int) limit != previousLimit) {
+					log.debug("Upstream concurrency limit changed from {} to {} (last call {} ms, failed={})",
+							previousLimit, (int) limit, TimeUnit.NANOSECONDS.toMillis(elapsed), failed);
+				}
+			}
+			inFlight--;
+			slotReleased.signal();
+			if ((int) limit > previousLimit) {
+				slotReleased.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private WeatherException reject() {
+		rejected.increment();
+		log.warn("Rejecting upstream call, {} calls already in flight", getInUse());
+		return new WeatherException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent weather requests");
+	}
+}
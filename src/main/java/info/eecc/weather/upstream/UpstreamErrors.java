@@ -0,0 +1,42 @@
+package info.eecc.weather.upstream;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import info.eecc.weather.exception.WeatherException;
+
+/**
+ * Classifies errors of upstream calls for the blocking and the reactive client alike.
+ */
+final class UpstreamErrors {
+
+	private UpstreamErrors() {
+	}
+
+	/**
+	 * The HTTP status of an error response, or {@code null} if the call failed without a response (timeouts,
+	 * I/O errors, unreadable bodies).
+	 */
+	static HttpStatusCode statusOf(Throwable error) {
+		if (error instanceof RestClientResponseException responseException) {
+			return responseException.getStatusCode();
+		}
+		if (error instanceof WebClientResponseException responseException) {
+			return responseException.getStatusCode();
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the error means Open-Meteo is unhealthy or overloaded: timeouts, I/O errors and 5xx responses.
+	 * A 4xx response proves the upstream is answering, and our own 503 rejections never reached it.
+	 */
+	static boolean isUpstreamFailure(Throwable error) {
+		if (error instanceof WeatherException) {
+			return false;
+		}
+		HttpStatusCode status = statusOf(error);
+		return status == null || status.is5xxServerError();
+	}
+}
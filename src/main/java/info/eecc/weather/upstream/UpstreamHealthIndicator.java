@@ -0,0 +1,31 @@
+package info.eecc.weather.upstream;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reports the circuit breaker states as the {@code upstream} health component. Stays {@code UP} while a
+ * breaker is open: the service keeps answering from its caches, taking it out of rotation would not help.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamHealthIndicator implements HealthIndicator {
+
+	private final UpstreamCircuitBreakers circuitBreakers;
+
+	@Override
+	public Health health() {
+		Health.Builder health = Health.up();
+		for (CircuitBreaker breaker : circuitBreakers.all()) {
+			health.withDetail(breaker.getName(), Map.of(
+					"state", breaker.getState(),
+					"failureRate", breaker.getFailureRate()));
+		}
+		return health.build();
+	}
+}
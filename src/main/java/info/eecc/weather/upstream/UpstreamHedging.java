@@ -0,0 +1,181 @@
+package info.eecc.weather.upstream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import info.eecc.weather.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hedged requests for the single-location forecast and the geocoding API. If an attempt has not answered
+ * within the {@code percentile} of the latencies observed for its API (at least {@code min-delay}), one
+ * duplicate is sent and the first successful answer wins. Duplicates are capped by a {@link HedgeBudget} of
+ * {@code budget-percent} of all calls, and no hedging happens before {@code min-samples} latencies are known.
+ * <p>
+ * Every attempt passes the circuit breaker and the concurrency limiter on its own. Blocking attempts run on
+ * the {@code hedgeExecutor} and the losing one is left to finish: interrupting it would count as an upstream
+ * failure. Reactive losers are cancelled.
+ */
+@Component
+@Slf4j
+public class UpstreamHedging {
+
+	private final HedgingProperties properties;
+	private final ExecutorService executor;
+	private final MeterRegistry meterRegistry;
+	private final Map<String, LatencyTracker> trackers;
+	private final Map<String, HedgeBudget> budgets;
+
+	public UpstreamHedging(HedgingProperties properties, MeterRegistry meterRegistry,
+			@Qualifier("hedgeExecutor") ExecutorService executor) {
+		this.properties = properties;
+		this.executor = executor;
+		this.meterRegistry = meterRegistry;
+		this.trackers = Map.of(
+				UpstreamMetrics.FORECAST, new LatencyTracker(properties.getWindow()),
+				UpstreamMetrics.GEOCODING, new LatencyTracker(properties.getWindow()));
+		this.budgets = Map.of(
+				UpstreamMetrics.FORECAST, new HedgeBudget(properties.getBudgetPercent()),
+				UpstreamMetrics.GEOCODING, new HedgeBudget(properties.getBudgetPercent()));
+		trackers.keySet().forEach(endpoint -> TimeGauge.builder("weather.upstream.hedging.delay", this,
+				TimeUnit.NANOSECONDS, hedging -> {
+					Duration delay = hedging.hedgeDelay(endpoint);
+					return delay != null ? delay.toNanos() : Double.NaN;
+				})
+				.description("Time after which a duplicate request is sent, NaN while too few latencies are known")
+				.tag("endpoint", endpoint)
+				.register(meterRegistry));
+	}
+
+	public <T> T execute(String endpoint, Supplier<T> call) {
+		if (!properties.isEnabled()) {
+			return call.get();
+		}
+		budgets.get(endpoint).onCall();
+		Duration delay = hedgeDelay(endpoint);
+		if (delay == null) {
+			return timed(endpoint, call);
+		}
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+		HedgeRace<T> race = new HedgeRace<>(result::complete, result::completeExceptionally);
+		executor.execute(() -> attempt(endpoint, call, race, false));
+		try {
+			return result.get(delay.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			if (race.tryStartHedge(budgets.get(endpoint)::tryAcquire)) {
+				hedgeCounter(endpoint, "sent").increment();
+				log.debug("No {} response after {} ms, sending a hedged request", endpoint, delay.toMillis());
+				executor.execute(() -> attempt(endpoint, call, race, true));
+			}
+			return await(result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for " + endpoint + " response", e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Reactive variant of {@link #execute(String, Supplier)}. Cancelling the returned {@link Mono} cancels all
+	 * attempts.
+	 */
+	public <T> Mono<T> executeAsync(String endpoint, Supplier<Mono<T>> call) {
+		if (!properties.isEnabled()) {
+			return Mono.defer(call);
+		}
+		return Mono.create(sink -> {
+			budgets.get(endpoint).onCall();
+			Duration delay = hedgeDelay(endpoint);
+			Disposable.Composite attempts = Disposables.composite();
+			sink.onDispose(attempts);
+			HedgeRace<T> race = new HedgeRace<>(sink::success, sink::error);
+			attempts.add(attemptAsync(endpoint, call, race, false));
+			if (delay != null) {
+				attempts.add(Mono.delay(delay).subscribe(tick -> {
+					if (race.tryStartHedge(budgets.get(endpoint)::tryAcquire)) {
+						hedgeCounter(endpoint, "sent").increment();
+						log.debug("No {} response after {} ms, sending a hedged request", endpoint, delay.toMillis());
+						attempts.add(attemptAsync(endpoint, call, race, true));
+					}
+				}));
+			}
+		});
+	}
+
+	Duration hedgeDelay(String endpoint) {
+		Duration percentile = trackers.get(endpoint).percentile(properties.getPercentile(), properties.getMinSamples());
+		if (percentile == null) {
+			return null;
+		}
+		return percentile.compareTo(properties.getMinDelay()) < 0 ? properties.getMinDelay() : percentile;
+	}
+
+	private <T> void attempt(String endpoint, Supplier<T> call, HedgeRace<T> race, boolean hedge) {
+		try {
+			T value = timed(endpoint, call);
+			if (race.success(value) && hedge) {
+				hedgeCounter(endpoint, "won").increment();
+			}
+		} catch (RuntimeException e) {
+			race.failure(e);
+		}
+	}
+
+	private <T> Disposable attemptAsync(String endpoint, Supplier<Mono<T>> call, HedgeRace<T> race, boolean hedge) {
+		long start = System.nanoTime();
+		return Mono.defer(call).subscribe(value -> {
+			trackers.get(endpoint).record(System.nanoTime() - start);
+			if (race.success(value) && hedge) {
+				hedgeCounter(endpoint, "won").increment();
+			}
+		}, race::failure, () -> race.success(null));
+	}
+
+	private <T> T timed(String endpoint, Supplier<T> call) {
+		long start = System.nanoTime();
+		T value = call.get();
+		trackers.get(endpoint).record(System.nanoTime() - start);
+		return value;
+	}
+
+	private Counter hedgeCounter(String endpoint, String result) {
+		return Counter.builder("weather.upstream.hedges")
+				.description("Hedged requests sent, and how many of them answered first")
+				.tag("endpoint", endpoint)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	private static <T> T await(CompletableFuture<T> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for upstream response", e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private static RuntimeException unwrap(ExecutionException e) {
+		return e.getCause() instanceof RuntimeException runtimeException ? runtimeException
+				: new IllegalStateException(e.getCause());
+	}
+}
@@ -0,0 +1,89 @@
+package info.eecc.weather.upstream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times every Open-Meteo call as {@code weather.upstream.requests}, tagged with the called endpoint, the
+ * outcome and the HTTP status. Unlike Spring's {@code http.client.requests} the tags do not contain the
+ * request URL, so coordinates do not blow up the number of series.
+ */
+@Component
+public class UpstreamMetrics {
+
+	static final String FORECAST = "forecast";
+	static final String FORECAST_BATCH = "forecast_batch";
+	static final String GEOCODING = "geocoding";
+
+	private static final String SUCCESS_STATUS = "2xx";
+	/** The call failed without an HTTP response, e.g. connect/read timeouts or unreadable bodies. */
+	private static final String NO_STATUS = "NONE";
+
+	private final MeterRegistry meterRegistry;
+
+	public UpstreamMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	public <T> T record(String endpoint, Supplier<T> call) {
+		long start = System.nanoTime();
+		try {
+			T result = call.get();
+			stop(endpoint, start, null);
+			return result;
+		} catch (RuntimeException e) {
+			stop(endpoint, start, e);
+			throw e;
+		}
+	}
+
+	public <T> Mono<T> recordAsync(String endpoint, Supplier<Mono<T>> call) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return Mono.defer(call)
+					.doOnSuccess(result -> stop(endpoint, start, null))
+					.doOnError(e -> stop(endpoint, start, e))
+					.doFinally(signal -> {
+						if (signal == SignalType.CANCEL) {
+							timer(endpoint, "CANCELLED", NO_STATUS).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+						}
+					});
+		});
+	}
+
+	private void stop(String endpoint, long start, Throwable error) {
+		String status = statusOf(error);
+		String outcome = error == null ? Outcome.SUCCESS.name()
+				: status.equals(NO_STATUS) ? Outcome.UNKNOWN.name()
+						: Outcome.forStatus(Integer.parseInt(status)).name();
+		timer(endpoint, outcome, status).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private Timer timer(String endpoint, String outcome, String status) {
+		return Timer.builder("weather.upstream.requests")
+				.description("Calls to the Open-Meteo APIs")
+				.tag("endpoint", endpoint)
+				.tag("outcome", outcome)
+				.tag("status", status)
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
+	private static String statusOf(Throwable error) {
+		if (error == null) {
+			return SUCCESS_STATUS;
+		}
+		HttpStatusCode status = UpstreamErrors.statusOf(error);
+		return status != null ? String.valueOf(status.value()) : NO_STATUS;
+	}
+}
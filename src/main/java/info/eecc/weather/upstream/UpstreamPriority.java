@@ -0,0 +1,38 @@
+package info.eecc.weather.upstream;
+
+import java.util.function.Supplier;
+
+/**
+ * Importance of an upstream call when the {@link UpstreamBudget} runs low. Calls made by the current thread
+ * are {@link #INTERACTIVE} unless they run inside {@link #call(Supplier)} of another priority.
+ */
+public enum UpstreamPriority {
+
+	/** A client is waiting for the answer. */
+	INTERACTIVE,
+
+	/** Part of a batch request, served after interactive calls. */
+	BATCH,
+
+	/** Refreshes a cached entry that can still be served stale, dropped first. */
+	BACKGROUND;
+
+	private static final ThreadLocal<UpstreamPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+	public static UpstreamPriority current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Runs {@code work} with upstream calls of the current thread made at this priority.
+	 */
+	public <T> T call(Supplier<T> work) {
+		UpstreamPriority previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return work.get();
+		} finally {
+			CURRENT.set(previous);
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package info.eecc.weather.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process stand-in for a Redis server speaking RESP2, implementing just the commands the shared cache sends:
+ * {@code PING}, {@code GET}, {@code MGET}, {@code SET} (with {@code EX}/{@code PX} and {@code NX}), {@code DEL},
+ * {@code PUBLISH}, {@code SUBSCRIBE} and {@code UNSUBSCRIBE}. Lua is not available: {@code EVALSHA} always
+ * asks for the script, and {@code EVAL} only understands the compare-and-delete script releasing load locks.
+ * Handshake commands such as {@code HELLO} are rejected, so clients fall back to RESP2. Listens on the loopback
+ * interface.
+ */
+@Slf4j
+public class EmbeddedRespServer implements Closeable {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final ServerSocket serverSocket;
+
+    /** Values and their expiry (epoch millis, {@code 0} for none), guarded by {@code values}. */
+    private final Map<String, byte[]> values = new HashMap<>();
+    private final Map<String, Long> expiries = new HashMap<>();
+
+    /** Output streams of subscribed connections by channel; writes are synchronized on the stream. */
+    private final Map<String, Set<OutputStream>> subscribers = new ConcurrentHashMap<>();
+
+    /** Open client connections, guarded by itself together with {@code closed}. */
+    private final Set<Socket> connections = new HashSet<>();
+    private boolean closed;
+
+    /**
+     * @param port port to listen on, {@code 0} for any free port
+     */
+    public EmbeddedRespServer(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread.ofVirtual().name("embedded-resp-server").start(this::accept);
+        log.info("Embedded Redis-protocol server listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<Socket> open;
+        synchronized (connections) {
+            closed = true;
+            open = List.copyOf(connections);
+        }
+        // The listening socket may still complete a pending accept, such connections are closed in accept()
+        serverSocket.close();
+        for (Socket connection : open) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket connection = serverSocket.accept();
+                synchronized (connections) {
+                    if (closed) {
+                        connection.close();
+                        return;
+                    }
+                    connections.add(connection);
+                }
+                Thread.ofVirtual().start(() -> serve(connection));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Embedded Redis-protocol server stopped accepting connections: {}", e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        OutputStream out = null;
+        try (connection) {
+            InputStream in = new BufferedInputStream(connection.getInputStream());
+            out = new BufferedOutputStream(connection.getOutputStream());
+            while (true) {
+                Object request = readCommand(in);
+                synchronized (out) {
+                    if (request instanceof List<?> command && !command.isEmpty()) {
+                        handle(command, out);
+                    } else {
+                        error(out, "ERR expected a command array");
+                    }
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Client disconnected
+        } finally {
+            synchronized (connections) {
+                connections.remove(connection);
+            }
+            if (out != null) {
+                for (Set<OutputStream> channelSubscribers : subscribers.values()) {
+                    channelSubscribers.remove(out);
+                }
+            }
+        }
+    }
+
+    private void handle(List<?> command, OutputStream out) throws IOException {
+        String name = string(command.get(0)).toUpperCase(Locale.ROOT);
+        if (command.size() < arity(name)) {
+            error(out, "ERR wrong number of arguments for '" + name + "'");
+            return;
+        }
+        switch (name) {
+            case "PING" -> simple(out, "PONG");
+            case "GET" -> writeBulk(out, get(string(command.get(1))));
+            case "SET" -> {
+                boolean stored = set(command);
+                if (stored) {
+                    simple(out, "OK");
+                } else {
+                    writeBulk(out, null);
+                }
+            }
+            case "MGET" -> {
+                out.write(bytes("*" + (command.size() - 1) + "\r\n"));
+                for (int i = 1; i < command.size(); i++) {
+                    writeBulk(out, get(string(command.get(i))));
+                }
+            }
+            case "DEL" -> integer(out, delete(command));
+            case "EVAL" -> integer(out, compareAndDelete(command));
+            case "EVALSHA" -> error(out, "NOSCRIPT No matching script. Please use EVAL.");
+            case "CLIENT" -> simple(out, "OK");
+            case "PUBLISH" -> integer(out, publish(string(command.get(1)), (byte[]) command.get(2)));
+            case "SUBSCRIBE" -> {
+                String channel = string(command.get(1));
+                subscribers.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet()).add(out);
+                out.write(bytes("*3\r\n"));
+                writeBulk(out, bytes("subscribe"));
+                writeBulk(out, bytes(channel));
+                integer(out, 1);
+            }
+            case "UNSUBSCRIBE" -> {
+                List<String> channels = new ArrayList<>();
+                for (int i = 1; i < command.size(); i++) {
+                    channels.add(string(command.get(i)));
+                }
+                if (channels.isEmpty()) {
+                    channels.addAll(subscribers.keySet());
+                }
+                for (String channel : channels) {
+                    subscribers.getOrDefault(channel, Set.of()).remove(out);
+                    out.write(bytes("*3\r\n"));
+                    writeBulk(out, bytes("unsubscribe"));
+                    writeBulk(out, bytes(channel));
+                    integer(out, 0);
+                }
+            }
+            default -> error(out, "ERR unknown command '" + name + "'");
+        }
+    }
+
+    private static int arity(String command) {
+        return switch (command) {
+            case "GET", "MGET", "DEL", "SUBSCRIBE" -> 2;
+            case "SET", "PUBLISH" -> 3;
+            case "EVAL" -> 5;
+            default -> 1;
+        };
+    }
+
+    private byte[] get(String key) {
+        synchronized (values) {
+            return isExpired(key) ? null : values.get(key);
+        }
+    }
+
+    /**
+     * {@code SET key value [EX seconds | PX millis] [NX]}
+     */
+    private boolean set(List<?> command) {
+        String key = string(command.get(1));
+        byte[] value = (byte[]) command.get(2);
+        long expiresAt = 0;
+        boolean onlyIfAbsent = false;
+        for (int i = 3; i < command.size(); i++) {
+            String option = string(command.get(i)).toUpperCase(Locale.ROOT);
+            if (option.equals("PX") && i + 1 < command.size()) {
+                expiresAt = System.currentTimeMillis() + Long.parseLong(string(command.get(++i)));
+            } else if (option.equals("EX") && i + 1 < command.size()) {
+                expiresAt = System.currentTimeMillis() + 1000 * Long.parseLong(string(command.get(++i)));
+            } else if (option.equals("NX")) {
+                onlyIfAbsent = true;
+            }
+        }
+        synchronized (values) {
+            if (onlyIfAbsent && !isExpired(key) && values.containsKey(key)) {
+                return false;
+            }
+            values.put(key, value);
+            expiries.put(key, expiresAt);
+            return true;
+        }
+    }
+
+    private long delete(List<?> command) {
+        long deleted = 0;
+        synchronized (values) {
+            for (int i = 1; i < command.size(); i++) {
+                String key = string(command.get(i));
+                if (!isExpired(key) && values.remove(key) != null) {
+                    deleted++;
+                }
+                expiries.remove(key);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * {@code EVAL script 1 key value}: deletes the key if it holds the value, whatever the script says.
+     */
+    private long compareAndDelete(List<?> command) {
+        String key = string(command.get(3));
+        synchronized (values) {
+            if (isExpired(key) || !Arrays.equals(values.get(key), (byte[]) command.get(4))) {
+                return 0;
+            }
+            values.remove(key);
+            expiries.remove(key);
+            return 1;
+        }
+    }
+
+    private long publish(String channel, byte[] message) {
+        Set<OutputStream> channelSubscribers = subscribers.getOrDefault(channel, Set.of());
+        long delivered = 0;
+        for (OutputStream subscriber : channelSubscribers) {
+            try {
+                synchronized (subscriber) {
+                    subscriber.write(bytes("*3\r\n"));
+                    writeBulk(subscriber, bytes("message"));
+                    writeBulk(subscriber, bytes(channel));
+                    writeBulk(subscriber, message);
+                    subscriber.flush();
+                }
+                delivered++;
+            } catch (IOException e) {
+                channelSubscribers.remove(subscriber);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Removes the value if its expiry has passed. Must hold the lock on {@code values}.
+     */
+    private boolean isExpired(String key) {
+        Long expiresAt = expiries.get(key);
+        if (expiresAt == null || expiresAt == 0 || expiresAt > System.currentTimeMillis()) {
+            return false;
+        }
+        values.remove(key);
+        expiries.remove(key);
+        return true;
+    }
+
+    private static String string(Object value) {
+        return new String((byte[]) value, StandardCharsets.UTF_8);
+    }
+
+    private static void simple(OutputStream out, String value) throws IOException {
+        out.write(bytes("+" + value + "\r\n"));
+    }
+
+    private static void integer(OutputStream out, long value) throws IOException {
+        out.write(bytes(":" + value + "\r\n"));
+    }
+
+    private static void error(OutputStream out, String message) throws IOException {
+        out.write(bytes("-" + message + "\r\n"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(bytes("$-1"));
+            out.write(CRLF);
+            return;
+        }
+        out.write('$');
+        out.write(bytes(Integer.toString(value.length)));
+        out.write(CRLF);
+        out.write(value);
+        out.write(CRLF);
+    }
+
+    /**
+     * Reads a command, an array of bulk strings.
+     */
+    private static Object readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException("Connection closed by client");
+        }
+        String line = readLine(in);
+        return switch (type) {
+            case '$' -> readBulk(in, Integer.parseInt(line));
+            case '*' -> {
+                int count = Integer.parseInt(line);
+                List<Object> elements = new ArrayList<>(Math.max(count, 0));
+                for (int i = 0; i < count; i++) {
+                    elements.add(readCommand(in));
+                }
+                yield elements;
+            }
+            default -> line;
+        };
+    }
+
+    private static byte[] readBulk(InputStream in, int length) throws IOException {
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = in.readNBytes(length);
+        if (value.length < length || in.read() != '\r' || in.read() != '\n') {
+            throw new EOFException("Truncated bulk string");
+        }
+        return value;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException("Connection closed by client");
+            }
+            line.write(b);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("Malformed line ending");
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,216 @@
+package info.eecc.weather.cache;
+
+import info.eecc.weather.config.SharedCacheProperties;
+import info.eecc.weather.config.WeatherCacheProperties;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Shared Weather Cache Tests")
+class SharedWeatherCacheTest {
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final GridKey key = new GridKey(5252, 1340);
+
+    private EmbeddedRespServer server;
+
+    private WeatherCache firstCache;
+
+    private WeatherCache secondCache;
+
+    private SharedWeatherCache first;
+
+    private SharedWeatherCache second;
+
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new EmbeddedRespServer(0);
+        firstCache = new WeatherCache(new WeatherCacheProperties(), clock);
+        secondCache = new WeatherCache(new WeatherCacheProperties(), clock);
+        first = instance(server.getPort(), firstCache);
+        second = instance(server.getPort(), secondCache);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Should serve an entry stored by another instance and keep it locally")
+    void get_WithEntryOfOtherInstance_ShouldReturnAndStoreIt() {
+        // Given
+        CachedWeather stored = firstCache.put(key, weather(21.5), null, 0);
+        first.put(key, stored);
+
+        // When
+        CachedWeather shared = second.get(key);
+
+        // Then
+        assertThat(shared).isNotNull();
+        assertThat(shared.getWeather().getTemperature()).isEqualTo(21.5);
+        assertThat(shared.getExpiresAt()).isEqualTo(stored.getExpiresAt().truncatedTo(ChronoUnit.MILLIS));
+        assertThat(secondCache.getIfFresh(key)).isSameAs(shared);
+    }
+
+    @Test
+    @DisplayName("Should look up several cells at once and keep the found entries locally")
+    void getAll_WithSomeSharedCells_ShouldReturnFoundEntries() {
+        // Given
+        GridKey other = new GridKey(4814, 1158);
+        first.put(key, firstCache.put(key, weather(21.5), null, 0));
+
+        // When
+        Map<GridKey, CachedWeather> shared = second.getAll(List.of(key, other));
+
+        // Then
+        assertThat(shared).containsOnlyKeys(key);
+        assertThat(shared.get(key).getWeather().getTemperature()).isEqualTo(21.5);
+        assertThat(secondCache.getIfFresh(key)).isSameAs(shared.get(key));
+    }
+
+    @Test
+    @DisplayName("Should drop the local entry when another instance stores a newer one")
+    void put_WithLocalEntryOnOtherInstance_ShouldInvalidateIt() throws InterruptedException {
+        // Given
+        Instant earlier = clock.instant().minusSeconds(60);
+        secondCache.store(key, new CachedWeather(weather(18.0), earlier, earlier.plusSeconds(120),
+                earlier.plusSeconds(180)));
+        CachedWeather newer = firstCache.put(key, weather(21.5), null, 0);
+
+        // When: the subscription is set up asynchronously, so publish until it arrives
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (secondCache.getIfFresh(key) != null && System.nanoTime() < deadline) {
+            first.put(key, newer);
+            Thread.sleep(20);
+        }
+
+        // Then
+        assertThat(secondCache.getIfFresh(key)).isNull();
+        assertThat(firstCache.getIfFresh(key)).isSameAs(newer);
+        assertThat(second.get(key).getWeather().getTemperature()).isEqualTo(21.5);
+    }
+
+    @Test
+    @DisplayName("Should call the loader in one instance only when both load the same cell")
+    void load_ConcurrentlyOnTwoInstances_ShouldLoadOnce() throws Exception {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        Supplier<CachedWeather> slowLoader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            sleep(200);
+            return firstCache.put(key, weather(21.5), null, 0);
+        };
+
+        // When
+        CompletableFuture<CachedWeather> leader = CompletableFuture.supplyAsync(() -> first.load(key, slowLoader));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CachedWeather follower = second.load(key, () -> {
+            loads.incrementAndGet();
+            return secondCache.put(key, weather(0.0), null, 0);
+        });
+
+        // Then
+        assertThat(leader.get(5, TimeUnit.SECONDS).getWeather().getTemperature()).isEqualTo(21.5);
+        assertThat(follower.getWeather().getTemperature()).isEqualTo(21.5);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should not release a lock another instance took over after it expired")
+    void load_WithLockTakenOver_ShouldKeepOtherLock() {
+        // Given
+        StringRedisTemplate redis = new StringRedisTemplate(connectionFactories.get(0));
+        String lockKey = "weather:current:0.01:5252:1340:lock";
+
+        // When
+        first.load(key, () -> {
+            redis.opsForValue().set(lockKey, "other-instance");
+            return firstCache.put(key, weather(21.5), null, 0);
+        });
+
+        // Then
+        assertThat(redis.opsForValue().get(lockKey)).isEqualTo("other-instance");
+    }
+
+    @Test
+    @DisplayName("Should fall back to the loader when the server is unreachable")
+    void load_WithServerDown_ShouldCallLoader() throws IOException {
+        // Given
+        server.close();
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        CachedWeather loaded = first.load(key, () -> {
+            loads.incrementAndGet();
+            return firstCache.put(key, weather(21.5), null, 0);
+        });
+
+        // Then
+        assertThat(loaded.getWeather().getTemperature()).isEqualTo(21.5);
+        assertThat(loads).hasValue(1);
+        assertThat(first.get(key)).isNull();
+    }
+
+    private SharedWeatherCache instance(int port, WeatherCache weatherCache) {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", port),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofMillis(500)).build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        connectionFactories.add(connectionFactory);
+        SharedCacheProperties properties = new SharedCacheProperties();
+        properties.setEnabled(true);
+        properties.setLockWait(Duration.ofSeconds(5));
+        SharedWeatherCache sharedCache = new SharedWeatherCache(properties, weatherCache, clock, connectionFactory);
+        sharedCache.start();
+        return sharedCache;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CurrentWeatherDto weather(double temperature) {
+        return CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.40)
+                .temperature(temperature)
+                .timestamp("2024-01-15T14:30")
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package info.eecc.weather.cache;
+
+import info.eecc.weather.config.CacheSnapshotProperties;
+import info.eecc.weather.config.WeatherCacheProperties;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Weather Cache Snapshot Tests")
+class WeatherCacheSnapshotTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-15T14:35:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    private Path tempDir;
+
+    private CacheSnapshotProperties properties;
+
+    private WeatherCacheProperties cacheProperties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CacheSnapshotProperties();
+        properties.setPath(tempDir.resolve("snapshot").resolve("weather-cache.dat"));
+        cacheProperties = new WeatherCacheProperties();
+    }
+
+    @Test
+    @DisplayName("Should restore usable entries in their previous eviction order")
+    void restore_AfterRestart_ShouldContainUsableEntries() {
+        // Given
+        WeatherCache cache = new WeatherCache(cacheProperties, CLOCK);
+        GridKey berlin = cache.keyFor(52.52, 13.405);
+        GridKey munich = cache.keyFor(48.137, 11.575);
+        GridKey hamburg = cache.keyFor(53.55, 9.99);
+        cache.put(berlin, weather(22.5), "2024-01-15T14:30", 900);
+        cache.put(munich, weather(18.0), "2024-01-15T14:30", 900);
+        cache.store(hamburg, new CachedWeather(weather(10.0), Instant.parse("2024-01-15T13:00:00Z"),
+                Instant.parse("2024-01-15T13:15:00Z"), Instant.parse("2024-01-15T13:17:00Z")));
+        cache.getIfUsable(berlin);
+        new WeatherCacheSnapshot(properties, cache, CLOCK).write();
+
+        // When
+        WeatherCache restarted = new WeatherCache(cacheProperties, CLOCK);
+        WeatherCacheSnapshot snapshot = new WeatherCacheSnapshot(properties, restarted, CLOCK);
+        snapshot.restore();
+
+        // Then
+        assertThat(snapshot.getRestored()).isEqualTo(2);
+        assertThat(restarted.entries()).extracting(entry -> entry.getKey()).containsExactly(munich, berlin);
+        CachedWeather cached = restarted.getIfFresh(berlin);
+        assertThat(cached.getWeather().getTemperature()).isEqualTo(22.5);
+        assertThat(cached.getExpiresAt()).isEqualTo(Instant.parse("2024-01-15T14:45:00Z"));
+        assertThat(cached.getETag()).isEqualTo(cache.getIfFresh(berlin).getETag());
+    }
+
+    @Test
+    @DisplayName("Should ignore a snapshot written for another grid size")
+    void restore_WithOtherGridSize_ShouldSkipEntries() {
+        // Given
+        WeatherCache cache = new WeatherCache(cacheProperties, CLOCK);
+        cache.put(cache.keyFor(52.52, 13.405), weather(22.5), "2024-01-15T14:30", 900);
+        new WeatherCacheSnapshot(properties, cache, CLOCK).write();
+        cacheProperties.setGridSize(0.05);
+
+        // When
+        WeatherCache restarted = new WeatherCache(cacheProperties, CLOCK);
+        new WeatherCacheSnapshot(properties, restarted, CLOCK).restore();
+
+        // Then
+        assertThat(restarted.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep the entries before an incomplete last record")
+    void restore_WithTruncatedSnapshot_ShouldKeepCompleteRecords() throws IOException {
+        // Given
+        WeatherCache cache = new WeatherCache(cacheProperties, CLOCK);
+        cache.put(cache.keyFor(52.52, 13.405), weather(22.5), "2024-01-15T14:30", 900);
+        cache.put(cache.keyFor(48.137, 11.575), weather(18.0), "2024-01-15T14:30", 900);
+        new WeatherCacheSnapshot(properties, cache, CLOCK).write();
+        byte[] bytes = Files.readAllBytes(properties.getPath());
+        Files.write(properties.getPath(), Arrays.copyOf(bytes, bytes.length - 5));
+
+        // When
+        WeatherCache restarted = new WeatherCache(cacheProperties, CLOCK);
+        WeatherCacheSnapshot snapshot = new WeatherCacheSnapshot(properties, restarted, CLOCK);
+        snapshot.restore();
+
+        // Then
+        assertThat(snapshot.getRestored()).isEqualTo(1);
+        assertThat(restarted.getIfFresh(restarted.keyFor(52.52, 13.405))).isNotNull();
+    }
+
+    private static CurrentWeatherDto weather(double temperature) {
+        return CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.40)
+                .location("52.5200, 13.4000")
+                .temperature(temperature)
+                .temperatureUnit("°C")
+                .timestamp("2024-01-15T14:30")
+                .build();
+    }
+}
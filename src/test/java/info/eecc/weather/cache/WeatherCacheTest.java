@@ -0,0 +1,200 @@
+package info.eecc.weather.cache;
+
+import info.eecc.weather.config.WeatherCacheProperties;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Weather Cache Tests")
+class WeatherCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T14:35:00Z");
+
+    private WeatherCacheProperties properties;
+
+    private Clock clock;
+
+    private WeatherCache weatherCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherCacheProperties();
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        weatherCache = new WeatherCache(properties, clock);
+    }
+
+    @Test
+    @DisplayName("Should snap coordinates within a grid cell to the same key")
+    void keyFor_WithinSameCell_ShouldReturnSameKey() {
+        GridKey key = weatherCache.keyFor(52.5201, 13.4049);
+
+        assertThat(weatherCache.keyFor(52.5198, 13.4032)).isEqualTo(key);
+        assertThat(weatherCache.keyFor(52.5302, 13.4049)).isNotEqualTo(key);
+        assertThat(key.latitude(properties.getGridSize())).isEqualTo(52.52);
+        assertThat(key.longitude(properties.getGridSize())).isEqualTo(13.40);
+    }
+
+    @Test
+    @DisplayName("Should expire entries when the upstream interval elapses")
+    void getIfFresh_AfterUpstreamInterval_ShouldReturnNull() {
+        GridKey key = weatherCache.keyFor(52.52, 13.405);
+        CachedWeather cached = weatherCache.put(key, weather(), "2024-01-15T14:30", 900);
+
+        assertThat(cached.getExpiresAt()).isEqualTo(Instant.parse("2024-01-15T14:45:00Z"));
+        assertThat(weatherCache.getIfFresh(key)).isSameAs(cached);
+
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-15T14:45:00Z"));
+        assertThat(weatherCache.getIfFresh(key)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should fall back to the configured TTL for missing or outdated upstream times")
+    void computeExpiry_WithUnusableUpstreamTime_ShouldUseFallbackTtl() {
+        Instant fallback = NOW.plus(properties.getFallbackTtl());
+
+        assertThat(weatherCache.computeExpiry(NOW, null, 900)).isEqualTo(fallback);
+        assertThat(weatherCache.computeExpiry(NOW, "not-a-time", 900)).isEqualTo(fallback);
+        assertThat(weatherCache.computeExpiry(NOW, "2024-01-15T14:30", 0)).isEqualTo(fallback);
+        assertThat(weatherCache.computeExpiry(NOW, "2024-01-15T14:00", 900)).isEqualTo(fallback);
+    }
+
+    @Test
+    @DisplayName("Should cap the expiry at the configured maximum TTL")
+    void computeExpiry_WithLongInterval_ShouldBeCapped() {
+        properties.setMaxTtl(Duration.ofMinutes(5));
+
+        assertThat(weatherCache.computeExpiry(NOW, "2024-01-15T14:30:00Z", 3600))
+                .isEqualTo(NOW.plus(Duration.ofMinutes(5)));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used cell when full")
+    void put_WhenFull_ShouldEvictLeastRecentlyUsed() {
+        properties.setMaxEntries(2);
+        GridKey berlin = weatherCache.keyFor(52.52, 13.405);
+        GridKey munich = weatherCache.keyFor(48.137, 11.575);
+        GridKey hamburg = weatherCache.keyFor(53.551, 9.993);
+
+        weatherCache.put(berlin, weather(), "2024-01-15T14:30", 900);
+        weatherCache.put(munich, weather(), "2024-01-15T14:30", 900);
+        weatherCache.getIfFresh(berlin);
+        weatherCache.put(hamburg, weather(), "2024-01-15T14:30", 900);
+
+        assertThat(weatherCache.size()).isEqualTo(2);
+        assertThat(weatherCache.getIfFresh(berlin)).isNotNull();
+        assertThat(weatherCache.getIfFresh(munich)).isNull();
+        assertThat(weatherCache.getIfFresh(hamburg)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should keep serving expired entries within the staleness bound")
+    void getIfUsable_AfterExpiry_ShouldServeStaleWithinBound() {
+        GridKey key = weatherCache.keyFor(52.52, 13.405);
+        CachedWeather cached = weatherCache.put(key, weather(), "2024-01-15T14:30", 900);
+
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-15T14:46:00Z"));
+        assertThat(weatherCache.getIfFresh(key)).isNull();
+        assertThat(weatherCache.getIfUsable(key)).isSameAs(cached);
+        assertThat(cached.isServedStale()).isTrue();
+
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-15T14:47:00Z"));
+        assertThat(weatherCache.getIfUsable(key)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should only report expired hot or stale-served entries as due for refresh")
+    void dueForRefresh_WithHotAndColdEntries_ShouldReturnHotOnes() {
+        GridKey hot = weatherCache.keyFor(52.52, 13.405);
+        GridKey cold = weatherCache.keyFor(48.137, 11.575);
+        weatherCache.put(hot, weather(), "2024-01-15T14:30", 900);
+        weatherCache.put(cold, weather(), "2024-01-15T14:30", 900);
+        weatherCache.getIfUsable(hot);
+        weatherCache.getIfUsable(hot);
+        weatherCache.getIfUsable(cold);
+
+        assertThat(weatherCache.dueForRefresh(2, Duration.ZERO)).isEmpty();
+
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-15T14:45:00Z"));
+        assertThat(weatherCache.dueForRefresh(2, Duration.ZERO)).containsExactly(hot);
+    }
+
+    @Test
+    @DisplayName("Should spread refreshes of cells expiring together over the spread window")
+    void spreadOffset_ForManyCells_ShouldCoverTheWindow() {
+        Duration spread = Duration.ofSeconds(20);
+        long distinctSeconds = IntStream.range(0, 200)
+                .mapToObj(i -> WeatherCache.spreadOffset(new GridKey(5252 + i, 1340), spread))
+                .peek(offset -> assertThat(offset).isBetween(Duration.ZERO, spread))
+                .map(Duration::toSeconds)
+                .distinct()
+                .count();
+
+        assertThat(distinctSeconds).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Should serve empty cells from the nearest observation within the nearby distance")
+    void getIfUsable_WithNearbyObservation_ShouldServeNeighbour() {
+        properties.setNearbyDistanceKm(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        weatherCache.bindTo(registry);
+        CachedWeather cached = weatherCache.put(weatherCache.keyFor(52.52, 13.405), weather(), "2024-01-15T14:30", 900);
+
+        // ~1.9 km away, two cells north and east
+        assertThat(weatherCache.getIfUsable(weatherCache.keyFor(52.535, 13.42), 52.535, 13.42)).isSameAs(cached);
+        // ~2.2 km away
+        assertThat(weatherCache.getIfUsable(weatherCache.keyFor(52.54, 13.405), 52.54, 13.405)).isNull();
+        // Without coordinates only the own cell is looked at
+        assertThat(weatherCache.getIfUsable(weatherCache.keyFor(52.535, 13.42))).isNull();
+
+        properties.setNearbyDistanceKm(0);
+        assertThat(weatherCache.getIfUsable(weatherCache.keyFor(52.535, 13.42), 52.535, 13.42)).isNull();
+
+        assertThat(cached.getHits()).isEqualTo(1);
+        assertThat(registry.get("weather.cache.gets").tag("result", "nearby").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("weather.cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should publish hit, stale, miss and eviction counts")
+    void bindTo_AfterLookups_ShouldCountResults() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        weatherCache.bindTo(registry);
+        properties.setMaxEntries(1);
+        GridKey berlin = weatherCache.keyFor(52.52, 13.405);
+        GridKey munich = weatherCache.keyFor(48.137, 11.575);
+
+        weatherCache.getIfUsable(berlin);
+        weatherCache.put(berlin, weather(), "2024-01-15T14:30", 900);
+        weatherCache.getIfUsable(berlin);
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-15T14:46:00Z"));
+        weatherCache.getIfUsable(berlin);
+        weatherCache.put(munich, weather(), "2024-01-15T14:30", 900);
+
+        assertThat(registry.get("weather.cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("weather.cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("weather.cache.gets").tag("result", "stale").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("weather.cache.evictions").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("weather.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    private CurrentWeatherDto weather() {
+        return CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.405)
+                .temperature(22.5)
+                .timestamp("2024-01-15T14:30")
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package info.eecc.weather.controller;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Adds the response builder of the current weather endpoint, with a fixed clock, to the controller slices.
+ */
+@TestConfiguration
+@Import(CurrentWeatherResponses.class)
+class CurrentWeatherResponsesTestConfig {
+
+    static final Instant NOW = Instant.parse("2024-01-15T14:35:00Z");
+
+    @Bean
+    Clock clock() {
+        return Clock.fixed(NOW, ZoneOffset.UTC);
+    }
+}
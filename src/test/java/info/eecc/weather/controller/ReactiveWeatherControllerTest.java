@@ -0,0 +1,179 @@
+package info.eecc.weather.controller;
+
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.WireFormat;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.geocoding.LocationSuggester;
+import info.eecc.weather.service.BatchWeatherService;
+import info.eecc.weather.service.ForecastService;
+import info.eecc.weather.service.HistoryService;
+import info.eecc.weather.service.ReactiveWeatherService;
+import info.eecc.weather.subscription.WeatherSubscriptionHub;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveWeatherController.class)
+@Import(CurrentWeatherResponsesTestConfig.class)
+@DisplayName("Reactive Weather Controller Tests")
+class ReactiveWeatherControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReactiveWeatherService weatherService;
+
+    @MockitoBean
+    private BatchWeatherService batchWeatherService;
+
+    @MockitoBean
+    private LocationSuggester locationSuggester;
+
+    @MockitoBean
+    private ForecastService forecastService;
+
+    @MockitoBean
+    private HistoryService historyService;
+
+    @MockitoBean
+    private WeatherSubscriptionHub subscriptionHub;
+
+    @Test
+    @DisplayName("Should return weather data when valid coordinates are provided")
+    void getCurrentWeather_WithValidCoordinates_ShouldReturnWeatherData() {
+        // Given
+        CurrentWeatherDto weather = CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.405)
+                .temperature(22.5)
+                .build();
+        CachedWeather cached = new CachedWeather(weather, CurrentWeatherResponsesTestConfig.NOW,
+                CurrentWeatherResponsesTestConfig.NOW.plus(Duration.ofMinutes(10)),
+                CurrentWeatherResponsesTestConfig.NOW.plus(Duration.ofMinutes(12)));
+        when(weatherService.getCachedWeather(52.52, 13.405)).thenReturn(Mono.just(cached));
+
+        // When & Then
+        webTestClient.get().uri("/api/weather/current?latitude=52.52&longitude=13.405")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, cached.getETag())
+                .expectBody()
+                .jsonPath("$.temperature").isEqualTo(22.5);
+        webTestClient.get().uri("/api/weather/current?latitude=52.52&longitude=13.405")
+                .header(HttpHeaders.IF_NONE_MATCH, cached.getETag())
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    @DisplayName("Should encode the weather as CBOR when the client accepts it")
+    void getCurrentWeather_WithCborAccepted_ShouldReturnCbor() throws Exception {
+        // Given
+        CurrentWeatherDto weather = CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.405)
+                .temperature(22.5)
+                .build();
+        CachedWeather cached = new CachedWeather(weather, CurrentWeatherResponsesTestConfig.NOW,
+                CurrentWeatherResponsesTestConfig.NOW.plus(Duration.ofMinutes(10)),
+                CurrentWeatherResponsesTestConfig.NOW.plus(Duration.ofMinutes(12)));
+        when(weatherService.getCachedWeather(52.52, 13.405)).thenReturn(Mono.just(cached));
+
+        // When
+        byte[] body = webTestClient.get().uri("/api/weather/current?latitude=52.52&longitude=13.405")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, cached.getETag(WireFormat.CBOR))
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        // Then
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(body).get("temperature").asDouble()).isEqualTo(22.5);
+    }
+
+    @Test
+    @DisplayName("Should return 400 when neither coordinates nor city are provided")
+    void getCurrentWeather_WithoutParameters_ShouldReturnBadRequest() {
+        // When & Then
+        webTestClient.get().uri("/api/weather/current")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").value(containsString("must be provided"));
+
+        verifyNoInteractions(weatherService);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an out of range latitude")
+    void getCurrentWeather_WithInvalidLatitude_ShouldReturnBadRequest() {
+        // When & Then
+        webTestClient.get().uri("/api/weather/current?latitude=91&longitude=13.405")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").value(containsString("Latitude"));
+    }
+
+    @Test
+    @DisplayName("Should map service errors through the global exception handler")
+    void getCurrentWeatherByCity_WhenServiceFails_ShouldReturnErrorStatus() {
+        // Given
+        when(weatherService.getCachedWeatherByCity("Atlantis")).thenReturn(Mono.error(
+                new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to fetch weather data for city: Atlantis")));
+
+        // When & Then
+        webTestClient.get().uri("/api/weather/current?city=Atlantis")
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody()
+                .jsonPath("$.error").value(containsString("Atlantis"));
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an empty batch")
+    void getCurrentWeatherBatch_WithEmptyLocations_ShouldReturnBadRequest() {
+        // When & Then
+        webTestClient.post().uri("/api/weather/current/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"locations\": []}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").value(containsString("location"));
+
+        verifyNoInteractions(batchWeatherService);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a malformed batch body")
+    void getCurrentWeatherBatch_WithMalformedBody_ShouldReturnBadRequest() {
+        // When & Then
+        webTestClient.post().uri("/api/weather/current/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"locations\": [")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").value(containsString("Malformed"));
+    }
+}
@@ -1,25 +1,55 @@
 package info.eecc.weather.controller;
 
+import info.eecc.weather.cache.CachedWeather;
+import info.eecc.weather.dto.BatchWeatherItemDto;
+import info.eecc.weather.dto.BatchWeatherRequest;
+import info.eecc.weather.dto.CoordinatesDto;
 import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.dto.ForecastDto;
+import info.eecc.weather.dto.ForecastSeriesDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.HistoryDto;
+import info.eecc.weather.dto.LocationSuggestionDto;
+import info.eecc.weather.dto.WireFormat;
 import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.geocoding.LocationSuggester;
+import info.eecc.weather.service.BatchWeatherService;
+import info.eecc.weather.service.ForecastService;
+import info.eecc.weather.service.HistoryService;
 import info.eecc.weather.service.WeatherService;
+import info.eecc.weather.subscription.WeatherSubscriptionHub;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(WeatherController.class)
+@Import(CurrentWeatherResponsesTestConfig.class)
 @DisplayName("Weather Controller Tests")
 class WeatherControllerTest {
 
@@ -29,6 +59,21 @@ class WeatherControllerTest {
     @MockitoBean
     private WeatherService weatherService;
 
+    @MockitoBean
+    private BatchWeatherService batchWeatherService;
+
+    @MockitoBean
+    private LocationSuggester locationSuggester;
+
+    @MockitoBean
+    private ForecastService forecastService;
+
+    @MockitoBean
+    private HistoryService historyService;
+
+    @MockitoBean
+    private WeatherSubscriptionHub subscriptionHub;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -40,8 +85,8 @@ class WeatherControllerTest {
         double longitude = 13.4050;
         CurrentWeatherDto mockWeatherDto = createMockCurrentWeatherDto(latitude, longitude);
 
-        when(weatherService.getCurrentWeather(latitude, longitude))
-                .thenReturn(mockWeatherDto);
+        when(weatherService.getCachedWeather(latitude, longitude))
+                .thenReturn(cached(mockWeatherDto));
 
         // When & Then
         mockMvc.perform(get("/api/weather/current")
@@ -67,7 +112,69 @@ class WeatherControllerTest {
                 .andExpect(jsonPath("$.day").value(true))
                 .andExpect(jsonPath("$.timestamp").value("2024-01-15T14:30:00Z"));
 
-        verify(weatherService, times(1)).getCurrentWeather(latitude, longitude);
+        verify(weatherService, times(1)).getCachedWeather(latitude, longitude);
+    }
+
+    @Test
+    @DisplayName("Should send ETag and max-age and answer a matching If-None-Match with 304")
+    void getCurrentWeather_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        // Given
+        CachedWeather cached = cached(createMockCurrentWeatherDto(52.52, 13.405));
+        when(weatherService.getCachedWeather(52.52, 13.405)).thenReturn(cached);
+
+        // When & Then
+        mockMvc.perform(get("/api/weather/current")
+                .param("latitude", "52.52")
+                .param("longitude", "13.405"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, cached.getETag()))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=600")));
+        mockMvc.perform(get("/api/weather/current")
+                .param("latitude", "52.52")
+                .param("longitude", "13.405")
+                .header(HttpHeaders.IF_NONE_MATCH, cached.getETag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Should encode the weather as Smile when the client accepts it")
+    void getCurrentWeather_WithSmileAccepted_ShouldReturnSmile() throws Exception {
+        // Given
+        CachedWeather cached = cached(createMockCurrentWeatherDto(52.52, 13.405));
+        when(weatherService.getCachedWeather(52.52, 13.405)).thenReturn(cached);
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/weather/current")
+                .param("latitude", "52.52")
+                .param("longitude", "13.405")
+                .accept(WireFormat.SMILE.getMediaType(), MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WireFormat.SMILE_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, cached.getETag(WireFormat.SMILE)))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        JsonNode decoded = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertThat(decoded).isEqualTo(objectMapper.valueToTree(cached.getWeather()));
+        assertThat(body.length).isLessThan(objectMapper.writeValueAsBytes(cached.getWeather()).length);
+    }
+
+    @Test
+    @DisplayName("Should prefer the format with the higher quality value")
+    void getCurrentWeather_WithJsonPreferred_ShouldReturnJson() throws Exception {
+        // Given
+        when(weatherService.getCachedWeather(52.52, 13.405)).thenReturn(cached(createMockCurrentWeatherDto(52.52, 13.405)));
+
+        // When & Then
+        mockMvc.perform(get("/api/weather/current")
+                .param("latitude", "52.52")
+                .param("longitude", "13.405")
+                .header(HttpHeaders.ACCEPT, "application/cbor;q=0.5, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.temperature").value(22.5));
     }
 
     @Test
@@ -77,8 +184,8 @@ class WeatherControllerTest {
         String city = "Berlin";
         CurrentWeatherDto mockWeatherDto = createMockCurrentWeatherDto(52.5200, 13.4050);
 
-        when(weatherService.getCurrentWeatherByCity(city))
-                .thenReturn(mockWeatherDto);
+        when(weatherService.getCachedWeatherByCity(city))
+                .thenReturn(cached(mockWeatherDto));
 
         // When & Then
         mockMvc.perform(get("/api/weather/current")
@@ -89,7 +196,7 @@ class WeatherControllerTest {
                 .andExpect(jsonPath("$.longitude").value(13.4050))
                 .andExpect(jsonPath("$.temperature").value(22.5));
 
-        verify(weatherService, times(1)).getCurrentWeatherByCity(city);
+        verify(weatherService, times(1)).getCachedWeatherByCity(city);
     }
 
     @Test
@@ -100,8 +207,8 @@ class WeatherControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Either latitude+longitude OR city must be provided"));
 
-        verify(weatherService, never()).getCurrentWeather(any(Double.class), any(Double.class));
-        verify(weatherService, never()).getCurrentWeatherByCity(any(String.class));
+        verify(weatherService, never()).getCachedWeather(any(Double.class), any(Double.class));
+        verify(weatherService, never()).getCachedWeatherByCity(any(String.class));
     }
 
     @Test
@@ -115,8 +222,8 @@ class WeatherControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Provide either latitude+longitude OR city, not both"));
 
-        verify(weatherService, never()).getCurrentWeather(any(Double.class), any(Double.class));
-        verify(weatherService, never()).getCurrentWeatherByCity(any(String.class));
+        verify(weatherService, never()).getCachedWeather(any(Double.class), any(Double.class));
+        verify(weatherService, never()).getCachedWeatherByCity(any(String.class));
     }
 
     @Test
@@ -128,8 +235,8 @@ class WeatherControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Either latitude+longitude OR city must be provided"));
 
-        verify(weatherService, never()).getCurrentWeather(any(Double.class), any(Double.class));
-        verify(weatherService, never()).getCurrentWeatherByCity(any(String.class));
+        verify(weatherService, never()).getCachedWeather(any(Double.class), any(Double.class));
+        verify(weatherService, never()).getCachedWeatherByCity(any(String.class));
     }
 
     @Test
@@ -141,8 +248,8 @@ class WeatherControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Either latitude+longitude OR city must be provided"));
 
-        verify(weatherService, never()).getCurrentWeather(any(Double.class), any(Double.class));
-        verify(weatherService, never()).getCurrentWeatherByCity(any(String.class));
+        verify(weatherService, never()).getCachedWeather(any(Double.class), any(Double.class));
+        verify(weatherService, never()).getCachedWeatherByCity(any(String.class));
     }
 
     @Test
@@ -154,7 +261,7 @@ class WeatherControllerTest {
                 .param("longitude", "13.4050"))
                 .andExpect(status().isBadRequest());
 
-        verify(weatherService, never()).getCurrentWeather(any(Double.class), any(Double.class));
+        verify(weatherService, never()).getCachedWeather(any(Double.class), any(Double.class));
     }
 
     @Test
@@ -166,7 +273,7 @@ class WeatherControllerTest {
                 .param("longitude", "185.0")) // Invalid: > 180
                 .andExpect(status().isBadRequest());
 
-        verify(weatherService, never()).getCurrentWeather(any(Double.class), any(Double.class));
+        verify(weatherService, never()).getCachedWeather(any(Double.class), any(Double.class));
     }
 
     @Test
@@ -178,7 +285,7 @@ class WeatherControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Either latitude+longitude OR city must be provided"));
 
-        verify(weatherService, never()).getCurrentWeatherByCity(any(String.class));
+        verify(weatherService, never()).getCachedWeatherByCity(any(String.class));
     }
 
     @Test
@@ -186,7 +293,7 @@ class WeatherControllerTest {
     void getCurrentWeather_WithNonExistentCity_ShouldReturnNotFound() throws Exception {
         // Given
         String city = "NonExistentCity";
-        when(weatherService.getCurrentWeatherByCity(city))
+        when(weatherService.getCachedWeatherByCity(city))
                 .thenThrow(new WeatherException(HttpStatus.NOT_FOUND, "City not found: " + city));
 
         // When & Then
@@ -195,7 +302,7 @@ class WeatherControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.error").value("City not found: " + city));
 
-        verify(weatherService, times(1)).getCurrentWeatherByCity(city);
+        verify(weatherService, times(1)).getCachedWeatherByCity(city);
     }
 
     @Test
@@ -204,7 +311,7 @@ class WeatherControllerTest {
         // Given
         double latitude = 52.5200;
         double longitude = 13.4050;
-        when(weatherService.getCurrentWeather(latitude, longitude))
+        when(weatherService.getCachedWeather(latitude, longitude))
                 .thenThrow(new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
                         "Weather service temporarily unavailable"));
 
@@ -215,7 +322,7 @@ class WeatherControllerTest {
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.error").value("Weather service temporarily unavailable"));
 
-        verify(weatherService, times(1)).getCurrentWeather(latitude, longitude);
+        verify(weatherService, times(1)).getCachedWeather(latitude, longitude);
     }
 
     @Test
@@ -227,7 +334,7 @@ class WeatherControllerTest {
         WeatherException weatherException = new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR,
                 "Failed to fetch weather data", cause);
 
-        when(weatherService.getCurrentWeatherByCity(city))
+        when(weatherService.getCachedWeatherByCity(city))
                 .thenThrow(weatherException);
 
         // When & Then
@@ -236,7 +343,189 @@ class WeatherControllerTest {
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.error").value("Failed to fetch weather data"));
 
-        verify(weatherService, times(1)).getCurrentWeatherByCity(city);
+        verify(weatherService, times(1)).getCachedWeatherByCity(city);
+    }
+
+    @Test
+    @DisplayName("Should return per-location results for a batch request")
+    void getCurrentWeatherBatch_WithValidLocations_ShouldReturnResults() throws Exception {
+        // Given
+        BatchWeatherRequest request = new BatchWeatherRequest(List.of(
+                new CoordinatesDto(52.52, 13.405), new CoordinatesDto(48.137, 11.575)));
+        when(batchWeatherService.getCurrentWeather(request.getLocations())).thenReturn(List.of(
+                BatchWeatherItemDto.builder().latitude(52.52).longitude(13.405)
+                        .weather(createMockCurrentWeatherDto(52.52, 13.405)).build(),
+                BatchWeatherItemDto.builder().latitude(48.137).longitude(11.575)
+                        .error("Failed to fetch weather data: timed out").build()));
+
+        // When & Then
+        mockMvc.perform(post("/api/weather/current/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].weather.temperature").value(22.5))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].weather").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("Failed to fetch weather data: timed out"));
+    }
+
+    @Test
+    @DisplayName("Should return 400 for empty batches and invalid coordinates")
+    void getCurrentWeatherBatch_WithInvalidRequest_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/weather/current/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"locations\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("At least one location")));
+
+        mockMvc.perform(post("/api/weather/current/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"locations\": [{\"latitude\": 91, \"longitude\": 13.4}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("Latitude")));
+
+        mockMvc.perform(post("/api/weather/current/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("not json"))
+                .andExpect(status().isBadRequest());
+
+        verify(batchWeatherService, never()).getCurrentWeather(anyList());
+    }
+
+    @Test
+    @DisplayName("Should return location suggestions for a partial name")
+    void suggestLocations_WithPrefix_ShouldReturnSuggestions() throws Exception {
+        // Given
+        when(locationSuggester.suggest("Ber", 5)).thenReturn(List.of(LocationSuggestionDto.builder()
+                .name("Berlin").country("Germany").latitude(52.52437).longitude(13.41053).build()));
+
+        // When & Then
+        mockMvc.perform(get("/api/weather/locations/suggest")
+                .param("q", "Ber")
+                .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Berlin"))
+                .andExpect(jsonPath("$[0].country").value("Germany"))
+                .andExpect(jsonPath("$[0].admin1").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a suggestion limit below 1")
+    void suggestLocations_WithZeroLimit_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/weather/locations/suggest")
+                .param("q", "Ber")
+                .param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("Limit")));
+
+        verifyNoInteractions(locationSuggester);
+    }
+
+    @Test
+    @DisplayName("Should return the forecast with the requested variables and time range")
+    void getForecast_WithCoordinatesAndRange_ShouldReturnColumns() throws Exception {
+        // Given
+        ForecastDto forecast = ForecastDto.builder()
+                .latitude(52.5)
+                .longitude(13.4)
+                .location("52.5000, 13.4000")
+                .hourly(ForecastSeriesDto.builder()
+                        .time(List.of("2024-01-15T06:00", "2024-01-15T07:00"))
+                        .units(Map.of("temperature_2m", "°C"))
+                        .values(Map.of("temperature_2m", new Float[] { 1.5f, null }))
+                        .build())
+                .build();
+        when(forecastService.getForecast(52.52, 13.405, "temperature_2m", "",
+                LocalDateTime.of(2024, 1, 15, 6, 0), LocalDateTime.of(2024, 1, 15, 7, 0))).thenReturn(forecast);
+
+        // When & Then
+        mockMvc.perform(get("/api/weather/forecast")
+                .param("latitude", "52.52")
+                .param("longitude", "13.405")
+                .param("hourly", "temperature_2m")
+                .param("daily", "")
+                .param("start", "2024-01-15T06:00")
+                .param("end", "2024-01-15T07:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hourly.time[1]").value("2024-01-15T07:00"))
+                .andExpect(jsonPath("$.hourly.units.temperature_2m").value("°C"))
+                .andExpect(jsonPath("$.hourly.values.temperature_2m[0]").value(1.5))
+                .andExpect(jsonPath("$.hourly.values.temperature_2m[1]").isEmpty())
+                .andExpect(jsonPath("$.daily").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a forecast without location")
+    void getForecast_WithoutLocation_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/weather/forecast"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("Either latitude+longitude OR city")));
+
+        verifyNoInteractions(forecastService);
+    }
+
+    @Test
+    @DisplayName("Should return archived observations for a city")
+    void getHistory_WithCity_ShouldReturnColumns() throws Exception {
+        // Given
+        HistoryDto history = HistoryDto.builder()
+                .latitude(52.52)
+                .longitude(13.40)
+                .location("52.5200, 13.4000")
+                .time(List.of("2024-01-15T14:15", "2024-01-15T14:30"))
+                .units(Map.of("temperature", "°C"))
+                .values(Map.of("temperature", new double[] { 22.1, 22.5 }))
+                .build();
+        when(historyService.getHistoryByCity("Berlin", "temperature", null, null)).thenReturn(history);
+
+        // When & Then
+        mockMvc.perform(get("/api/weather/history")
+                .param("city", "Berlin")
+                .param("fields", "temperature"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.time[1]").value("2024-01-15T14:30"))
+                .andExpect(jsonPath("$.units.temperature").value("°C"))
+                .andExpect(jsonPath("$.values.temperature[1]").value(22.5));
+    }
+
+    @Test
+    @DisplayName("Should open a stream for coordinates and geocoded cities")
+    void subscribe_WithLocationsAndCity_ShouldOpenStream() throws Exception {
+        // Given
+        GeocodingResponse.Result paris = new GeocodingResponse.Result();
+        paris.setLatitude(48.85);
+        paris.setLongitude(2.35);
+        when(weatherService.getCoordinatesForCity("Paris")).thenReturn(paris);
+        when(subscriptionHub.openEmitter(anyList())).thenReturn(new SseEmitter());
+
+        // When & Then
+        mockMvc.perform(get("/api/weather/subscribe")
+                .param("locations", "52.52,13.40")
+                .param("cities", "Paris")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk());
+        verify(subscriptionHub).openEmitter(List.of(new CoordinatesDto(52.52, 13.40), new CoordinatesDto(48.85, 2.35)));
+    }
+
+    @Test
+    @DisplayName("Should reject a stream for a malformed location")
+    void subscribe_WithMalformedLocation_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/weather/subscribe")
+                .param("locations", "52.52,13.40;52.52")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("expected latitude,longitude")));
+        verify(subscriptionHub, never()).openEmitter(anyList());
+    }
+
+    private static CachedWeather cached(CurrentWeatherDto weather) {
+        return new CachedWeather(weather, CurrentWeatherResponsesTestConfig.NOW,
+                CurrentWeatherResponsesTestConfig.NOW.plus(Duration.ofMinutes(10)),
+                CurrentWeatherResponsesTestConfig.NOW.plus(Duration.ofMinutes(12)));
     }
 
     private CurrentWeatherDto createMockCurrentWeatherDto(double latitude, double longitude) {
@@ -12,6 +12,7 @@ import org.springframework.web.client.RestClientException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -140,4 +141,23 @@ class GlobalExceptionHandlerTest {
         assertThat(response.getBody()).isNotNull();
         assertThat(response.getBody().get("error")).isEqualTo("Weather service error");
     }
+
+    @Test
+    @DisplayName("Should handle invalid request bodies and return the first validation message")
+    void handleInvalidRequestBody_ShouldReturnBadRequest() {
+        // Given
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(bindingResult.getAllErrors()).thenReturn(List.of(
+                new FieldError("request", "locations", "At least one location must be provided")));
+        MethodArgumentNotValidException exception = mock(MethodArgumentNotValidException.class);
+        when(exception.getBindingResult()).thenReturn(bindingResult);
+
+        // When
+        ResponseEntity<Map<String, String>> response = exceptionHandler.handleInvalidRequestBody(exception);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().get("error")).contains("At least one location");
+    }
 }
@@ -0,0 +1,119 @@
+package info.eecc.weather.geocoding;
+
+import info.eecc.weather.config.GeocodingStoreProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Geocoding Store Tests")
+class GeocodingStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private GeocodingStoreProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GeocodingStoreProperties();
+        properties.setPath(tempDir.resolve("store").resolve("geocoding.dat"));
+    }
+
+    @Test
+    @DisplayName("Should normalize case, diacritics and whitespace")
+    void normalize_ShouldIgnoreCaseDiacriticsAndWhitespace() {
+        assertThat(LocationNameNormalizer.normalize("  MÜNCHEN ")).isEqualTo("munchen");
+        assertThat(LocationNameNormalizer.normalize("São   Paulo")).isEqualTo("sao paulo");
+        assertThat(LocationNameNormalizer.normalize("New\tYork")).isEqualTo("new york");
+        assertThat(LocationNameNormalizer.normalize(null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should survive a restart by replaying the journal")
+    void load_AfterRestart_ShouldContainStoredEntries() {
+        GeocodingStore store = new GeocodingStore(properties);
+        store.put("München", result("München", 48.137, 11.575));
+        store.put("Berlin", result("Berlin", 52.52, 13.405));
+        store.put("Berlin", result("Berlin", 52.52, 13.41));
+
+        GeocodingStore restarted = new GeocodingStore(properties);
+        restarted.load();
+
+        assertThat(restarted.size()).isEqualTo(2);
+        assertThat(restarted.find("munchen").getLatitude()).isEqualTo(48.137);
+        assertThat(restarted.find("BERLIN").getLongitude()).isEqualTo(13.41);
+        assertThat(restarted.find("Hamburg")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should ignore and repair an incomplete last record")
+    void load_WithTruncatedJournal_ShouldKeepCompleteRecords() throws IOException {
+        GeocodingStore store = new GeocodingStore(properties);
+        store.put("Berlin", result("Berlin", 52.52, 13.405));
+        store.put("Hamburg", result("Hamburg", 53.551, 9.993));
+        byte[] journal = Files.readAllBytes(properties.getPath());
+        Files.write(properties.getPath(), Arrays.copyOf(journal, journal.length - 5));
+
+        GeocodingStore restarted = new GeocodingStore(properties);
+        restarted.load();
+        restarted.put("Paris", result("Paris", 48.853, 2.349));
+
+        GeocodingStore again = new GeocodingStore(properties);
+        again.load();
+        assertThat(again.find("berlin")).isNotNull();
+        assertThat(again.find("hamburg")).isNull();
+        assertThat(again.find("paris")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used city and compact the journal at twice the limit")
+    void put_BeyondMaxEntries_ShouldEvictAndCompact() throws IOException {
+        properties.setMaxEntries(2);
+        GeocodingStore store = new GeocodingStore(properties);
+        store.put("Berlin", result("Berlin", 52.52, 13.405));
+        store.put("Hamburg", result("Hamburg", 53.551, 9.993));
+        store.find("Berlin");
+        store.put("Paris", result("Paris", 48.853, 2.349));
+        long beforeCompaction = Files.size(properties.getPath());
+        store.put("Paris", result("Paris", 48.853, 2.35));
+
+        GeocodingStore restarted = new GeocodingStore(properties);
+        restarted.load();
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.find("hamburg")).isNull();
+        assertThat(Files.size(properties.getPath())).isLessThan(beforeCompaction);
+        assertThat(restarted.find("berlin")).isNotNull();
+        assertThat(restarted.find("hamburg")).isNull();
+        assertThat(restarted.find("paris").getLongitude()).isEqualTo(2.35);
+    }
+
+    @Test
+    @DisplayName("Should neither store nor find entries when disabled")
+    void find_WhenDisabled_ShouldReturnNull() {
+        properties.setEnabled(false);
+        GeocodingStore store = new GeocodingStore(properties);
+        store.put("Berlin", result("Berlin", 52.52, 13.405));
+
+        assertThat(store.find("Berlin")).isNull();
+        assertThat(properties.getPath()).doesNotExist();
+    }
+
+    private GeocodingResponse.Result result(String name, double latitude, double longitude) {
+        GeocodingResponse.Result result = new GeocodingResponse.Result();
+        result.setName(name);
+        result.setLatitude(latitude);
+        result.setLongitude(longitude);
+        result.setCountry("Germany");
+        return result;
+    }
+}
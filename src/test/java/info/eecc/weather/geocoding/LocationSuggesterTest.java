@@ -0,0 +1,113 @@
+package info.eecc.weather.geocoding;
+
+import info.eecc.weather.config.GeocodingStoreProperties;
+import info.eecc.weather.config.LocationSuggestProperties;
+import info.eecc.weather.config.OfflineGeocoderProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.LocationSuggestionDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Location Suggester Tests")
+class LocationSuggesterTest {
+
+    private static final String DATASET = String.join("\n",
+            place("Bern", "46.94809", "7.44744", "CH", "121631"),
+            place("Berlin", "52.52437", "13.41053", "DE", "3426354"),
+            place("Bergen", "60.39299", "5.32415", "NO", "213585"),
+            place("Bérgamo", "45.69601", "9.66721", "IT", "120287"),
+            place("Hamburg", "53.57532", "10.01534", "DE", "1845229"));
+
+    @TempDir
+    private Path tempDir;
+
+    private GeocodingStore geocodingStore;
+
+    private OfflineGeocoder offlineGeocoder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        GeocodingStoreProperties storeProperties = new GeocodingStoreProperties();
+        storeProperties.setPath(tempDir.resolve("geocoding.dat"));
+        geocodingStore = new GeocodingStore(storeProperties);
+
+        OfflineGeocoderProperties offlineProperties = new OfflineGeocoderProperties();
+        offlineProperties.setEnabled(true);
+        offlineProperties.setPath(Files.writeString(tempDir.resolve("cities.txt"), DATASET));
+        offlineGeocoder = new OfflineGeocoder(offlineProperties);
+        offlineGeocoder.load();
+    }
+
+    @Test
+    @DisplayName("Should rank dataset places by population and ignore diacritics")
+    void suggest_WithPrefix_ShouldRankByPopulation() {
+        // Given
+        LocationSuggester suggester = createSuggester();
+
+        // When & Then
+        assertThat(suggester.suggest("BER", 3)).extracting(LocationSuggestionDto::getName)
+                .containsExactly("Berlin", "Bergen", "Bern");
+        assertThat(suggester.suggest("berga", null)).extracting(LocationSuggestionDto::getName)
+                .containsExactly("Bérgamo");
+    }
+
+    @Test
+    @DisplayName("Should suggest resolved locations first, including ones stored after startup")
+    void suggest_WithResolvedLocations_ShouldListThemFirst() {
+        // Given
+        geocodingStore.put("Berkeley", result("Berkeley", 37.87159, -122.27275));
+        LocationSuggester suggester = createSuggester();
+        geocodingStore.put("Berlin, NH", result("Berlin", 44.46867, -71.18508));
+        geocodingStore.put("berlin", result("Berlin", 52.52437, 13.41053));
+
+        // When
+        var suggestions = suggester.suggest("Berl", 3);
+
+        // Then
+        assertThat(suggestions).extracting(LocationSuggestionDto::getLatitude)
+                .containsExactly(44.46867, 52.52437);
+        assertThat(suggester.suggest("Berk", null)).extracting(LocationSuggestionDto::getName)
+                .containsExactly("Berkeley");
+    }
+
+    @Test
+    @DisplayName("Should not suggest anything for queries shorter than the minimum length")
+    void suggest_WithShortQuery_ShouldReturnEmpty() {
+        // Given
+        LocationSuggester suggester = createSuggester();
+
+        // When & Then
+        assertThat(suggester.suggest("B", null)).isEmpty();
+        assertThat(suggester.suggest("  ", null)).isEmpty();
+        assertThat(suggester.suggest(null, null)).isEmpty();
+    }
+
+    private LocationSuggester createSuggester() {
+        LocationSuggester suggester = new LocationSuggester(geocodingStore, offlineGeocoder,
+                new LocationSuggestProperties());
+        suggester.load();
+        return suggester;
+    }
+
+    private static GeocodingResponse.Result result(String name, double latitude, double longitude) {
+        GeocodingResponse.Result result = new GeocodingResponse.Result();
+        result.setName(name);
+        result.setLatitude(latitude);
+        result.setLongitude(longitude);
+        return result;
+    }
+
+    private static String place(String name, String latitude, String longitude, String countryCode,
+            String population) {
+        return String.join("\t", "1", name, name, "", latitude, longitude, "P", "PPL", countryCode, "", "01", "", "",
+                "", population, "", "", "Europe/Berlin", "2024-01-01");
+    }
+}
@@ -0,0 +1,125 @@
+package info.eecc.weather.geocoding;
+
+import info.eecc.weather.config.OfflineGeocoderProperties;
+import info.eecc.weather.dto.GeocodingResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Offline Geocoder Tests")
+class OfflineGeocoderTest {
+
+    private static final String DATASET = String.join("\n",
+            place("2950159", "Berlin", "Berlin", "Berlino,Berlín", "52.52437", "13.41053", "P", "DE", "16", "3426354"),
+            place("4178560", "Berlin", "Berlin", "", "43.96802", "-88.94345", "P", "US", "WI", "5524"),
+            place("2867714", "Munich", "Munich", "Muenchen,München,Monaco di Baviera", "48.13743", "11.57549", "P",
+                    "DE", "02", "1260391"),
+            place("2911297", "Hamburg", "Hamburg", "", "53.57532", "10.01534", "A", "DE", "04", "1845229"),
+            "# not a place line");
+
+    @TempDir
+    private Path tempDir;
+
+    private OfflineGeocoderProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new OfflineGeocoderProperties();
+        properties.setEnabled(true);
+        properties.setPath(Files.writeString(tempDir.resolve("cities.txt"), DATASET));
+    }
+
+    @Test
+    @DisplayName("Should resolve the most populated place of a shared name")
+    void find_WithSharedName_ShouldRankByPopulation() {
+        // Given
+        OfflineGeocoder geocoder = load();
+
+        // When
+        GeocodingResponse.Result result = geocoder.find("  BERLIN ");
+
+        // Then
+        assertThat(result.getName()).isEqualTo("Berlin");
+        assertThat(result.getCountry()).isEqualTo("Germany");
+        assertThat(result.getLatitude()).isCloseTo(52.52437, within(1e-4));
+        assertThat(result.getLongitude()).isCloseTo(13.41053, within(1e-4));
+    }
+
+    @Test
+    @DisplayName("Should resolve alternate names ignoring diacritics")
+    void find_WithAlternateName_ShouldResolvePlace() {
+        // Given
+        OfflineGeocoder geocoder = load();
+
+        // When & Then
+        assertThat(geocoder.find("münchen").getName()).isEqualTo("Munich");
+        assertThat(geocoder.find("Monaco di Baviera").getName()).isEqualTo("Munich");
+        assertThat(geocoder.find("Atlantis")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should only load populated places and fill in region names")
+    void load_WithAdmin1Codes_ShouldSkipOtherFeaturesAndNameRegions() throws IOException {
+        // Given
+        properties.setAdmin1CodesPath(Files.writeString(tempDir.resolve("admin1.txt"),
+                "DE.16\tLand Berlin\tLand Berlin\t2950157\nDE.02\tBavaria\tBavaria\t2951839\n"));
+
+        // When
+        OfflineGeocoder geocoder = load();
+
+        // Then
+        assertThat(geocoder.size()).isEqualTo(3);
+        assertThat(geocoder.find("Hamburg")).isNull();
+        assertThat(geocoder.find("Munich").getAdmin1()).isEqualTo("Bavaria");
+    }
+
+    @Test
+    @DisplayName("Should read gzip compressed datasets")
+    void load_WithGzipDataset_ShouldDecompress() throws IOException {
+        // Given
+        Path gzip = tempDir.resolve("cities.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            out.write(DATASET.getBytes(StandardCharsets.UTF_8));
+        }
+        properties.setPath(gzip);
+
+        // When & Then
+        assertThat(load().find("Berlin")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should stay empty when disabled or the dataset is missing")
+    void load_WithoutDataset_ShouldStayEmpty() {
+        // Given
+        properties.setPath(tempDir.resolve("missing.txt"));
+
+        // When
+        OfflineGeocoder geocoder = load();
+
+        // Then
+        assertThat(geocoder.isEnabled()).isFalse();
+        assertThat(geocoder.find("Berlin")).isNull();
+    }
+
+    private OfflineGeocoder load() {
+        OfflineGeocoder geocoder = new OfflineGeocoder(properties);
+        geocoder.load();
+        return geocoder;
+    }
+
+    private static String place(String id, String name, String asciiName, String alternateNames, String latitude,
+            String longitude, String featureClass, String countryCode, String admin1Code, String population) {
+        return String.join("\t", id, name, asciiName, alternateNames, latitude, longitude, featureClass, "PPL",
+                countryCode, "", admin1Code, "", "", "", population, "", "34", "Europe/Berlin", "2024-01-01");
+    }
+}
@@ -0,0 +1,194 @@
+package info.eecc.weather.history;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.config.HistoryProperties;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("History Archive Tests")
+class HistoryArchiveTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+    @TempDir
+    private Path tempDir;
+
+    private HistoryProperties properties;
+
+    private Clock clock;
+
+    private HistoryArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        properties = new HistoryProperties();
+        properties.setEnabled(true);
+        properties.setPath(tempDir);
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-16T12:00:00Z"));
+        archive = new HistoryArchive(properties, clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archive.close();
+    }
+
+    @Test
+    @DisplayName("Should return every archived observation of a range with exact values")
+    void query_AfterRecording_ShouldReturnObservationsInRange() {
+        // Given: a day of 15 minute observations with jitter, spanning several blocks
+        for (int i = 0; i < 96; i++) {
+            int jitter = i % 7 == 0 ? 40 : 0;
+            archive.record(weather(DAY.plusMinutes(15L * i).plusSeconds(jitter), 20 + i * 0.1, 60 + i % 5));
+        }
+
+        // When
+        HistorySeries series = archive.query(key(), instant(DAY.plusHours(6)), instant(DAY.plusHours(12)));
+
+        // Then
+        assertThat(series.size()).isEqualTo(25);
+        assertThat(series.getTime(0)).isEqualTo(DAY.plusHours(6).toEpochSecond(ZoneOffset.UTC));
+        assertThat(series.getValue(HistoryField.TEMPERATURE, 0)).isEqualTo(20 + 24 * 0.1);
+        assertThat(series.getValue(HistoryField.HUMIDITY, 1)).isEqualTo(60 + 25 % 5);
+        assertThat(series.getTime(24)).isEqualTo(DAY.plusHours(12).toEpochSecond(ZoneOffset.UTC));
+        assertThat(series.getValue(HistoryField.TEMPERATURE, 24)).isEqualTo(20 + 48 * 0.1);
+        assertThat(series.getValue(HistoryField.PRESSURE, 24)).isEqualTo(1013.2);
+    }
+
+    @Test
+    @DisplayName("Should store an observation fetched several times only once")
+    void record_WithSameObservationTwice_ShouldKeepOne() {
+        // Given
+        archive.record(weather(DAY.plusHours(14), 22.5, 65));
+        archive.record(weather(DAY.plusHours(14), 22.5, 65));
+
+        // When
+        HistorySeries series = archive.query(key(), instant(DAY), instant(DAY.plusDays(1)));
+
+        // Then
+        assertThat(series.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should continue partitions written before a restart")
+    void record_AfterReopening_ShouldAppendToExistingPartition() {
+        // Given
+        for (int i = 0; i < 40; i++) {
+            archive.record(weather(DAY.plusMinutes(15L * i), 10 + i * 0.5, 70));
+        }
+        archive.close();
+        archive = new HistoryArchive(properties, clock);
+
+        // When
+        for (int i = 40; i < 50; i++) {
+            archive.record(weather(DAY.plusMinutes(15L * i), 10 + i * 0.5, 70));
+        }
+        HistorySeries series = archive.query(key(), instant(DAY), instant(DAY.plusDays(1)));
+
+        // Then
+        assertThat(series.size()).isEqualTo(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(series.getValue(HistoryField.TEMPERATURE, i)).isEqualTo(10 + i * 0.5);
+        }
+    }
+
+    @Test
+    @DisplayName("Should scan ranges across day partitions and delete expired days")
+    void query_AcrossDays_ShouldCombinePartitions() {
+        // Given
+        archive.record(weather(DAY.minusMinutes(15), 1.0, 80));
+        archive.record(weather(DAY, 2.0, 80));
+        archive.record(weather(DAY.plusDays(1), 3.0, 80));
+        properties.setRetention(Duration.ofDays(1));
+
+        // When
+        HistorySeries series = archive.query(key(), instant(DAY.minusHours(1)), instant(DAY.plusDays(1)));
+        archive.deleteExpired();
+
+        // Then
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.getValue(HistoryField.TEMPERATURE, 2)).isEqualTo(3.0);
+        assertThat(Files.exists(tempDir.resolve("grid-0.01").resolve("2024-01-14"))).isFalse();
+        assertThat(archive.query(key(), instant(DAY.minusHours(1)), instant(DAY.plusDays(1))).size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should open a partition once when several threads record into it at the same time")
+    void record_Concurrently_ShouldShareOnePartition() throws Exception {
+        // Given: every observation twice, into 48 partitions
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        archive.bindTo(registry);
+        ExecutorService recorders = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        try {
+            for (int i = 0; i < 96; i++) {
+                CurrentWeatherDto weather = weather(DAY.plusHours(14), 21.0, 60);
+                weather.setLatitude(50 + i / 2 * 0.1);
+                recorders.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    archive.record(weather);
+                });
+            }
+            start.countDown();
+        } finally {
+            recorders.shutdown();
+        }
+        assertThat(recorders.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        // Then: a file mapped twice would have taken the same observation twice
+        assertThat(registry.get("weather.history.records").functionCounter().count()).isEqualTo(48);
+        assertThat(registry.get("weather.history.duplicates").functionCounter().count()).isEqualTo(48);
+        assertThat(registry.get("weather.history.partitions.open").gauge().value()).isEqualTo(48);
+    }
+
+    private GridKey key() {
+        return archive.keyFor(52.52, 13.40);
+    }
+
+    private static Instant instant(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC);
+    }
+
+    private static CurrentWeatherDto weather(LocalDateTime time, double temperature, int humidity) {
+        return CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.40)
+                .temperature(temperature)
+                .humidity(humidity)
+                .apparentTemperature(temperature - 1.5)
+                .weatherCode(2)
+                .windSpeed(12.5)
+                .windDirection(245)
+                .pressure(1013.2)
+                .cloudCover(75)
+                .timestamp(time.toString())
+                .build();
+    }
+}
@@ -0,0 +1,276 @@
+package info.eecc.weather.service;
+
+import info.eecc.weather.cache.EmbeddedRespServer;
+import info.eecc.weather.cache.SharedWeatherCache;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.BatchProperties;
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.config.HistoryProperties;
+import info.eecc.weather.config.SharedCacheProperties;
+import info.eecc.weather.config.WeatherCacheProperties;
+import info.eecc.weather.dto.BatchWeatherItemDto;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.upstream.OpenMeteoClient;
+import info.eecc.weather.upstream.OpenMeteoClientFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Batch Weather Service Tests")
+class BatchWeatherServiceTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private BatchProperties properties;
+
+    private WeatherCacheProperties cacheProperties;
+
+    private CircuitBreakerProperties circuitBreakerProperties;
+
+    private WeatherCache weatherCache;
+
+    private BatchWeatherService batchWeatherService;
+
+    private final List<SharedWeatherCache> sharedCaches = new ArrayList<>();
+
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new BatchProperties();
+        properties.setChunkSize(2);
+        Clock clock = Clock.fixed(Instant.parse("2024-01-15T14:35:00Z"), ZoneOffset.UTC);
+        cacheProperties = new WeatherCacheProperties();
+        circuitBreakerProperties = new CircuitBreakerProperties();
+        weatherCache = new WeatherCache(cacheProperties, clock);
+        OpenMeteoClient openMeteoClient = OpenMeteoClientFixture.databind(restTemplate, circuitBreakerProperties,
+                clock, executor);
+        batchWeatherService = new BatchWeatherService(openMeteoClient, weatherCache,
+                new SharedWeatherCache(new SharedCacheProperties(), weatherCache, clock, null),
+                new HistoryArchive(new HistoryProperties(), clock), properties, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should split distinct locations into multi-location chunks")
+    void getCurrentWeather_WithManyLocations_ShouldFetchInChunks() {
+        // Given
+        when(restTemplate.getForObject(contains("latitude=52.52,48.14"), eq(WeatherResponse[].class)))
+                .thenReturn(new WeatherResponse[] { response(52.52, 13.41, 5.0), response(48.14, 11.58, 7.0) });
+        when(restTemplate.getForObject(contains("latitude=53.55"), eq(WeatherResponse.class)))
+                .thenReturn(response(53.55, 9.99, 3.0));
+
+        // When
+        List<BatchWeatherItemDto> items = batchWeatherService.getCurrentWeather(List.of(
+                new CoordinatesDto(52.52, 13.41),
+                new CoordinatesDto(48.137, 11.575),
+                new CoordinatesDto(52.5201, 13.4102),
+                new CoordinatesDto(53.551, 9.993)));
+
+        // Then
+        assertThat(items).extracting(item -> item.getWeather().getTemperature())
+                .containsExactly(5.0, 7.0, 5.0, 3.0);
+        assertThat(items).extracting(BatchWeatherItemDto::getLatitude)
+                .containsExactly(52.52, 48.137, 52.5201, 53.551);
+        assertThat(weatherCache.size()).isEqualTo(3);
+        verify(restTemplate, times(1)).getForObject(any(String.class), eq(WeatherResponse[].class));
+        verify(restTemplate, times(1)).getForObject(any(String.class), eq(WeatherResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should answer cached locations without calling the weather API")
+    void getCurrentWeather_WithCachedLocations_ShouldSkipApi() {
+        // Given
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenReturn(response(52.52, 13.41, 5.0));
+        batchWeatherService.getCurrentWeather(List.of(new CoordinatesDto(52.52, 13.41)));
+
+        // When
+        List<BatchWeatherItemDto> items = batchWeatherService.getCurrentWeather(
+                List.of(new CoordinatesDto(52.5201, 13.4102)));
+
+        // Then
+        assertThat(items).singleElement().satisfies(item -> assertThat(item.getWeather()).isNotNull());
+        verify(restTemplate, times(1)).getForObject(any(String.class), eq(WeatherResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should report failures per location instead of failing the batch")
+    void getCurrentWeather_WhenChunkFails_ShouldReportErrorPerLocation() {
+        // Given
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse[].class)))
+                .thenThrow(new RestClientException("Connection timeout"));
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenReturn(response(53.55, 9.99, 3.0));
+
+        // When
+        List<BatchWeatherItemDto> items = batchWeatherService.getCurrentWeather(List.of(
+                new CoordinatesDto(52.52, 13.41),
+                new CoordinatesDto(48.137, 11.575),
+                new CoordinatesDto(53.551, 9.993)));
+
+        // Then
+        assertThat(items.get(0).getError()).contains("Connection timeout");
+        assertThat(items.get(1).getError()).contains("Connection timeout");
+        assertThat(items.get(2).getError()).isNull();
+        assertThat(items.get(2).getWeather().getTemperature()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("Should reject batches above the configured maximum")
+    void getCurrentWeather_WithTooManyLocations_ShouldThrowException() {
+        properties.setMaxLocations(1);
+
+        assertThatThrownBy(() -> batchWeatherService.getCurrentWeather(List.of(
+                new CoordinatesDto(52.52, 13.41), new CoordinatesDto(48.137, 11.575))))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("At most 1 locations");
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("Should serve the last known weather per location while the circuit breaker is open")
+    void getCurrentWeather_WhenCircuitOpen_ShouldServeLastKnownWeather() {
+        // Given
+        cacheProperties.setMaxTtl(Duration.ZERO);
+        cacheProperties.setMaxStale(Duration.ZERO);
+        circuitBreakerProperties.setMinimumCalls(2);
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenReturn(response(52.52, 13.41, 5.0))
+                .thenThrow(new RestClientException("Connection timeout"));
+        batchWeatherService.getCurrentWeather(List.of(new CoordinatesDto(52.52, 13.41)));
+        assertThat(batchWeatherService.getCurrentWeather(List.of(new CoordinatesDto(52.52, 13.41))))
+                .singleElement().satisfies(item -> assertThat(item.getWeather()).isNull());
+
+        // When
+        List<BatchWeatherItemDto> items = batchWeatherService.getCurrentWeather(List.of(
+                new CoordinatesDto(52.52, 13.41),
+                new CoordinatesDto(48.14, 11.58)));
+
+        // Then
+        assertThat(items.get(0).getWeather().getTemperature()).isEqualTo(5.0);
+        assertThat(items.get(0).getError()).isNull();
+        assertThat(items.get(1).getWeather()).isNull();
+        assertThat(items.get(1).getError()).contains("unavailable");
+        verify(restTemplate, times(2)).getForObject(any(String.class), eq(WeatherResponse.class));
+        verify(restTemplate, never()).getForObject(any(String.class), eq(WeatherResponse[].class));
+    }
+
+    @Test
+    @DisplayName("Should fetch every cell once when two instances batch overlapping locations at the same time")
+    void getCurrentWeather_OnTwoInstancesAtOnce_ShouldFetchEachCellOnce() throws Exception {
+        // Given: two instances sharing one cache server, with a clock that advances so lock waits end
+        Clock clock = Clock.offset(Clock.systemUTC(),
+                Duration.between(Instant.now(), Instant.parse("2024-01-15T14:35:00Z")));
+        List<String> fetchedLatitudes = new CopyOnWriteArrayList<>();
+        Answer<Object> upstream = invocation -> {
+            String url = invocation.getArgument(0);
+            List<String> latitudes = List.of(queryParameter(url, "latitude").split(","));
+            fetchedLatitudes.addAll(latitudes);
+            Thread.sleep(200);
+            WeatherResponse[] responses = latitudes.stream()
+                    .map(latitude -> response(Double.parseDouble(latitude), 10.0, 5.0))
+                    .toArray(WeatherResponse[]::new);
+            return invocation.getArgument(1) == WeatherResponse.class ? responses[0] : responses;
+        };
+        lenient().when(restTemplate.getForObject(anyString(), eq(WeatherResponse[].class))).thenAnswer(upstream);
+        lenient().when(restTemplate.getForObject(anyString(), eq(WeatherResponse.class))).thenAnswer(upstream);
+        try (EmbeddedRespServer server = new EmbeddedRespServer(0)) {
+            BatchWeatherService first = replica(server.getPort(), clock);
+            BatchWeatherService second = replica(server.getPort(), clock);
+
+            // When
+            CompletableFuture<List<BatchWeatherItemDto>> firstItems = CompletableFuture.supplyAsync(
+                    () -> first.getCurrentWeather(List.of(new CoordinatesDto(52.52, 13.41),
+                            new CoordinatesDto(48.14, 11.58))));
+            CompletableFuture<List<BatchWeatherItemDto>> secondItems = CompletableFuture.supplyAsync(
+                    () -> second.getCurrentWeather(List.of(new CoordinatesDto(48.14, 11.58),
+                            new CoordinatesDto(53.55, 9.99))));
+
+            // Then
+            assertThat(firstItems.get(10, TimeUnit.SECONDS)).allSatisfy(item -> assertThat(item.getWeather()).isNotNull());
+            assertThat(secondItems.get(10, TimeUnit.SECONDS)).allSatisfy(item -> assertThat(item.getWeather()).isNotNull());
+            assertThat(fetchedLatitudes).containsExactlyInAnyOrder("52.52", "48.14", "53.55");
+        } finally {
+            for (SharedWeatherCache sharedCache : sharedCaches) {
+                sharedCache.stop();
+            }
+            connectionFactories.forEach(LettuceConnectionFactory::destroy);
+        }
+    }
+
+    private BatchWeatherService replica(int port, Clock clock) {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", port),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofMillis(500)).build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        connectionFactories.add(connectionFactory);
+        SharedCacheProperties sharedProperties = new SharedCacheProperties();
+        sharedProperties.setEnabled(true);
+        WeatherCache cache = new WeatherCache(new WeatherCacheProperties(), clock);
+        SharedWeatherCache sharedCache = new SharedWeatherCache(sharedProperties, cache, clock, connectionFactory);
+        sharedCache.start();
+        sharedCaches.add(sharedCache);
+        return new BatchWeatherService(OpenMeteoClientFixture.databind(restTemplate, new CircuitBreakerProperties(),
+                clock, executor), cache, sharedCache, new HistoryArchive(new HistoryProperties(), clock), properties,
+                executor);
+    }
+
+    private static String queryParameter(String url, String name) {
+        return UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst(name);
+    }
+
+    private WeatherResponse response(double latitude, double longitude, double temperature) {
+        WeatherResponse response = new WeatherResponse();
+        response.setLatitude(latitude);
+        response.setLongitude(longitude);
+        WeatherResponse.CurrentWeather current = new WeatherResponse.CurrentWeather();
+        current.setTime("2024-01-15T14:30");
+        current.setInterval(900);
+        current.setTemperature_2m(temperature);
+        response.setCurrentWeather(current);
+        return response;
+    }
+}
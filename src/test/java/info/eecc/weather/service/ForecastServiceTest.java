@@ -0,0 +1,157 @@
+package info.eecc.weather.service;
+
+import info.eecc.weather.config.ForecastProperties;
+import info.eecc.weather.dto.ForecastDto;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.forecast.Forecast;
+import info.eecc.weather.forecast.ForecastCache;
+import info.eecc.weather.forecast.ForecastResolution;
+import info.eecc.weather.forecast.ForecastSeries;
+import info.eecc.weather.forecast.ForecastVariable;
+import info.eecc.weather.upstream.OpenMeteoClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Forecast Service Tests")
+class ForecastServiceTest {
+
+    /** 2024-01-15T00:00Z */
+    private static final long START = 1705276800L;
+
+    @Mock
+    private OpenMeteoClient openMeteoClient;
+
+    @Mock
+    private WeatherService weatherService;
+
+    private final ForecastProperties properties = new ForecastProperties();
+
+    private ForecastCache forecastCache;
+
+    private ForecastService forecastService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-15T14:35:00Z"), ZoneOffset.UTC);
+        forecastCache = new ForecastCache(properties, clock);
+        forecastService = new ForecastService(openMeteoClient, forecastCache, weatherService, properties);
+    }
+
+    @Test
+    @DisplayName("Should slice the cached forecast by variable and time range")
+    void getForecast_WithVariablesAndRange_ShouldSliceColumns() {
+        // Given
+        when(openMeteoClient.fetchForecast(eq(52.5), eq(13.4), anyList(), anyList(), eq(7))).thenReturn(weekForecast());
+
+        // When
+        ForecastDto forecast = forecastService.getForecast(52.52, 13.41, "temperature_2m, precipitation",
+                "temperature_2m_max", LocalDateTime.of(2024, 1, 16, 5, 30), LocalDateTime.of(2024, 1, 16, 8, 0));
+
+        // Then
+        assertThat(forecast.getLocation()).isEqualTo("52.5000, 13.4000");
+        assertThat(forecast.getHourly().getTime()).containsExactly("2024-01-16T06:00", "2024-01-16T07:00",
+                "2024-01-16T08:00");
+        assertThat(forecast.getHourly().getValues()).containsOnlyKeys("temperature_2m", "precipitation");
+        assertThat(forecast.getHourly().getValues().get("temperature_2m")).containsExactly(3.0f, 3.1f, 3.2f);
+        assertThat(forecast.getHourly().getUnits()).containsEntry("precipitation", "mm");
+        assertThat(forecast.getDaily().getTime()).containsExactly("2024-01-16");
+        assertThat(forecast.getDaily().getValues().get("temperature_2m_max")).containsExactly(new Float[] { null });
+    }
+
+    @Test
+    @DisplayName("Should fetch each grid cell once and serve later requests from the cache")
+    void getForecast_WithCachedCell_ShouldNotCallUpstreamAgain() {
+        // Given
+        when(openMeteoClient.fetchForecast(anyDouble(), anyDouble(), anyList(), anyList(), anyInt()))
+                .thenReturn(weekForecast());
+
+        // When
+        forecastService.getForecast(52.52, 13.41, null, null, null, null);
+        ForecastDto second = forecastService.getForecast(52.51, 13.39, null, "", null, null);
+
+        // Then
+        verify(openMeteoClient, times(1)).fetchForecast(anyDouble(), anyDouble(), anyList(), anyList(), anyInt());
+        assertThat(second.getHourly().getTime()).hasSize(7 * 24);
+        assertThat(second.getHourly().getValues()).hasSize(properties.getHourly().size());
+        assertThat(second.getDaily()).isNull();
+        // A week of ten hourly and six daily variables stays in the low kilobytes per location
+        assertThat(forecastCache.estimatedBytes()).isLessThan(4_000);
+    }
+
+    @Test
+    @DisplayName("Should reject unknown variables and inverted ranges before calling the upstream")
+    void getForecast_WithInvalidSelection_ShouldThrowBadRequest() {
+        // When & Then
+        assertThatThrownBy(() -> forecastService.getForecast(52.52, 13.41, "snowfall", null, null, null))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("Unknown hourly variable: snowfall")
+                .extracting(e -> ((WeatherException) e).getHttpStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> forecastService.getForecast(52.52, 13.41, null, null,
+                LocalDateTime.of(2024, 1, 16, 0, 0), LocalDateTime.of(2024, 1, 15, 0, 0)))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("End must not be before start");
+
+        verifyNoInteractions(openMeteoClient);
+    }
+
+    @Test
+    @DisplayName("Should resolve cities and report upstream failures as internal errors")
+    void getForecastByCity_WithUpstreamFailure_ShouldThrowInternalError() {
+        // Given
+        GeocodingResponse.Result berlin = new GeocodingResponse.Result();
+        berlin.setLatitude(52.52437);
+        berlin.setLongitude(13.41053);
+        when(weatherService.getCoordinatesForCity("Berlin")).thenReturn(berlin);
+        when(openMeteoClient.fetchForecast(anyDouble(), anyDouble(), anyList(), anyList(), anyInt()))
+                .thenThrow(new RestClientException("Connection refused"));
+
+        // When & Then
+        assertThatThrownBy(() -> forecastService.getForecastByCity("Berlin", null, null, null, null))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("Failed to fetch forecast data")
+                .extracting(e -> ((WeatherException) e).getHttpStatus())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(forecastCache.size()).isZero();
+    }
+
+    /**
+     * Seven days of the default variables, hourly temperatures rising by 0.1 °C per hour from 0.0, all daily
+     * values missing.
+     */
+    private Forecast weekForecast() {
+        List<ForecastVariable> hourly = ForecastVariable.parse(ForecastResolution.HOURLY, properties.getHourly());
+        List<ForecastVariable> daily = ForecastVariable.parse(ForecastResolution.DAILY, properties.getDaily());
+        int hours = 7 * 24;
+        short[] hourlyValues = new short[hourly.size() * hours];
+        int temperature = hourly.indexOf(ForecastVariable.TEMPERATURE_2M);
+        for (int i = 0; i < hours; i++) {
+            hourlyValues[temperature * hours + i] = ForecastVariable.TEMPERATURE_2M.encode(i / 10.0);
+        }
+        short[] dailyValues = new short[daily.size() * 7];
+        Arrays.fill(dailyValues, ForecastSeries.MISSING);
+        return new Forecast(52.5, 13.4, new ForecastSeries(ForecastResolution.HOURLY, START, hours, hourly, hourlyValues),
+                new ForecastSeries(ForecastResolution.DAILY, START, 7, daily, dailyValues));
+    }
+}
@@ -0,0 +1,214 @@
+package info.eecc.weather.service;
+
+import info.eecc.weather.cache.EmbeddedRespServer;
+import info.eecc.weather.cache.SharedWeatherCache;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.config.GeocodingStoreProperties;
+import info.eecc.weather.config.HedgingProperties;
+import info.eecc.weather.config.HistoryProperties;
+import info.eecc.weather.config.OfflineGeocoderProperties;
+import info.eecc.weather.config.SharedCacheProperties;
+import info.eecc.weather.config.UpstreamBudgetProperties;
+import info.eecc.weather.config.UpstreamConcurrencyProperties;
+import info.eecc.weather.config.UpstreamHttpProperties;
+import info.eecc.weather.config.WeatherCacheProperties;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.geocoding.GeocodingStore;
+import info.eecc.weather.geocoding.OfflineGeocoder;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.upstream.ReactiveOpenMeteoClient;
+import info.eecc.weather.upstream.UpstreamBudget;
+import info.eecc.weather.upstream.UpstreamCircuitBreakers;
+import info.eecc.weather.upstream.UpstreamConcurrencyLimiter;
+import info.eecc.weather.upstream.UpstreamHedging;
+import info.eecc.weather.upstream.UpstreamMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Reactive Weather Service Tests")
+class ReactiveWeatherServiceTest {
+
+    private static final String WEATHER_JSON = """
+            {"latitude": 52.52, "longitude": 13.41,
+             "current": {"time": "2024-01-15T14:30", "interval": 900, "temperature_2m": 22.5,
+                         "relative_humidity_2m": 65, "apparent_temperature": 24.2, "is_day": 1, "weather_code": 2,
+                         "wind_speed_10m": 12.5, "wind_direction_10m": 245, "surface_pressure": 1013.2,
+                         "cloud_cover": 75},
+             "current_units": {"temperature_2m": "°C", "wind_speed_10m": "km/h", "surface_pressure": "hPa"}}
+            """;
+
+    private static final String BERLIN_JSON = """
+            {"results": [{"latitude": 52.52437, "longitude": 13.41053, "name": "Berlin", "country": "Germany"}]}
+            """;
+
+    private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-15T14:35:00Z"), ZoneOffset.UTC);
+
+    private final GeocodingStoreProperties geocodingStoreProperties = new GeocodingStoreProperties();
+
+    private ReactiveOpenMeteoClient openMeteoClient;
+
+    private ReactiveWeatherService weatherService;
+
+    private String geocodingBody = BERLIN_JSON;
+
+    private Duration upstreamDelay = Duration.ZERO;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        geocodingStoreProperties.setPath(tempDir.resolve("geocoding.dat"));
+
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    requestedPaths.add(path);
+                    String body = path.endsWith("/search") ? geocodingBody : WEATHER_JSON;
+                    return Mono.delay(upstreamDelay).thenReturn(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        openMeteoClient = new ReactiveOpenMeteoClient(webClient, new UpstreamHttpProperties(),
+                new UpstreamConcurrencyLimiter(new UpstreamConcurrencyProperties(), new SimpleMeterRegistry()),
+                new UpstreamBudget(new UpstreamBudgetProperties(), clock, new SimpleMeterRegistry()),
+                new UpstreamMetrics(new SimpleMeterRegistry()),
+                new UpstreamCircuitBreakers(new CircuitBreakerProperties(), clock, new SimpleMeterRegistry()),
+                new UpstreamHedging(new HedgingProperties(), new SimpleMeterRegistry(), Executors.newVirtualThreadPerTaskExecutor()));
+        WeatherCache weatherCache = new WeatherCache(new WeatherCacheProperties(), clock);
+        weatherService = service(weatherCache, new SharedWeatherCache(new SharedCacheProperties(), weatherCache, clock,
+                null));
+    }
+
+    @Test
+    @DisplayName("Should fetch weather by coordinates and serve the repeated request from the cache")
+    void getCurrentWeather_WithRepeatedCoordinates_ShouldCallUpstreamOnce() {
+        // When & Then
+        StepVerifier.create(weatherService.getCurrentWeather(52.5200, 13.4032))
+                .assertNext(weather -> {
+                    assertThat(weather.getTemperature()).isEqualTo(22.5);
+                    assertThat(weather.getWeatherDescription()).isEqualTo("Partly cloudy");
+                    assertThat(weather.getTimestamp()).isEqualTo("2024-01-15T14:30");
+                })
+                .verifyComplete();
+        StepVerifier.create(weatherService.getCurrentWeather(52.5201, 13.4031))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(requestedPaths).containsExactly("/v1/forecast");
+    }
+
+    @Test
+    @DisplayName("Should geocode the city and then fetch its weather")
+    void getCurrentWeatherByCity_WithKnownCity_ShouldChainGeocodingAndForecast() {
+        // When & Then
+        StepVerifier.create(weatherService.getCurrentWeatherByCity("Berlin"))
+                .assertNext(weather -> assertThat(weather.getTemperature()).isEqualTo(22.5))
+                .verifyComplete();
+
+        assertThat(requestedPaths).containsExactly("/v1/search", "/v1/forecast");
+    }
+
+    @Test
+    @DisplayName("Should fail with the same error as the blocking service for unknown cities")
+    void getCurrentWeatherByCity_WithUnknownCity_ShouldFail() {
+        // Given
+        geocodingBody = "{\"results\": []}";
+
+        // When & Then
+        StepVerifier.create(weatherService.getCurrentWeatherByCity("Atlantis"))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(WeatherException.class)
+                        .hasMessageContaining("Atlantis"))
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should share one upstream call between concurrent requests for the same cell")
+    void getCurrentWeather_WithConcurrentRequests_ShouldCoalesce() {
+        // Given
+        upstreamDelay = Duration.ofMillis(100);
+
+        // When & Then
+        StepVerifier.create(Mono.zip(weatherService.getCurrentWeather(52.5200, 13.4032),
+                        weatherService.getCurrentWeather(52.5201, 13.4031)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(requestedPaths).containsExactly("/v1/forecast");
+    }
+
+    @Test
+    @DisplayName("Should serve a cell another instance fetched from the shared cache")
+    void getCurrentWeather_WithCellSharedByAnotherInstance_ShouldNotCallUpstream() throws Exception {
+        try (EmbeddedRespServer server = new EmbeddedRespServer(0)) {
+            // Given
+            LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                    new RedisStandaloneConfiguration("127.0.0.1", server.getPort()),
+                    LettuceClientConfiguration.builder().commandTimeout(Duration.ofMillis(500)).build());
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            SharedCacheProperties sharedProperties = new SharedCacheProperties();
+            sharedProperties.setEnabled(true);
+            WeatherCache firstCache = new WeatherCache(new WeatherCacheProperties(), clock);
+            SharedWeatherCache firstShared = new SharedWeatherCache(sharedProperties, firstCache, clock,
+                    connectionFactory);
+            WeatherCache secondCache = new WeatherCache(new WeatherCacheProperties(), clock);
+            SharedWeatherCache secondShared = new SharedWeatherCache(sharedProperties, secondCache, clock,
+                    connectionFactory);
+            firstShared.start();
+            secondShared.start();
+            try {
+                // When
+                StepVerifier.create(service(firstCache, firstShared).getCurrentWeather(52.5200, 13.4032))
+                        .expectNextCount(1)
+                        .verifyComplete();
+                StepVerifier.create(service(secondCache, secondShared).getCurrentWeather(52.5201, 13.4031))
+                        .assertNext(weather -> assertThat(weather.getTemperature()).isEqualTo(22.5))
+                        .verifyComplete();
+
+                // Then
+                assertThat(requestedPaths).containsExactly("/v1/forecast");
+            } finally {
+                firstShared.stop();
+                secondShared.stop();
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    private ReactiveWeatherService service(WeatherCache weatherCache, SharedWeatherCache sharedCache) {
+        return new ReactiveWeatherService(openMeteoClient, weatherCache, sharedCache,
+                new GeocodingStore(geocodingStoreProperties), new OfflineGeocoder(new OfflineGeocoderProperties()),
+                new HistoryArchive(new HistoryProperties(), clock));
+    }
+}
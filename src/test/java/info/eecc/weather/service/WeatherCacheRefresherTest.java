@@ -0,0 +1,87 @@
+package info.eecc.weather.service;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.CacheRefreshProperties;
+import info.eecc.weather.exception.WeatherException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Weather Cache Refresher Tests")
+class WeatherCacheRefresherTest {
+
+    private static final GridKey BERLIN = new GridKey(5252, 1341);
+
+    @Mock
+    private WeatherCache weatherCache;
+
+    @Mock
+    private WeatherService weatherService;
+
+    private ExecutorService executor;
+
+    private WeatherCacheRefresher refresher;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        Clock clock = Clock.fixed(Instant.parse("2024-01-15T14:45:05Z"), ZoneOffset.UTC);
+        refresher = new WeatherCacheRefresher(weatherCache, weatherService, new CacheRefreshProperties(), executor,
+                clock);
+        when(weatherCache.isStaleServingEnabled()).thenReturn(true);
+        when(weatherCache.dueForRefresh(anyInt(), any())).thenReturn(List.of(BERLIN));
+    }
+
+    @Test
+    @DisplayName("Should refresh a due cell in the background")
+    void refreshDueEntries_WithDueCell_ShouldRefreshIt() throws Exception {
+        // When
+        refresher.refreshDueEntries();
+        drain();
+
+        // Then
+        verify(weatherService).refresh(BERLIN);
+        assertThat(refresher.refreshingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should back off from a cell whose refresh failed")
+    void refreshDueEntries_AfterFailedRefresh_ShouldNotRetryImmediately() throws Exception {
+        // Given
+        when(weatherService.refresh(BERLIN))
+                .thenThrow(new WeatherException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to fetch weather data"));
+
+        // When
+        refresher.refreshDueEntries();
+        drain();
+        refresher.refreshDueEntries();
+        drain();
+
+        // Then
+        verify(weatherService, times(1)).refresh(BERLIN);
+    }
+
+    private void drain() throws Exception {
+        // Single threaded executor: once this marker ran, all earlier refreshes have completed
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+}
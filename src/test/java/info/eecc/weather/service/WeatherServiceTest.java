@@ -1,20 +1,44 @@
 package info.eecc.weather.service;
 
+import info.eecc.weather.cache.SharedWeatherCache;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.config.GeocodingStoreProperties;
+import info.eecc.weather.config.HistoryProperties;
+import info.eecc.weather.config.OfflineGeocoderProperties;
+import info.eecc.weather.config.SharedCacheProperties;
+import info.eecc.weather.config.WeatherCacheProperties;
 import info.eecc.weather.dto.CurrentWeatherDto;
 import info.eecc.weather.dto.GeocodingResponse;
 import info.eecc.weather.dto.WeatherResponse;
 import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.geocoding.GeocodingStore;
+import info.eecc.weather.geocoding.OfflineGeocoder;
+import info.eecc.weather.history.HistoryArchive;
+import info.eecc.weather.upstream.OpenMeteoClient;
+import info.eecc.weather.upstream.OpenMeteoClientFixture;
 import org.springframework.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,9 +54,38 @@ class WeatherServiceTest {
 
     private WeatherService weatherService;
 
+    private WeatherCache weatherCache;
+
+    private final WeatherCacheProperties cacheProperties = new WeatherCacheProperties();
+
+    private final CircuitBreakerProperties circuitBreakerProperties = new CircuitBreakerProperties();
+
+    private final OfflineGeocoderProperties offlineGeocoderProperties = new OfflineGeocoderProperties();
+
+    private OfflineGeocoder offlineGeocoder;
+
+    private final ExecutorService hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @TempDir
+    private Path tempDir;
+
     @BeforeEach
     void setUp() {
-        weatherService = new WeatherService(restTemplate);
+        Clock clock = Clock.fixed(Instant.parse("2024-01-15T14:35:00Z"), ZoneOffset.UTC);
+        weatherCache = new WeatherCache(cacheProperties, clock);
+        GeocodingStoreProperties geocodingStoreProperties = new GeocodingStoreProperties();
+        geocodingStoreProperties.setPath(tempDir.resolve("geocoding.dat"));
+        OpenMeteoClient openMeteoClient = OpenMeteoClientFixture.databind(restTemplate, circuitBreakerProperties,
+                clock, hedgeExecutor);
+        offlineGeocoder = new OfflineGeocoder(offlineGeocoderProperties);
+        weatherService = new WeatherService(openMeteoClient, weatherCache, new GeocodingStore(geocodingStoreProperties),
+                offlineGeocoder, new SharedWeatherCache(new SharedCacheProperties(), weatherCache, clock, null),
+                new HistoryArchive(new HistoryProperties(), clock));
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedgeExecutor.shutdownNow();
     }
 
     @Test
@@ -147,6 +200,27 @@ class WeatherServiceTest {
         verify(restTemplate, times(1)).getForObject(contains("api.open-meteo.com"), eq(WeatherResponse.class));
     }
 
+    @Test
+    @DisplayName("Should resolve the city from the offline dataset without calling the geocoding API")
+    void getCurrentWeatherByCity_WithOfflineDataset_ShouldSkipGeocodingApi() throws IOException {
+        // Given
+        Path dataset = Files.writeString(tempDir.resolve("cities.txt"), String.join("\t", "2950159", "Berlin",
+                "Berlin", "", "52.52437", "13.41053", "P", "PPLC", "DE", "", "16", "", "", "", "3426354") + "\n");
+        offlineGeocoderProperties.setEnabled(true);
+        offlineGeocoderProperties.setPath(dataset);
+        offlineGeocoder.load();
+        when(restTemplate.getForObject(contains("api.open-meteo.com"), eq(WeatherResponse.class)))
+                .thenReturn(createMockWeatherResponse(52.52, 13.41));
+
+        // When
+        CurrentWeatherDto result = weatherService.getCurrentWeatherByCity("berlin");
+
+        // Then
+        assertThat(result.getTemperature()).isEqualTo(22.5);
+        verify(restTemplate, never()).getForObject(contains("geocoding-api.open-meteo.com"),
+                eq(GeocodingResponse.class));
+    }
+
     @Test
     @DisplayName("Should throw exception when city is not found")
     void getCurrentWeatherByCity_WhenCityNotFound_ShouldThrowException() {
@@ -215,6 +289,103 @@ class WeatherServiceTest {
                 .hasMessageContaining("Failed to fetch weather data for city: " + city);
     }
 
+    @Test
+    @DisplayName("Should serve repeated requests within the same grid cell from the cache")
+    void getCurrentWeather_WithinSameGridCell_ShouldCallApiOnce() {
+        // Given
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenReturn(createMockWeatherResponse(52.52, 13.40));
+
+        // When
+        CurrentWeatherDto first = weatherService.getCurrentWeather(52.5201, 13.4049);
+        CurrentWeatherDto second = weatherService.getCurrentWeather(52.5198, 13.4032);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(weatherCache.size()).isEqualTo(1);
+        verify(restTemplate, times(1)).getForObject(contains("latitude=52.52"), eq(WeatherResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should serve a neighbouring cell from the nearest cached observation")
+    void getCurrentWeather_NearCachedObservation_ShouldServeSnappedCoordinates() {
+        // Given
+        cacheProperties.setNearbyDistanceKm(2);
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenReturn(createMockWeatherResponse(52.52, 13.40));
+        weatherService.getCurrentWeather(52.52, 13.40);
+
+        // When
+        CurrentWeatherDto nearby = weatherService.getCurrentWeather(52.5312, 13.4123);
+
+        // Then
+        assertThat(nearby.getLatitude()).isEqualTo(52.52);
+        assertThat(nearby.getLongitude()).isEqualTo(13.40);
+        assertThat(weatherCache.size()).isEqualTo(1);
+        verify(restTemplate, times(1)).getForObject(any(String.class), eq(WeatherResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should not cache failed weather API calls")
+    void getCurrentWeather_WhenApiCallFails_ShouldNotCache() {
+        // Given
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenThrow(new RestClientException("Connection timeout"))
+                .thenReturn(createMockWeatherResponse(52.52, 13.405));
+
+        // When & Then
+        assertThatThrownBy(() -> weatherService.getCurrentWeather(52.52, 13.405))
+                .isInstanceOf(WeatherException.class);
+        assertThat(weatherService.getCurrentWeather(52.52, 13.405)).isNotNull();
+        verify(restTemplate, times(2)).getForObject(any(String.class), eq(WeatherResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should serve the last known weather while the circuit breaker is open")
+    void getCurrentWeather_WhenCircuitOpen_ShouldServeLastKnownWeather() {
+        // Given
+        cacheProperties.setMaxTtl(Duration.ZERO);
+        cacheProperties.setMaxStale(Duration.ZERO);
+        circuitBreakerProperties.setMinimumCalls(2);
+        when(restTemplate.getForObject(any(String.class), eq(WeatherResponse.class)))
+                .thenReturn(createMockWeatherResponse(52.52, 13.405))
+                .thenThrow(new RestClientException("Connection timeout"));
+        CurrentWeatherDto lastKnown = weatherService.getCurrentWeather(52.52, 13.405);
+        assertThatThrownBy(() -> weatherService.getCurrentWeather(52.52, 13.405))
+                .isInstanceOf(WeatherException.class);
+
+        // When
+        CurrentWeatherDto result = weatherService.getCurrentWeather(52.52, 13.405);
+
+        // Then
+        assertThat(result).isSameAs(lastKnown);
+        assertThatThrownBy(() -> weatherService.getCurrentWeather(48.137, 11.575))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("unavailable")
+                .satisfies(e -> assertThat(((WeatherException) e).getHttpStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        verify(restTemplate, times(2)).getForObject(any(String.class), eq(WeatherResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should resolve known cities from the geocoding store regardless of case and diacritics")
+    void getCurrentWeatherByCity_WithKnownCity_ShouldSkipGeocodingApi() {
+        // Given
+        when(restTemplate.getForObject(contains("geocoding-api.open-meteo.com"), eq(GeocodingResponse.class)))
+                .thenReturn(createMockGeocodingResponse());
+        when(restTemplate.getForObject(contains("api.open-meteo.com"), eq(WeatherResponse.class)))
+                .thenReturn(createMockWeatherResponse(52.5200, 13.4050));
+
+        // When
+        weatherService.getCurrentWeatherByCity("Berlin");
+        CurrentWeatherDto result = weatherService.getCurrentWeatherByCity("  BÉRLIN ");
+
+        // Then
+        assertThat(result.getLatitude()).isEqualTo(52.5200);
+        verify(restTemplate, times(1)).getForObject(contains("geocoding-api.open-meteo.com"),
+                eq(GeocodingResponse.class));
+    }
+
     private WeatherResponse createMockWeatherResponse(double lat, double lon) {
         WeatherResponse response = new WeatherResponse();
         response.setLatitude(lat);
@@ -0,0 +1,219 @@
+package info.eecc.weather.subscription;
+
+import info.eecc.weather.cache.GridKey;
+import info.eecc.weather.cache.WeatherCache;
+import info.eecc.weather.config.SubscriptionProperties;
+import info.eecc.weather.dto.CoordinatesDto;
+import info.eecc.weather.dto.CurrentWeatherDto;
+import info.eecc.weather.exception.WeatherException;
+import info.eecc.weather.service.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Weather Subscription Hub Tests")
+class WeatherSubscriptionHubTest {
+
+    private static final GridKey BERLIN = new GridKey(5252, 1341);
+
+    @Mock
+    private WeatherCache weatherCache;
+
+    @Mock
+    private WeatherService weatherService;
+
+    private SubscriptionProperties properties;
+
+    private ExecutorService executor;
+
+    private WeatherSubscriptionHub hub;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SubscriptionProperties();
+        executor = Executors.newSingleThreadExecutor();
+        Clock clock = Clock.fixed(Instant.parse("2024-01-15T14:45:05Z"), ZoneOffset.UTC);
+        hub = new WeatherSubscriptionHub(weatherCache, weatherService, properties, executor, new ObjectMapper(),
+                clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should refresh a cell once and send the snapshot to all its subscribers")
+    void subscribe_WithTwoSubscribersOfOneCell_ShouldShareOneRefresh() throws Exception {
+        // Given
+        WeatherSubscriber first = subscriber();
+        WeatherSubscriber second = subscriber();
+        // The mocked cache never holds the result, so the refresh must still run when the second stream subscribes
+        CountDownLatch subscribed = new CountDownLatch(1);
+        when(weatherService.refresh(BERLIN)).thenAnswer(invocation -> {
+            assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+            return weather("2024-01-15T14:45", 22.5, 65);
+        });
+
+        // When
+        hub.subscribe(first, List.of(BERLIN));
+        hub.subscribe(second, List.of(BERLIN));
+        subscribed.countDown();
+        drain();
+
+        // Then
+        verify(weatherService, times(1)).refresh(BERLIN);
+        verify(first).send(eq(WeatherSubscriptionHub.SNAPSHOT), contains("\"temperature\":22.5"));
+        verify(second).send(eq(WeatherSubscriptionHub.SNAPSHOT), contains("\"temperature\":22.5"));
+        assertThat(hub.getTopicCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should send only changed fields once the upstream time advances")
+    void poll_WithNewerObservation_ShouldSendDelta() throws Exception {
+        // Given
+        WeatherSubscriber subscriber = subscriber();
+        when(weatherService.refresh(BERLIN)).thenReturn(
+                weather("2024-01-15T14:45", 22.5, 65),
+                weather("2024-01-15T14:45", 22.5, 65),
+                weather("2024-01-15T15:00", 23.0, 65));
+        hub.subscribe(subscriber, List.of(BERLIN));
+        drain();
+
+        // When
+        hub.poll();
+        drain();
+        hub.poll();
+        drain();
+
+        // Then
+        ArgumentCaptor<String> data = ArgumentCaptor.forClass(String.class);
+        verify(subscriber).send(eq(WeatherSubscriptionHub.UPDATE), data.capture());
+        assertThat(data.getValue())
+                .contains("\"temperature\":23.0", "\"timestamp\":\"2024-01-15T15:00\"", "\"location\":")
+                .doesNotContain("humidity", "pressure");
+        verify(subscriber, times(1)).send(eq(WeatherSubscriptionHub.SNAPSHOT), anyString());
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber that cannot take more events")
+    void publish_WithFullSubscriber_ShouldDropIt() throws Exception {
+        // Given
+        WeatherSubscriber slow = mock(WeatherSubscriber.class);
+        when(slow.send(anyString(), anyString())).thenReturn(false);
+        when(weatherService.refresh(BERLIN)).thenReturn(weather("2024-01-15T14:45", 22.5, 65));
+
+        // When
+        hub.subscribe(slow, List.of(BERLIN));
+        drain();
+
+        // Then
+        verify(slow).close();
+        assertThat(hub.getSubscriberCount()).isZero();
+        assertThat(hub.getTopicCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject streams with too many locations")
+    void openEmitter_WithTooManyLocations_ShouldThrowBadRequest() {
+        // Given
+        properties.setMaxLocations(2);
+        List<CoordinatesDto> locations = Collections.nCopies(3, new CoordinatesDto(52.52, 13.41));
+
+        // When & Then
+        assertThatThrownBy(() -> hub.openEmitter(locations))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("At most 2 locations")
+                .extracting(e -> ((WeatherException) e).getHttpStatus())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(hub.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should never admit more than max-subscribers streams, even when they subscribe at once")
+    void subscribe_Concurrently_ShouldNotExceedMaxSubscribers() throws Exception {
+        // Given
+        properties.setMaxSubscribers(10);
+        WeatherSubscriptionHub limited = new WeatherSubscriptionHub(weatherCache, weatherService, properties,
+                executor, new ObjectMapper(), Clock.systemUTC());
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<WeatherSubscriber> admitted = new CopyOnWriteArrayList<>();
+
+        // When
+        try {
+            for (int i = 0; i < 100; i++) {
+                callers.execute(() -> {
+                    WeatherSubscriber candidate = mock(WeatherSubscriber.class);
+                    try {
+                        start.await();
+                        limited.subscribe(candidate, List.of());
+                        admitted.add(candidate);
+                    } catch (WeatherException | InterruptedException e) {
+                        // Rejected, no slot left
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            callers.shutdown();
+        }
+        assertThat(callers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        limited.unsubscribe(admitted.get(0));
+        limited.subscribe(mock(WeatherSubscriber.class), List.of());
+
+        // Then
+        assertThat(admitted).hasSize(10);
+        assertThat(limited.getSubscriberCount()).isEqualTo(10);
+        assertThatThrownBy(() -> limited.subscribe(mock(WeatherSubscriber.class), List.of()))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("Too many open subscriptions");
+    }
+
+    private static WeatherSubscriber subscriber() {
+        WeatherSubscriber subscriber = mock(WeatherSubscriber.class);
+        when(subscriber.send(anyString(), anyString())).thenReturn(true);
+        return subscriber;
+    }
+
+    private static CurrentWeatherDto weather(String timestamp, double temperature, int humidity) {
+        return CurrentWeatherDto.builder()
+                .latitude(52.52)
+                .longitude(13.41)
+                .location("52.5200, 13.4100")
+                .temperature(temperature)
+                .temperatureUnit("°C")
+                .humidity(humidity)
+                .pressure(1013.2)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private void drain() throws Exception {
+        // Single threaded executor: once this marker ran, all earlier refreshes have completed
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,134 @@
+package info.eecc.weather.upstream;
+
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.exception.WeatherException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Circuit Breaker Tests")
+class CircuitBreakerTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T14:35:00Z");
+
+    private final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Clock clock;
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        properties.setWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setHalfOpenCalls(2);
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        circuitBreaker = new CircuitBreaker("forecast", properties, clock, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should open once the failure rate reaches the threshold and reject without calling")
+    void execute_WhenFailureRateReached_ShouldOpenAndReject() {
+        // Given
+        callSucceeds();
+        callFails();
+        callSucceeds();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.CLOSED);
+
+        // When
+        callFails();
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.OPEN);
+        assertThatThrownBy(() -> circuitBreaker.execute(() -> fail("must not be called")))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("unavailable");
+        assertThat(meterRegistry.get("weather.upstream.circuit.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.circuit.state").tag("state", "OPEN").gauge().value())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not count client errors as upstream failures")
+    void execute_WithClientErrors_ShouldStayClosed() {
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> circuitBreaker.execute(() -> {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            })).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.CLOSED);
+        assertThat(circuitBreaker.getFailureRate()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should close again after successful trial calls once the open duration has passed")
+    void execute_AfterOpenDuration_ShouldCloseOnSuccessfulTrials() {
+        // Given
+        openCircuit();
+        when(clock.instant()).thenReturn(NOW.plus(properties.getOpenDuration()));
+
+        // When
+        callSucceeds();
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.HALF_OPEN);
+        callSucceeds();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should open again when a trial call fails")
+    void executeAsync_WhenTrialCallFails_ShouldReopen() {
+        // Given
+        openCircuit();
+        when(clock.instant()).thenReturn(NOW.plus(properties.getOpenDuration()).plus(Duration.ofSeconds(1)));
+
+        // When
+        StepVerifier.create(circuitBreaker.executeAsync(() -> Mono.error(new ResourceAccessException("Read timed out"))))
+                .expectError(ResourceAccessException.class)
+                .verify();
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.OPEN);
+        StepVerifier.create(circuitBreaker.executeAsync(() -> Mono.just("weather")))
+                .expectErrorSatisfies(error -> assertThat(((WeatherException) error).getHttpStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE))
+                .verify();
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            callFails();
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.OPEN);
+    }
+
+    private void callSucceeds() {
+        assertThat(circuitBreaker.execute(() -> "weather")).isEqualTo("weather");
+    }
+
+    private void callFails() {
+        assertThatThrownBy(() -> circuitBreaker.execute(() -> {
+            throw new ResourceAccessException("Read timed out");
+        })).isInstanceOf(ResourceAccessException.class);
+    }
+}
@@ -0,0 +1,100 @@
+package info.eecc.weather.upstream;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import info.eecc.weather.dto.CurrentObservation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Current Weather Decoder Tests")
+class CurrentWeatherDecoderTest {
+
+    private static final String WEATHER_JSON = """
+            {"latitude": 52.52, "longitude": 13.41, "generationtime_ms": 0.05, "utc_offset_seconds": 0,
+             "current_units": {"time": "iso8601", "interval": "seconds", "temperature_2m": "°F",
+                               "wind_speed_10m": "mph", "surface_pressure": "hPa"},
+             "current": {"time": "2024-01-15T14:30", "interval": 900, "temperature_2m": 72.5,
+                         "relative_humidity_2m": 65, "apparent_temperature": 74.2, "is_day": 1, "weather_code": 61,
+                         "wind_speed_10m": 7.8, "wind_direction_10m": 245, "surface_pressure": 1013.2,
+                         "cloud_cover": 75, "precipitation": {"nested": [1, 2]}}}
+            """;
+
+    @Test
+    @DisplayName("Should decode all variables and units of a single forecast")
+    void decode_WithFullResponse_ShouldMapAllFields() throws IOException {
+        // When
+        CurrentObservation observation = CurrentWeatherDecoder.decode(stream(WEATHER_JSON), "52.5200, 13.4100");
+
+        // Then
+        assertThat(observation.getInterval()).isEqualTo(900);
+        assertThat(observation.getWeather()).satisfies(weather -> {
+            assertThat(weather.getLatitude()).isEqualTo(52.52);
+            assertThat(weather.getLocation()).isEqualTo("52.5200, 13.4100");
+            assertThat(weather.getTemperature()).isEqualTo(72.5);
+            assertThat(weather.getTemperatureUnit()).isEqualTo("°F");
+            assertThat(weather.getHumidity()).isEqualTo(65);
+            assertThat(weather.getWeatherCode()).isEqualTo(61);
+            assertThat(weather.getWeatherDescription()).isEqualTo("Rain");
+            assertThat(weather.getWindSpeedUnit()).isEqualTo("mph");
+            assertThat(weather.getPressure()).isEqualTo(1013.2);
+            assertThat(weather.isDay()).isTrue();
+            assertThat(weather.getTimestamp()).isEqualTo("2024-01-15T14:30");
+        });
+    }
+
+    @Test
+    @DisplayName("Should share unit strings between decoded responses")
+    void decode_WithRepeatedResponses_ShouldShareUnitStrings() throws IOException {
+        // When
+        CurrentObservation first = CurrentWeatherDecoder.decode(stream(WEATHER_JSON), null);
+        CurrentObservation second = CurrentWeatherDecoder.decode(stream(WEATHER_JSON), null);
+
+        // Then
+        assertThat(first.getWeather().getTemperatureUnit()).isSameAs(second.getWeather().getTemperatureUnit());
+        assertThat(first.getWeather().getWindSpeedUnit()).isSameAs(second.getWeather().getWindSpeedUnit());
+    }
+
+    @Test
+    @DisplayName("Should return null when the response has no current weather")
+    void decode_WithoutCurrentBlock_ShouldReturnNull() throws IOException {
+        // When & Then
+        assertThat(CurrentWeatherDecoder.decode(stream("{\"latitude\": 52.52, \"current\": null}"), null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should decode multi-location responses in request order")
+    void decodeAll_WithArray_ShouldLabelInOrder() throws IOException {
+        // Given
+        String json = "[" + WEATHER_JSON + ", null, {\"latitude\": 48.14}]";
+
+        // When
+        List<CurrentObservation> observations = CurrentWeatherDecoder.decodeAll(stream(json),
+                List.of("Berlin", "Nowhere", "Munich"));
+
+        // Then
+        assertThat(observations).hasSize(3);
+        assertThat(observations.get(0).getWeather().getLocation()).isEqualTo("Berlin");
+        assertThat(observations.get(1)).isNull();
+        assertThat(observations.get(2)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should fail on a single object where an array is expected")
+    void decodeAll_WithObject_ShouldFail() {
+        // When & Then
+        assertThatThrownBy(() -> CurrentWeatherDecoder.decodeAll(stream(WEATHER_JSON), List.of("Berlin")))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("array");
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
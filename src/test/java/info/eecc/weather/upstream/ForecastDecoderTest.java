@@ -0,0 +1,93 @@
+package info.eecc.weather.upstream;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import info.eecc.weather.forecast.Forecast;
+import info.eecc.weather.forecast.ForecastSeries;
+import info.eecc.weather.forecast.ForecastVariable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Forecast Decoder Tests")
+class ForecastDecoderTest {
+
+    private static final List<ForecastVariable> HOURLY = List.of(ForecastVariable.TEMPERATURE_2M,
+            ForecastVariable.PRECIPITATION_PROBABILITY, ForecastVariable.SURFACE_PRESSURE);
+
+    private static final List<ForecastVariable> DAILY = List.of(ForecastVariable.TEMPERATURE_2M_MAX);
+
+    private static final String FORECAST_JSON = """
+            {"latitude": 52.52, "longitude": 13.419998, "utc_offset_seconds": 0, "timezone": "GMT",
+             "hourly_units": {"time": "unixtime", "temperature_2m": "°C"},
+             "hourly": {"time": [1705276800, 1705280400, 1705284000],
+                        "temperature_2m": [-1.3, 2.8, 0.0],
+                        "precipitation_probability": [0, null, 100],
+                        "snowfall": [0.0, 0.1, 0.0]},
+             "daily_units": {"time": "unixtime"},
+             "daily": {"time": [1705276800], "temperature_2m_max": [4.5]}}
+            """;
+
+    @Test
+    @DisplayName("Should decode hourly and daily columns without losing precision")
+    void decode_WithFullResponse_ShouldFillColumns() throws IOException {
+        // When
+        Forecast forecast = ForecastDecoder.decode(stream(FORECAST_JSON), HOURLY, DAILY);
+
+        // Then
+        assertThat(forecast.getLatitude()).isEqualTo(52.52);
+        ForecastSeries hourly = forecast.getHourly();
+        assertThat(hourly.getLength()).isEqualTo(3);
+        assertThat(hourly.getTime(2)).isEqualTo(1705284000L);
+        int temperature = hourly.indexOf(ForecastVariable.TEMPERATURE_2M);
+        assertThat(hourly.getValue(temperature, 0)).isEqualTo(-1.3f);
+        assertThat(hourly.getValue(temperature, 1)).isEqualTo(2.8f);
+        int probability = hourly.indexOf(ForecastVariable.PRECIPITATION_PROBABILITY);
+        assertThat(hourly.getValue(probability, 1)).isNaN();
+        assertThat(hourly.getValue(probability, 2)).isEqualTo(100f);
+        assertThat(forecast.getDaily().getValue(0, 0)).isEqualTo(4.5f);
+    }
+
+    @Test
+    @DisplayName("Should store requested variables missing from the response as missing values")
+    void decode_WithMissingVariable_ShouldStoreMissingValues() throws IOException {
+        // When
+        Forecast forecast = ForecastDecoder.decode(stream(FORECAST_JSON), HOURLY, DAILY);
+
+        // Then
+        ForecastSeries hourly = forecast.getHourly();
+        assertThat(hourly.getVariables()).containsExactlyElementsOf(HOURLY);
+        assertThat(hourly.getValue(hourly.indexOf(ForecastVariable.SURFACE_PRESSURE), 0)).isNaN();
+        assertThat(hourly.estimatedBytes()).isLessThan(100);
+    }
+
+    @Test
+    @DisplayName("Should reject responses with irregular time steps or mismatched columns")
+    void decode_WithInconsistentSeries_ShouldFail() {
+        // Given
+        String irregular = """
+                {"hourly": {"time": [1705276800, 1705284000], "temperature_2m": [1.0, 2.0]}}
+                """;
+        String mismatched = """
+                {"hourly": {"time": [1705276800, 1705280400], "temperature_2m": [1.0]}}
+                """;
+
+        // When & Then
+        assertThatThrownBy(() -> ForecastDecoder.decode(stream(irregular), HOURLY, DAILY))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("Irregular hourly time step");
+        assertThatThrownBy(() -> ForecastDecoder.decode(stream(mismatched), HOURLY, DAILY))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("Expected 2 values for hourly temperature_2m");
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
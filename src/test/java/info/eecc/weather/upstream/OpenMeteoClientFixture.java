@@ -0,0 +1,40 @@
+package info.eecc.weather.upstream;
+
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.config.HedgingProperties;
+import info.eecc.weather.config.UpstreamBudgetProperties;
+import info.eecc.weather.config.UpstreamConcurrencyProperties;
+import info.eecc.weather.config.UpstreamDecoder;
+import info.eecc.weather.config.UpstreamHttpProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builds an {@link OpenMeteoClient} with the real resilience chain (limiter, budget, metrics, circuit breakers,
+ * hedging) on a mocked {@link RestTemplate}, for service tests that stub upstream responses.
+ */
+public final class OpenMeteoClientFixture {
+
+    private OpenMeteoClientFixture() {
+    }
+
+    /**
+     * The mocked {@code RestTemplate} answers {@code getForObject}, so responses are decoded through data
+     * binding. Budget and hedging keep their defaults (disabled); {@code hedgeExecutor} is owned by the caller.
+     */
+    public static OpenMeteoClient databind(RestTemplate restTemplate, CircuitBreakerProperties circuitBreakers,
+            Clock clock, ExecutorService hedgeExecutor) {
+        UpstreamHttpProperties httpProperties = new UpstreamHttpProperties();
+        httpProperties.setDecoder(UpstreamDecoder.DATABIND);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new OpenMeteoClient(restTemplate, httpProperties,
+                new UpstreamConcurrencyLimiter(new UpstreamConcurrencyProperties(), meterRegistry),
+                new UpstreamBudget(new UpstreamBudgetProperties(), clock, meterRegistry),
+                new UpstreamMetrics(meterRegistry),
+                new UpstreamCircuitBreakers(circuitBreakers, clock, meterRegistry),
+                new UpstreamHedging(new HedgingProperties(), meterRegistry, hedgeExecutor));
+    }
+}
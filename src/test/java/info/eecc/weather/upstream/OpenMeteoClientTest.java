@@ -0,0 +1,230 @@
+package info.eecc.weather.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import info.eecc.weather.config.AppConfig;
+import info.eecc.weather.config.CircuitBreakerProperties;
+import info.eecc.weather.config.HedgingProperties;
+import info.eecc.weather.config.UpstreamBudgetProperties;
+import info.eecc.weather.config.UpstreamConcurrencyProperties;
+import info.eecc.weather.config.UpstreamHttpProperties;
+import info.eecc.weather.dto.CurrentObservation;
+import info.eecc.weather.dto.GeocodingResponse;
+import info.eecc.weather.dto.WeatherResponse;
+import info.eecc.weather.exception.WeatherException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Open-Meteo Client Tests")
+class OpenMeteoClientTest {
+
+    private static final String WEATHER_JSON = """
+            {"latitude":52.52,"longitude":13.4,"current_units":{"temperature_2m":"°C"},
+             "current":{"time":"2024-01-15T14:30","interval":900,"temperature_2m":22.5,"weather_code":2}}
+            """;
+
+    private static final String GEOCODING_JSON = """
+            {"results":[{"name":"Berlin","latitude":52.52437,"longitude":13.41053,"country":"Germany"}]}
+            """;
+
+    private HttpServer server;
+
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+
+    private final AtomicInteger limitedCalls = new AtomicInteger();
+
+    private UpstreamHttpProperties properties;
+
+    private final UpstreamConcurrencyProperties concurrencyProperties = new UpstreamConcurrencyProperties();
+
+    private final UpstreamBudgetProperties budgetProperties = new UpstreamBudgetProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/forecast", exchange -> {
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            byte[] body = gzip(WEATHER_JSON);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/v1/search", exchange -> {
+            byte[] body = GEOCODING_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/v1/limited", exchange -> {
+            limitedCalls.incrementAndGet();
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+        });
+        server.createContext("/v1/slow", exchange -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        properties = new UpstreamHttpProperties();
+        properties.setForecastUrl(baseUrl + "/v1/forecast");
+        properties.setGeocodingUrl(baseUrl + "/v1/search");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should request and decompress gzip encoded forecast responses")
+    void fetchCurrentWeather_WithGzipResponse_ShouldDecode() {
+        WeatherResponse response = createClient().fetchCurrentWeather(52.52, 13.405);
+
+        assertThat(acceptEncoding.get()).isEqualTo("gzip");
+        assertThat(response.getCurrentWeather().getTemperature_2m()).isEqualTo(22.5);
+        assertThat(response.getCurrentWeather().getInterval()).isEqualTo(900);
+        assertThat(response.getCurrentWeatherUnits().getTemperature_2m()).isEqualTo("°C");
+    }
+
+    @Test
+    @DisplayName("Should stream decode gzip encoded forecast responses into the API representation")
+    void fetchCurrentObservation_WithGzipResponse_ShouldDecode() {
+        CurrentObservation observation = createClient().fetchCurrentObservation(52.52, 13.405, "Berlin");
+
+        assertThat(observation.getInterval()).isEqualTo(900);
+        assertThat(observation.getWeather().getLocation()).isEqualTo("Berlin");
+        assertThat(observation.getWeather().getTemperature()).isEqualTo(22.5);
+        assertThat(observation.getWeather().getWeatherDescription()).isEqualTo("Partly cloudy");
+        assertThat(observation.getWeather().getTemperatureUnit()).isEqualTo("°C");
+    }
+
+    @Test
+    @DisplayName("Should pass through uncompressed geocoding responses")
+    void searchLocation_WithPlainResponse_ShouldDecode() {
+        GeocodingResponse response = createClient().searchLocation("Berlin");
+
+        assertThat(response.getResults()).singleElement()
+                .satisfies(result -> assertThat(result.getName()).isEqualTo("Berlin"));
+    }
+
+    @Test
+    @DisplayName("Should time upstream calls by endpoint, outcome and status")
+    void fetchCurrentWeather_ShouldRecordTimerWithTags() {
+        OpenMeteoClient client = createClient();
+        client.fetchCurrentWeather(52.52, 13.405);
+        properties.setForecastUrl(properties.getForecastUrl().replace("forecast", "missing"));
+        assertThatThrownBy(() -> client.fetchCurrentWeather(52.52, 13.405));
+
+        assertThat(meterRegistry.get("weather.upstream.requests")
+                .tags("endpoint", "forecast", "outcome", "SUCCESS", "status", "2xx").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.requests")
+                .tags("endpoint", "forecast", "outcome", "CLIENT_ERROR", "status", "404").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should give up when the read timeout elapses")
+    void fetchCurrentWeather_WhenUpstreamIsSlow_ShouldTimeOut() {
+        properties.setForecastUrl(properties.getForecastUrl().replace("forecast", "slow"));
+        properties.setReadTimeout(Duration.ofMillis(200));
+
+        assertThatThrownBy(() -> createClient().fetchCurrentWeather(52.52, 13.405))
+                .isInstanceOf(ResourceAccessException.class);
+    }
+
+    @Test
+    @DisplayName("Should hold back further calls after the upstream answered 429")
+    void fetchCurrentWeather_AfterTooManyRequests_ShouldRejectWithoutCallingUpstream() {
+        properties.setForecastUrl(properties.getForecastUrl().replace("forecast", "limited"));
+        budgetProperties.setEnabled(true);
+        budgetProperties.setMaxWait(Duration.ofMillis(50));
+        OpenMeteoClient client = createClient();
+
+        assertThatThrownBy(() -> client.fetchCurrentWeather(52.52, 13.405))
+                .isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+        assertThatThrownBy(() -> client.fetchCurrentWeather(52.52, 13.405))
+                .isInstanceOf(WeatherException.class)
+                .hasMessageContaining("budget");
+        assertThat(limitedCalls).hasValue(1);
+        assertThat(meterRegistry.get("weather.upstream.budget.consumed").tag("endpoint", "forecast").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.budget.remaining").tag("window", "minute").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject calls with 503 when all concurrency slots stay busy")
+    void fetchCurrentWeather_WhenConcurrencyLimitReached_ShouldReject() throws Exception {
+        properties.setForecastUrl(properties.getForecastUrl().replace("forecast", "slow"));
+        concurrencyProperties.setMaxConcurrentRequests(1);
+        concurrencyProperties.setAcquireTimeout(Duration.ofMillis(100));
+        OpenMeteoClient client = createClient();
+
+        CompletableFuture<WeatherResponse> first = CompletableFuture.supplyAsync(
+                () -> client.fetchCurrentWeather(52.52, 13.405));
+        Thread.sleep(200);
+
+        assertThatThrownBy(() -> client.fetchCurrentWeather(48.137, 11.575))
+                .isInstanceOf(WeatherException.class)
+                .satisfies(e -> assertThat(((WeatherException) e).getHttpStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(meterRegistry.counter("weather.upstream.concurrency.rejected").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.concurrency.in_use").gauge().value()).isEqualTo(1);
+        first.join();
+    }
+
+    private OpenMeteoClient createClient() {
+        AppConfig appConfig = new AppConfig();
+        RestTemplate restTemplate = appConfig.restTemplate(new RestTemplateBuilder(),
+                appConfig.upstreamHttpClient(properties, new StandardEnvironment()), properties);
+        return new OpenMeteoClient(restTemplate, properties,
+                new UpstreamConcurrencyLimiter(concurrencyProperties, meterRegistry),
+                new UpstreamBudget(budgetProperties, Clock.systemUTC(), meterRegistry), new UpstreamMetrics(meterRegistry),
+                new UpstreamCircuitBreakers(new CircuitBreakerProperties(), Clock.systemUTC(), meterRegistry),
+                new UpstreamHedging(new HedgingProperties(), new SimpleMeterRegistry(), Executors.newVirtualThreadPerTaskExecutor()));
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,159 @@
+package info.eecc.weather.upstream;
+
+import info.eecc.weather.config.UpstreamBudgetProperties;
+import info.eecc.weather.exception.WeatherException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Upstream Budget Tests")
+class UpstreamBudgetTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T14:35:00Z");
+
+    private final UpstreamBudgetProperties properties = new UpstreamBudgetProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setRequestsPerMinute(10);
+        properties.setRequestsPerHour(0);
+        properties.setRequestsPerDay(0);
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+    }
+
+    @Test
+    @DisplayName("Should stop background calls first and leave the last calls to interactive ones")
+    void execute_WhenBudgetRunsLow_ShouldServeByPriority() {
+        // Given
+        UpstreamBudget budget = new UpstreamBudget(properties, clock, meterRegistry);
+
+        // When
+        int background = callUntilRejected(budget, UpstreamPriority.BACKGROUND);
+        int batch = callUntilRejected(budget, UpstreamPriority.BATCH);
+        int interactive = callUntilRejected(budget, UpstreamPriority.INTERACTIVE);
+
+        // Then
+        assertThat(background).isEqualTo(6);
+        assertThat(batch).isEqualTo(2);
+        assertThat(interactive).isEqualTo(2);
+        assertThat(budget.getRemaining("minute")).isZero();
+        assertThat(budget.getRemaining("day")).isEqualTo(-1);
+        assertThat(meterRegistry.get("weather.upstream.budget.consumed").tag("endpoint", "forecast").counter().count())
+                .isEqualTo(10);
+        assertThat(meterRegistry.get("weather.upstream.budget.rejected").tag("priority", "background").counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject with 503 until the quota refills")
+    void execute_WhenBudgetExhausted_ShouldRejectUntilRefilled() {
+        // Given
+        UpstreamBudget budget = new UpstreamBudget(properties, clock, meterRegistry);
+        callUntilRejected(budget, UpstreamPriority.INTERACTIVE);
+
+        // When
+        Throwable rejection = catchThrowable(
+                () -> budget.execute("forecast", UpstreamPriority.INTERACTIVE, 1, () -> "weather"));
+        when(clock.instant()).thenReturn(NOW.plusSeconds(6));
+
+        // Then
+        assertThat(rejection).isInstanceOf(WeatherException.class)
+                .hasMessageContaining("budget")
+                .satisfies(e -> assertThat(((WeatherException) e).getHttpStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(budget.execute("forecast", UpstreamPriority.INTERACTIVE, 1, () -> "weather")).isEqualTo("weather");
+        assertThatThrownBy(() -> budget.execute("forecast", UpstreamPriority.INTERACTIVE, 1, () -> "weather"))
+                .isInstanceOf(WeatherException.class);
+    }
+
+    @Test
+    @DisplayName("Should charge a multi-location call once per location and reject one larger than the quota")
+    void execute_WithSeveralLocations_ShouldChargeEachLocation() {
+        // Given
+        UpstreamBudget budget = new UpstreamBudget(properties, clock, meterRegistry);
+
+        // When
+        budget.execute("forecast_batch", UpstreamPriority.BATCH, 7, () -> "weather");
+        Throwable oversized = catchThrowable(
+                () -> budget.execute("forecast_batch", UpstreamPriority.INTERACTIVE, 11, () -> "weather"));
+
+        // Then
+        assertThat(budget.getRemaining("minute")).isEqualTo(3);
+        assertThat(meterRegistry.get("weather.upstream.budget.consumed").tag("endpoint", "forecast_batch").counter()
+                .count()).isEqualTo(7);
+        assertThat(oversized).isInstanceOf(WeatherException.class).hasMessageContaining("11 locations");
+        assertThat(budget.getRemaining("minute")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should refill the day quota at midnight UTC instead of continuously")
+    void execute_WhenDayQuotaUsedUp_ShouldWaitForNextDay() {
+        // Given
+        properties.setRequestsPerMinute(0);
+        properties.setRequestsPerDay(5);
+        UpstreamBudget budget = new UpstreamBudget(properties, clock, meterRegistry);
+        callUntilRejected(budget, UpstreamPriority.INTERACTIVE);
+
+        // When
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-15T23:59:59Z"));
+        int beforeMidnight = budget.getRemaining("day");
+        when(clock.instant()).thenReturn(Instant.parse("2024-01-16T00:00:00Z"));
+        int afterMidnight = budget.getRemaining("day");
+
+        // Then
+        assertThat(beforeMidnight).isZero();
+        assertThat(afterMidnight).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should pass all calls through when disabled")
+    void execute_WhenDisabled_ShouldNotLimit() {
+        // Given
+        properties.setEnabled(false);
+        UpstreamBudget budget = new UpstreamBudget(properties, clock, meterRegistry);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            budget.execute("forecast", UpstreamPriority.BACKGROUND, 1, () -> "weather");
+        }
+
+        // Then
+        assertThat(budget.getRemaining("minute")).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should run work at the given priority and restore the previous one")
+    void call_ShouldSetPriorityForCurrentThread() {
+        UpstreamPriority inside = UpstreamPriority.BATCH.call(UpstreamPriority::current);
+
+        assertThat(inside).isEqualTo(UpstreamPriority.BATCH);
+        assertThat(UpstreamPriority.current()).isEqualTo(UpstreamPriority.INTERACTIVE);
+    }
+
+    private static int callUntilRejected(UpstreamBudget budget, UpstreamPriority priority) {
+        int calls = 0;
+        try {
+            while (calls < 100) {
+                budget.execute("forecast", priority, 1, () -> "weather");
+                calls++;
+            }
+        } catch (WeatherException e) {
+            // Budget for this priority used up
+        }
+        return calls;
+    }
+}
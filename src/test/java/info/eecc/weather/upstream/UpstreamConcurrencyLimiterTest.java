@@ -0,0 +1,106 @@
+package info.eecc.weather.upstream;
+
+import info.eecc.weather.config.UpstreamConcurrencyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Upstream Concurrency Limiter Tests")
+class UpstreamConcurrencyLimiterTest {
+
+    private final UpstreamConcurrencyProperties properties = new UpstreamConcurrencyProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.setMinConcurrentRequests(2);
+        properties.setInitialConcurrentRequests(10);
+        properties.setMaxConcurrentRequests(11);
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit multiplicatively on upstream failures down to the minimum")
+    void execute_WithUpstreamFailures_ShouldDecreaseLimit() {
+        // Given
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        // When
+        failCall(limiter);
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        for (int i = 0; i < 50; i++) {
+            failCall(limiter);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInUse()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit for calls slower than the latency threshold")
+    void execute_WithSlowCall_ShouldDecreaseLimit() {
+        // Given
+        properties.setLatencyThreshold(Duration.ofMillis(10));
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        // When
+        limiter.execute(() -> {
+            sleep(50);
+            return "weather";
+        });
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("Should grow the limit only while at least half of it is used")
+    void execute_WhenLimitIsUsed_ShouldIncreaseLimit() {
+        // Given
+        properties.setMinConcurrentRequests(1);
+        properties.setInitialConcurrentRequests(1);
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            limiter.execute(() -> "weather");
+        }
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should keep the configured maximum when adaptation is disabled")
+    void execute_WhenNotAdaptive_ShouldKeepLimit() {
+        // Given
+        properties.setAdaptive(false);
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter(properties, new SimpleMeterRegistry());
+
+        // When
+        failCall(limiter);
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(11);
+    }
+
+    private static void failCall(UpstreamConcurrencyLimiter limiter) {
+        assertThatThrownBy(() -> limiter.execute(() -> {
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        })).isInstanceOf(HttpServerErrorException.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
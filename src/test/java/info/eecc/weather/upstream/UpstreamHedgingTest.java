@@ -0,0 +1,153 @@
+package info.eecc.weather.upstream;
+
+import info.eecc.weather.config.HedgingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Upstream Hedging Tests")
+class UpstreamHedgingTest {
+
+    private final HedgingProperties properties = new HedgingProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private UpstreamHedging hedging;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMinSamples(5);
+        properties.setMinDelay(Duration.ofMillis(20));
+        properties.setBudgetPercent(100);
+        hedging = new UpstreamHedging(properties, meterRegistry, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should not hedge before enough latencies are known")
+    void execute_WithoutSamples_ShouldCallOnce() {
+        // When
+        String result = hedging.execute(UpstreamMetrics.FORECAST, () -> slowThenFast(200));
+
+        // Then
+        assertThat(result).isEqualTo("first");
+        assertThat(attempts).hasValue(1);
+        assertThat(hedging.hedgeDelay(UpstreamMetrics.FORECAST)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should send a duplicate after the hedge delay and return the first answer")
+    void execute_WhenFirstAttemptIsSlow_ShouldReturnHedgedAnswer() {
+        // Given
+        warmUp();
+
+        // When
+        long start = System.nanoTime();
+        String result = hedging.execute(UpstreamMetrics.FORECAST, () -> slowThenFast(2000));
+
+        // Then
+        assertThat(result).isEqualTo("hedge");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(hedging.hedgeDelay(UpstreamMetrics.FORECAST)).isEqualTo(Duration.ofMillis(20));
+        assertThat(meterRegistry.get("weather.upstream.hedges").tag("result", "sent").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("weather.upstream.hedges").tag("result", "won").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should wait for the first attempt when the hedge budget is used up")
+    void execute_WhenBudgetExhausted_ShouldNotHedge() {
+        // Given
+        properties.setBudgetPercent(5);
+        hedging = new UpstreamHedging(properties, meterRegistry, executor);
+        warmUp();
+
+        // When
+        String result = hedging.execute(UpstreamMetrics.FORECAST, () -> slowThenFast(200));
+
+        // Then
+        assertThat(result).isEqualTo("first");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the first attempt when the hedge fails")
+    void execute_WhenHedgeFails_ShouldReturnFirstAnswer() {
+        // Given
+        warmUp();
+
+        // When
+        String result = hedging.execute(UpstreamMetrics.FORECAST, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(200);
+                return "first";
+            }
+            throw new ResourceAccessException("Read timed out");
+        });
+
+        // Then
+        assertThat(result).isEqualTo("first");
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should cancel the slower reactive attempt")
+    void executeAsync_WhenFirstAttemptIsSlow_ShouldCancelIt() {
+        // Given
+        warmUp();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        // When & Then
+        StepVerifier.create(hedging.executeAsync(UpstreamMetrics.GEOCODING, () -> attempts.incrementAndGet() == 1
+                        ? Mono.just("first").delayElement(Duration.ofSeconds(2)).doOnCancel(() -> cancelled.set(true))
+                        : Mono.just("hedge")))
+                .expectNext("hedge")
+                .verifyComplete();
+        assertThat(cancelled).isTrue();
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 5; i++) {
+            hedging.execute(UpstreamMetrics.FORECAST, () -> "warm-up");
+            hedging.executeAsync(UpstreamMetrics.GEOCODING, () -> Mono.just("warm-up")).block();
+        }
+        attempts.set(0);
+    }
+
+    private String slowThenFast(long firstAttemptMillis) {
+        if (attempts.incrementAndGet() == 1) {
+            sleep(firstAttemptMillis);
+            return "first";
+        }
+        return "hedge";
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
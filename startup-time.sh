@@ -0,0 +1,62 @@
+#!/bin/bash
+
+# Startup Time Script
+# Measures the time from launching the app until it answers its first request, for the plain jar, with Spring
+# AOT, with AOT and the AppCDS archive, and for the native image if one was built.
+#
+# Build first: mvn -Pfast-start package  (and optionally: mvn -Pnative native:compile)
+# Usage: ./startup-time.sh [runs]          RUNS, PORT and PROFILE can also be set as environment variables
+
+RUNS="${1:-${RUNS:-5}}"
+PORT="${PORT:-18081}"
+PROFILE="${PROFILE:-production}"
+DIR="$(cd "$(dirname "$0")" && pwd)/target/fast-start"
+NATIVE="$(cd "$(dirname "$0")" && pwd)/target/weather"
+JAR="weather-0.0.1-SNAPSHOT.jar"
+URL="http://localhost:$PORT/actuator/health/readiness"
+ARGS="--server.port=$PORT --spring.profiles.active=$PROFILE --weather.cache.snapshot.enabled=false"
+
+if [ ! -f "$DIR/$JAR" ]; then
+    echo "❌ $DIR/$JAR not found, run: mvn -Pfast-start package"
+    exit 1
+fi
+
+# Prints the milliseconds from launch until the readiness probe answers 200
+measure() {
+    local start end pid
+    start=$(date +%s%N)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "failed"
+            return
+        fi
+        sleep 0.01
+    done
+    end=$(date +%s%N)
+    kill "$pid"
+    wait "$pid" 2> /dev/null
+    echo $(( (end - start) / 1000000 ))
+}
+
+# Runs a mode RUNS times and prints all times and their median
+report() {
+    local name="$1" times=() sorted
+    shift
+    for _ in $(seq "$RUNS"); do
+        times+=("$(measure "$@")")
+    done
+    sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+    printf "%-12s median %6s ms   (%s)\n" "$name" "${sorted[$(( RUNS / 2 ))]}" "${times[*]}"
+}
+
+echo "⏱️  Time to first request, $RUNS runs each, profile '$PROFILE'"
+echo "================================"
+cd "$DIR" || exit 1
+report "jar" java -jar "$JAR" $ARGS
+report "aot" java -Dspring.aot.enabled=true -jar "$JAR" $ARGS
+report "aot + cds" java -XX:SharedArchiveFile=weather.jsa -Dspring.aot.enabled=true -jar "$JAR" $ARGS
+if [ -x "$NATIVE" ]; then
+    report "native" "$NATIVE" $ARGS
+fi
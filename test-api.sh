@@ -44,6 +44,15 @@ echo "❌ Test 6: Non-existent city"
 echo "URL: $BASE_URL/current?city=NonExistentCityName123"
 curl -s "$BASE_URL/current?city=NonExistentCityName123" | jq '.' || echo "Expected error response"
 
+# Test 7: Batch request for multiple locations
+echo
+echo "📦 Test 7: Batch request (Berlin, Munich, Hamburg)"
+echo "URL: $BASE_URL/current/batch"
+curl -s -X POST "$BASE_URL/current/batch" \
+  -H "Content-Type: application/json" \
+  -d '{"locations":[{"latitude":52.52,"longitude":13.405},{"latitude":48.137,"longitude":11.575},{"latitude":53.551,"longitude":9.993}]}' \
+  | jq '.' || echo "❌ Test failed"
+
 echo
 echo "✅ Test script completed!"
 echo "💡 Note: Make sure the application is running on port 8080"